@@ -54,6 +54,9 @@ public class ACPImpl implements ACP {
 
     private transient Map<String, Access> cache;
 
+    // @since 2023.10
+    private transient CompiledACP compiled;
+
     private Boolean legacyBehavior;
 
     public ACPImpl() {
@@ -114,7 +117,7 @@ public class ACPImpl implements ACP {
         }
         // if oldACL and ACL are the same instance, we just need to clear
         // the cache
-        cache.clear();
+        invalidateCache();
     }
 
     @Override
@@ -124,7 +127,7 @@ public class ACPImpl implements ACP {
             acls.remove(oldACL);
         }
         acls.add(pos, acl);
-        cache.clear();
+        invalidateCache();
     }
 
     @Override
@@ -156,13 +159,34 @@ public class ACPImpl implements ACP {
         for (int i = 0, len = acls.size(); i < len; i++) {
             ACL acl = acls.get(i);
             if (acl.getName().equals(name)) {
-                cache.clear();
+                invalidateCache();
                 return acls.remove(i);
             }
         }
         return null;
     }
 
+    protected void invalidateCache() {
+        cache.clear();
+        compiled = null;
+    }
+
+    /**
+     * Gets the access table compiled from the effective ACEs of this ACP, to check many accesses against it.
+     * <p>
+     * The table is kept until this ACP is modified through its own methods, the ACLs must not be modified directly
+     * while it is in use.
+     *
+     * @since 2023.10
+     */
+    public CompiledACP getCompiledACP() {
+        long now = System.currentTimeMillis();
+        if (compiled == null || !compiled.isValid(now)) {
+            compiled = CompiledACP.compile(acls, now);
+        }
+        return compiled;
+    }
+
     @Override
     public Access getAccess(String principal, String permission) {
         // check first the cache
@@ -300,7 +324,7 @@ public class ACPImpl implements ACP {
                 acl.add(new ACE(username, permission, false));
             }
         }
-        cache.clear();
+        invalidateCache();
     }
 
     @Override
@@ -434,6 +458,7 @@ public class ACPImpl implements ACP {
     @Override
     public void replacePermission(String oldPerm, String newPerm) {
         acls.forEach(acl -> acl.replacePermission(oldPerm, newPerm));
+        invalidateCache();
     }
 
     @SuppressWarnings("AutoBoxing")
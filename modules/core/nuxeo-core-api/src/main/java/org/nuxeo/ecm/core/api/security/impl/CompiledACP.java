@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.api.security.impl;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.ecm.core.api.security.ACE;
+import org.nuxeo.ecm.core.api.security.ACL;
+import org.nuxeo.ecm.core.api.security.Access;
+import org.nuxeo.ecm.core.api.security.SecurityConstants;
+
+/**
+ * The effective ACEs of an ACP compiled into an access table, to answer access checks without walking the ACEs.
+ * <p>
+ * Permission names are interned into integer ids. For each principal appearing in the ACEs, the table holds the
+ * position of the first ACE matching each permission id, along with its grant flag, so that the first matching ACE of
+ * a check is the one with the lowest position among the principals and permissions checked. This gives the same
+ * answers as {@link ACPImpl#getAccess(ACE, String[], String[])} applied to each ACE in turn.
+ * <p>
+ * ACEs having a begin or end date make the table valid until the next date at which one of them changes status, see
+ * {@link #isValid(long)}.
+ *
+ * @since 2023.10
+ */
+public final class CompiledACP {
+
+    /** No matching ACE. */
+    private static final int NONE = Integer.MAX_VALUE;
+
+    private static final Map<String, Integer> PERMISSION_IDS = new ConcurrentHashMap<>();
+
+    private static final AtomicInteger PERMISSION_COUNT = new AtomicInteger();
+
+    private static final int RESTRICTED_READ_ID = internPermission(SecurityConstants.RESTRICTED_READ);
+
+    // encoded first matching ACE for each principal, indexed by permission id
+    private final Map<String, int[]> principals;
+
+    // encoded first matching ACE for each principal, for ACEs on the Everything permission
+    private final Map<String, Integer> principalsEverything;
+
+    private final int[] everyone;
+
+    private final int everyoneEverything;
+
+    private final long validUntil;
+
+    private CompiledACP(Map<String, int[]> principals, Map<String, Integer> principalsEverything, long validUntil) {
+        this.principals = principals;
+        this.principalsEverything = principalsEverything;
+        everyone = principals.remove(SecurityConstants.EVERYONE);
+        Integer everything = principalsEverything.remove(SecurityConstants.EVERYONE);
+        everyoneEverything = everything == null ? NONE : everything;
+        this.validUntil = validUntil;
+    }
+
+    /**
+     * Gets the id of a permission, allocating a new one if needed.
+     */
+    public static int internPermission(String permission) {
+        Integer id = PERMISSION_IDS.get(permission);
+        if (id == null) {
+            id = PERMISSION_IDS.computeIfAbsent(permission, k -> PERMISSION_COUNT.getAndIncrement());
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a permission, or {@code -1} if no ACE ever used it.
+     */
+    public static int getPermissionId(String permission) {
+        Integer id = permission == null ? null : PERMISSION_IDS.get(permission);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Compiles the ACEs of the given ACLs that are effective at the given time.
+     */
+    public static CompiledACP compile(List<ACL> acls, long now) {
+        Map<String, int[]> principals = new HashMap<>();
+        Map<String, Integer> principalsEverything = new HashMap<>();
+        long validUntil = Long.MAX_VALUE;
+        int position = 0;
+        for (ACL acl : acls) {
+            for (ACE ace : acl) {
+                int pos = position++;
+                // same as ACE#isEffective without allocating calendars
+                if (ace.getBegin() != null) {
+                    long begin = ace.getBegin().getTimeInMillis();
+                    if (now < begin) {
+                        validUntil = Math.min(validUntil, begin);
+                        continue;
+                    }
+                }
+                if (ace.getEnd() != null) {
+                    long end = ace.getEnd().getTimeInMillis();
+                    if (now > end) {
+                        continue;
+                    }
+                    validUntil = Math.min(validUntil, end + 1);
+                }
+                String permission = ace.getPermission();
+                if (permission == null) {
+                    // cannot match a resolved permission
+                    continue;
+                }
+                int entry = pos << 1 | (ace.isGranted() ? 1 : 0);
+                String principal = ace.getUsername();
+                if (SecurityConstants.EVERYTHING.equals(permission)) {
+                    principalsEverything.putIfAbsent(principal, entry);
+                    continue;
+                }
+                int id = internPermission(permission);
+                int[] entries = principals.get(principal);
+                if (entries == null || entries.length <= id) {
+                    int length = Math.max(id + 1, PERMISSION_COUNT.get());
+                    int oldLength = entries == null ? 0 : entries.length;
+                    entries = entries == null ? new int[length] : Arrays.copyOf(entries, length);
+                    Arrays.fill(entries, oldLength, length, NONE);
+                    principals.put(principal, entries);
+                }
+                if (entries[id] == NONE) {
+                    entries[id] = entry;
+                }
+            }
+        }
+        return new CompiledACP(principals, principalsEverything, validUntil);
+    }
+
+    /**
+     * Checks whether this table still gives the access of the compiled ACEs at the given time.
+     */
+    public boolean isValid(long now) {
+        return now < validUntil;
+    }
+
+    /**
+     * Gets the access given by the first effective ACE matching one of the principals and one of the permissions.
+     *
+     * @see ACPImpl#getAccess(String[], String[])
+     */
+    public Access getAccess(String[] principalsToCheck, String[] permissionsToCheck) {
+        if (principalsToCheck.length == 0) {
+            return Access.UNKNOWN;
+        }
+        int[] ids = new int[permissionsToCheck.length];
+        boolean everything = false;
+        for (int i = 0; i < ids.length; i++) {
+            String permission = permissionsToCheck[i];
+            ids[i] = getPermissionId(permission);
+            // RESTRICTED_READ needs special handling, is not implied by EVERYTHING
+            everything |= ids[i] != RESTRICTED_READ_ID;
+        }
+        int first = getFirst(everyone, everyoneEverything, ids, everything);
+        for (String principal : principalsToCheck) {
+            int[] entries = principals.get(principal);
+            Integer entryEverything = principalsEverything.get(principal);
+            first = Math.min(first, getFirst(entries, entryEverything == null ? NONE : entryEverything, ids, everything));
+        }
+        if (first == NONE) {
+            return Access.UNKNOWN;
+        }
+        return (first & 1) == 1 ? Access.GRANT : Access.DENY;
+    }
+
+    private static int getFirst(int[] entries, int entryEverything, int[] ids, boolean everything) {
+        int first = everything ? entryEverything : NONE;
+        if (entries != null) {
+            for (int id : ids) {
+                if (id >= 0 && id < entries.length) {
+                    first = Math.min(first, entries[id]);
+                }
+            }
+        }
+        return first;
+    }
+
+}
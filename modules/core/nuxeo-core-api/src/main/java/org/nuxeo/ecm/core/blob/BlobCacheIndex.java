@@ -0,0 +1,177 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.blob;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory index of the files of a {@link CachingBlobStore} cache directory, keeping their size and access order so
+ * that eviction doesn't need to list and sort the directory.
+ * <p>
+ * The index may contain files that were deleted behind its back (for instance by another cache or a garbage
+ * collection), they are dropped when reaching the eviction point.
+ *
+ * @since 2023.10
+ */
+public class BlobCacheIndex {
+
+    /** A cached file. */
+    public record CachedFile(Path path, long size, long time) {
+    }
+
+    // least recently accessed first
+    protected final LinkedHashMap<Path, CachedFile> files = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected long size;
+
+    /**
+     * Records the creation or replacement of a file.
+     */
+    public synchronized void put(Path path, long size, long time) {
+        CachedFile old = files.put(path, new CachedFile(path, size, time));
+        if (old != null) {
+            this.size -= old.size;
+        }
+        this.size += size;
+    }
+
+    /**
+     * Records an access to a file.
+     *
+     * @return {@code false} if the file is not in the index
+     */
+    public synchronized boolean touch(Path path, long time) {
+        CachedFile file = files.get(path); // moves it to the end
+        if (file == null) {
+            return false;
+        }
+        if (file.time != time) {
+            files.put(path, new CachedFile(path, file.size, time));
+        }
+        return true;
+    }
+
+    public synchronized boolean contains(Path path) {
+        return files.containsKey(path);
+    }
+
+    public synchronized void remove(Path path) {
+        CachedFile old = files.remove(path);
+        if (old != null) {
+            size -= old.size;
+        }
+    }
+
+    public synchronized void clear() {
+        files.clear();
+        size = 0;
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized long getCount() {
+        return files.size();
+    }
+
+    /**
+     * Removes from the index and returns the least recently accessed files, while the cache is over its maximum size
+     * or count and the files have not been accessed since the threshold.
+     * <p>
+     * The caller is responsible for deleting the returned files.
+     */
+    public synchronized List<CachedFile> pollEvictable(long maxSize, long maxCount, long threshold) {
+        List<CachedFile> evictable = new ArrayList<>();
+        Iterator<CachedFile> it = files.values().iterator();
+        while ((size > maxSize || files.size() > maxCount) && it.hasNext()) {
+            CachedFile file = it.next();
+            if (file.time >= threshold) {
+                // all the next ones are more recent
+                break;
+            }
+            it.remove();
+            size -= file.size;
+            evictable.add(file);
+        }
+        return evictable;
+    }
+
+    /**
+     * Puts back as least recently accessed the polled files that could not be evicted, unless they have been recorded
+     * again since they were polled.
+     */
+    public synchronized void reoffer(List<CachedFile> polled) {
+        if (polled.isEmpty()) {
+            return;
+        }
+        List<CachedFile> known = new ArrayList<>(files.values());
+        files.clear();
+        for (CachedFile file : polled) {
+            files.put(file.path, file);
+            size += file.size;
+        }
+        for (CachedFile file : known) {
+            CachedFile old = files.put(file.path, file);
+            if (old != null) {
+                // recorded again since it was polled
+                size -= old.size;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index from a listing of the cache directory.
+     * <p>
+     * Listed files not yet known are inserted as least recently accessed, in order of their time. Known files that
+     * are not listed anymore are removed, unless they have been recorded since the listing started.
+     *
+     * @param listed the listed files
+     * @param listingTime the time at which the listing started
+     */
+    public synchronized void rebuild(List<CachedFile> listed, long listingTime) {
+        Set<Path> listedPaths = new HashSet<>();
+        List<CachedFile> unknown = new ArrayList<>();
+        for (CachedFile file : listed) {
+            listedPaths.add(file.path);
+            if (!files.containsKey(file.path)) {
+                unknown.add(file);
+            }
+        }
+        unknown.sort(Comparator.comparingLong(CachedFile::time));
+        List<CachedFile> known = new ArrayList<>(files.values());
+        files.clear();
+        size = 0;
+        for (CachedFile file : unknown) {
+            files.put(file.path, file);
+            size += file.size;
+        }
+        for (CachedFile file : known) {
+            if (listedPaths.contains(file.path) || file.time >= listingTime) {
+                files.put(file.path, file);
+                size += file.size;
+            }
+        }
+    }
+
+}
@@ -26,11 +26,9 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
-import java.nio.file.attribute.FileTime;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -39,8 +37,15 @@ import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.blob.BlobCacheIndex.CachedFile;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
 
 /**
  * Blob store wrapper that caches blobs locally because fetching them may be expensive.
@@ -74,6 +79,25 @@ public class CachingBlobStore extends AbstractBlobStore {
     // not a constant for tests
     protected Clock clock = Clock.systemUTC();
 
+    /** @since 2023.10 */
+    protected final BlobCacheIndex index = new BlobCacheIndex();
+
+    /**
+     * Whether the directory must be listed to find files unknown to the index (existing files, garbage collection).
+     *
+     * @since 2023.10
+     */
+    protected volatile boolean indexNeedsRebuild = true;
+
+    /** @since 2023.10 */
+    protected final Counter hitCounter;
+
+    /** @since 2023.10 */
+    protected final Counter missCounter;
+
+    /** @since 2023.10 */
+    protected final Counter evictionCounter;
+
     /** @deprecated since 11.5 */
     @Deprecated
     public CachingBlobStore(String name, BlobStore store, CachingConfiguration config) {
@@ -87,6 +111,14 @@ public class CachingBlobStore extends AbstractBlobStore {
         this.cacheConfig = config;
         cacheStore = new LocalBlobStore(name, store.getKeyStrategy(), new PathStrategyShortened(config.dir));
         gc = new CachingBinaryGarbageCollector();
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        hitCounter = registry.counter(metricName("hit"));
+        missCounter = registry.counter(metricName("miss"));
+        evictionCounter = registry.counter(metricName("eviction"));
+    }
+
+    protected MetricName metricName(String name) {
+        return MetricName.build("nuxeo", "blobstore", "cache", name).tagged("blobstore", this.name);
     }
 
     @Override
@@ -119,7 +151,7 @@ public class CachingBlobStore extends AbstractBlobStore {
             throw new IllegalStateException("File disappeared after copy/move: " + destKey);
         }
         Path path = fileOpt.get();
-        recordBlobAccess(path);
+        recordBlobWrite(path);
         clearOldBlobs();
         return path;
     }
@@ -155,10 +187,15 @@ public class CachingBlobStore extends AbstractBlobStore {
     @Override
     public String copyOrMoveBlob(String key, BlobStore sourceStore, String sourceKey, boolean atomicMove)
             throws IOException {
-        LocalBlobStore sourceCacheStore = sourceStore instanceof CachingBlobStore
-                ? ((CachingBlobStore) sourceStore).cacheStore
+        CachingBlobStore sourceCachingStore = sourceStore instanceof CachingBlobStore
+                ? (CachingBlobStore) sourceStore
                 : null;
+        LocalBlobStore sourceCacheStore = sourceCachingStore == null ? null : sourceCachingStore.cacheStore;
         if ((!atomicMove || copyBlobIsOptimized(sourceStore)) && sourceCacheStore != null && key != null) {
+            if (!atomicMove) {
+                // the original cached file stays, record the access in the index of its cache
+                sourceCachingStore.recordBlobAccess(sourceCacheStore, sourceKey);
+            }
             // if it's a copy and the original cached file won't be touched
             // else optimized move won't need the cache, so we can move the cache ahead of time
             copyOrMoveCachedBlob(key, sourceCacheStore, sourceKey, atomicMove);
@@ -189,6 +226,7 @@ public class CachingBlobStore extends AbstractBlobStore {
         recordBlobAccess(cacheStore, key);
         OptionalOrUnknown<Path> fileOpt = cacheStore.getFile(key);
         if (fileOpt.isPresent()) {
+            hitCounter.inc();
             Path path = fileOpt.get();
             long len = path.toFile().length();
             if (exists) {
@@ -198,6 +236,7 @@ public class CachingBlobStore extends AbstractBlobStore {
             }
             logTrace("hnote right: " + key);
         } else {
+            missCounter.inc();
             logTrace("<--", "missing");
             logTrace("hnote right: " + key);
         }
@@ -241,6 +280,7 @@ public class CachingBlobStore extends AbstractBlobStore {
 
     @Override
     public void deleteBlob(String key) {
+        index.remove(cacheStore.pathStrategy.getPathForKey(key));
         cacheStore.deleteBlob(key);
         store.deleteBlob(key);
     }
@@ -248,11 +288,12 @@ public class CachingBlobStore extends AbstractBlobStore {
     @Override
     public void clear() {
         cacheStore.clear();
+        index.clear();
         store.clear();
     }
 
     /**
-     * Clear old blobs from the cache, but not too often (as doing directory listings has a cost).
+     * Clear old blobs from the cache, but not too often.
      *
      * @since 11.5
      */
@@ -275,6 +316,9 @@ public class CachingBlobStore extends AbstractBlobStore {
      * <p>
      * A blob is deleted if it has not been recently created or accessed (minimum age), and if in addition it would be
      * too big for the maximum cache size in bytes, or if the cache would contain too many blobs.
+     * <p>
+     * Candidates are taken from the {@link BlobCacheIndex}, least recently accessed first, so only the evicted files
+     * are visited. The cache directory is only listed the first time, or after a garbage collection.
      *
      * @since 11.5
      */
@@ -286,111 +330,98 @@ public class CachingBlobStore extends AbstractBlobStore {
         log.debug("clearOldBlobs starting, dir={} maxSize={}, maxCount={}, minAge={}s, threshold={}", cacheConfig.dir,
                 maxSize, maxCount, cacheConfig.minAge, threshold);
 
-        List<PathInfo> files = new ArrayList<>();
-        try (DirectoryStream<Path> ds = Files.newDirectoryStream(cacheConfig.dir)) {
-            for (Path path : ds) {
-                PathInfo pi;
+        if (indexNeedsRebuild) {
+            rebuildIndex();
+        }
+        List<CachedFile> files = index.pollEvictable(maxSize, maxCount, threshold);
+        log.debug("clearOldBlobs {} files to check", files.size());
+        long deleted = 0;
+        // the files that could not be deleted, still counted in the cache size
+        List<CachedFile> kept = new ArrayList<>();
+        for (CachedFile file : files) {
+            Path path = file.path();
+            if (tryLock(path)) {
                 try {
-                    pi = new PathInfo(path);
+                    // re-check under lock that the file wasn't accessed or replaced since it was polled
+                    if (index.contains(path)) {
+                        log.trace("clearOldBlobs keeping file: {} because it was just accessed", path);
+                        continue;
+                    }
+                    long time = Files.getLastModifiedTime(path).toMillis();
+                    if (time >= threshold) {
+                        log.trace("clearOldBlobs keeping file: {} because it's recent (timestamp {})", path, time);
+                        index.put(path, Files.size(path), time);
+                        continue;
+                    }
+                    log.trace("clearOldBlobs DELETING file: {} (last access {}, size {})", path, file.time(),
+                            file.size());
+                    Files.delete(path);
+                    deleted++;
                 } catch (NoSuchFileException e) {
                     log.trace("clearOldBlobs ignoring missing file: {}", path);
-                    continue;
                 } catch (IOException e) {
                     log.warn(e.getMessage());
-                    continue;
-                }
-                if (cacheStore.pathStrategy.isTempFile(path)) {
-                    log.trace("clearOldBlobs ignoring temporary file: {} (timestamp {})", path, pi.time);
-                    continue;
-                }
-                files.add(pi);
-            }
-        } catch (IOException e) {
-            log.warn(e.getMessage());
-        }
-        Collections.sort(files); // sort by most recent first
-
-        log.debug("clearOldBlobs {} files to check", files.size());
-        long size = 0;
-        long count = 0;
-        long recentCount = 0;
-        for (PathInfo pi : files) {
-            size += pi.size;
-            count++;
-            // are there too many files, or do they occupy too much space?
-            if (count > maxCount || size > maxSize) {
-                // is the file old enough to be a candidate for deletion?
-                if (pi.time < threshold) {
-                    if (tryLock(pi.path)) {
-                        try {
-                            // re-check file age under lock
-                            long time = Files.getLastModifiedTime(pi.path).toMillis();
-                            if (time < threshold) {
-                                // delete the file
-                                log.trace(
-                                        "clearOldBlobs DELETING file: {} (timestamp {}, cumulative count {}, cumulative size {})",
-                                        pi.path, time, count, size);
-                                Files.delete(pi.path);
-                                size -= pi.size;
-                                count--;
-                            } else {
-                                recentCount++;
-                                log.trace("clearOldBlobs keeping file: {} because it's recent (timestamp {})", pi.path,
-                                        time);
-                            }
-                        } catch (IOException e) {
-                            log.warn(e.getMessage());
-                        } finally {
-                            unlock(pi.path);
-                        }
-                    } else {
-                        log.trace("clearOldBlobs skipping file: {} because it's already locked", pi.path);
-                    }
-                } else {
-                    recentCount++;
-                    log.trace("clearOldBlobs keeping file: {} because it's recent (timestamp {})", pi.path, pi.time);
+                    kept.add(file);
+                } finally {
+                    unlock(path);
                 }
             } else {
-                log.trace("clearOldBlobs keeping file: {}", pi.path);
+                log.trace("clearOldBlobs skipping file: {} because it's already locked", path);
+                kept.add(file);
             }
         }
+        // offered again for the next eviction, unless accessed or replaced meanwhile
+        index.reoffer(kept);
+        evictionCounter.inc(deleted);
         if (log.isDebugEnabled()) {
             if (maxSize == 0) {
                 maxSize = 1; // shouldn't happen, but don't divide by zero
             }
-            log.debug(String.format(
-                    "clearOldBlobs done (keeping %d files out of %d (including %d recent), cache fill ratio now %.1f%%)",
-                    count, files.size(), recentCount, 100d * size / maxSize));
+            log.debug(String.format("clearOldBlobs done (deleted %d files, keeping %d files, cache fill ratio now %.1f%%)",
+                    deleted, index.getCount(), 100d * index.getSize() / maxSize));
         }
     }
 
-    protected static class PathInfo implements Comparable<PathInfo> {
-
-        protected final Path path;
-
-        protected final long time;
-
-        protected final long size;
-
-        public PathInfo(Path path) throws IOException {
-            this.path = path;
-            this.time = Files.getLastModifiedTime(path).toMillis();
-            this.size = Files.size(path);
-        }
-
-        @Override
-        public int compareTo(PathInfo other) { // NOSONAR no need for equals
-            // compare in reverse order (most recent first)
-            return Long.compare(other.time, time);
+    /**
+     * Rebuilds the index from a listing of the cache directory.
+     * <p>
+     * Files not yet known to the index are considered to have been last accessed at their modification time.
+     *
+     * @since 2023.10
+     */
+    protected void rebuildIndex() {
+        indexNeedsRebuild = false;
+        long listingTime = clock.millis();
+        List<CachedFile> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(cacheConfig.dir)) {
+            for (Path path : ds) {
+                if (cacheStore.pathStrategy.isTempFile(path)) {
+                    continue;
+                }
+                try {
+                    files.add(new CachedFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis()));
+                } catch (NoSuchFileException e) {
+                    log.trace("rebuildIndex ignoring missing file: {}", path);
+                } catch (IOException e) {
+                    log.warn(e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            log.warn(e.getMessage());
         }
+        index.rebuild(files, listingTime);
+        log.debug("rebuildIndex done, dir={} count={} size={}", cacheConfig.dir, index.getCount(), index.getSize());
     }
 
     protected void recordBlobAccess(LocalBlobStore localBlobStore, String key) {
-        recordBlobAccess(localBlobStore.pathStrategy.getPathForKey(key));
+        // the access to a file from another cache is recorded by the caching store owning it
+        if (localBlobStore == cacheStore) {
+            recordBlobAccess(localBlobStore.pathStrategy.getPathForKey(key));
+        }
     }
 
     /**
-     * Records access to a file by changing its modification time.
+     * Records access to a file in the index.
      * <p>
      * Recording access is also a form of locking against concurrent deletion by the clearing mechanism.
      *
@@ -399,8 +430,30 @@ public class CachingBlobStore extends AbstractBlobStore {
     protected void recordBlobAccess(Path path) {
         if (tryLock(path)) {
             try {
-                // note that the filesystem may round the time
-                Files.setLastModifiedTime(path, FileTime.fromMillis(clock.millis()));
+                long time = clock.millis();
+                if (!index.touch(path, time)) {
+                    // not yet known, for instance after a restart
+                    index.put(path, Files.size(path), time);
+                }
+            } catch (NoSuchFileException e) {
+                // ignore
+            } catch (IOException e) {
+                log.error(e, e);
+            } finally {
+                unlock(path);
+            }
+        }
+    }
+
+    /**
+     * Records the creation or replacement of a file in the index.
+     *
+     * @since 2023.10
+     */
+    protected void recordBlobWrite(Path path) {
+        if (tryLock(path)) {
+            try {
+                index.put(path, Files.size(path), clock.millis());
             } catch (NoSuchFileException e) {
                 // ignore
             } catch (IOException e) {
@@ -481,6 +534,10 @@ public class CachingBlobStore extends AbstractBlobStore {
         public void stop(boolean delete) {
             delegate.stop(delete);
             cacheDelegate.stop(delete);
+            if (delete) {
+                // files were deleted behind the index
+                indexNeedsRebuild = true;
+            }
         }
 
         @Override
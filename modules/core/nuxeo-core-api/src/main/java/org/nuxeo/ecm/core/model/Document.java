@@ -37,6 +37,9 @@ import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.PropertyException;
 import org.nuxeo.ecm.core.api.model.DocumentPart;
 import org.nuxeo.ecm.core.schema.DocumentType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.Type;
 
 /**
  * A low-level document from a {@link Session}.
@@ -502,6 +505,47 @@ public interface Document {
      */
     void readDocumentPart(DocumentPart dp) throws PropertyException;
 
+    /**
+     * A read-only accessor to the stored state of a complex value, that knows its xpath.
+     * <p>
+     * Names are the prefixed names of the fields of the complex type, as in {@link Field#getName()}.
+     *
+     * @since 2023.10
+     */
+    interface StateReader {
+
+        /** Gets the xpath of this complex value, or {@code null} for a schema. */
+        String getXPath();
+
+        /** Gets a scalar value, or {@code null} if not set. */
+        Object getSingle(String name) throws PropertyException;
+
+        /** Gets an array value as an array of the class of the given item type, empty if not set. */
+        Object[] getArray(String name, Type itemType) throws PropertyException;
+
+        /** Gets a complex value, or {@code null} if not set. */
+        StateReader getChild(String name, Type type) throws PropertyException;
+
+        /** Gets the items of a complex list, empty if not set. Items without stored state are {@code null}. */
+        List<StateReader> getChildList(String name) throws PropertyException;
+
+        /** Gets the blob stored in this complex value, or {@code null} if none. */
+        Blob getBlob() throws PropertyException;
+    }
+
+    /**
+     * Gets a reader on the stored state of a schema, to read it without loading a {@link DocumentPart}.
+     * <p>
+     * The values read are the same as those loaded by {@link #readDocumentPart}.
+     *
+     * @param schema the schema
+     * @return the reader, or {@code null} if not supported by this document
+     * @since 2023.10
+     */
+    default StateReader getStateReader(Schema schema) throws PropertyException {
+        return null;
+    }
+
     /**
      * Context passed to write operations to optionally record things to do at {@link #flush} time.
      *
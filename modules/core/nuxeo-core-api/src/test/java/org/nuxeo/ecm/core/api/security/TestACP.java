@@ -27,6 +27,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
+import static org.nuxeo.ecm.core.api.security.Access.DENY;
 import static org.nuxeo.ecm.core.api.security.Access.GRANT;
 import static org.nuxeo.ecm.core.api.security.Access.UNKNOWN;
 import static org.nuxeo.ecm.core.api.security.SecurityConstants.EVERYONE;
@@ -35,7 +36,9 @@ import static org.nuxeo.ecm.core.api.security.SecurityConstants.READ;
 import static org.nuxeo.ecm.core.api.security.SecurityConstants.READ_WRITE;
 import static org.nuxeo.ecm.core.api.security.SecurityConstants.RESTRICTED_READ;
 
+import java.util.Calendar;
 import java.util.Collections;
+import java.util.GregorianCalendar;
 
 import org.junit.After;
 import org.junit.Before;
@@ -44,6 +47,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.nuxeo.ecm.core.api.security.impl.ACLImpl;
 import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
+import org.nuxeo.ecm.core.api.security.impl.CompiledACP;
 import org.nuxeo.runtime.mockito.MockitoFeature;
 import org.nuxeo.runtime.mockito.RuntimeService;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -126,6 +130,44 @@ public class TestACP {
         assertSame(UNKNOWN, acp.getAccess("jack", READ));
     }
 
+    @Test
+    public void testCompiledAccess() {
+        Calendar past = new GregorianCalendar();
+        past.add(Calendar.DAY_OF_MONTH, -1);
+        Calendar future = new GregorianCalendar();
+        future.add(Calendar.DAY_OF_MONTH, 1);
+        ACL local = acp.getOrCreateACL(ACL.LOCAL_ACL);
+        local.add(new ACE("joe", READ, false));
+        local.add(ACE.builder("jack", EVERYTHING).end(past).build()); // archived
+        local.add(ACE.builder("jack", READ).begin(future).build()); // pending
+        local.add(ACE.builder("jack", READ_WRITE).begin(past).end(future).build());
+        local.add(new ACE("members", EVERYTHING, true));
+        ACL inherited = acp.getOrCreateACL(ACL.INHERITED_ACL);
+        inherited.add(new ACE(EVERYONE, RESTRICTED_READ, true));
+        inherited.add(new ACE(EVERYONE, READ, true));
+        inherited.add(new ACE(EVERYONE, EVERYTHING, false));
+
+        String[][] principals = { {}, { "joe" }, { "jack" }, { "members", "joe" }, { "joe", "members" },
+                { "members" }, { "bob" }, { EVERYONE } };
+        String[][] permissions = { {}, { READ, EVERYTHING }, { RESTRICTED_READ }, { READ_WRITE }, { "Unknown" },
+                { RESTRICTED_READ, READ } };
+        CompiledACP compiled = ((ACPImpl) acp).getCompiledACP();
+        for (String[] principal : principals) {
+            for (String[] permission : permissions) {
+                assertSame(acp.getAccess(principal, permission), compiled.getAccess(principal, permission));
+            }
+        }
+        assertSame(DENY, compiled.getAccess(new String[] { "joe", "members" }, new String[] { READ, EVERYTHING }));
+        assertSame(GRANT, compiled.getAccess(new String[] { "members" }, new String[] { RESTRICTED_READ }));
+        assertSame(GRANT, compiled.getAccess(new String[] { "jack" }, new String[] { READ_WRITE }));
+        assertSame(GRANT, compiled.getAccess(new String[] { "jack" }, new String[] { READ }));
+
+        // recompiled when the ACP changes
+        acp.removeACL(ACL.LOCAL_ACL);
+        assertSame(GRANT, ((ACPImpl) acp).getCompiledACP()
+                                         .getAccess(new String[] { "joe" }, new String[] { READ, EVERYTHING }));
+    }
+
     @Test
     public void testCheckAccessNullACE() {
         ACL acl1 = new ACLImpl("acl1");
@@ -233,6 +233,68 @@ public class TestCachingBlobStoreCaching {
         assertEquals(2, getDirCount());
     }
 
+    @Test
+    public void testCachingBlobStoreLeastRecentlyAccessed() throws IOException {
+        CachingBlobStore store = getStore(1000, 2, 1); // 2 files max
+        store.writeBlob(new BlobContext(BLOB_30, "1", XPATH));
+        advanceClock(2);
+        store.writeBlob(new BlobContext(BLOB_30, "2", XPATH));
+        advanceClock(2);
+        // access the first file, the second one becomes the least recently accessed
+        assertTrue(store.getFile("1").isPresent());
+        advanceClock(2);
+        store.writeBlob(new BlobContext(BLOB_30, "3", XPATH));
+        assertTrue(exists("1"));
+        assertFalse(exists("2"));
+        assertTrue(exists("3"));
+        assertEquals(2, getDirCount());
+        assertEquals(2, store.index.getCount());
+        assertEquals(60, store.index.getSize());
+    }
+
+    @Test
+    public void testCachingBlobStoreLockedFileReoffered() throws IOException {
+        CachingBlobStore store = getStore(1000, 1, 1); // 1 file max
+        store.writeBlob(new BlobContext(BLOB_30, "1", XPATH));
+        advanceClock(2);
+        Path path = store.cacheStore.pathStrategy.getPathForKey("1");
+        assertTrue(CachingBlobStore.LOCKED_FILES.add(path));
+        try {
+            // the first file is being accessed, it can't be evicted
+            store.writeBlob(new BlobContext(BLOB_30, "2", XPATH));
+        } finally {
+            CachingBlobStore.unlock(path);
+        }
+        assertTrue(exists("1"));
+        assertTrue(exists("2"));
+        // still known to the index
+        assertEquals(2, store.index.getCount());
+        assertEquals(60, store.index.getSize());
+        advanceClock(2);
+        store.writeBlob(new BlobContext(BLOB_30, "3", XPATH));
+        assertFalse(exists("1"));
+        assertFalse(exists("2"));
+        assertTrue(exists("3"));
+        assertEquals(1, store.index.getCount());
+        assertEquals(30, store.index.getSize());
+    }
+
+    @Test
+    public void testCachingBlobStoreIndexRebuild() throws IOException {
+        CachingBlobStore store = getStore(1000, 9999, 1);
+        store.writeBlob(new BlobContext(BLOB_30, "1", XPATH));
+        store.writeBlob(new BlobContext(BLOB_150, "2", XPATH));
+        // a new store on the same directory, like after a restart
+        store = getStore(1000, 1, 1);
+        advanceClock(2);
+        store.writeBlob(new BlobContext(BLOB_30, "3", XPATH));
+        assertFalse(exists("1"));
+        assertFalse(exists("2"));
+        assertTrue(exists("3"));
+        assertEquals(1, store.index.getCount());
+        assertEquals(30, store.index.getSize());
+    }
+
     @Test
     public void testCachingBlobStoreKey() throws IOException {
         CachingBlobStore store = getStore(100, 9999, 1);
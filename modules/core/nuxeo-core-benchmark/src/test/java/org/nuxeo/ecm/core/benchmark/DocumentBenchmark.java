@@ -0,0 +1,75 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the document operations of a {@link org.nuxeo.ecm.core.api.CoreSession}, each in its own transaction.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DocumentBenchmark {
+
+    @Benchmark
+    public DocumentModel create(RepositoryState repository) {
+        int i = repository.counter.getAndIncrement();
+        return TransactionHelper.runInTransaction(
+                () -> repository.session.createDocument(repository.newDocumentModel(i)));
+    }
+
+    @Benchmark
+    public DocumentModel read(RepositoryState repository) {
+        return TransactionHelper.runInTransaction(() -> repository.session.getDocument(repository.randomRef()));
+    }
+
+    @Benchmark
+    public DocumentModel update(RepositoryState repository) {
+        return TransactionHelper.runInTransaction(() -> {
+            DocumentModel doc = repository.session.getDocument(repository.randomRef());
+            doc.setPropertyValue("bm:count", Long.valueOf(System.nanoTime()));
+            doc.setPropertyValue("bm:addresses/1/street", "Oxford Street");
+            return repository.session.saveDocument(doc);
+        });
+    }
+
+    @Benchmark
+    public DocumentModelList query(RepositoryState repository) {
+        int i = ThreadLocalRandom.current().nextInt(RepositoryState.SIZE);
+        String nxql = String.format(
+                "SELECT * FROM %s WHERE ecm:parentId = '%s' AND bm:name = 'doc%d' AND ecm:isTrashed = 0",
+                RepositoryState.TYPE, repository.folder.getId(), i);
+        return TransactionHelper.runInTransaction(() -> repository.session.query(nxql));
+    }
+
+}
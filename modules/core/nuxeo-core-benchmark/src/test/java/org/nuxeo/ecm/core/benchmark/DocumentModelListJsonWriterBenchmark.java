@@ -0,0 +1,110 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.reflect.TypeUtils;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.io.marshallers.json.enrichers.ContextualParametersJsonEnricher;
+import org.nuxeo.ecm.core.io.registry.MarshallerHelper;
+import org.nuxeo.ecm.core.io.registry.MarshallerRegistry;
+import org.nuxeo.ecm.core.io.registry.Writer;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the serialization of a list of the {@value RepositoryState#SIZE} documents of the {@link RepositoryState},
+ * which resolves a writer for each document and the enricher writers of each activated enricher name through the
+ * {@link MarshallerRegistry}.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DocumentModelListJsonWriterBenchmark {
+
+    protected static final Type DOCUMENT_LIST_TYPE = TypeUtils.parameterize(List.class, DocumentModel.class);
+
+    @State(Scope.Benchmark)
+    public static class Context {
+
+        protected MarshallerRegistry registry;
+
+        protected RenderingContext ctx;
+
+        protected RenderingContext enrichedCtx;
+
+        /** The documents to write, detached from their session to only measure the marshalling. */
+        protected List<DocumentModel> documents;
+
+        @Setup(Level.Trial)
+        public void setup(RepositoryState repository) {
+            registry = Framework.getService(MarshallerRegistry.class);
+            ctx = CtxBuilder.get();
+            // unknown enricher names are resolved as well, they just don't match any enricher
+            enrichedCtx = CtxBuilder.enrichDoc(ContextualParametersJsonEnricher.NAME, "unknown").get();
+            documents = TransactionHelper.runInTransaction(() -> {
+                List<DocumentModel> docs = new ArrayList<>(repository.refs.size());
+                for (DocumentRef ref : repository.refs) {
+                    DocumentModel doc = repository.session.getDocument(ref);
+                    doc.detach(true);
+                    docs.add(doc);
+                }
+                return docs;
+            });
+        }
+    }
+
+    @Benchmark
+    public String writeList(Context context) throws IOException {
+        return MarshallerHelper.listToJson(DocumentModel.class, context.documents, context.ctx);
+    }
+
+    @Benchmark
+    public String writeEnrichedList(Context context) throws IOException {
+        return MarshallerHelper.listToJson(DocumentModel.class, context.documents, context.enrichedCtx);
+    }
+
+    @Benchmark
+    public Writer<?> getListWriter(Context context) {
+        return context.registry.getWriter(context.ctx, List.class, DOCUMENT_LIST_TYPE, APPLICATION_JSON_TYPE);
+    }
+
+}
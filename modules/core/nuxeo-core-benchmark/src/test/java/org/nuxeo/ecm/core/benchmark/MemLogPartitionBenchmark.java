@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.mem.MemLogPartition;
+import org.nuxeo.lib.stream.log.mem.MemLogPartition.BytesAndOffset;
+import org.nuxeo.lib.stream.log.mem.MemLogPartition.MemPartitionTailer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the append and read throughput of the chunked {@link MemLogPartition} against the previous implementation
+ * based on a synchronized list.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MemLogPartitionBenchmark {
+
+    protected static final byte[] PAYLOAD = new byte[128];
+
+    /** Common contract of the benchmarked implementations. */
+    protected interface Partition {
+
+        long append(byte[] bytes);
+
+        Reader reader(int id);
+    }
+
+    protected interface Reader {
+
+        byte[] read();
+    }
+
+    /** The previous implementation: a list guarded by a monitor for both append and read. */
+    protected static class SynchronizedPartition implements Partition {
+
+        protected final List<byte[]> list = new ArrayList<>();
+
+        @Override
+        public long append(byte[] bytes) {
+            synchronized (list) {
+                list.add(bytes);
+                return list.size() - 1L;
+            }
+        }
+
+        @Override
+        public Reader reader(int id) {
+            return new Reader() {
+                long offset;
+
+                @Override
+                public byte[] read() {
+                    synchronized (list) {
+                        if (offset >= list.size()) {
+                            return null;
+                        }
+                        return list.get((int) offset++);
+                    }
+                }
+            };
+        }
+    }
+
+    protected static class ChunkedPartition implements Partition {
+
+        protected final MemLogPartition partition = new MemLogPartition();
+
+        @Override
+        public long append(byte[] bytes) {
+            return partition.append(null, bytes);
+        }
+
+        @Override
+        public Reader reader(int id) {
+            MemPartitionTailer tailer = partition.createTailer(Name.ofUrn("bench/reader" + id));
+            return () -> {
+                BytesAndOffset bo = tailer.read(null);
+                return bo == null ? null : bo.bytes();
+            };
+        }
+    }
+
+    @State(Scope.Group)
+    public static class PartitionState {
+
+        @Param({ "chunked", "synchronized" })
+        public String impl;
+
+        protected final AtomicInteger readerIds = new AtomicInteger();
+
+        protected Partition partition;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            partition = "chunked".equals(impl) ? new ChunkedPartition() : new SynchronizedPartition();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+
+        protected Partition partition;
+
+        protected Reader reader;
+
+        @Setup(Level.Iteration)
+        public void setup(PartitionState state) {
+            // readers are bound to the partition of the current iteration
+            partition = state.partition;
+            reader = partition.reader(state.readerIds.incrementAndGet());
+        }
+    }
+
+    @Benchmark
+    @Group("append")
+    @GroupThreads(4)
+    public long append(PartitionState state) {
+        return state.partition.append(PAYLOAD);
+    }
+
+    @Benchmark
+    @Group("appendAndRead")
+    @GroupThreads(2)
+    public long appendConcurrently(PartitionState state) {
+        return state.partition.append(PAYLOAD);
+    }
+
+    @Benchmark
+    @Group("appendAndRead")
+    @GroupThreads(4)
+    public byte[] readConcurrently(ReaderState state) {
+        return state.reader.read();
+    }
+
+    @Benchmark
+    @Group("appendSingleThread")
+    @GroupThreads(1)
+    public long appendSingleThread(PartitionState state) {
+        return state.partition.append(PAYLOAD);
+    }
+
+}
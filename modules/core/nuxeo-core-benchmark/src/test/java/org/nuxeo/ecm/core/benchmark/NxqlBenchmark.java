@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsing of a NXQL query and its evaluation against the {@link State} of a document, as done by the
+ * in-memory repository and by DBS for the transient documents.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class NxqlBenchmark {
+
+    protected static final String QUERY = "SELECT * FROM " + RepositoryState.TYPE //
+            + " WHERE ecm:isProxy = 0 AND dc:title LIKE 'Document%'" //
+            + " AND bm:count BETWEEN 10 AND 100 AND bm:tags/* IN ('tag0', 'tag42')" //
+            + " AND bm:addresses/*1/city = 'London' AND bm:addresses/*1/number = 221" //
+            + " ORDER BY dc:title";
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class Context {
+
+        protected SQLQuery query;
+
+        protected DBSExpressionEvaluator evaluator;
+
+        protected State state;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            query = SQLQueryParser.parse(QUERY);
+            evaluator = newEvaluator(query);
+            state = StateBenchmark.newState();
+            if (evaluator.matches(state).isEmpty()) {
+                throw new IllegalStateException("Query doesn't match: " + QUERY);
+            }
+        }
+    }
+
+    protected static DBSExpressionEvaluator newEvaluator(SQLQuery query) {
+        // no session needed as the query has no path or ancestor clause
+        DBSExpressionEvaluator evaluator = new DBSExpressionEvaluator(null, query, null, false);
+        evaluator.parse();
+        return evaluator;
+    }
+
+    @Benchmark
+    public SQLQuery parse() {
+        return SQLQueryParser.parse(QUERY);
+    }
+
+    @Benchmark
+    public DBSExpressionEvaluator prepare(Context context) {
+        return newEvaluator(context.query);
+    }
+
+    @Benchmark
+    public List<Map<String, Serializable>> evaluate(Context context) {
+        return context.evaluator.matches(context.state);
+    }
+
+}
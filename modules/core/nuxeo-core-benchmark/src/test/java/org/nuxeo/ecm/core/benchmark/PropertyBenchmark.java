@@ -0,0 +1,111 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the access to the simple, list and complex list properties of a {@link DocumentModel} loaded from the
+ * repository then detached, to only measure the property model.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PropertyBenchmark {
+
+    @State(Scope.Thread)
+    public static class Context {
+
+        protected DocumentModel doc;
+
+        protected String[] tags;
+
+        protected List<Map<String, Serializable>> addresses;
+
+        @Setup(Level.Trial)
+        public void setup(RepositoryState repository) {
+            doc = TransactionHelper.runInTransaction(() -> {
+                DocumentModel d = repository.session.getDocument(repository.randomRef());
+                d.detach(true);
+                return d;
+            });
+            tags = new String[] { "foo", "bar", "baz" };
+            addresses = RepositoryState.newAddresses(42);
+        }
+    }
+
+    @Benchmark
+    public Serializable getSimple(Context context) {
+        return context.doc.getPropertyValue("dc:title");
+    }
+
+    @Benchmark
+    public void setSimple(Context context) {
+        context.doc.setPropertyValue("bm:name", "foo");
+    }
+
+    @Benchmark
+    public Serializable getList(Context context) {
+        return context.doc.getPropertyValue("bm:tags");
+    }
+
+    @Benchmark
+    public void setList(Context context) {
+        context.doc.setPropertyValue("bm:tags", context.tags);
+    }
+
+    @Benchmark
+    public Serializable getComplexList(Context context) {
+        return context.doc.getPropertyValue("bm:addresses");
+    }
+
+    @Benchmark
+    public void setComplexList(Context context) {
+        context.doc.setPropertyValue("bm:addresses", (Serializable) context.addresses);
+    }
+
+    @Benchmark
+    public Serializable getComplexItem(Context context) {
+        return context.doc.getPropertyValue("bm:addresses/1/city");
+    }
+
+    @Benchmark
+    public void setComplexItem(Context context) {
+        context.doc.setPropertyValue("bm:addresses/1/city", "Berlin");
+    }
+
+}
@@ -0,0 +1,106 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.repository.RepositoryManager;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Documents created in the repository started by {@link TestCoreBenchmarks}, shared by the benchmarks of a trial.
+ *
+ * @since 2023.10
+ */
+@State(Scope.Benchmark)
+public class RepositoryState {
+
+    public static final int SIZE = 1000;
+
+    public static final String TYPE = "BenchmarkDoc";
+
+    public CoreSession session;
+
+    public DocumentModel folder;
+
+    public List<DocumentRef> refs;
+
+    /** Numbers the documents created by the benchmarks after the initial ones. */
+    public final AtomicInteger counter = new AtomicInteger(SIZE);
+
+    @Setup(Level.Trial)
+    public void setup() {
+        String repositoryName = Framework.getService(RepositoryManager.class).getDefaultRepositoryName();
+        session = CoreInstance.getCoreSessionSystem(repositoryName);
+        refs = new ArrayList<>(SIZE);
+        TransactionHelper.runInTransaction(() -> {
+            folder = session.createDocument(session.createDocumentModel("/", "benchmark", "Folder"));
+            for (int i = 0; i < SIZE; i++) {
+                refs.add(session.createDocument(newDocumentModel(i)).getRef());
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        TransactionHelper.runInTransaction(() -> session.removeDocument(folder.getRef()));
+    }
+
+    public DocumentModel newDocumentModel(int i) {
+        DocumentModel doc = session.createDocumentModel(folder.getPathAsString(), "doc" + i, TYPE);
+        fill(doc, i);
+        return doc;
+    }
+
+    public DocumentRef randomRef() {
+        return refs.get(ThreadLocalRandom.current().nextInt(SIZE));
+    }
+
+    /**
+     * Fills the simple, list and complex list properties of a document.
+     */
+    public static void fill(DocumentModel doc, int i) {
+        doc.setPropertyValue("dc:title", "Document " + i);
+        doc.setPropertyValue("bm:name", "doc" + i);
+        doc.setPropertyValue("bm:count", Long.valueOf(i));
+        doc.setPropertyValue("bm:tags", new String[] { "tag" + i % 10, "tag" + i % 100, "tag" + i });
+        doc.setPropertyValue("bm:addresses", (Serializable) newAddresses(i));
+    }
+
+    public static List<Map<String, Serializable>> newAddresses(int i) {
+        List<Map<String, Serializable>> addresses = new ArrayList<>();
+        addresses.add(Map.of("city", "Paris", "street", "Champs Elysees", "number", Long.valueOf(i)));
+        addresses.add(Map.of("city", "London", "street", "Baker Street", "number", Long.valueOf(221)));
+        addresses.add(Map.of("city", "New York", "street", "Broadway", "number", Long.valueOf(1)));
+        return addresses;
+    }
+
+}
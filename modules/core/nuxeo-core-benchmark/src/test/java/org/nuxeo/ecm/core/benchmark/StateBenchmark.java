@@ -0,0 +1,123 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the copy and the diff of the {@link State} of a document, as done by the DBS transient state on each read
+ * and save.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class StateBenchmark {
+
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class Context {
+
+        protected State state;
+
+        protected State copy;
+
+        protected State simpleChange;
+
+        protected State complexChange;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            state = newState();
+            copy = StateHelper.deepCopy(state);
+            simpleChange = StateHelper.deepCopy(state);
+            simpleChange.put("dc:title", "Changed");
+            complexChange = StateHelper.deepCopy(state);
+            @SuppressWarnings("unchecked")
+            List<State> addresses = (List<State>) complexChange.get("bm:addresses");
+            addresses.get(1).put("street", "Oxford Street");
+        }
+    }
+
+    protected static State newState() {
+        State state = new State();
+        state.put("ecm:id", "0a5d2e0c-4a1a-4b4f-9d2e-6d0a0d6b1f3e");
+        state.put("ecm:primaryType", RepositoryState.TYPE);
+        state.put("ecm:parentId", "6c3a7e8b-2d4f-4a55-8b1e-0f6b3c1d2e4a");
+        state.put("ecm:name", "doc42");
+        state.put("ecm:isProxy", Boolean.FALSE);
+        state.put("ecm:racl", new String[] { "Administrator", "administrators", "members" });
+        state.put("dc:title", "Document 42");
+        state.put("dc:creator", "Administrator");
+        state.put("dc:contributors", new String[] { "Administrator", "bob" });
+        state.put("bm:name", "doc42");
+        state.put("bm:count", Long.valueOf(42));
+        state.put("bm:tags", new String[] { "tag2", "tag42", "tag42" });
+        state.put("bm:addresses", (Serializable) newAddresses());
+        return state;
+    }
+
+    protected static List<State> newAddresses() {
+        List<State> addresses = new ArrayList<>();
+        for (Map<String, Serializable> address : RepositoryState.newAddresses(42)) {
+            State s = new State();
+            address.forEach(s::put);
+            addresses.add(s);
+        }
+        return addresses;
+    }
+
+    @Benchmark
+    public State deepCopy(Context context) {
+        return StateHelper.deepCopy(context.state);
+    }
+
+    @Benchmark
+    public StateDiff diffUnchanged(Context context) {
+        return StateHelper.diff(context.state, context.copy);
+    }
+
+    @Benchmark
+    public StateDiff diffSimpleChange(Context context) {
+        return StateHelper.diff(context.state, context.simpleChange);
+    }
+
+    @Benchmark
+    public StateDiff diffComplexChange(Context context) {
+        return StateHelper.diff(context.state, context.complexChange);
+    }
+
+}
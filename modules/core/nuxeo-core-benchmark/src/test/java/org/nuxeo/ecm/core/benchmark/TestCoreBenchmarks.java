@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import static org.junit.Assume.assumeTrue;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this package in process, against the repository started by the {@link CoreFeature}: the
+ * in-memory one with {@code -Dnuxeo.test.core=mem}, or the default H2 one.
+ * <p>
+ * The benchmarks are skipped unless the {@code nuxeo.benchmark} system property is {@code true}. Run with
+ * {@code mvn test -Pbenchmark -Dnuxeo.test.core=mem}, the results are written as JSON to
+ * {@code target/jmh-result-<core>.json} so that they can be compared between releases. A subset of the benchmarks can
+ * be selected with a regular expression in the {@code nuxeo.benchmark.include} system property, for instance
+ * {@code -Dnuxeo.benchmark.include=NxqlBenchmark}.
+ *
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@Deploy("org.nuxeo.ecm.core.benchmark.tests:OSGI-INF/benchmark-types-contrib.xml")
+public class TestCoreBenchmarks {
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    @Test
+    public void benchmark() throws RunnerException {
+        assumeTrue("Benchmark disabled", Boolean.getBoolean("nuxeo.benchmark"));
+        String coreType = coreFeature.getStorageConfiguration().getCoreType();
+        String include = System.getProperty("nuxeo.benchmark.include", getClass().getPackageName() + ".*Benchmark");
+        Options options = new OptionsBuilder().include(include)
+                                              .resultFormat(ResultFormatType.JSON)
+                                              .result("target/jmh-result-" + coreType + ".json")
+                                              .build();
+        // the benchmarks run their own transactions
+        TransactionHelper.commitOrRollbackTransaction();
+        try {
+            new Runner(options).run();
+        } finally {
+            TransactionHelper.startTransaction();
+        }
+    }
+
+}
@@ -0,0 +1,119 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.nuxeo.ecm.core.blob.ComputeDigestWork;
+import org.nuxeo.ecm.core.storage.FulltextExtractorWork;
+import org.nuxeo.ecm.core.work.AvroWorkCodec;
+import org.nuxeo.ecm.core.work.WorkComputation;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the cost of the Java serialization and of {@link AvroWorkCodec} to write and read works in stream records.
+ * <p>
+ * The record sizes of these works, and of the picture views generation work, are checked by the unit tests of their
+ * modules.
+ *
+ * @since 2023.10
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(0)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WorkCodecBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Works {
+
+        /** fulltext: a fulltext extraction of a document, digest: a blob digest computation */
+        @Param({ "fulltext", "digest" })
+        public String workType;
+
+        protected AvroWorkCodec codec;
+
+        protected Work work;
+
+        protected byte[] javaData;
+
+        protected byte[] avroData;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            codec = new AvroWorkCodec(new FileAvroSchemaStore(Files.createTempDirectory("avro-work")));
+            work = newWork(workType);
+            if (!codec.accept(work)) {
+                throw new IllegalStateException("Work cannot be encoded with Avro: " + work.getClass().getName());
+            }
+            javaData = SerializationUtils.serialize(work);
+            avroData = codec.encode(work);
+        }
+
+        protected static Work newWork(String workType) {
+            switch (workType) {
+            case "fulltext":
+                FulltextExtractorWork work = new FulltextExtractorWork("default", UUID.randomUUID().toString(), true,
+                        true, true);
+                work.setOriginatingUsername("Administrator");
+                return work;
+            case "digest":
+                return new ComputeDigestWork("default", UUID.randomUUID().toString());
+            default:
+                throw new IllegalArgumentException(workType);
+            }
+        }
+    }
+
+    @Benchmark
+    public byte[] javaEncode(Works works) {
+        return SerializationUtils.serialize(works.work);
+    }
+
+    @Benchmark
+    public Work javaDecode(Works works) {
+        return WorkComputation.deserialize(works.javaData);
+    }
+
+    @Benchmark
+    public byte[] avroEncode(Works works) {
+        return works.codec.encode(works.work);
+    }
+
+    @Benchmark
+    public Work avroDecode(Works works) {
+        return works.codec.decode(works.avroData);
+    }
+
+}
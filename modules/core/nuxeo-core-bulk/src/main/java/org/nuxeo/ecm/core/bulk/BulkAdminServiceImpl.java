@@ -64,6 +64,15 @@ public class BulkAdminServiceImpl implements BulkAdminService {
     // @since 11.2
     public static final Duration DEFAULT_SCROLL_TRANSACTION_TIMEOUT = Duration.ofDays(2);
 
+    // @since 2023.10
+    public static final String BULK_SCROLL_PARTITIONS_PROPERTY = "nuxeo.core.bulk.scroller.partitions";
+
+    // @since 2023.10
+    public static final int DEFAULT_SCROLL_PARTITIONS = 1;
+
+    // @since 2023.10
+    public static final String BULK_SCROLL_PACK_IDS_PROPERTY = "nuxeo.core.bulk.scroller.packIds";
+
     public static final Duration STOP_DURATION = Duration.ofSeconds(1);
 
     protected final Map<String, BulkActionDescriptor> descriptors;
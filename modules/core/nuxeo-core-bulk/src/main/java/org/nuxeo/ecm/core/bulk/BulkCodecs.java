@@ -19,6 +19,14 @@
 
 package org.nuxeo.ecm.core.bulk;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
 import org.nuxeo.ecm.core.bulk.message.BulkBucket;
 import org.nuxeo.ecm.core.bulk.message.BulkCommand;
 import org.nuxeo.ecm.core.bulk.message.BulkStatus;
@@ -36,6 +44,13 @@ public class BulkCodecs {
 
     public static final String DEFAULT_CODEC = "avro";
 
+    // packed ids layouts, see packIds
+    protected static final byte PACKED_STRINGS = 0;
+
+    protected static final byte PACKED_UUIDS = 1;
+
+    protected static final byte PACKED_LONG_DELTAS = 2;
+
     private BulkCodecs() {
         // utility class
     }
@@ -55,4 +70,139 @@ public class BulkCodecs {
     public static Codec<DataBucket> getDataBucketCodec() {
         return Framework.getService(CodecService.class).getCodec(DEFAULT_CODEC, DataBucket.class);
     }
+
+    /**
+     * Packs a list of document ids in a compact binary form.
+     * <p>
+     * Ids are written as 16 bytes when they are all canonical UUIDs, as zigzag varint deltas when they are all
+     * sequence numbers, and as UTF-8 strings otherwise.
+     *
+     * @since 2023.10
+     */
+    public static byte[] packIds(List<String> ids) {
+        ByteArrayOutputStream out;
+        if (!ids.isEmpty() && ids.stream().allMatch(BulkCodecs::isCanonicalLong)) {
+            out = new ByteArrayOutputStream(6 + 2 * ids.size());
+            out.write(PACKED_LONG_DELTAS);
+            writeVarLong(out, ids.size());
+            long previous = 0;
+            for (String id : ids) {
+                long value = Long.parseLong(id);
+                long delta = value - previous;
+                writeVarLong(out, (delta << 1) ^ (delta >> 63));
+                previous = value;
+            }
+        } else if (!ids.isEmpty() && ids.stream().allMatch(BulkCodecs::isCanonicalUUID)) {
+            out = new ByteArrayOutputStream(6 + 16 * ids.size());
+            out.write(PACKED_UUIDS);
+            writeVarLong(out, ids.size());
+            ByteBuffer buffer = ByteBuffer.allocate(16);
+            for (String id : ids) {
+                UUID uuid = UUID.fromString(id);
+                buffer.clear();
+                buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+                out.write(buffer.array(), 0, 16);
+            }
+        } else {
+            out = new ByteArrayOutputStream(6 + 40 * ids.size());
+            out.write(PACKED_STRINGS);
+            writeVarLong(out, ids.size());
+            for (String id : ids) {
+                byte[] bytes = id.getBytes(UTF_8);
+                writeVarLong(out, bytes.length);
+                out.write(bytes, 0, bytes.length);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Unpacks a list of document ids packed by {@link #packIds(List)}.
+     *
+     * @since 2023.10
+     */
+    public static List<String> unpackIds(byte[] packed) {
+        ByteBuffer buffer = ByteBuffer.wrap(packed);
+        byte layout = buffer.get();
+        int size = Math.toIntExact(readVarLong(buffer));
+        List<String> ids = new ArrayList<>(size);
+        switch (layout) {
+        case PACKED_LONG_DELTAS:
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                long zigzag = readVarLong(buffer);
+                value += (zigzag >>> 1) ^ -(zigzag & 1);
+                ids.add(Long.toString(value));
+            }
+            break;
+        case PACKED_UUIDS:
+            for (int i = 0; i < size; i++) {
+                ids.add(new UUID(buffer.getLong(), buffer.getLong()).toString());
+            }
+            break;
+        case PACKED_STRINGS:
+            for (int i = 0; i < size; i++) {
+                int length = Math.toIntExact(readVarLong(buffer));
+                ids.add(new String(packed, buffer.position(), length, UTF_8));
+                buffer.position(buffer.position() + length);
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("Unknown packed ids layout: " + layout);
+        }
+        return ids;
+    }
+
+    // ids that can be written as a long and read back as the same string
+    protected static boolean isCanonicalLong(String id) {
+        int length = id.length();
+        if (length == 0 || length > 18 || length > 1 && id.charAt(0) == '0') {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ids that can be written as an UUID and read back as the same string
+    protected static boolean isCanonicalUUID(String id) {
+        if (id.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = id.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    protected static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    protected static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed packed ids");
+    }
 }
@@ -19,12 +19,15 @@
 package org.nuxeo.ecm.core.bulk;
 
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_KEEP_ALIVE_PROPERTY;
+import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_PACK_IDS_PROPERTY;
+import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_PARTITIONS_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_PRODUCE_IMMEDIATE_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_PRODUCE_IMMEDIATE_THRESHOLD_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_SIZE_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.BULK_SCROLL_TRANSACTION_TIMEOUT_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.DEFAULT_PRODUCE_IMMEDIATE_THRESHOLD_PROPERTY;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.DEFAULT_SCROLL_KEEP_ALIVE;
+import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.DEFAULT_SCROLL_PARTITIONS;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.DEFAULT_SCROLL_SIZE;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.DEFAULT_SCROLL_TRANSACTION_TIMEOUT;
 import static org.nuxeo.ecm.core.bulk.BulkAdminServiceImpl.SCROLLER_NAME;
@@ -74,6 +77,8 @@ public class BulkServiceProcessor implements StreamProcessorTopology {
         boolean scrollProduceImmediate = confService.isBooleanTrue(BULK_SCROLL_PRODUCE_IMMEDIATE_PROPERTY);
         int scrollProduceImmediateThreshold = confService.getInteger(BULK_SCROLL_PRODUCE_IMMEDIATE_THRESHOLD_PROPERTY)
                                                          .orElse(DEFAULT_PRODUCE_IMMEDIATE_THRESHOLD_PROPERTY);
+        int scrollPartitions = confService.getInteger(BULK_SCROLL_PARTITIONS_PROPERTY, DEFAULT_SCROLL_PARTITIONS);
+        boolean packIds = confService.isBooleanTrue(BULK_SCROLL_PACK_IDS_PROPERTY);
         return Topology.builder()
                        .addComputation(
                                () -> BulkScrollerComputation.builder(SCROLLER_NAME, actions.size() + 1)
@@ -83,6 +88,8 @@ public class BulkServiceProcessor implements StreamProcessorTopology {
                                                             .setProduceImmediate(scrollProduceImmediate)
                                                             .setProduceImmediateThreshold(
                                                                     scrollProduceImmediateThreshold)
+                                                            .setScrollPartitions(scrollPartitions)
+                                                            .setPackIds(packIds)
                                                             .build(),
                                mapping)
                        .addComputation(() -> new BulkStatusComputation(STATUS_NAME),
@@ -51,6 +51,7 @@ import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.scroll.DocumentScrollRequest;
 import org.nuxeo.ecm.core.scroll.EmptyScrollRequest;
 import org.nuxeo.ecm.core.scroll.GenericScrollRequest;
+import org.nuxeo.ecm.core.scroll.PartitionedScroll;
 import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
@@ -97,6 +98,12 @@ public class BulkScrollerComputation extends AbstractComputation {
 
     protected final int transactionTimeoutSeconds;
 
+    // @since 2023.10
+    protected final int scrollPartitions;
+
+    // @since 2023.10
+    protected final boolean packIds;
+
     protected int scrollSize;
 
     protected int bucketSize;
@@ -116,6 +123,8 @@ public class BulkScrollerComputation extends AbstractComputation {
         this.produceImmediate = builder.produceImmediate;
         this.produceImmediateThreshold = builder.produceImmediateThreshold;
         this.transactionTimeoutSeconds = Math.toIntExact(builder.transactionTimeout.toSeconds());
+        this.scrollPartitions = builder.scrollPartitions;
+        this.packIds = builder.packIds;
         documentIds = new ArrayList<>(scrollBatchSize);
     }
 
@@ -272,19 +281,32 @@ public class BulkScrollerComputation extends AbstractComputation {
                                           .build();
 
         } else {
-            request = DocumentScrollRequest.builder(query)
-                                           .username(command.getUsername())
-                                           .repository(command.getRepository())
-                                           .size(scrollSize)
-                                           .timeout(Duration.ofSeconds(scrollKeepAliveSeconds))
-                                           .name(command.getScroller())
-                                           .reference(command.getId())
-                                           .build();
+            List<String> partitionQueries = PartitionedScroll.partitionQuery(query, scrollPartitions);
+            if (!partitionQueries.isEmpty()) {
+                log.debug("Scroll command: {} in {} partitions", command.getId(), partitionQueries.size());
+                List<ScrollRequest> requests = new ArrayList<>(partitionQueries.size());
+                // the partitions are scrolled by the underlying scroller, not by a nested partitioned scroll
+                String scroller = PartitionedScroll.getPartitionScroll(command.getScroller());
+                partitionQueries.forEach(q -> requests.add(buildDocumentScrollRequest(command, scroller, q)));
+                return new PartitionedScroll(requests, transactionTimeoutSeconds);
+            }
+            request = buildDocumentScrollRequest(command, command.getScroller(), query);
         }
         ScrollService service = Framework.getService(ScrollService.class);
         return service.scroll(request);
     }
 
+    protected ScrollRequest buildDocumentScrollRequest(BulkCommand command, String scroller, String query) {
+        return DocumentScrollRequest.builder(query)
+                                    .username(command.getUsername())
+                                    .repository(command.getRepository())
+                                    .size(scrollSize)
+                                    .timeout(Duration.ofSeconds(scrollKeepAliveSeconds))
+                                    .name(scroller)
+                                    .reference(command.getId())
+                                    .build();
+    }
+
     protected void getCommandConfiguration(BulkCommand command) {
         BulkAdminService actionService = Framework.getService(BulkAdminService.class);
         bucketSize = command.getBucketSize() > 0 ? command.getBucketSize()
@@ -362,6 +384,9 @@ public class BulkScrollerComputation extends AbstractComputation {
             long documentCount) {
         List<String> ids = documentIds.subList(0, min(bucketSize, documentIds.size()));
         BulkBucket bucket = new BulkBucket(commandId, ids);
+        if (packIds) {
+            bucket.pack();
+        }
         String shardKey;
         if (sequentialProcessing) {
             // All records for a bulk command go to the same partition to be processed sequentially
@@ -412,6 +437,10 @@ public class BulkScrollerComputation extends AbstractComputation {
 
         protected long queryLimit;
 
+        protected int scrollPartitions = 1;
+
+        protected boolean packIds;
+
         /**
          * @param name the computation name
          * @param nbOutputStream the number of registered bulk action streams
@@ -461,6 +490,25 @@ public class BulkScrollerComputation extends AbstractComputation {
             return this;
         }
 
+        /**
+         * @param scrollPartitions the number of threads scrolling a command by ranges of document ids, only used for
+         *            unordered document queries
+         * @since 2023.10
+         */
+        public Builder setScrollPartitions(int scrollPartitions) {
+            this.scrollPartitions = scrollPartitions;
+            return this;
+        }
+
+        /**
+         * @param packIds whether or not the document ids of buckets are packed in a compact binary form
+         * @since 2023.10
+         */
+        public Builder setPackIds(boolean packIds) {
+            this.packIds = packIds;
+            return this;
+        }
+
         public BulkScrollerComputation build() {
             return new BulkScrollerComputation(this);
         }
@@ -22,9 +22,11 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.avro.reflect.Nullable;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.nuxeo.ecm.core.bulk.BulkCodecs;
 
 /**
  * A message to pass a command id and a bucket of document ids
@@ -39,6 +41,13 @@ public class BulkBucket implements Serializable {
 
     protected List<String> ids = new ArrayList<>();
 
+    // @since 2023.10
+    @Nullable
+    protected byte[] packedIds;
+
+    // cache of the unpacked ids, not serialized
+    protected transient List<String> unpackedIds;
+
     protected BulkBucket() {
         // Empty constructor for Avro decoder
     }
@@ -49,11 +58,34 @@ public class BulkBucket implements Serializable {
     }
 
     public List<String> getIds() {
-        return ids;
+        if (packedIds == null) {
+            return ids;
+        }
+        if (unpackedIds == null) {
+            unpackedIds = BulkCodecs.unpackIds(packedIds);
+        }
+        return unpackedIds;
     }
 
     public void setIds(List<String> ids) {
         this.ids = ids;
+        packedIds = null;
+        unpackedIds = null;
+    }
+
+    /**
+     * Packs the document ids in a compact binary form, to reduce the size of the encoded bucket. The ids are unpacked
+     * transparently by {@link #getIds()}.
+     *
+     * @since 2023.10
+     */
+    public BulkBucket pack() {
+        if (packedIds == null) {
+            packedIds = BulkCodecs.packIds(ids);
+            unpackedIds = ids;
+            ids = new ArrayList<>();
+        }
+        return this;
     }
 
     public String getCommandId() {
@@ -64,18 +96,26 @@ public class BulkBucket implements Serializable {
         this.commandId = commandId;
     }
 
+    // packed and unpacked forms of the same ids are equal
     @Override
     public int hashCode() {
-        return HashCodeBuilder.reflectionHashCode(this);
+        return new HashCodeBuilder().append(commandId).append(getIds()).toHashCode();
     }
 
     @Override
     public boolean equals(Object o) {
-        return EqualsBuilder.reflectionEquals(this, o);
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        BulkBucket other = (BulkBucket) o;
+        return new EqualsBuilder().append(commandId, other.commandId).append(getIds(), other.getIds()).isEquals();
     }
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this);
+        return new ToStringBuilder(this).append("commandId", commandId).append("ids", getIds()).toString();
     }
 }
@@ -0,0 +1,335 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.scroll;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.scroll.Scroll;
+import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
+import org.nuxeo.ecm.core.api.scroll.ScrollService;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.SQLQueryParser;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Scrolls several partitions of a document set at once, each partition being scrolled by its own thread.
+ * <p>
+ * The results of the partitions are returned in no particular order, use {@link #partitionQuery(String, int)} to split
+ * a query into disjoint ranges of document ids.
+ * <p>
+ * When registered as a document scroll, the query of the {@link DocumentScrollRequest} is split into the number of
+ * partitions given by the {@value #PARTITIONS_OPTION} option, each partition being scrolled by the document scroll
+ * named by the {@value #SCROLL_OPTION} option, the default one if unset. Queries that cannot be partitioned are
+ * scrolled by a single thread.
+ *
+ * @since 2023.10
+ */
+public class PartitionedScroll implements Scroll {
+
+    public static final int MAX_PARTITIONS = 16;
+
+    public static final String PARTITIONS_OPTION = "partitions";
+
+    public static final int DEFAULT_PARTITIONS = 4;
+
+    /** The name of the document scroll used to scroll each partition, the default document scroll if unset. */
+    public static final String SCROLL_OPTION = "scroll";
+
+    /** The timeout in seconds of the transaction scrolling a partition, {@code 0} for the default timeout. */
+    public static final String TRANSACTION_TIMEOUT_OPTION = "transactionTimeout";
+
+    // canonical UUID with only its first 8 hexadecimal digits set
+    protected static final String UUID_BOUND_FORMAT = "%08x-0000-0000-0000-000000000000";
+
+    // marks the end of a partition in the queue, compared by identity
+    protected static final List<String> END = Collections.unmodifiableList(new ArrayList<>());
+
+    protected List<ScrollRequest> requests;
+
+    protected int transactionTimeoutSeconds;
+
+    protected final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    protected BlockingQueue<List<String>> queue;
+
+    protected ExecutorService executor;
+
+    protected int running;
+
+    protected List<String> nextResult;
+
+    public PartitionedScroll() {
+        // initialized by init
+    }
+
+    /**
+     * @param requests the requests scrolling each partition
+     * @param transactionTimeoutSeconds the timeout of the transaction used to scroll a partition
+     */
+    public PartitionedScroll(List<ScrollRequest> requests, int transactionTimeoutSeconds) {
+        this.requests = requests;
+        this.transactionTimeoutSeconds = transactionTimeoutSeconds;
+    }
+
+    @Override
+    public void init(ScrollRequest request, Map<String, String> options) {
+        if (!(request instanceof DocumentScrollRequest)) {
+            throw new IllegalArgumentException("Requires a DocumentScrollRequest");
+        }
+        DocumentScrollRequest documentRequest = (DocumentScrollRequest) request;
+        int partitions = Integer.parseInt(options.getOrDefault(PARTITIONS_OPTION, String.valueOf(DEFAULT_PARTITIONS)));
+        transactionTimeoutSeconds = Integer.parseInt(options.getOrDefault(TRANSACTION_TIMEOUT_OPTION, "0"));
+        String scroll = getPartitionScroll(options.get(SCROLL_OPTION));
+        List<String> queries = partitionQuery(documentRequest.getQuery(), partitions);
+        if (queries.isEmpty()) {
+            queries = List.of(documentRequest.getQuery());
+        }
+        requests = new ArrayList<>(queries.size());
+        queries.forEach(query -> requests.add(DocumentScrollRequest.builder(query)
+                                                                   .username(documentRequest.getUsername())
+                                                                   .repository(documentRequest.getRepository())
+                                                                   .size(documentRequest.getSize())
+                                                                   .timeout(documentRequest.getTimeout())
+                                                                   .name(scroll)
+                                                                   .reference(documentRequest.getReference())
+                                                                   .build()));
+    }
+
+    protected void start() {
+        queue = new ArrayBlockingQueue<>(2 * requests.size());
+        executor = Executors.newFixedThreadPool(requests.size(), newThreadFactory());
+        running = requests.size();
+        requests.forEach(request -> executor.execute(() -> run(request)));
+        executor.shutdown();
+    }
+
+    protected void run(ScrollRequest request) {
+        try {
+            scroll(request);
+        } catch (Error e) {
+            // fail the scroll instead of silently missing the rest of the partition
+            failure.compareAndSet(null, new NuxeoException("Failed to scroll partition: " + request, e));
+            throw e;
+        } finally {
+            // always mark the end of the partition, otherwise hasNext would wait for it forever
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected void scroll(ScrollRequest request) {
+        boolean newTransaction = TransactionHelper.startTransaction(transactionTimeoutSeconds);
+        try (Scroll scroll = Framework.getService(ScrollService.class).scroll(request)) {
+            while (scroll.hasNext()) {
+                List<String> ids = scroll.next();
+                if (!ids.isEmpty()) {
+                    queue.put(ids);
+                }
+            }
+        } catch (InterruptedException e) {
+            // closed
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            if (newTransaction) {
+                // Always rollback because we don't write anything
+                TransactionHelper.setTransactionRollbackOnly();
+                TransactionHelper.commitOrRollbackTransaction();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextResult != null) {
+            return true;
+        }
+        if (queue == null) {
+            start();
+        }
+        while (running > 0) {
+            List<String> ids;
+            try {
+                ids = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while scrolling", e);
+            }
+            if (ids == END) {
+                running--;
+                RuntimeException e = failure.get();
+                if (e != null) {
+                    throw e;
+                }
+            } else {
+                nextResult = ids;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public List<String> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<String> ids = nextResult;
+        nextResult = null;
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            // interrupts the partitions waiting for the queue
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Gets the name of the document scroll to use for each partition, given the name of a document scroll: the scroll
+     * used by the partitions of a partitioned scroll, or the scroll itself otherwise, so that partitioned scrolls are
+     * never nested.
+     *
+     * @param name the name of a document scroll, {@code null} for the default one
+     * @return the name of the document scroll, {@code null} for the default one
+     */
+    public static String getPartitionScroll(String name) {
+        if (Framework.getService(ScrollService.class) instanceof ScrollServiceImpl scrollService) {
+            ScrollDescriptor descriptor = scrollService.getDescriptor(DocumentScrollRequest.SCROLL_TYPE, name);
+            if (descriptor != null && PartitionedScroll.class.isAssignableFrom(descriptor.getScrollClass())) {
+                String scroll = descriptor.getOptions().get(SCROLL_OPTION);
+                return scroll == null || scroll.equals(name) ? null : scroll;
+            }
+        }
+        return name;
+    }
+
+    protected static ThreadFactory newThreadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "partitioned-scroll-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Splits a query into queries on disjoint ranges of document ids, bounded by canonical UUIDs evenly spread over the
+     * UUID space. The first and last ranges are open, so the union of the ranges is always the original document set,
+     * whatever the format of the ids. The ranges use comparisons on ecm:uuid so that they can use the id index.
+     *
+     * @return the partition queries, or an empty list if the query cannot be partitioned because it is ordered, limited
+     *         or aggregated
+     */
+    public static List<String> partitionQuery(String query, int partitions) {
+        partitions = Math.min(partitions, MAX_PARTITIONS);
+        if (partitions < 2) {
+            return List.of();
+        }
+        try {
+            SQLQuery sqlQuery = SQLQueryParser.parse(query);
+            if (sqlQuery.orderBy != null || sqlQuery.groupBy != null || sqlQuery.having != null
+                    || sqlQuery.limit != 0 || sqlQuery.offset != 0) {
+                return List.of();
+            }
+        } catch (QueryParseException e) {
+            return List.of();
+        }
+        int where = indexOfWhere(query);
+        String select = (where < 0 ? query : query.substring(0, where)).trim();
+        String predicate = where < 0 ? null : query.substring(where + "WHERE".length()).trim();
+        List<String> queries = new ArrayList<>(partitions);
+        for (int i = 0; i < partitions; i++) {
+            List<String> ranges = new ArrayList<>(2);
+            if (i > 0) {
+                ranges.add("ecm:uuid >= '" + getUUIDBound(i, partitions) + "'");
+            }
+            if (i < partitions - 1) {
+                ranges.add("ecm:uuid < '" + getUUIDBound(i + 1, partitions) + "'");
+            }
+            String range = String.join(" AND ", ranges);
+            String partitionQuery = select + " WHERE (" + range + ")";
+            if (predicate != null) {
+                partitionQuery += " AND (" + predicate + ")";
+            }
+            try {
+                SQLQueryParser.parse(partitionQuery);
+            } catch (QueryParseException e) {
+                return List.of();
+            }
+            queries.add(partitionQuery);
+        }
+        return queries;
+    }
+
+    protected static String getUUIDBound(int i, int partitions) {
+        return String.format(UUID_BOUND_FORMAT, ((long) i << 32) / partitions);
+    }
+
+    /**
+     * Finds the WHERE keyword of a query, ignoring string literals and sub-expressions.
+     */
+    protected static int indexOfWhere(String query) {
+        char quote = 0;
+        int depth = 0;
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (depth == 0 && query.regionMatches(true, i, "WHERE", 0, 5) && isBoundary(query, i - 1)
+                    && isBoundary(query, i + 5)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    protected static boolean isBoundary(String query, int i) {
+        return i < 0 || i >= query.length() || Character.isWhitespace(query.charAt(i));
+    }
+
+}
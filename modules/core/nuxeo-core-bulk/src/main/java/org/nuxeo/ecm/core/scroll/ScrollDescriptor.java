@@ -73,6 +73,13 @@ public class ScrollDescriptor implements Descriptor {
         return name;
     }
 
+    /**
+     * @since 2023.10
+     */
+    public Class<? extends Scroll> getScrollClass() {
+        return scrollClass;
+    }
+
     public String getType() {
         return type;
     }
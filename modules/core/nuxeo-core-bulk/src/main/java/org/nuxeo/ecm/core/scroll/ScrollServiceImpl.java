@@ -76,6 +76,16 @@ public class ScrollServiceImpl implements ScrollService {
         return scroll;
     }
 
+    /**
+     * Gets the descriptor of the scroll of the given type and name, the default one if the name is {@code null}.
+     *
+     * @return the descriptor, or {@code null} if there is no such scroll
+     * @since 2023.10
+     */
+    public ScrollDescriptor getDescriptor(String type, String name) {
+        return descriptors.get(getKey(type, name == null ? DEFAULT_NAME : name));
+    }
+
     @Override
     public boolean exists(ScrollRequest request) {
         if (request == null) {
@@ -0,0 +1,96 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.bulk.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.bulk.BulkCodecs;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.bulk.message.BulkBucket;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreBulkFeature.class)
+public class TestBulkBucketAvro {
+
+    @Rule
+    public final CodecTestRule<BulkBucket> codecRule = new CodecTestRule<>("avro", BulkBucket.class);
+
+    protected static List<String> uuids(int count) {
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testBucket() {
+        BulkBucket bucket = new BulkBucket("commandId", uuids(10));
+        assertEquals(bucket, codecRule.encodeDecode(bucket));
+    }
+
+    @Test
+    public void testPackedBucket() {
+        List<String> ids = uuids(100);
+        BulkBucket bucket = new BulkBucket("commandId", new ArrayList<>(ids)).pack();
+        BulkBucket actualBucket = codecRule.encodeDecode(bucket);
+        assertEquals("commandId", actualBucket.getCommandId());
+        assertEquals(ids, actualBucket.getIds());
+        // reading the ids has no side effect on the bucket
+        assertEquals(ids, codecRule.encodeDecode(actualBucket).getIds());
+
+        // packed and unpacked buckets are equal
+        BulkBucket unpackedBucket = new BulkBucket("commandId", ids);
+        assertEquals(unpackedBucket, bucket);
+        assertEquals(unpackedBucket, actualBucket);
+        assertEquals(unpackedBucket.hashCode(), actualBucket.hashCode());
+        assertNotEquals(new BulkBucket("commandId", ids.subList(1, ids.size())).pack(), actualBucket);
+    }
+
+    @Test
+    public void testPackIds() {
+        List<String> uuids = uuids(100);
+        byte[] packed = BulkCodecs.packIds(uuids);
+        assertEquals(1 + 1 + 16 * 100, packed.length);
+        assertEquals(uuids, BulkCodecs.unpackIds(packed));
+
+        List<String> sequence = List.of("1000", "1001", "1003", "999", "0", "123456789012345678");
+        packed = BulkCodecs.packIds(sequence);
+        assertTrue(packed.length < 20);
+        assertEquals(sequence, BulkCodecs.unpackIds(packed));
+
+        // non canonical ids are kept as is
+        List<String> others = List.of("0042", "A0EEBC99-9C0B-4EF8-BB6D-6BB9BD380A11", "été", "");
+        assertEquals(others, BulkCodecs.unpackIds(BulkCodecs.packIds(others)));
+
+        assertEquals(List.of(), BulkCodecs.unpackIds(BulkCodecs.packIds(List.of())));
+    }
+
+}
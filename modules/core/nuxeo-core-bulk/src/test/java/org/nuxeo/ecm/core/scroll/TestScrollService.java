@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.scroll;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -28,8 +29,12 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.NoSuchElementException;
 
 import javax.inject.Inject;
@@ -38,6 +43,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.scroll.Scroll;
 import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
 import org.nuxeo.ecm.core.api.scroll.ScrollService;
@@ -199,4 +205,103 @@ public class TestScrollService {
         }
     }
 
+    @Test
+    public void testPartitionedScroll() {
+        List<ScrollRequest> requests = new ArrayList<>();
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            List<String> ids = new ArrayList<>();
+            for (int j = 0; j < 25; j++) {
+                ids.add(i + "-" + j);
+            }
+            expected.addAll(ids);
+            requests.add(StaticScrollRequest.builder(ids).size(10).build());
+        }
+        Set<String> actual = new HashSet<>();
+        try (Scroll scroll = new PartitionedScroll(requests, 60)) {
+            while (scroll.hasNext()) {
+                actual.addAll(scroll.next());
+            }
+            try {
+                scroll.next();
+                fail("Exception expected");
+            } catch (NoSuchElementException e) {
+                // expected
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testPartitionedScrollError() {
+        ScrollRequest failing = StaticScrollRequest.builder("id1").build();
+        List<ScrollRequest> requests = List.of(StaticScrollRequest.builder("id0").build(), failing);
+        try (Scroll scroll = new PartitionedScroll(requests, 60) {
+            @Override
+            protected void scroll(ScrollRequest request) {
+                if (request == failing) {
+                    throw new AssertionError("partition failure");
+                }
+                super.scroll(request);
+            }
+        }) {
+            // the failed partition is ended, hasNext doesn't wait for it forever
+            while (scroll.hasNext()) {
+                scroll.next();
+            }
+            fail("Exception expected");
+        } catch (NuxeoException e) {
+            assertTrue(e.getCause() instanceof AssertionError);
+        }
+    }
+
+    @Test
+    public void testPartitionScroll() {
+        // partitioned scrolls are not nested
+        assertNull(PartitionedScroll.getPartitionScroll("partitioned"));
+        assertEquals("repository", PartitionedScroll.getPartitionScroll("repository"));
+        assertNull(PartitionedScroll.getPartitionScroll(null));
+    }
+
+    @Test
+    public void testPartitionedScrollRequiresDocumentRequest() {
+        PartitionedScroll scroll = new PartitionedScroll();
+        try {
+            scroll.init(StaticScrollRequest.builder("id").build(), Map.of());
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertTrue(scrollService.exists(DocumentScrollRequest.builder("").name("partitioned").build()));
+    }
+
+    @Test
+    public void testPartitionQuery() {
+        assertTrue(PartitionedScroll.partitionQuery("SELECT * FROM Document", 1).isEmpty());
+        assertTrue(PartitionedScroll.partitionQuery("SELECT * FROM Document ORDER BY dc:title", 4).isEmpty());
+
+        List<String> queries = PartitionedScroll.partitionQuery("SELECT * FROM Document", 2);
+        assertEquals(List.of("SELECT * FROM Document WHERE (ecm:uuid < '80000000-0000-0000-0000-000000000000')",
+                "SELECT * FROM Document WHERE (ecm:uuid >= '80000000-0000-0000-0000-000000000000')"), queries);
+
+        queries = PartitionedScroll.partitionQuery(
+                "SELECT * FROM Document WHERE dc:title = 'a (where' OR ecm:parentId IN ('1', '2')", 16);
+        assertEquals(16, queries.size());
+        assertEquals(
+                "SELECT * FROM Document WHERE (ecm:uuid < '10000000-0000-0000-0000-000000000000') AND (dc:title = 'a (where' OR ecm:parentId IN ('1', '2'))",
+                queries.get(0));
+        assertEquals(
+                "SELECT * FROM Document WHERE (ecm:uuid >= '10000000-0000-0000-0000-000000000000' AND ecm:uuid < '20000000-0000-0000-0000-000000000000') AND (dc:title = 'a (where' OR ecm:parentId IN ('1', '2'))",
+                queries.get(1));
+        assertEquals(
+                "SELECT * FROM Document WHERE (ecm:uuid >= 'f0000000-0000-0000-0000-000000000000') AND (dc:title = 'a (where' OR ecm:parentId IN ('1', '2'))",
+                queries.get(15));
+
+        // bounds are spread evenly when the number of partitions doesn't divide the UUID space
+        queries = PartitionedScroll.partitionQuery("SELECT * FROM Document", 3);
+        assertEquals(List.of("SELECT * FROM Document WHERE (ecm:uuid < '55555555-0000-0000-0000-000000000000')",
+                "SELECT * FROM Document WHERE (ecm:uuid >= '55555555-0000-0000-0000-000000000000' AND ecm:uuid < 'aaaaaaaa-0000-0000-0000-000000000000')",
+                "SELECT * FROM Document WHERE (ecm:uuid >= 'aaaaaaaa-0000-0000-0000-000000000000')"), queries);
+    }
+
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Date;
 
+import org.apache.commons.io.FileUtils;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
 
@@ -45,11 +46,30 @@ public class ConversionCacheEntry {
 
     protected long sizeInKB = 0;
 
+    /**
+     * Position in the least recently used order of the cache.
+     *
+     * @since 2023.10
+     */
+    protected volatile long accessSeq;
+
     public ConversionCacheEntry(BlobHolder bh) {
         this.bh = bh;
         updateAccessTime();
     }
 
+    /**
+     * Creates an entry for a result already persisted, for instance before a restart.
+     *
+     * @since 2023.10
+     */
+    public ConversionCacheEntry(String persistPath, long sizeInKB) {
+        this.persistPath = persistPath;
+        this.sizeInKB = sizeInKB;
+        persisted = true;
+        updateAccessTime();
+    }
+
     protected void updateAccessTime() {
         lastAccessTime = new Date();
     }
@@ -59,7 +79,9 @@ public class ConversionCacheEntry {
             CachableBlobHolder cbh = (CachableBlobHolder) bh;
             persistPath = cbh.persist(basePath);
             if (persistPath != null) {
-                sizeInKB = new File(persistPath).length() / 1024;
+                File file = new File(persistPath);
+                long size = file.isDirectory() ? FileUtils.sizeOfDirectory(file) : file.length();
+                sizeInKB = size / 1024;
                 persisted = true;
             }
         }
@@ -69,7 +91,10 @@ public class ConversionCacheEntry {
 
     public void remove() {
         if (persisted && persistPath != null) {
-            new File(persistPath).delete();
+            File file = new File(persistPath);
+            FileUtils.deleteQuietly(file);
+            // the entry directory, now empty
+            file.getParentFile().delete();
         }
     }
 
@@ -96,4 +121,9 @@ public class ConversionCacheEntry {
         return lastAccessTime;
     }
 
+    /** @since 2023.10 */
+    public String getPersistPath() {
+        return persistPath;
+    }
+
 }
@@ -21,26 +21,41 @@ package org.nuxeo.ecm.core.convert.cache;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.utils.Path;
 import org.nuxeo.ecm.core.api.blobholder.BlobHolder;
 import org.nuxeo.ecm.core.convert.api.ConversionService;
+import org.nuxeo.ecm.core.convert.cache.ConversionCacheIndex.IndexEntry;
 import org.nuxeo.ecm.core.convert.service.ConversionServiceImpl;
 
 /**
  * Manager for the cache system of the {@link ConversionService}.
+ * <p>
+ * Since 2023.10 the cache is lock-free: results are persisted to disk before being published in the cache, entries are
+ * kept in least recently used order for eviction, and the index can be persisted to survive restarts (see
+ * {@link #open}).
  *
  * @author tiry
  */
@@ -48,9 +63,30 @@ public class ConversionCacheHolder {
 
     private static final Logger log = LogManager.getLogger(ConversionCacheHolder.class);
 
-    protected static final Map<String, ConversionCacheEntry> cache = new HashMap<>();
+    protected static final Map<String, ConversionCacheEntry> cache = new ConcurrentHashMap<>();
 
-    protected static final ReentrantReadWriteLock cacheLock = new ReentrantReadWriteLock();
+    /**
+     * Keys being persisted, to avoid persisting the same result concurrently.
+     *
+     * @since 2023.10
+     */
+    protected static final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Keys in least recently used order, by access sequence.
+     *
+     * @since 2023.10
+     */
+    protected static final ConcurrentSkipListMap<Long, String> lru = new ConcurrentSkipListMap<>();
+
+    /** @since 2023.10 */
+    protected static final AtomicLong accessSeq = new AtomicLong();
+
+    /** @since 2023.10 */
+    protected static final AtomicLong cacheSizeInKB = new AtomicLong();
+
+    /** @since 2023.10 */
+    protected static volatile ConversionCacheIndex index;
 
     public static final int NB_SUB_PATH_PART = 5;
 
@@ -67,7 +103,12 @@ public class ConversionCacheHolder {
     }
 
     public static int getNbCacheEntries() {
-        return cache.keySet().size();
+        return cache.size();
+    }
+
+    /** @since 2023.10 */
+    public static long getCacheSizeInKB() {
+        return cacheSizeInKB.get();
     }
 
     protected static List<String> getSubPathFromKey(String key) {
@@ -101,18 +142,138 @@ public class ConversionCacheHolder {
             new File(path.toString()).mkdir();
         }
 
-        // path = path.append(key);
+        // one directory per key, so that concurrent additions of different keys never write the same files
+        path = path.append(DigestUtils.md5Hex(key));
+        new File(path.toString()).mkdir();
 
         return path.toString();
     }
 
+    /**
+     * Loads the persisted index of the cache found in the given directory, and records the next changes in it.
+     * <p>
+     * Entries whose files have disappeared are dropped, and files not referenced by the index are deleted: they were
+     * left by a crash, or by a version where the cache was not persistent.
+     *
+     * @since 2023.10
+     */
+    public static synchronized void open(String basePath) {
+        if (index != null) {
+            close();
+        }
+        ConversionCacheIndex newIndex = new ConversionCacheIndex(Paths.get(basePath));
+        Map<String, IndexEntry> entries = newIndex.load();
+        for (Entry<String, IndexEntry> es : entries.entrySet()) {
+            IndexEntry entry = es.getValue();
+            if (!cache.containsKey(es.getKey()) && new File(entry.persistPath()).exists()) {
+                publish(es.getKey(), new ConversionCacheEntry(entry.persistPath(), entry.sizeInKB()));
+            }
+        }
+        try {
+            newIndex.compact(getIndexEntries());
+        } catch (IOException e) {
+            log.error("Cannot write conversion cache index in: {}, cache will not survive a restart", basePath, e);
+        }
+        index = newIndex;
+        sweep(Paths.get(basePath));
+        log.debug("Loaded {} conversion cache entries ({}KB) from: {}", cache.size(), cacheSizeInKB.get(), basePath);
+    }
+
+    /**
+     * Deletes the files of the cache directory which don't belong to a cache entry.
+     *
+     * @since 2023.10
+     */
+    protected static void sweep(java.nio.file.Path basePath) {
+        Set<java.nio.file.Path> live = new HashSet<>();
+        cache.values().forEach(cce -> live.add(Paths.get(cce.getPersistPath()).toAbsolutePath().normalize()));
+        java.nio.file.Path base = basePath.toAbsolutePath().normalize();
+        java.nio.file.Path indexFile = base.resolve(ConversionCacheIndex.INDEX_FILENAME);
+        try {
+            Files.walkFileTree(base, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(java.nio.file.Path dir, BasicFileAttributes attrs) {
+                    return live.contains(dir) ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(java.nio.file.Path file, BasicFileAttributes attrs)
+                        throws IOException {
+                    if (!live.contains(file) && !file.equals(indexFile)) {
+                        log.trace("Deleting unindexed conversion cache file: {}", file);
+                        Files.deleteIfExists(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(java.nio.file.Path dir, IOException e) throws IOException {
+                    if (!dir.equals(base)) {
+                        try {
+                            Files.deleteIfExists(dir);
+                        } catch (DirectoryNotEmptyException ee) {
+                            // contains live entries
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Cannot clean conversion cache directory: {}", basePath, e);
+        }
+    }
+
+    /**
+     * Closes the persisted index of the cache, after compacting it. The cache is then empty, but its files are kept.
+     *
+     * @since 2023.10
+     */
+    public static synchronized void close() {
+        ConversionCacheIndex oldIndex = index;
+        index = null;
+        if (oldIndex != null) {
+            try {
+                oldIndex.compact(getIndexEntries());
+                oldIndex.close();
+            } catch (IOException e) {
+                log.error("Cannot write conversion cache index", e);
+            }
+        }
+        clear();
+    }
+
+    /**
+     * Gets the index entries for the current cache entries, least recently used first.
+     */
+    protected static Map<String, IndexEntry> getIndexEntries() {
+        Map<String, IndexEntry> entries = new LinkedHashMap<>();
+        lru.values().forEach(key -> {
+            ConversionCacheEntry entry = cache.get(key);
+            if (entry != null) {
+                entries.put(key, new IndexEntry(entry.getPersistPath(), entry.getDiskSpaceUsageInKB()));
+            }
+        });
+        return entries;
+    }
+
+    protected static void clear() {
+        cache.clear();
+        lru.clear();
+        cacheSizeInKB.set(0);
+    }
+
     public static void addToCache(String key, BlobHolder result) {
         Objects.requireNonNull(key);
-        cacheLock.writeLock().lock();
+        if (cache.containsKey(key) || !pending.add(key)) {
+            // already cached, or being cached by another thread
+            return;
+        }
         try {
-            doAddToCache(key, result);
+            if (!cache.containsKey(key)) {
+                doAddToCache(key, result);
+            }
         } finally {
-            cacheLock.writeLock().unlock();
+            pending.remove(key);
         }
     }
 
@@ -127,35 +288,120 @@ public class ConversionCacheHolder {
         }
 
         if (persisted) {
-            cache.put(key, cce);
+            // published before being indexed, so that a concurrent compaction of the index keeps it
+            publish(key, cce);
+            ConversionCacheIndex idx = index;
+            if (idx != null) {
+                idx.add(key, new IndexEntry(cce.getPersistPath(), cce.getDiskSpaceUsageInKB()));
+                compactIndexIfNeeded(idx);
+            }
         }
     }
 
-    public static void removeFromCache(String key) {
-        cacheLock.writeLock().lock();
+    /**
+     * Makes a persisted entry visible in the cache, deleting the files of the entry it replaces.
+     */
+    protected static void publish(String key, ConversionCacheEntry cce) {
+        ConversionCacheEntry old = cache.put(key, cce);
+        if (old != null) {
+            unlink(key, old);
+            if (!Objects.equals(old.getPersistPath(), cce.getPersistPath())) {
+                old.remove();
+            }
+        }
+        cacheSizeInKB.addAndGet(cce.getDiskSpaceUsageInKB());
+        touch(key, cce);
+    }
+
+    /** @since 2023.10 */
+    protected static void compactIndexIfNeeded(ConversionCacheIndex idx) {
         try {
-            doRemoveFromCache(key);
-        } finally {
-            cacheLock.writeLock().unlock();
+            idx.compactIfNeeded(cache.size(), ConversionCacheHolder::getIndexEntries);
+        } catch (IOException e) {
+            log.error("Cannot compact conversion cache index", e);
+        }
+    }
+
+    /**
+     * Moves an entry to the most recently used position.
+     */
+    protected static void touch(String key, ConversionCacheEntry cce) {
+        synchronized (cce) {
+            long previous = cce.accessSeq;
+            cce.accessSeq = accessSeq.incrementAndGet();
+            lru.put(cce.accessSeq, key);
+            if (previous != 0) {
+                lru.remove(previous, key);
+            }
+        }
+    }
+
+    protected static void unlink(String key, ConversionCacheEntry cce) {
+        synchronized (cce) {
+            lru.remove(cce.accessSeq, key);
         }
+        cacheSizeInKB.addAndGet(-cce.getDiskSpaceUsageInKB());
+    }
 
+    public static void removeFromCache(String key) {
+        doRemoveFromCache(key);
     }
 
     protected static void doRemoveFromCache(String key) {
-        if (cache.containsKey(key)) {
+        ConversionCacheEntry cce = cache.get(key);
+        if (cce != null) {
+            doRemoveFromCache(key, cce);
+        }
+    }
+
+    /**
+     * Removes an entry if it's still the current one for the key.
+     *
+     * @since 2023.10
+     */
+    protected static boolean doRemoveFromCache(String key, ConversionCacheEntry cce) {
+        if (!cache.remove(key, cce)) {
+            return false;
+        }
+        unlink(key, cce);
+        ConversionCacheIndex idx = index;
+        if (idx != null) {
+            idx.remove(key);
+            compactIndexIfNeeded(idx);
+        }
+        cce.remove();
+        return true;
+    }
+
+    /**
+     * Evicts the least recently used entries until more than the given size has been freed.
+     *
+     * @return the freed size
+     * @since 2023.10
+     */
+    public static long evict(long deltaInKB) {
+        long freed = 0;
+        Entry<Long, String> first;
+        while ((first = lru.pollFirstEntry()) != null) {
+            String key = first.getValue();
             ConversionCacheEntry cce = cache.get(key);
-            cce.remove();
-            cache.remove(key);
+            if (cce == null || cce.accessSeq != first.getKey().longValue()) {
+                // concurrently accessed or removed
+                continue;
+            }
+            long size = cce.getDiskSpaceUsageInKB();
+            if (doRemoveFromCache(key, cce)) {
+                freed += size;
+                if (freed > deltaInKB) {
+                    break;
+                }
+            }
         }
+        return freed;
     }
 
     public static ConversionCacheEntry getCacheEntry(String key) {
-        cacheLock.readLock().lock();
-        try {
-            return doGetCacheEntry(key);
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return doGetCacheEntry(key);
     }
 
     protected static ConversionCacheEntry doGetCacheEntry(String key) {
@@ -163,53 +409,63 @@ public class ConversionCacheHolder {
     }
 
     public static BlobHolder getFromCache(String key) {
-        // in case of present key but missing file we need to remove the cache key.
-        cacheLock.writeLock().lock();
-        try {
-            BlobHolder result = doGetFromCache(key);
-            if (result == null) {
-                removeFromCache(key);
-            }
-            return result;
-        } finally {
-            cacheLock.writeLock().unlock();
+        ConversionCacheEntry cacheEntry = cache.get(key);
+        if (cacheEntry == null) {
+            return null;
+        }
+        BlobHolder result = doGetFromCache(key, cacheEntry);
+        if (result == null) {
+            // in case of present key but missing file we need to remove the cache key
+            doRemoveFromCache(key, cacheEntry);
         }
+        return result;
     }
 
     protected static BlobHolder doGetFromCache(String key) {
         ConversionCacheEntry cacheEntry = cache.get(key);
-        if (cacheEntry != null) {
-            if (CACHE_HITS.incrementAndGet() < 0) {
-                // skip all negative values
-                CACHE_HITS.addAndGet(Long.MIN_VALUE); // back to 0
-            }
-            BlobHolder restored = cacheEntry.restore();
-            if (restored.getBlob().getFile().exists()) {
-                return restored;
-            }
+        return cacheEntry == null ? null : doGetFromCache(key, cacheEntry);
+    }
+
+    protected static BlobHolder doGetFromCache(String key, ConversionCacheEntry cacheEntry) {
+        if (CACHE_HITS.incrementAndGet() < 0) {
+            // skip all negative values
+            CACHE_HITS.addAndGet(Long.MIN_VALUE); // back to 0
+        }
+        touch(key, cacheEntry);
+        BlobHolder restored = cacheEntry.restore();
+        if (restored != null && restored.getBlob().getFile().exists()) {
+            return restored;
         }
         return null;
     }
 
     public static Set<String> getCacheKeys() {
-        cacheLock.readLock().lock();
-        try {
-            return new HashSet<>(cache.keySet());
-        } finally {
-            cacheLock.readLock().unlock();
-        }
+        return new HashSet<>(cache.keySet());
     }
 
     /**
      * @since 6.0
      */
-    public static void deleteCache() {
-        cacheLock.writeLock().lock();
-        try {
-            cache.clear();
-            new File(ConversionServiceImpl.getCacheBasePath()).delete();
-        } finally {
-            cacheLock.writeLock().unlock();
+    public static synchronized void deleteCache() {
+        ConversionCacheIndex oldIndex = index;
+        index = null;
+        if (oldIndex != null) {
+            try {
+                oldIndex.delete();
+            } catch (IOException e) {
+                log.error("Cannot delete conversion cache index", e);
+            }
+        }
+        clear();
+        File base = new File(ConversionServiceImpl.getCacheBasePath());
+        if (oldIndex != null) {
+            // the files would otherwise be orphaned at next restart
+            try {
+                FileUtils.cleanDirectory(base);
+            } catch (IOException | IllegalArgumentException e) {
+                log.debug("Cannot clean conversion cache directory: {}", base, e);
+            }
         }
+        base.delete();
     }
 }
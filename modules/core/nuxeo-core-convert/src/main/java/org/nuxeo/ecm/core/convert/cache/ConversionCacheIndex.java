@@ -0,0 +1,226 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Durable index of the {@link ConversionCacheHolder} entries, so that the persisted conversion results can be found
+ * again after a restart.
+ * <p>
+ * The index is an append-only log of additions and removals, compacted when loaded, when closed, and when the log
+ * exceeds {@value #COMPACTION_RATIO} times the number of live entries. A truncated last record (crash during an append)
+ * is ignored.
+ *
+ * @since 2023.10
+ */
+public class ConversionCacheIndex implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(ConversionCacheIndex.class);
+
+    public static final String INDEX_FILENAME = "index.log";
+
+    protected static final byte ADD = 'A';
+
+    protected static final byte REMOVE = 'R';
+
+    /** The log is compacted when its number of records exceeds this ratio of the live entries. */
+    protected static final int COMPACTION_RATIO = 4;
+
+    /** Small logs are not compacted while running. */
+    protected static final int COMPACTION_MIN_RECORDS = 1000;
+
+    /** An indexed entry. */
+    public record IndexEntry(String persistPath, long sizeInKB) {
+    }
+
+    protected final Path file;
+
+    protected DataOutputStream out;
+
+    /** Number of records in the log. */
+    protected long records;
+
+    public ConversionCacheIndex(Path dir) {
+        file = dir.resolve(INDEX_FILENAME);
+    }
+
+    /**
+     * Reads the index, in order of addition.
+     */
+    public synchronized Map<String, IndexEntry> load() {
+        Map<String, IndexEntry> entries = new LinkedHashMap<>();
+        try (InputStream in = Files.newInputStream(file);
+                DataInputStream din = new DataInputStream(new BufferedInputStream(in))) {
+            for (;;) {
+                byte type;
+                try {
+                    type = din.readByte();
+                } catch (EOFException e) {
+                    break;
+                }
+                String key = readString(din);
+                if (type == ADD) {
+                    String persistPath = readString(din);
+                    long sizeInKB = din.readLong();
+                    entries.remove(key); // keep addition order
+                    entries.put(key, new IndexEntry(persistPath, sizeInKB));
+                } else if (type == REMOVE) {
+                    entries.remove(key);
+                } else {
+                    throw new IOException("Invalid record type: " + type);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // new index
+        } catch (EOFException e) {
+            log.debug("Ignoring truncated record at the end of conversion cache index: {}", file);
+        } catch (IOException e) {
+            log.warn("Ignoring end of corrupted conversion cache index: {}", file, e);
+        }
+        return entries;
+    }
+
+    /**
+     * Rewrites the index with only the given entries, and opens it for appending.
+     */
+    public synchronized void compact(Map<String, IndexEntry> entries) throws IOException {
+        closeOutput();
+        Path tmp = file.resolveSibling(INDEX_FILENAME + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp);
+                DataOutputStream dout = new DataOutputStream(new BufferedOutputStream(os))) {
+            for (Entry<String, IndexEntry> es : entries.entrySet()) {
+                writeAdd(dout, es.getKey(), es.getValue());
+            }
+        }
+        Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        records = entries.size();
+        out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+    }
+
+    /**
+     * Compacts the index if its log has grown too large compared to the number of live entries.
+     * <p>
+     * The entries are computed while holding the index lock, so that no concurrent record is lost by the compaction.
+     */
+    public synchronized void compactIfNeeded(int liveEntries, Supplier<Map<String, IndexEntry>> entries)
+            throws IOException {
+        if (out == null || records < COMPACTION_MIN_RECORDS || records < (long) COMPACTION_RATIO * liveEntries) {
+            return;
+        }
+        log.debug("Compacting conversion cache index: {} with {} records for {} entries", file, records, liveEntries);
+        compact(entries.get());
+    }
+
+    public synchronized void add(String key, IndexEntry entry) {
+        if (out == null) {
+            return;
+        }
+        try {
+            writeAdd(out, key, entry);
+            out.flush();
+            records++;
+        } catch (IOException e) {
+            log.error("Cannot write conversion cache index: {}", file, e);
+        }
+    }
+
+    public synchronized void remove(String key) {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.writeByte(REMOVE);
+            writeString(out, key);
+            out.flush();
+            records++;
+        } catch (IOException e) {
+            log.error("Cannot write conversion cache index: {}", file, e);
+        }
+    }
+
+    /**
+     * Closes and deletes the index.
+     */
+    public synchronized void delete() throws IOException {
+        closeOutput();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closeOutput();
+    }
+
+    protected void closeOutput() throws IOException {
+        if (out != null) {
+            try {
+                out.close();
+            } finally {
+                out = null;
+            }
+        }
+    }
+
+    protected static void writeAdd(DataOutputStream dout, String key, IndexEntry entry) throws IOException {
+        dout.writeByte(ADD);
+        writeString(dout, key);
+        writeString(dout, entry.persistPath());
+        dout.writeLong(entry.sizeInKB());
+    }
+
+    protected static void writeString(DataOutputStream dout, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF_8);
+        dout.writeInt(bytes.length);
+        dout.write(bytes);
+    }
+
+    protected static String readString(DataInputStream din) throws IOException {
+        int length = din.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = din.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException();
+        }
+        return new String(bytes, UTF_8);
+    }
+
+}
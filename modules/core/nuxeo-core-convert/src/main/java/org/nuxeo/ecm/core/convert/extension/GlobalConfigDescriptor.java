@@ -43,6 +43,9 @@ public class GlobalConfigDescriptor {
 
     public static final String DEFAULT_CACHING_DIRECTORY = "convertcache";
 
+    /** @since 2023.10 */
+    public static final boolean DEFAULT_PERSISTENT_CACHE = true;
+
     @XNode("enableCache")
     protected Boolean enableCache;
 
@@ -50,6 +53,19 @@ public class GlobalConfigDescriptor {
         return enableCache == null ? DEFAULT_CACHE_ENABLED : enableCache.booleanValue();
     }
 
+    /**
+     * Whether the cache is kept across restarts. Otherwise the caching directory is cleared at startup.
+     *
+     * @since 2023.10
+     */
+    @XNode("persistentCache")
+    protected Boolean persistentCache;
+
+    /** @since 2023.10 */
+    public boolean isPersistentCache() {
+        return persistentCache == null ? DEFAULT_PERSISTENT_CACHE : persistentCache.booleanValue();
+    }
+
     @XNode("cachingDirectory")
     protected String cachingDirectory;
 
@@ -110,6 +126,9 @@ public class GlobalConfigDescriptor {
         if (other.cachingDirectory != null) {
             cachingDirectory = other.cachingDirectory;
         }
+        if (other.persistentCache != null) {
+            persistentCache = other.persistentCache;
+        }
     }
 
 }
@@ -29,6 +29,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -64,11 +65,18 @@ import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.ecm.platform.mimetype.interfaces.MimetypeEntry;
 import org.nuxeo.ecm.platform.mimetype.interfaces.MimetypeRegistry;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.RatioGauge;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * Runtime Component that also provides the POJO implementation of the {@link ConversionService}.
  */
@@ -95,17 +103,26 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     protected GCTask gcTask;
 
+    /** @since 2023.10 */
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** @since 2023.10 */
+    protected final Map<String, ConverterCacheMetrics> converterCacheMetrics = new ConcurrentHashMap<>();
+
     @Override
     public void activate(ComponentContext context) {
         converterDescriptors.clear();
         translationHelper.clear();
-        config.clearCachingDirectory();
     }
 
     @Override
     public void deactivate(ComponentContext context) {
         if (config.isCacheEnabled()) {
-            ConversionCacheHolder.deleteCache();
+            if (config.isPersistentCache()) {
+                ConversionCacheHolder.close();
+            } else {
+                ConversionCacheHolder.deleteCache();
+            }
         }
         converterDescriptors.clear();
         translationHelper.clear();
@@ -123,7 +140,6 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
         } else if (CONFIG_EP.equals(extensionPoint)) {
             GlobalConfigDescriptor desc = (GlobalConfigDescriptor) contribution;
             config.update(desc);
-            config.clearCachingDirectory();
         } else {
             log.error("Unable to handle unknown extensionPoint {}", extensionPoint);
         }
@@ -331,6 +347,9 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
         String cacheKey = CacheKeyGenerator.computeKey(converterName, blobHolder, parameters);
 
         BlobHolder result = ConversionCacheHolder.getFromCache(cacheKey);
+        if (config.isCacheEnabled()) {
+            getConverterCacheMetrics(converterName).record(result != null);
+        }
 
         if (result == null) {
             Converter converter = desc.getConverterInstance();
@@ -543,12 +562,67 @@ public class ConversionServiceImpl extends DefaultComponent implements Conversio
 
     @Override
     public void start(ComponentContext context) {
+        initCache();
         startGC();
     }
 
     @Override
     public void stop(ComponentContext context) {
         endGC();
+        converterCacheMetrics.keySet().forEach(this::removeConverterCacheMetrics);
+        converterCacheMetrics.clear();
+    }
+
+    /**
+     * Reloads the persisted cache, or clears the caching directory if the cache must not survive restarts.
+     *
+     * @since 2023.10
+     */
+    protected void initCache() {
+        if (config.isCacheEnabled() && config.isPersistentCache()) {
+            new File(config.getCachingDirectory()).mkdirs();
+            ConversionCacheHolder.open(config.getCachingDirectory());
+        } else {
+            config.clearCachingDirectory();
+        }
+    }
+
+    /**
+     * Cache hit and miss counters of a converter.
+     *
+     * @since 2023.10
+     */
+    protected record ConverterCacheMetrics(Counter hits, Counter misses) {
+
+        public void record(boolean hit) {
+            (hit ? hits : misses).inc();
+        }
+    }
+
+    protected ConverterCacheMetrics getConverterCacheMetrics(String converterName) {
+        return converterCacheMetrics.computeIfAbsent(converterName, this::newConverterCacheMetrics);
+    }
+
+    protected ConverterCacheMetrics newConverterCacheMetrics(String converterName) {
+        Counter hits = registry.counter(cacheMetricName("hit", converterName));
+        Counter misses = registry.counter(cacheMetricName("miss", converterName));
+        MetricName ratioName = cacheMetricName("hit.ratio", converterName);
+        registry.remove(ratioName);
+        registry.register(ratioName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+        return new ConverterCacheMetrics(hits, misses);
+    }
+
+    protected void removeConverterCacheMetrics(String converterName) {
+        registry.remove(cacheMetricName("hit.ratio", converterName));
+    }
+
+    protected MetricName cacheMetricName(String name, String converterName) {
+        return MetricName.build("nuxeo", "conversion", "cache", name).tagged("converter", converterName);
     }
 
     protected void startGC() {
@@ -0,0 +1,101 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.convert.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.convert.cache.ConversionCacheIndex.IndexEntry;
+
+/**
+ * @since 2023.10
+ */
+public class TestConversionCacheIndex {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCompactIfNeeded() throws IOException {
+        Path dir = folder.getRoot().toPath();
+        try (ConversionCacheIndex index = new ConversionCacheIndex(dir)) {
+            index.compact(Map.of());
+            IndexEntry entry = new IndexEntry("/some/path", 1);
+            int n = ConversionCacheIndex.COMPACTION_MIN_RECORDS / 2;
+            for (int i = 0; i < n - 1; i++) {
+                index.add("key", entry);
+                index.remove("key");
+            }
+            Path file = dir.resolve(ConversionCacheIndex.INDEX_FILENAME);
+            long size = Files.size(file);
+            // too small to be compacted
+            index.compactIfNeeded(0, Map::of);
+            assertEquals(size, Files.size(file));
+
+            index.add("key", entry);
+            index.remove("key");
+            index.add("live", entry);
+            // still a few records per live entry
+            index.compactIfNeeded(ConversionCacheIndex.COMPACTION_MIN_RECORDS, () -> Map.of("live", entry));
+            assertTrue(Files.size(file) > size);
+
+            index.compactIfNeeded(1, () -> Map.of("live", entry));
+            assertTrue(Files.size(file) < size);
+            assertEquals(Map.of("live", entry), new ConversionCacheIndex(dir).load());
+
+            // still appending after the compaction
+            index.add("other", entry);
+            assertEquals(Map.of("live", entry, "other", entry), new ConversionCacheIndex(dir).load());
+        }
+    }
+
+    @Test
+    public void testPublishDeletesReplacedEntry() throws IOException {
+        // one directory per entry, like in the cache
+        File oldFile = new File(folder.newFolder("old"), "result");
+        File newFile = new File(folder.newFolder("new"), "result");
+        assertTrue(oldFile.createNewFile());
+        assertTrue(newFile.createNewFile());
+        try {
+            ConversionCacheHolder.publish("key", new ConversionCacheEntry(oldFile.getPath(), 1));
+            ConversionCacheHolder.publish("key", new ConversionCacheEntry(newFile.getPath(), 2));
+            assertFalse(oldFile.exists());
+            assertTrue(newFile.exists());
+            assertEquals(1, ConversionCacheHolder.getNbCacheEntries());
+            assertEquals(2, ConversionCacheHolder.getCacheSizeInKB());
+
+            // same files, nothing to delete
+            ConversionCacheHolder.publish("key", new ConversionCacheEntry(newFile.getPath(), 2));
+            assertTrue(newFile.exists());
+            assertEquals(2, ConversionCacheHolder.getCacheSizeInKB());
+        } finally {
+            ConversionCacheHolder.removeFromCache("key");
+        }
+        assertFalse(newFile.exists());
+        assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
+    }
+
+}
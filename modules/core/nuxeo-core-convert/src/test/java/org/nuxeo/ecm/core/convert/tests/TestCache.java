@@ -21,6 +21,7 @@
 package org.nuxeo.ecm.core.convert.tests;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -127,4 +128,58 @@ public class TestCache {
         assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
     }
 
+    @Test
+    public void testCacheSurvivesRestart() throws IOException {
+        File file = FileUtils.getResourceFileFromContext("test-data/hello.doc");
+        BlobHolder bh = new SimpleCachableBlobHolder(Blobs.createBlob(file));
+        String cacheKey = CacheKeyGenerator.computeKey("identity", bh, null);
+        ConversionCacheHolder.addToCache(cacheKey, bh);
+        assertTrue(ConversionCacheHolder.getCacheKeys().contains(cacheKey));
+        long size = ConversionCacheHolder.getCacheSizeInKB();
+
+        // simulate a restart
+        ConversionCacheHolder.close();
+        assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
+        ConversionCacheHolder.open(ConversionServiceImpl.getCacheBasePath());
+
+        assertTrue(ConversionCacheHolder.getCacheKeys().contains(cacheKey));
+        assertEquals(size, ConversionCacheHolder.getCacheSizeInKB());
+        BlobHolder cached = ConversionCacheHolder.getFromCache(cacheKey);
+        assertNotNull(cached);
+        assertEquals(file.length(), cached.getBlob().getLength());
+
+        ConversionCacheHolder.removeFromCache(cacheKey);
+        assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
+    }
+
+    @Test
+    public void testUnindexedFilesDeletedAtStartup() throws IOException {
+        File file = FileUtils.getResourceFileFromContext("test-data/hello.doc");
+        BlobHolder bh = new SimpleCachableBlobHolder(Blobs.createBlob(file));
+        String cacheKey = CacheKeyGenerator.computeKey("identity", bh, null);
+        ConversionCacheHolder.addToCache(cacheKey, bh);
+        String persistPath = ConversionCacheHolder.getCacheEntry(cacheKey).getPersistPath();
+
+        // a result of a version where the cache was not persistent, and a leftover of a crash
+        java.nio.file.Path basePath = Paths.get(ConversionServiceImpl.getCacheBasePath());
+        java.nio.file.Path oldLayout = basePath.resolve("ab").resolve("cd").resolve("0123456789abcdef");
+        Files.createDirectories(oldLayout.getParent());
+        Files.writeString(oldLayout, "old");
+        java.nio.file.Path leftover = Paths.get(persistPath).resolveSibling("leftover");
+        Files.writeString(leftover, "leftover");
+
+        // simulate a restart
+        ConversionCacheHolder.close();
+        ConversionCacheHolder.open(ConversionServiceImpl.getCacheBasePath());
+
+        assertFalse(Files.exists(oldLayout));
+        assertFalse(Files.exists(basePath.resolve("ab")));
+        assertFalse(Files.exists(leftover));
+        assertTrue(Files.exists(Paths.get(persistPath)));
+        assertNotNull(ConversionCacheHolder.getFromCache(cacheKey));
+
+        ConversionCacheHolder.removeFromCache(cacheKey);
+        assertEquals(0, ConversionCacheHolder.getNbCacheEntries());
+    }
+
 }
@@ -0,0 +1,548 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.work;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.ObjectStreamConstants;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.avro.AvroRuntimeException;
+import org.apache.avro.JsonProperties;
+import org.apache.avro.Schema;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.avro.message.BinaryMessageDecoder;
+import org.apache.avro.message.BinaryMessageEncoder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.lib.stream.codec.AvroSchemaStore;
+import org.nuxeo.lib.stream.codec.Codec;
+
+/**
+ * Encodes works with an Avro schema generated from their serializable fields, instead of the Java serialization.
+ * <p>
+ * The encoded work is made of a header holding the work class name followed by an Avro single object encoding, the
+ * schemas being registered in the schema store so that a work written by another version of its class can be read.
+ * <p>
+ * A work class can be encoded if all its serializable fields are primitives, strings, enums, byte arrays, lists of
+ * strings, or objects of serializable classes following the same rules, and if no class of the hierarchy customizes
+ * its Java serialization. On decoding, the object is created like the Java serialization does, without calling the
+ * constructors of its serializable classes, then its serializable fields are set. Other works use the Java
+ * serialization, use {@link #accept(Work)} to know if a work can be encoded.
+ *
+ * @since 2023.10
+ */
+public class AvroWorkCodec implements Codec<Work> {
+
+    private static final Logger log = LogManager.getLogger(AvroWorkCodec.class);
+
+    public static final String NAME = "avroWork";
+
+    // header magic, cannot be confused with the Java serialization magic 0xACED
+    protected static final byte MAGIC_0 = 'N';
+
+    protected static final byte MAGIC_1 = 'W';
+
+    protected static final Set<String> CUSTOM_SERIALIZATION_METHODS = Set.of("writeObject", "readObject",
+            "readObjectNoData", "writeReplace", "readResolve");
+
+    protected final AvroSchemaStore store;
+
+    // work class -> mapping, empty if the class cannot be encoded
+    protected final Map<Class<?>, Optional<WorkMapping>> mappings = new ConcurrentHashMap<>();
+
+    public AvroWorkCodec(AvroSchemaStore store) {
+        this.store = store;
+    }
+
+    public AvroSchemaStore getStore() {
+        return store;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    /**
+     * Checks if the data has been encoded by this codec.
+     */
+    public static boolean isEncoded(byte[] data) {
+        return data.length > 4 && data[0] == MAGIC_0 && data[1] == MAGIC_1;
+    }
+
+    /**
+     * Checks if the work can be encoded by this codec.
+     */
+    public boolean accept(Work work) {
+        return getMapping(work.getClass()) != null;
+    }
+
+    /**
+     * Encodes the work.
+     *
+     * @return the encoded work, or {@code null} if the work or one of its field values cannot be encoded
+     */
+    @Override
+    public byte[] encode(Work work) {
+        WorkMapping mapping = getMapping(work.getClass());
+        if (mapping == null) {
+            return null;
+        }
+        GenericRecord record;
+        try {
+            record = mapping.classMapping.toRecord(work);
+        } catch (UnsupportedValueException e) {
+            log.debug("Cannot encode work: {}, {}", work::getId, e::getMessage);
+            return null;
+        }
+        byte[] className = work.getClass().getName().getBytes(UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        out.write(MAGIC_0);
+        out.write(MAGIC_1);
+        out.write(className.length >>> 8);
+        out.write(className.length);
+        out.write(className, 0, className.length);
+        try {
+            mapping.encoder.encode(record, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public Work decode(byte[] data) {
+        if (!isEncoded(data)) {
+            throw new IllegalArgumentException("Not an Avro encoded work");
+        }
+        int length = ((data[2] & 0xFF) << 8) | (data[3] & 0xFF);
+        String className = new String(data, 4, length, UTF_8);
+        Class<?> klass;
+        try {
+            klass = Class.forName(className, false, getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown work class: " + className, e);
+        }
+        if (!Work.class.isAssignableFrom(klass)) {
+            throw new IllegalArgumentException("Not a work class: " + className);
+        }
+        WorkMapping mapping = getMapping(klass);
+        if (mapping == null) {
+            throw new IllegalArgumentException("Work class cannot be decoded: " + className);
+        }
+        try {
+            GenericRecord record = mapping.decoder.decode(
+                    new ByteArrayInputStream(data, 4 + length, data.length - 4 - length), null);
+            return (Work) mapping.classMapping.fromRecord(record);
+        } catch (IOException | AvroRuntimeException e) {
+            throw new IllegalArgumentException("Cannot decode work of class: " + className, e);
+        }
+    }
+
+    protected static ClassLoader getClassLoader() {
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        return classLoader == null ? AvroWorkCodec.class.getClassLoader() : classLoader;
+    }
+
+    protected WorkMapping getMapping(Class<?> klass) {
+        return mappings.computeIfAbsent(klass, k -> {
+            ClassMapping classMapping = ClassMapping.of(k, new HashSet<>());
+            if (classMapping == null) {
+                log.debug("Work class: {} cannot be encoded with Avro, using Java serialization", k::getName);
+                return Optional.empty();
+            }
+            store.addSchema(classMapping.schema);
+            return Optional.of(new WorkMapping(classMapping, store));
+        }).orElse(null);
+    }
+
+    protected static class WorkMapping {
+
+        protected final ClassMapping classMapping;
+
+        protected final BinaryMessageEncoder<GenericRecord> encoder;
+
+        protected final BinaryMessageDecoder<GenericRecord> decoder;
+
+        protected WorkMapping(ClassMapping classMapping, AvroSchemaStore store) {
+            this.classMapping = classMapping;
+            encoder = new BinaryMessageEncoder<>(GenericData.get(), classMapping.schema);
+            decoder = new BinaryMessageDecoder<>(GenericData.get(), classMapping.schema, store);
+        }
+    }
+
+    protected static class UnsupportedValueException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        protected UnsupportedValueException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Maps the serializable fields of a class to an Avro record.
+     */
+    protected static class ClassMapping {
+
+        protected final Class<?> klass;
+
+        protected final Instantiator instantiator;
+
+        protected final Schema schema;
+
+        protected final List<FieldMapping> fields;
+
+        protected ClassMapping(Class<?> klass, Instantiator instantiator, Schema schema, List<FieldMapping> fields) {
+            this.klass = klass;
+            this.instantiator = instantiator;
+            this.schema = schema;
+            this.fields = fields;
+        }
+
+        /**
+         * @return the mapping, or {@code null} if the class cannot be mapped
+         */
+        protected static ClassMapping of(Class<?> klass, Set<Class<?>> visiting) {
+            if (!Serializable.class.isAssignableFrom(klass) || Externalizable.class.isAssignableFrom(klass)
+                    || klass.isInterface() || Modifier.isAbstract(klass.getModifiers()) || klass.isArray()
+                    || klass.isEnum() || klass.isRecord() || klass.getModule().isNamed() || !visiting.add(klass)) {
+                return null;
+            }
+            try {
+                List<FieldMapping> fields = new ArrayList<>();
+                Set<String> names = new HashSet<>();
+                for (Class<?> c = klass; c != Object.class; c = c.getSuperclass()) {
+                    if (!Serializable.class.isAssignableFrom(c)) {
+                        // like the Java serialization, the fields of non serializable super classes are not written
+                        break;
+                    }
+                    for (Method method : c.getDeclaredMethods()) {
+                        if (CUSTOM_SERIALIZATION_METHODS.contains(method.getName())) {
+                            return null;
+                        }
+                    }
+                    for (Field field : c.getDeclaredFields()) {
+                        int modifiers = field.getModifiers();
+                        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+                            continue;
+                        }
+                        if (field.getName().equals("serialPersistentFields") || !names.add(field.getName())) {
+                            // shadowed field
+                            return null;
+                        }
+                        FieldMapping fieldMapping = FieldMapping.of(field, visiting);
+                        if (fieldMapping == null) {
+                            return null;
+                        }
+                        fields.add(fieldMapping);
+                    }
+                }
+                Instantiator instantiator;
+                try {
+                    instantiator = new Instantiator(klass);
+                    // fails if the first non serializable super class has no accessible no-arg constructor
+                    instantiator.newInstance();
+                } catch (IOException | ClassNotFoundException e) {
+                    log.debug("Cannot instantiate class: {}", klass, e);
+                    return null;
+                }
+                List<Schema.Field> schemaFields = new ArrayList<>(fields.size());
+                fields.forEach(f -> schemaFields.add(
+                        new Schema.Field(f.field.getName(), f.schema, null, f.defaultValue)));
+                String name = klass.getName();
+                int dot = name.lastIndexOf('.');
+                Schema schema = Schema.createRecord(name.substring(dot + 1).replace('$', '_'), null,
+                        dot < 0 ? null : name.substring(0, dot), false, schemaFields);
+                return new ClassMapping(klass, instantiator, schema, fields);
+            } catch (RuntimeException e) {
+                // inaccessible field, invalid name...
+                log.debug("Cannot map class: {}", klass, e);
+                return null;
+            } finally {
+                visiting.remove(klass);
+            }
+        }
+
+        protected GenericRecord toRecord(Object object) throws UnsupportedValueException {
+            GenericData.Record record = new GenericData.Record(schema);
+            try {
+                for (FieldMapping field : fields) {
+                    record.put(field.field.getName(), field.toAvro(field.field.get(object)));
+                }
+            } catch (IllegalAccessException e) {
+                throw new UnsupportedValueException(e.getMessage());
+            }
+            return record;
+        }
+
+        protected Object fromRecord(GenericRecord record) {
+            try {
+                Object object = instantiator.newInstance();
+                for (FieldMapping field : fields) {
+                    Object value = field.fromAvro(record.get(field.field.getName()));
+                    if (value != null || !field.field.getType().isPrimitive()) {
+                        field.field.set(object, value);
+                    }
+                }
+                return object;
+            } catch (IOException | ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Cannot instantiate: " + klass.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Creates instances of a serializable class the way the Java serialization does: only the no-arg constructor of
+     * its first non serializable super class is called, and its serializable fields keep their default values.
+     * <p>
+     * The instance is read from a serialized form of the class holding no field value, whose classes are resolved to
+     * the given class and its super classes only.
+     */
+    protected static class Instantiator {
+
+        protected final Map<String, Class<?>> classes = new HashMap<>();
+
+        protected final byte[] blank;
+
+        protected Instantiator(Class<?> klass) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeShort(ObjectStreamConstants.STREAM_MAGIC);
+                out.writeShort(ObjectStreamConstants.STREAM_VERSION);
+                out.writeByte(ObjectStreamConstants.TC_OBJECT);
+                for (Class<?> c = klass; Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+                    classes.put(c.getName(), c);
+                    out.writeByte(ObjectStreamConstants.TC_CLASSDESC);
+                    out.writeUTF(c.getName());
+                    out.writeLong(ObjectStreamClass.lookup(c).getSerialVersionUID());
+                    out.writeByte(ObjectStreamConstants.SC_SERIALIZABLE);
+                    out.writeShort(0); // no field
+                    out.writeByte(ObjectStreamConstants.TC_ENDBLOCKDATA); // no class annotation
+                }
+                out.writeByte(ObjectStreamConstants.TC_NULL); // no serializable super class
+            }
+            blank = bytes.toByteArray();
+        }
+
+        protected Object newInstance() throws IOException, ClassNotFoundException {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(blank)) {
+                @Override
+                protected Class<?> resolveClass(ObjectStreamClass desc) throws ClassNotFoundException {
+                    Class<?> c = classes.get(desc.getName());
+                    if (c == null) {
+                        throw new ClassNotFoundException(desc.getName());
+                    }
+                    return c;
+                }
+            }) {
+                return in.readObject();
+            }
+        }
+    }
+
+    protected enum Kind {
+        BOOLEAN, BYTE, SHORT, CHAR, INT, LONG, FLOAT, DOUBLE, STRING, ENUM, BYTES, STRING_LIST, OBJECT
+    }
+
+    /**
+     * Maps a field to an Avro field.
+     */
+    protected static class FieldMapping {
+
+        protected final Field field;
+
+        protected final Kind kind;
+
+        protected final Schema schema;
+
+        protected final Object defaultValue;
+
+        // for objects
+        protected final ClassMapping classMapping;
+
+        protected FieldMapping(Field field, Kind kind, Schema schema, Object defaultValue,
+                ClassMapping classMapping) {
+            this.field = field;
+            this.kind = kind;
+            this.schema = schema;
+            this.defaultValue = defaultValue;
+            this.classMapping = classMapping;
+        }
+
+        protected static FieldMapping of(Field field, Set<Class<?>> visiting) {
+            Class<?> type = field.getType();
+            Kind kind;
+            Schema schema;
+            ClassMapping classMapping = null;
+            if (type == boolean.class || type == Boolean.class) {
+                kind = Kind.BOOLEAN;
+                schema = Schema.create(Schema.Type.BOOLEAN);
+            } else if (type == byte.class || type == Byte.class) {
+                kind = Kind.BYTE;
+                schema = Schema.create(Schema.Type.INT);
+            } else if (type == short.class || type == Short.class) {
+                kind = Kind.SHORT;
+                schema = Schema.create(Schema.Type.INT);
+            } else if (type == char.class || type == Character.class) {
+                kind = Kind.CHAR;
+                schema = Schema.create(Schema.Type.INT);
+            } else if (type == int.class || type == Integer.class) {
+                kind = Kind.INT;
+                schema = Schema.create(Schema.Type.INT);
+            } else if (type == long.class || type == Long.class) {
+                kind = Kind.LONG;
+                schema = Schema.create(Schema.Type.LONG);
+            } else if (type == float.class || type == Float.class) {
+                kind = Kind.FLOAT;
+                schema = Schema.create(Schema.Type.FLOAT);
+            } else if (type == double.class || type == Double.class) {
+                kind = Kind.DOUBLE;
+                schema = Schema.create(Schema.Type.DOUBLE);
+            } else if (type == String.class) {
+                kind = Kind.STRING;
+                schema = Schema.create(Schema.Type.STRING);
+            } else if (type.isEnum()) {
+                kind = Kind.ENUM;
+                schema = Schema.create(Schema.Type.STRING);
+            } else if (type == byte[].class) {
+                kind = Kind.BYTES;
+                schema = Schema.create(Schema.Type.BYTES);
+            } else if (type == List.class && isStringList(field.getGenericType())) {
+                kind = Kind.STRING_LIST;
+                schema = Schema.createArray(Schema.create(Schema.Type.STRING));
+            } else if (Collection.class.isAssignableFrom(type) || Map.class.isAssignableFrom(type)) {
+                return null;
+            } else {
+                classMapping = ClassMapping.of(type, visiting);
+                if (classMapping == null) {
+                    return null;
+                }
+                kind = Kind.OBJECT;
+                schema = classMapping.schema;
+            }
+            field.setAccessible(true);
+            if (type.isPrimitive()) {
+                Object defaultValue = switch (kind) {
+                case BOOLEAN -> Boolean.FALSE;
+                case LONG -> Long.valueOf(0);
+                case FLOAT -> Float.valueOf(0);
+                case DOUBLE -> Double.valueOf(0);
+                default -> Integer.valueOf(0);
+                };
+                return new FieldMapping(field, kind, schema, defaultValue, null);
+            }
+            Schema nullable = Schema.createUnion(Schema.create(Schema.Type.NULL), schema);
+            return new FieldMapping(field, kind, nullable, JsonProperties.NULL_VALUE, classMapping);
+        }
+
+        protected static boolean isStringList(Type type) {
+            return type instanceof ParameterizedType pt && pt.getActualTypeArguments().length == 1
+                    && pt.getActualTypeArguments()[0] == String.class;
+        }
+
+        protected Object toAvro(Object value) throws UnsupportedValueException {
+            if (value == null) {
+                return null;
+            }
+            switch (kind) {
+            case BYTE:
+                return Integer.valueOf(((Byte) value).intValue());
+            case SHORT:
+                return Integer.valueOf(((Short) value).intValue());
+            case CHAR:
+                return Integer.valueOf(((Character) value).charValue());
+            case ENUM:
+                return ((Enum<?>) value).name();
+            case BYTES:
+                return ByteBuffer.wrap((byte[]) value);
+            case STRING_LIST:
+                List<?> list = (List<?>) value;
+                for (Object item : list) {
+                    if (!(item instanceof String)) {
+                        throw new UnsupportedValueException("Unsupported list item in field: " + field);
+                    }
+                }
+                return list;
+            case OBJECT:
+                if (value.getClass() != classMapping.klass) {
+                    throw new UnsupportedValueException("Unsupported value class in field: " + field);
+                }
+                return classMapping.toRecord(value);
+            default:
+                return value;
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        protected Object fromAvro(Object value) {
+            if (value == null) {
+                return null;
+            }
+            switch (kind) {
+            case BYTE:
+                return Byte.valueOf(((Integer) value).byteValue());
+            case SHORT:
+                return Short.valueOf(((Integer) value).shortValue());
+            case CHAR:
+                return Character.valueOf((char) ((Integer) value).intValue());
+            case STRING:
+                return value.toString();
+            case ENUM:
+                return Enum.valueOf((Class<? extends Enum>) field.getType(), value.toString());
+            case BYTES:
+                ByteBuffer buffer = (ByteBuffer) value;
+                byte[] bytes = new byte[buffer.remaining()];
+                buffer.get(bytes);
+                return bytes;
+            case STRING_LIST:
+                List<String> list = new ArrayList<>();
+                ((Collection<?>) value).forEach(item -> list.add(item.toString()));
+                return list;
+            case OBJECT:
+                return classMapping.fromRecord((GenericRecord) value);
+            default:
+                return value;
+            }
+        }
+    }
+
+}
@@ -98,6 +98,19 @@ public class StreamWorkManager extends WorkManagerImpl {
 
     public static final String DEFAULT_WORK_CODEC = "legacy";
 
+    /**
+     * Property defining how works are serialized in records, {@code java} by default, or {@code avro} to use
+     * {@link AvroWorkCodec} for the work classes it supports. Records are read whatever the value.
+     *
+     * @since 2023.10
+     */
+    public static final String WORK_SERIALIZATION_PROP = "nuxeo.stream.work.serialization";
+
+    /**
+     * @since 2023.10
+     */
+    public static final String WORK_SERIALIZATION_AVRO = "avro";
+
     public static final String WORK_OVER_PROVISIONING_PROP = "nuxeo.stream.work.over.provisioning.factor";
 
     public static final String DEFAULT_WORK_OVER_PROVISIONING = "3";
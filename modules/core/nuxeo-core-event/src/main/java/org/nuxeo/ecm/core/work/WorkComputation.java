@@ -21,6 +21,8 @@ package org.nuxeo.ecm.core.work;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STATETTL_DEFAULT_VALUE;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STATETTL_KEY;
 import static org.nuxeo.ecm.core.work.StreamWorkManager.STORESTATE_KEY;
+import static org.nuxeo.ecm.core.work.StreamWorkManager.WORK_SERIALIZATION_AVRO;
+import static org.nuxeo.ecm.core.work.StreamWorkManager.WORK_SERIALIZATION_PROP;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -40,7 +42,9 @@ import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.codec.AvroSchemaStore;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.avro.AvroService;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 
@@ -67,6 +71,9 @@ public class WorkComputation extends AbstractComputation {
 
     protected Work work;
 
+    // @since 2023.10
+    protected static volatile AvroWorkCodec avroWorkCodec;
+
     public WorkComputation(String name) {
         super(name, 1, 0);
         MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
@@ -146,8 +153,27 @@ public class WorkComputation extends AbstractComputation {
         }
     }
 
+    /**
+     * Gets the Avro codec bound to the current schema store.
+     *
+     * @since 2023.10
+     */
+    protected static AvroWorkCodec getAvroWorkCodec() {
+        AvroSchemaStore store = Framework.getService(AvroService.class).getSchemaStore();
+        AvroWorkCodec codec = avroWorkCodec;
+        if (codec == null || codec.getStore() != store) {
+            codec = new AvroWorkCodec(store);
+            avroWorkCodec = codec;
+        }
+        return codec;
+    }
+
     @SuppressWarnings("squid:S2093")
     public static Work deserialize(byte[] data) {
+        if (AvroWorkCodec.isEncoded(data)) {
+            // whatever the configuration, as the work may have been written by another node
+            return getAvroWorkCodec().decode(data);
+        }
         // TODO: switch to commons-lang3 SerializationUtils
         ByteArrayInputStream bis = new ByteArrayInputStream(data);
         ObjectInput in = null;
@@ -169,6 +195,13 @@ public class WorkComputation extends AbstractComputation {
 
     @SuppressWarnings("squid:S2093")
     public static byte[] serialize(Work work) {
+        if (WORK_SERIALIZATION_AVRO.equals(Framework.getProperty(WORK_SERIALIZATION_PROP))) {
+            byte[] data = getAvroWorkCodec().encode(work);
+            if (data != null) {
+                return data;
+            }
+            // fallback to Java serialization
+        }
         ByteArrayOutputStream bos = new ByteArrayOutputStream();
         ObjectOutput out;
         try {
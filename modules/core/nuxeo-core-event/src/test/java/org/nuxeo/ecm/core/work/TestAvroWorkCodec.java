@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.work;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.work.api.Work;
+import org.nuxeo.ecm.core.work.api.Work.Progress;
+import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
+
+public class TestAvroWorkCodec {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected AvroWorkCodec codec;
+
+    @Before
+    public void before() {
+        codec = new AvroWorkCodec(new FileAvroSchemaStore(folder.getRoot().toPath()));
+    }
+
+    @Test
+    public void testWork() {
+        DocumentsWork work = new DocumentsWork("myId", "myCategory");
+        work.setDocuments("default", List.of("id1", "id2"));
+        work.setOriginatingUsername("bob");
+        work.setProgress(new Progress(3, 10));
+
+        assertTrue(codec.accept(work));
+        byte[] data = codec.encode(work);
+        assertTrue(AvroWorkCodec.isEncoded(data));
+        assertTrue(data.length < SerializationUtils.serialize(work).length);
+
+        DocumentsWork.constructed = 0;
+        Work actual = codec.decode(data);
+        // like the Java serialization, the constructors of the serializable classes are not called
+        assertEquals(0, DocumentsWork.constructed);
+        assertTrue(actual instanceof DocumentsWork);
+        assertEquals("myId", actual.getId());
+        assertEquals("myCategory", actual.getCategory());
+        assertEquals(work.getTitle(), actual.getTitle());
+        assertEquals(work.getDocuments(), actual.getDocuments());
+        assertEquals("bob", actual.getOriginatingUsername());
+        assertEquals(3, actual.getProgress().getCurrent());
+        assertEquals(10, actual.getProgress().getTotal());
+        assertNull(actual.getSchedulePath());
+        assertNull(actual.getWorkInstanceState());
+    }
+
+    @Test
+    public void testFatWork() {
+        FatWork work = new FatWork("fat", 10_000);
+        Work actual = codec.decode(codec.encode(work));
+        assertEquals(work.getTitle(), actual.getTitle());
+        // check the field read by work()
+        actual.work();
+    }
+
+    @Test
+    public void testUnsupportedWork() {
+        MapWork work = new MapWork();
+        assertFalse(codec.accept(work));
+        assertNull(codec.encode(work));
+        // the fields of the JDK classes, here an AtomicInteger, cannot be accessed
+        assertFalse(codec.accept(new SleepWork(1)));
+    }
+
+    @Test
+    public void testNotAWorkClass() {
+        byte[] className = NotAWork.class.getName().getBytes(UTF_8);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write('N');
+        out.write('W');
+        out.write(className.length >>> 8);
+        out.write(className.length);
+        out.write(className, 0, className.length);
+        out.write(0);
+        byte[] data = out.toByteArray();
+        assertTrue(AvroWorkCodec.isEncoded(data));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> codec.decode(data));
+        assertEquals("Not a work class: " + NotAWork.class.getName(), e.getMessage());
+        assertFalse(NotAWork.instantiated);
+    }
+
+    protected static class NotAWork implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        protected static boolean instantiated;
+
+        protected NotAWork() {
+            instantiated = true;
+        }
+    }
+
+    protected static class DocumentsWork extends AbstractWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected static int constructed;
+
+        protected final String category;
+
+        protected DocumentsWork(String id, String category) {
+            super(id);
+            this.category = category;
+            constructed++;
+        }
+
+        @Override
+        public String getCategory() {
+            return category;
+        }
+
+        @Override
+        public String getTitle() {
+            return "documents";
+        }
+
+        @Override
+        public void work() {
+            // nothing
+        }
+    }
+
+    protected static class MapWork extends AbstractWork {
+
+        private static final long serialVersionUID = 1L;
+
+        protected Map<String, Serializable> properties = new HashMap<>();
+
+        @Override
+        public String getTitle() {
+            return "map";
+        }
+
+        @Override
+        public void work() {
+            // nothing
+        }
+    }
+
+}
@@ -19,6 +19,9 @@
 package org.nuxeo.ecm.core.io.download;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 
@@ -40,6 +43,13 @@ public class DownloadHelper {
 
     public static final String INLINE = "inline";
 
+    /**
+     * The maximum number of byte ranges accepted in a request, above which the byte ranges are ignored.
+     *
+     * @since 2023.10
+     */
+    public static final int MAX_RANGES = 16;
+
     // tomcat catalina
     private static final String CLIENT_ABORT_EXCEPTION = "ClientAbortException";
 
@@ -58,17 +68,66 @@ public class DownloadHelper {
      * @return the byte range, or {@code null} if it couldn't be parsed.
      */
     public static ByteRange parseRange(String range, long length) {
-        try {
-            // TODO does no support multiple ranges
-            if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+        // multiple ranges are parsed by parseRanges
+        if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+            return null;
+        }
+        return parseRangeSpec(range.substring(6), length);
+    }
+
+    /**
+     * Parses a byte range header which may contain several byte ranges.
+     * <p>
+     * The returned byte ranges are sorted, and the overlapping or adjacent ones are coalesced as allowed by RFC 7233.
+     *
+     * @param range the byte ranges as a string
+     * @param length the file length
+     * @return the byte ranges, or {@code null} if they couldn't be parsed or if there are more than
+     *         {@link #MAX_RANGES}
+     * @since 2023.10
+     */
+    public static List<ByteRange> parseRanges(String range, long length) {
+        if (!range.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = range.substring(6).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<ByteRange> byteRanges = new ArrayList<>(specs.length);
+        for (String spec : specs) {
+            ByteRange byteRange = parseRangeSpec(spec, length);
+            if (byteRange == null) {
                 return null;
             }
-            int i = range.indexOf('-', 6);
+            byteRanges.add(byteRange);
+        }
+        byteRanges.sort(Comparator.comparingLong(ByteRange::getStart));
+        List<ByteRange> coalesced = new ArrayList<>(byteRanges.size());
+        ByteRange previous = null;
+        for (ByteRange byteRange : byteRanges) {
+            if (previous != null && byteRange.getStart() <= previous.getEnd() + 1) {
+                previous = ByteRange.inclusive(previous.getStart(), Math.max(previous.getEnd(), byteRange.getEnd()));
+                coalesced.set(coalesced.size() - 1, previous);
+            } else {
+                previous = byteRange;
+                coalesced.add(byteRange);
+            }
+        }
+        return coalesced;
+    }
+
+    /**
+     * Parses a single byte range, without the {@code bytes=} prefix. The end is capped to the file length.
+     */
+    private static ByteRange parseRangeSpec(String spec, long length) {
+        try {
+            int i = spec.indexOf('-');
             if (i < 0) {
                 return null;
             }
-            String start = range.substring(6, i).trim();
-            String end = range.substring(i + 1).trim();
+            String start = spec.substring(0, i).trim();
+            String end = spec.substring(i + 1).trim();
             long rangeStart = 0;
             long rangeEnd = length - 1;
             if (start.isEmpty()) {
@@ -82,7 +141,7 @@ public class DownloadHelper {
             } else {
                 rangeStart = Long.parseLong(start);
                 if (!end.isEmpty()) {
-                    rangeEnd = Long.parseLong(end);
+                    rangeEnd = Math.min(Long.parseLong(end), length - 1);
                 }
             }
             if (rangeStart > rangeEnd) {
@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.io.download;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -29,6 +30,12 @@ import java.io.Serializable;
 import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -80,6 +87,7 @@ import org.nuxeo.ecm.core.blob.BlobManager.UsageHint;
 import org.nuxeo.ecm.core.blob.BlobProvider;
 import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.LocalBlobProvider;
+import org.nuxeo.ecm.core.blob.LocalBlobStore;
 import org.nuxeo.ecm.core.blob.ManagedBlob;
 import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
 import org.nuxeo.ecm.core.event.Event;
@@ -91,11 +99,17 @@ import org.nuxeo.ecm.core.io.NginxConstants;
 import org.nuxeo.ecm.core.transientstore.api.TransientStore;
 import org.nuxeo.ecm.core.transientstore.api.TransientStoreService;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.services.config.ConfigurationService;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * This service allows the download of blobs to a HTTP response.
  *
@@ -120,6 +134,24 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
     /** @since 11.1 */
     public static final String DOWNLOAD_URL_FOLLOW_REDIRECT = "org.nuxeo.download.url.follow.redirect";
 
+    /**
+     * Property enabling the transfer of the blobs stored by a local blob provider by the servlet container with
+     * sendfile, when supported by the container.
+     *
+     * @since 2023.10
+     */
+    public static final String DOWNLOAD_SENDFILE_ENABLED = "org.nuxeo.download.sendfile.enabled";
+
+    protected static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    protected static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    protected static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    protected static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    protected static final String MULTIPART_BYTERANGES = "multipart/byteranges";
+
     private static final String RUN_FUNCTION = "run";
 
     private static final Pattern FILENAME_SANITIZATION_REGEX = Pattern.compile(";\\w+=.*");
@@ -136,6 +168,21 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     protected RedirectResolver redirectResolver;
 
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /** Bytes sent by the servlet container with sendfile. */
+    protected final Counter sendfileBytesCounter = registry.counter(transferMetricName("sendfile"));
+
+    /** Bytes sent from a local file with {@link FileChannel#transferTo}. */
+    protected final Counter fileBytesCounter = registry.counter(transferMetricName("file"));
+
+    /** Bytes copied from the blob stream. */
+    protected final Counter streamBytesCounter = registry.counter(transferMetricName("stream"));
+
+    protected static MetricName transferMetricName(String transfer) {
+        return MetricName.build("nuxeo", "download", "bytes").tagged("transfer", transfer);
+    }
+
     @Override
     public void start(ComponentContext context) {
         super.start(context);
@@ -543,7 +590,9 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
         Boolean inline = context.getInline();
         Consumer<ByteRange> blobTransferer = context.getBlobTransferer();
-        if (blobTransferer == null) {
+        // a custom transferer only knows how to send a single byte range
+        boolean defaultTransferer = blobTransferer == null;
+        if (defaultTransferer) {
             Blob fblob = blob;
             blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, response);
         }
@@ -581,7 +630,9 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
             boolean empty = contentType != null && contentType.contains("empty=true");
 
             long length = blob.getLength();
-            ByteRange byteRange = getByteRange(request, length);
+            List<ByteRange> byteRanges = getByteRanges(request, length, defaultTransferer);
+            ByteRange byteRange = byteRanges == null ? null : byteRanges.get(0);
+            String boundary = byteRanges != null && byteRanges.size() > 1 ? UUID.randomUUID().toString() : null;
 
             String digest = blob.getDigest();
             String digestAlgorithm = blob.getDigestAlgorithm();
@@ -665,22 +716,35 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
             }
             String contentDisposition = DownloadHelper.getRFC2231ContentDisposition(request, filename, inline);
             response.setHeader("Content-Disposition", contentDisposition);
-            response.setContentType(contentType);
-            if (StringUtils.isNotBlank(blob.getEncoding())) {
-                try {
-                    response.setCharacterEncoding(blob.getEncoding());
-                } catch (IllegalArgumentException e) {
-                    // ignore invalid encoding
+            if (boundary != null) {
+                response.setContentType(MULTIPART_BYTERANGES + "; boundary=" + boundary);
+            } else {
+                response.setContentType(contentType);
+                if (StringUtils.isNotBlank(blob.getEncoding())) {
+                    try {
+                        response.setCharacterEncoding(blob.getEncoding());
+                    } catch (IllegalArgumentException e) {
+                        // ignore invalid encoding
+                    }
                 }
             }
 
             response.setHeader("Accept-Ranges", "bytes");
-            if (byteRange != null) {
+            long contentLength;
+            if (boundary != null) {
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                contentLength = getMultipartEnd(boundary).length;
+                for (ByteRange range : byteRanges) {
+                    contentLength += getPartHeader(range, contentType, length, boundary).length + range.getLength();
+                }
+            } else if (byteRange != null) {
                 response.setHeader("Content-Range",
                         "bytes " + byteRange.getStart() + "-" + byteRange.getEnd() + "/" + length);
                 response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                contentLength = byteRange.getLength();
+            } else {
+                contentLength = length;
             }
-            long contentLength = byteRange == null ? length : byteRange.getLength();
             response.setContentLengthLong(contentLength);
 
             // log the download but not if it's a random byte range
@@ -717,7 +781,11 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
             if (!isHead(request)) {
                 // execute the final download
-                blobTransferer.accept(byteRange);
+                if (boundary != null) {
+                    transferBlobWithByteRanges(blob, byteRanges, contentType, length, boundary, response);
+                } else if (!defaultTransferer || !sendFile(request, blob, byteRange, length)) {
+                    blobTransferer.accept(byteRange);
+                }
             }
         } catch (UncheckedIOException e) {
             DownloadHelper.handleClientDisconnect(e.getCause());
@@ -738,6 +806,28 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         return byteRange;
     }
 
+    /**
+     * Gets the byte ranges of the request, several byte ranges are only accepted if {@code multiple} is {@code true}.
+     *
+     * @return the byte ranges, or {@code null} for the whole blob
+     * @since 2023.10
+     */
+    protected List<ByteRange> getByteRanges(HttpServletRequest request, long length, boolean multiple) {
+        if (!multiple) {
+            ByteRange byteRange = getByteRange(request, length);
+            return byteRange == null ? null : List.of(byteRange);
+        }
+        String range = request.getHeader("Range");
+        if (StringUtils.isBlank(range)) {
+            return null;
+        }
+        List<ByteRange> byteRanges = DownloadHelper.parseRanges(range, length);
+        if (byteRanges == null) {
+            log.debug("Invalid byte ranges received: {}", range);
+        }
+        return byteRanges;
+    }
+
     protected Set<String> getWantDigests(HttpServletRequest request) {
         Enumeration<String> values = request.getHeaders("Want-Digest");
         if (values == null) {
@@ -779,25 +869,165 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     @Override
     public void transferBlobWithByteRange(Blob blob, ByteRange byteRange, Supplier<OutputStream> outputStreamSupplier) {
-        try (InputStream in = blob.getStream()) {
+        try {
             @SuppressWarnings("resource")
             OutputStream out = outputStreamSupplier.get(); // not ours to close
             BufferingServletOutputStream.stopBuffering(out);
+            File file = blob.getFile();
+            if (file == null || !transferFile(file, byteRange, out)) {
+                transferStream(blob, byteRange, out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends a byte range of a local file with positioned reads, without going through the JVM heap when the output
+     * allows it.
+     *
+     * @return {@code false} if the file doesn't exist anymore
+     * @since 2023.10
+     */
+    protected boolean transferFile(File file, ByteRange byteRange, OutputStream out) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            // concurrently removed from a cache, the blob stream will fetch it again
+            return false;
+        }
+        try (channel) {
+            long position = byteRange == null ? 0 : byteRange.getStart();
+            long end = byteRange == null ? channel.size() : byteRange.getEnd() + 1;
+            // not closed, this would close the output stream
+            WritableByteChannel target = Channels.newChannel(out);
+            while (position < end) {
+                long n = channel.transferTo(position, end - position, target);
+                if (n <= 0) {
+                    throw new EOFException();
+                }
+                position += n;
+                fileBytesCounter.inc(n);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copies a byte range of the blob stream.
+     *
+     * @since 2023.10
+     */
+    protected void transferStream(Blob blob, ByteRange byteRange, OutputStream out) throws IOException {
+        try (InputStream in = blob.getStream()) {
+            long n;
             if (byteRange == null) {
-                IOUtils.copy(in, out);
+                n = IOUtils.copyLarge(in, out);
             } else {
                 @SuppressWarnings("resource") // closing the original stream is enough
                 InputStream substream = byteRange.forStream(in);
-                // don't use IOUtils.copyLarge because it uses a skip method that reads
+                // don't use IOUtils.copyLarge with an offset because it uses a skip method that reads
                 // all intervening bytes, which is inefficient for skippable streams
-                IOUtils.copy(substream, out);
+                n = IOUtils.copyLarge(substream, out);
+            }
+            streamBytesCounter.inc(n);
+        }
+    }
+
+    /**
+     * Sends several byte ranges of a blob as a {@code multipart/byteranges} body.
+     *
+     * @since 2023.10
+     */
+    protected void transferBlobWithByteRanges(Blob blob, List<ByteRange> byteRanges, String contentType, long length,
+            String boundary, HttpServletResponse response) {
+        try {
+            @SuppressWarnings("resource")
+            OutputStream out = response.getOutputStream(); // not ours to close
+            BufferingServletOutputStream.stopBuffering(out);
+            for (ByteRange byteRange : byteRanges) {
+                out.write(getPartHeader(byteRange, contentType, length, boundary));
+                transferBlobWithByteRange(blob, byteRange, () -> out);
             }
+            out.write(getMultipartEnd(boundary));
             out.flush();
+            response.flushBuffer();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
     }
 
+    protected static byte[] getPartHeader(ByteRange byteRange, String contentType, long length, String boundary) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("\r\n--").append(boundary).append("\r\n");
+        if (contentType != null) {
+            sb.append("Content-Type: ").append(contentType).append("\r\n");
+        }
+        sb.append("Content-Range: bytes ")
+          .append(byteRange.getStart())
+          .append('-')
+          .append(byteRange.getEnd())
+          .append('/')
+          .append(length)
+          .append("\r\n\r\n");
+        return sb.toString().getBytes(UTF_8);
+    }
+
+    protected static byte[] getMultipartEnd(String boundary) {
+        return ("\r\n--" + boundary + "--\r\n").getBytes(UTF_8);
+    }
+
+    /**
+     * Lets the servlet container send a blob stored by a local blob store with sendfile, which avoids copying the
+     * bytes through the JVM. Only Tomcat is supported, it sends the file once the request has been processed.
+     *
+     * @return {@code true} if the container will send the file
+     * @since 2023.10
+     */
+    protected boolean sendFile(HttpServletRequest request, Blob blob, ByteRange byteRange, long length) {
+        // only blobs from a local blob store, a temporary or cached file may be deleted before the container sends it
+        if (!(blob instanceof ManagedBlob) || !Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))
+                || !Framework.getService(ConfigurationService.class).isBooleanTrue(DOWNLOAD_SENDFILE_ENABLED)) {
+            return false;
+        }
+        File file = getNonEvictableFile((ManagedBlob) blob);
+        if (file == null) {
+            return false;
+        }
+        long start = byteRange == null ? 0 : byteRange.getStart();
+        long end = byteRange == null ? length : byteRange.getEnd() + 1; // exclusive
+        request.setAttribute(TOMCAT_SENDFILE_FILENAME, file.getAbsolutePath());
+        request.setAttribute(TOMCAT_SENDFILE_START, Long.valueOf(start));
+        request.setAttribute(TOMCAT_SENDFILE_END, Long.valueOf(end));
+        sendfileBytesCounter.inc(end - start);
+        return true;
+    }
+
+    /**
+     * Gets the file of a blob stored by a {@link LocalBlobStore}, which is the only store keeping its files until the
+     * blob is deleted. The file of a blob stored elsewhere may be a cached copy that can be evicted once the request
+     * returns, before the container sends it.
+     *
+     * @return the file, or {@code null} if the blob is not stored in a local blob store
+     * @since 2023.10
+     */
+    protected File getNonEvictableFile(ManagedBlob blob) {
+        BlobProvider blobProvider = Framework.getService(BlobManager.class).getBlobProvider(blob);
+        if (!(blobProvider instanceof LocalBlobProvider)
+                || !(((LocalBlobProvider) blobProvider).store.unwrap() instanceof LocalBlobStore)) {
+            return null;
+        }
+        File file = blob.getFile();
+        // not a file of the transient store of a transaction
+        Path storageDir = ((LocalBlobProvider) blobProvider).getStorageDir().toAbsolutePath().normalize();
+        if (file == null || !file.toPath().toAbsolutePath().normalize().startsWith(storageDir)) {
+            return null;
+        }
+        return file;
+    }
+
     protected String fixXPath(String xpath) {
         // Hack for Flash Url wich doesn't support ':' char
         return xpath == null ? null : xpath.replace(';', ':');
@@ -23,12 +23,13 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.ws.rs.core.MediaType;
 
@@ -84,6 +85,40 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
      */
     private static final Map<Class<?>, MarshallerInspector> marshallersByType = new ConcurrentHashMap<>();
 
+    /**
+     * Maximum number of resolutions kept in {@link #resolutions}.
+     *
+     * @since 2023.10
+     */
+    private static final int MAX_RESOLUTIONS = 10_000;
+
+    /**
+     * The {@link MarshallerInspector} whose marshalled type and generic type match a lookup, in the order they are
+     * searched: first those managing the requested {@link MediaType}, then the others, each by priority.
+     * <p>
+     * Only the checks that don't depend on the {@link RenderingContext} are cached, the
+     * {@link Marshaller#accept(Class, Type, MediaType)} check is still done for each lookup as it may depend on the
+     * context parameters. Cleared when a marshaller is registered or deregistered.
+     *
+     * @since 2023.10
+     */
+    private static final Map<Resolution, List<MarshallerInspector>> resolutions = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each change of the registered marshallers, to avoid caching resolutions computed concurrently.
+     *
+     * @since 2023.10
+     */
+    private static final AtomicLong registrations = new AtomicLong();
+
+    /**
+     * A marshaller lookup.
+     *
+     * @since 2023.10
+     */
+    private record Resolution(boolean writer, Class<?> marshalledClazz, Type genericType, MediaType mediatype) {
+    }
+
     @Override
     public void deactivate(ComponentContext context) {
         clear();
@@ -158,6 +193,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 inspectors.add(inspector);
             }
         }
+        invalidateResolutions();
     }
 
     @Override
@@ -191,29 +227,29 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 }
             }
         }
+        invalidateResolutions();
     }
 
     @Override
     public <T> Writer<T> getWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, false);
+        List<MarshallerInspector> candidates = resolve(true, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Writer<T> getUniqueWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, true);
+        List<MarshallerInspector> candidates = resolve(true, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Writer<T>> getAllWriters(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                writers);
+        List<MarshallerInspector> candidates = resolve(true, marshalledClazz, genericType, mediatype);
+        List<Marshaller<T>> founds = searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, candidates);
         return (Collection<Writer<T>>) (Collection<?>) founds;
     }
 
@@ -225,24 +261,23 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     @Override
     public <T> Reader<T> getReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, false);
+        List<MarshallerInspector> candidates = resolve(false, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Reader<T> getUniqueReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, true);
+        List<MarshallerInspector> candidates = resolve(false, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Reader<T>> getAllReaders(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                readers);
+        List<MarshallerInspector> candidates = resolve(false, marshalledClazz, genericType, mediatype);
+        List<Marshaller<T>> founds = searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, candidates);
         return (Collection<Reader<T>>) (Collection<?>) founds;
     }
 
@@ -254,14 +289,8 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     public <T> Marshaller<T> getMarshaller(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype, Set<MarshallerInspector> customs, Set<MarshallerInspector> wildcards,
             boolean forceInstantiation) {
-        if (customs != null) {
-            Marshaller<T> found = searchCandidate(ctx, marshalledClazz, genericType, mediatype, customs,
-                    forceInstantiation);
-            if (found != null) {
-                return found;
-            }
-        }
-        return searchCandidate(ctx, marshalledClazz, genericType, mediatype, wildcards, forceInstantiation);
+        List<MarshallerInspector> candidates = getCandidates(marshalledClazz, genericType, customs, wildcards);
+        return searchCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, forceInstantiation);
     }
 
     /**
@@ -275,60 +304,93 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     public <T> Collection<Marshaller<T>> getAllMarshallers(RenderingContext ctx, Class<T> marshalledClazz,
             Type genericType, MediaType mediatype, Set<MarshallerInspector> customs,
             Set<MarshallerInspector> wildcards) {
-        // keep the marshallers (in fact enrichers) sorted to respect their priority
-        Map<MarshallerInspector, Marshaller<T>> result = new LinkedHashMap<>();
+        List<MarshallerInspector> candidates = getCandidates(marshalledClazz, genericType, customs, wildcards);
+        return searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, candidates);
+    }
+
+    /**
+     * Gets the marshallers whose marshalled type and generic type are compatible with the lookup, in the order they
+     * have to be searched, see {@link #resolutions}.
+     */
+    private static List<MarshallerInspector> resolve(boolean writer, Class<?> marshalledClazz, Type genericType,
+            MediaType mediatype) {
+        Resolution resolution = new Resolution(writer, marshalledClazz, genericType, mediatype);
+        List<MarshallerInspector> candidates = resolutions.get(resolution);
+        if (candidates != null) {
+            return candidates;
+        }
+        long version = registrations.get();
+        Set<MarshallerInspector> customs = (writer ? writersByMediaType : readersByMediaType).get(mediatype);
+        candidates = getCandidates(marshalledClazz, genericType, customs, writer ? writers : readers);
+        if (resolutions.size() < MAX_RESOLUTIONS) {
+            resolutions.put(resolution, candidates);
+            if (registrations.get() != version) {
+                // the marshallers changed while resolving
+                resolutions.remove(resolution, candidates);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Gets the {@code customs} then the {@code wildcards} marshallers whose marshalled type and generic type are
+     * compatible.
+     */
+    private static List<MarshallerInspector> getCandidates(Class<?> marshalledClazz, Type genericType,
+            Set<MarshallerInspector> customs, Set<MarshallerInspector> wildcards) {
+        // a custom marshaller is also a wildcard one, searching it again would give the same result
+        Set<MarshallerInspector> candidates = new LinkedHashSet<>();
         if (customs != null) {
-            result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, customs));
+            addCandidates(marshalledClazz, genericType, customs, candidates);
         }
-        result.putAll(searchAllCandidates(ctx, marshalledClazz, genericType, mediatype, wildcards));
-        List<Marshaller<T>> resultList = new ArrayList<>(result.values());
-        Collections.reverse(resultList);
-        return resultList;
+        addCandidates(marshalledClazz, genericType, wildcards, candidates);
+        return List.copyOf(candidates);
     }
 
-    @SuppressWarnings("unchecked")
-    private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
-            MediaType mediatype, Set<MarshallerInspector> candidates, boolean forceInstantiation) {
-        for (MarshallerInspector inspector : candidates) {
+    private static void addCandidates(Class<?> marshalledClazz, Type genericType, Set<MarshallerInspector> inspectors,
+            Set<MarshallerInspector> candidates) {
+        for (MarshallerInspector inspector : inspectors) {
             // checks the managed class is compatible
             if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
                 // checks the generic type is compatible
                 if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
                         || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    Marshaller<T> marshaller = null;
-                    if (forceInstantiation) {
-                        marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
-                    } else {
-                        marshaller = inspector.getInstance(ctx);
-                    }
-                    // checks the marshaller accepts the request
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        return marshaller;
-                    }
+                    candidates.add(inspector);
                 }
             }
         }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
+            MediaType mediatype, Collection<MarshallerInspector> candidates, boolean forceInstantiation) {
+        for (MarshallerInspector inspector : candidates) {
+            Marshaller<T> marshaller = null;
+            if (forceInstantiation) {
+                marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
+            } else {
+                marshaller = inspector.getInstance(ctx);
+            }
+            // checks the marshaller accepts the request
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                return marshaller;
+            }
+        }
         return null;
     }
 
-    private <T> Map<MarshallerInspector, Marshaller<T>> searchAllCandidates(RenderingContext ctx,
-            Class<T> marshalledClazz, Type genericType, MediaType mediatype, Set<MarshallerInspector> candidates) {
-        // keep the marshallers (in fact enrichers) sorted to respect their priority
-        Map<MarshallerInspector, Marshaller<T>> result = new LinkedHashMap<>();
+    private <T> List<Marshaller<T>> searchAllCandidates(RenderingContext ctx, Class<T> marshalledClazz,
+            Type genericType, MediaType mediatype, Collection<MarshallerInspector> candidates) {
+        List<Marshaller<T>> result = new ArrayList<>();
         for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    // checks the marshaller accepts the request
-                    Marshaller<T> marshaller = inspector.getInstance(ctx);
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        result.put(inspector, marshaller);
-                    }
-                }
+            // checks the marshaller accepts the request
+            Marshaller<T> marshaller = inspector.getInstance(ctx);
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                result.add(marshaller);
             }
         }
+        // the enrichers with higher priority need to be processed last, see getAllMarshallers
+        Collections.reverse(result);
         return result;
     }
 
@@ -359,6 +421,12 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         readersByMediaType.clear();
         writers.clear();
         readers.clear();
+        invalidateResolutions();
+    }
+
+    private static void invalidateResolutions() {
+        registrations.incrementAndGet();
+        resolutions.clear();
     }
 
 }
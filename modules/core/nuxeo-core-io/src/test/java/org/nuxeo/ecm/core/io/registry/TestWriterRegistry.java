@@ -104,6 +104,19 @@ public class TestWriterRegistry {
         assertEquals(HigherPriorityWriter.class, writer.getClass());
     }
 
+    @Test
+    public void deregisterAfterLookup() throws Exception {
+        registry.register(DefaultNumberWriter.class);
+        registry.register(HigherPriorityWriter.class);
+        Writer<?> writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(HigherPriorityWriter.class, writer.getClass());
+        assertEquals(2, registry.getAllWriters(ctx, Integer.class, null, APPLICATION_JSON_TYPE).size());
+        registry.deregister(HigherPriorityWriter.class);
+        writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(DefaultNumberWriter.class, writer.getClass());
+        assertEquals(1, registry.getAllWriters(ctx, Integer.class, null, APPLICATION_JSON_TYPE).size());
+    }
+
     @Test
     public void prioriseSingletonToPerThreadToEachTime() throws Exception {
         registry.register(EachTimeWriter.class);
@@ -0,0 +1,153 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import java.util.function.Function;
+
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.IdentityQueryTransformer;
+import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.PathReference;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+import org.nuxeo.ecm.core.query.sql.model.WhereClause;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.RatioGauge;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Bounded cache of parsed queries, keyed by query string.
+ * <p>
+ * The query ASTs are mutable and callers routinely modify them (adding a select item, an order by, a limit), so the
+ * cache holds a private instance and returns a copy of it, which is still much cheaper than scanning and parsing the
+ * query again.
+ *
+ * @since 2023.10
+ */
+public class ParsedQueryCache {
+
+    /** System property defining the maximum number of cached queries, 0 to disable the cache. */
+    public static final String MAX_SIZE_PROPERTY = "org.nuxeo.ecm.core.query.parse.cache.maxSize";
+
+    public static final int DEFAULT_MAX_SIZE = 1000;
+
+    protected static final ParsedQueryCache INSTANCE = new ParsedQueryCache(
+            Integer.getInteger(MAX_SIZE_PROPERTY, DEFAULT_MAX_SIZE).intValue());
+
+    protected final Cache<String, SQLQuery> cache;
+
+    protected final Counter hits;
+
+    protected final Counter misses;
+
+    public ParsedQueryCache(int maxSize) {
+        cache = maxSize > 0 ? CacheBuilder.newBuilder().maximumSize(maxSize).build() : null;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        hits = registry.counter(MetricName.build("nuxeo", "query", "parse", "cache", "hit"));
+        misses = registry.counter(MetricName.build("nuxeo", "query", "parse", "cache", "miss"));
+        MetricName ratioName = MetricName.build("nuxeo", "query", "parse", "cache", "hit", "ratio");
+        registry.remove(ratioName);
+        registry.register(ratioName, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    public static ParsedQueryCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets the parsed query for the given string, parsing it if needed.
+     *
+     * @return a query owned by the caller
+     */
+    public SQLQuery get(String query, Function<String, SQLQuery> parser) {
+        if (cache == null) {
+            return parser.apply(query);
+        }
+        SQLQuery parsed = cache.getIfPresent(query);
+        if (parsed == null) {
+            misses.inc();
+            // parse errors are not cached
+            parsed = parser.apply(query);
+            cache.put(query, copy(parsed));
+            return parsed;
+        }
+        hits.inc();
+        return copy(parsed);
+    }
+
+    /**
+     * Clears the cache, to be called when the document types are reloaded.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+
+    protected static SQLQuery copy(SQLQuery query) {
+        SQLQuery copy = new QueryCopier().transform(query);
+        copy.setQueryString(query.getQueryString());
+        return copy;
+    }
+
+    /**
+     * Copies all the mutable parts of a query, keeping the node types created by the parser.
+     */
+    protected static class QueryCopier extends IdentityQueryTransformer {
+
+        @Override
+        public WhereClause transform(WhereClause node) {
+            return node == null ? null : super.transform(node);
+        }
+
+        @Override
+        public Operand transform(Operand node) {
+            // unary operators
+            return node == null ? null : super.transform(node);
+        }
+
+        @Override
+        public FromClause transform(FromClause node) {
+            return new FromClause(node.type, transform(node.elements));
+        }
+
+        @Override
+        public Reference transform(Reference node) {
+            Reference ref = node instanceof PathReference ? new PathReference(node.name)
+                    : new Reference(node.name, node.cast, node.esHint);
+            ref.originalName = node.originalName;
+            ref.info = node.info;
+            return ref;
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import org.nuxeo.runtime.services.event.Event;
+import org.nuxeo.runtime.services.event.EventListener;
+
+/**
+ * Event listener that flushes the {@link ParsedQueryCache} when the runtime is reloaded, for instance on a hot reload
+ * of the document types.
+ *
+ * @since 2023.10
+ */
+public class ParsedQueryCacheFlusher implements EventListener {
+
+    // ReloadService constants, not available from this bundle
+    protected static final String FLUSH_EVENT_ID = "flush";
+
+    protected static final String RELOAD_EVENT_ID = "reload";
+
+    @Override
+    public void handleEvent(Event event) {
+        String id = event.getId();
+        if (FLUSH_EVENT_ID.equals(id) || RELOAD_EVENT_ID.equals(id)) {
+            ParsedQueryCache.getInstance().invalidateAll();
+        }
+    }
+
+}
@@ -48,7 +48,19 @@ public final class SQLQueryParser {
         }
     }
 
+    /**
+     * Parses a query, reusing a previous parsing of the same string if available.
+     *
+     * @see ParsedQueryCache
+     */
     public static SQLQuery parse(String string) throws QueryParseException {
+        return ParsedQueryCache.getInstance().get(string, SQLQueryParser::parseUncached);
+    }
+
+    /**
+     * @since 2023.10
+     */
+    public static SQLQuery parseUncached(String string) throws QueryParseException {
         SQLQuery query = parse(new StringReader(string));
         query.setQueryString(string);
         return query;
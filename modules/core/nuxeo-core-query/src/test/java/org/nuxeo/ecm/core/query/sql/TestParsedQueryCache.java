@@ -0,0 +1,87 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.query.sql;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.query.QueryParseException;
+import org.nuxeo.ecm.core.query.sql.model.FromClause;
+import org.nuxeo.ecm.core.query.sql.model.Reference;
+import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
+
+public class TestParsedQueryCache {
+
+    @Test
+    public void testCachedQueriesAreEqual() {
+        ParsedQueryCache cache = new ParsedQueryCache(100);
+        for (String query : TestQueryParser2.CANONICAL_QUERIES) {
+            SQLQuery parsed = SQLQueryParser.parseUncached(query);
+            SQLQuery first = cache.get(query, SQLQueryParser::parseUncached);
+            SQLQuery second = cache.get(query, SQLQueryParser::parseUncached);
+            assertEquals(query, parsed, first);
+            assertEquals(query, parsed, second);
+            assertEquals(query, parsed.toString(), second.toString());
+            assertEquals(query, second.getQueryString());
+        }
+        SQLQuery query = cache.get("SELECT * FROM LOCATION foo", SQLQueryParser::parseUncached);
+        query = cache.get("SELECT * FROM LOCATION foo", SQLQueryParser::parseUncached);
+        assertEquals(FromClause.LOCATION, query.from.type);
+    }
+
+    @Test
+    public void testCachedQueriesAreCopies() {
+        ParsedQueryCache cache = new ParsedQueryCache(100);
+        AtomicInteger parses = new AtomicInteger();
+        String string = "SELECT * FROM Document WHERE dc:title = 'foo' ORDER BY dc:title";
+        SQLQuery query = cache.get(string, s -> {
+            parses.incrementAndGet();
+            return SQLQueryParser.parseUncached(s);
+        });
+        // callers modify the returned query
+        query.select.add(new Reference("ecm:uuid"));
+        query.orderBy = null;
+        query.setLimit(10);
+
+        SQLQuery again = cache.get(string, s -> {
+            parses.incrementAndGet();
+            return SQLQueryParser.parseUncached(s);
+        });
+        assertEquals(1, parses.get());
+        assertNotSame(query, again);
+        assertEquals(SQLQueryParser.parseUncached(string), again);
+        assertEquals(0, again.select.count());
+    }
+
+    @Test
+    public void testParseErrorNotCached() {
+        ParsedQueryCache cache = new ParsedQueryCache(100);
+        for (int i = 0; i < 2; i++) {
+            try {
+                cache.get("SELECT FROM WHERE", SQLQueryParser::parseUncached);
+                fail();
+            } catch (QueryParseException e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.size());
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import java.io.Serializable;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.nuxeo.ecm.core.storage.State;
+
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+
+/**
+ * Weighs the entries of the DBS caches by estimating their size in memory, in bytes.
+ * <p>
+ * The estimate is computed once when an entry is put in the cache, and is an approximation of the retained size of
+ * the {@link State}: the values are walked but the JVM object layout is not introspected.
+ * <p>
+ * Also keeps track of the total weight of the cache and of the weight of the evicted entries.
+ *
+ * @since 2023.10
+ */
+public class DBSCacheWeigher implements Weigher<String, Object>, RemovalListener<String, Object> {
+
+    protected static final int OBJECT_OVERHEAD = 16;
+
+    protected static final int REFERENCE_SIZE = 8;
+
+    protected static final int STRING_OVERHEAD = 40;
+
+    protected static final int CALENDAR_SIZE = 450;
+
+    protected static final int STATE_OVERHEAD = 64;
+
+    /** Per entry of a {@link State}, the key itself is shared with the other states. */
+    protected static final int STATE_ENTRY_OVERHEAD = 32;
+
+    protected final LongAdder weight = new LongAdder();
+
+    protected final LongAdder evictionWeight = new LongAdder();
+
+    @Override
+    public int weigh(String key, Object value) {
+        long size = estimate(key) + estimate(value);
+        weight.add(size);
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<String, Object> notification) {
+        long size = estimate(notification.getKey()) + estimate(notification.getValue());
+        weight.add(-size);
+        if (notification.getCause() == RemovalCause.SIZE) {
+            evictionWeight.add(size);
+        }
+    }
+
+    /** Gets the estimated weight of the entries in the cache. */
+    public long getWeight() {
+        return weight.sum();
+    }
+
+    /** Gets the estimated weight of the entries evicted from the cache because of its maximum weight. */
+    public long getEvictionWeight() {
+        return evictionWeight.sum();
+    }
+
+    /**
+     * Estimates the size in memory of a value of a {@link State}.
+     */
+    public static long estimate(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof String) {
+            return STRING_OVERHEAD + 2L * ((String) value).length();
+        } else if (value instanceof State) {
+            State state = (State) value;
+            long size = STATE_OVERHEAD;
+            for (Entry<String, Serializable> entry : state.entrySet()) {
+                size += STATE_ENTRY_OVERHEAD + estimate(entry.getValue());
+            }
+            return size;
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            long size = OBJECT_OVERHEAD + (long) REFERENCE_SIZE * array.length;
+            for (Object o : array) {
+                size += estimate(o);
+            }
+            return size;
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            long size = 2 * OBJECT_OVERHEAD + (long) REFERENCE_SIZE * list.size();
+            for (Object o : list) {
+                size += estimate(o);
+            }
+            return size;
+        } else if (value instanceof byte[]) {
+            return OBJECT_OVERHEAD + ((byte[]) value).length;
+        } else if (value instanceof Calendar) {
+            return CALENDAR_SIZE;
+        } else {
+            // Long, Double, Boolean and other small values
+            return OBJECT_OVERHEAD + REFERENCE_SIZE;
+        }
+    }
+
+}
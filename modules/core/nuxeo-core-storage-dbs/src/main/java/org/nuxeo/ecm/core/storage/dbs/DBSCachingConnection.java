@@ -199,6 +199,12 @@ public class DBSCachingConnection implements DBSConnection {
         invalidate(id);
     }
 
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        connection.updateStates(updates);
+        updates.forEach(update -> invalidate(update.id()));
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         connection.deleteStates(ids);
@@ -295,8 +301,14 @@ public class DBSCachingConnection implements DBSConnection {
             if (invals.all) {
                 cache.invalidateAll();
                 childCache.invalidateAll();
-            } else if (invals.ids != null) {
-                cache.invalidateAll(invals.ids);
+            } else {
+                if (invals.ids != null) {
+                    cache.invalidateAll(invals.ids);
+                }
+                if (invals.filters != null) {
+                    // ids summarized by Bloom filters, evict all the entries that may match
+                    cache.asMap().keySet().removeIf(invals::filtersMightContain);
+                }
             }
         }
     }
@@ -105,21 +105,11 @@ public class DBSCachingRepository implements DBSRepository {
     }
 
     protected Cache<String, State> newCache(boolean metrics) {
-        Cache<String, State> c = newCache(descriptor);
-        if (metrics) {
-            registry.registerAll(GuavaCacheMetric.of(c,
-                    MetricName.build(METRIC_CACHE_NAME).tagged("repository", repository.getName())));
-        }
-        return c;
+        return newCache(descriptor, metrics ? METRIC_CACHE_NAME : null);
     }
 
     protected Cache<String, String> newChildCache(boolean metrics) {
-        Cache<String, String> c = newCache(descriptor);
-        if (metrics) {
-            registry.registerAll(GuavaCacheMetric.of(c,
-                    MetricName.build(METRIC_CHILD_CACHE_NAME).tagged("repository", repository.getName())));
-        }
-        return c;
+        return newCache(descriptor, metrics ? METRIC_CHILD_CACHE_NAME : null);
     }
 
     protected void removeCacheMetrics() {
@@ -128,15 +118,44 @@ public class DBSCachingRepository implements DBSRepository {
     }
 
     protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor) {
+        return newCache(descriptor, null);
+    }
+
+    /**
+     * Creates a cache bounded by the {@link DBSRepositoryDescriptor#cacheMaxWeight estimated memory weight} of its
+     * entries if configured, otherwise by their {@link DBSRepositoryDescriptor#cacheMaxSize number}.
+     *
+     * @param metricName the name of the metrics to register for the cache, or {@code null} for none
+     * @since 2023.10
+     */
+    protected <T> Cache<String, T> newCache(DBSRepositoryDescriptor descriptor, String metricName) {
         CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
         builder = builder.expireAfterWrite(descriptor.cacheTTL.longValue(), TimeUnit.MINUTES).recordStats();
         if (descriptor.cacheConcurrencyLevel != null) {
             builder = builder.concurrencyLevel(descriptor.cacheConcurrencyLevel.intValue());
         }
-        if (descriptor.cacheMaxSize != null) {
-            builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
+        DBSCacheWeigher weigher = null;
+        Cache<String, T> c;
+        if (descriptor.cacheMaxWeight != null && descriptor.cacheMaxWeight.longValue() > 0) {
+            if (descriptor.cacheMaxSize != null) {
+                log.debug("DBS cache maxSize ignored on '{}' repository as maxWeight is configured", this::getName);
+            }
+            weigher = new DBSCacheWeigher();
+            c = builder.maximumWeight(descriptor.cacheMaxWeight.longValue())
+                       .weigher(weigher)
+                       .removalListener(weigher)
+                       .build();
+        } else {
+            if (descriptor.cacheMaxSize != null) {
+                builder = builder.maximumSize(descriptor.cacheMaxSize.longValue());
+            }
+            c = builder.build();
         }
-        return builder.build();
+        if (metricName != null) {
+            MetricName name = MetricName.build(metricName).tagged("repository", repository.getName());
+            registry.registerAll(weigher == null ? GuavaCacheMetric.of(c, name) : GuavaCacheMetric.of(c, weigher, name));
+        }
+        return c;
     }
 
     /**
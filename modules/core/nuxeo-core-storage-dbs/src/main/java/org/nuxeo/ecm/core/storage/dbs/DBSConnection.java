@@ -116,6 +116,33 @@ public interface DBSConnection extends AutoCloseable, LockManager {
      */
     void updateState(String id, StateDiff diff, ConditionalUpdates conditionalUpdates);
 
+    /**
+     * The update of a document, see {@link #updateState}.
+     *
+     * @param id the document id
+     * @param diff the diff to apply
+     * @param conditionalUpdates the conditional updates, or {@code null}
+     * @since 2023.10
+     */
+    record StateUpdate(String id, StateDiff diff, ConditionalUpdates conditionalUpdates) {
+    }
+
+    /**
+     * Updates documents.
+     * <p>
+     * The conditional updates are checked for each document, a
+     * {@link org.nuxeo.ecm.core.api.ConcurrentUpdateException} is thrown if one of them fails.
+     * <p>
+     * The default implementation updates documents one at a time, implementations should override it to send all the
+     * updates to the database at once.
+     *
+     * @param updates the updates
+     * @since 2023.10
+     */
+    default void updateStates(List<StateUpdate> updates) {
+        updates.forEach(update -> updateState(update.id(), update.diff(), update.conditionalUpdates()));
+    }
+
     /**
      * Deletes a set of document.
      *
@@ -1144,6 +1144,12 @@ public class DBSDocument extends BaseDocument<State> {
         readComplexProperty(docState.getState(), (ComplexProperty) dp);
     }
 
+    @Override
+    public StateReader getStateReader(Schema schema) throws PropertyException {
+        DBSDocumentState docState = getStateOrTarget(schema);
+        return new BaseStateReader(docState.getState(), null);
+    }
+
     @Override
     protected String internalName(String name) {
         switch (name) {
@@ -25,6 +25,7 @@ import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.FACETED_TAG_LABEL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACL_NAME;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ACP;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ID;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_MIXIN_TYPES;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
@@ -42,6 +43,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -53,8 +55,12 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.query.QueryParseException;
 import org.nuxeo.ecm.core.query.sql.NXQL;
 import org.nuxeo.ecm.core.query.sql.model.Expression;
+import org.nuxeo.ecm.core.query.sql.model.IntegerLiteral;
+import org.nuxeo.ecm.core.query.sql.model.Literal;
+import org.nuxeo.ecm.core.query.sql.model.LiteralList;
 import org.nuxeo.ecm.core.query.sql.model.MultiExpression;
 import org.nuxeo.ecm.core.query.sql.model.Operand;
+import org.nuxeo.ecm.core.query.sql.model.Operator;
 import org.nuxeo.ecm.core.query.sql.model.OrderByClause;
 import org.nuxeo.ecm.core.query.sql.model.OrderByExpr;
 import org.nuxeo.ecm.core.query.sql.model.Predicate;
@@ -62,15 +68,20 @@ import org.nuxeo.ecm.core.query.sql.model.Reference;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.ecm.core.query.sql.model.SelectClause;
 import org.nuxeo.ecm.core.query.sql.model.SelectList;
+import org.nuxeo.ecm.core.query.sql.model.StringLiteral;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.types.ComplexType;
 import org.nuxeo.ecm.core.schema.types.Field;
 import org.nuxeo.ecm.core.schema.types.ListType;
 import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.SimpleType;
 import org.nuxeo.ecm.core.schema.types.Type;
 import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
 import org.nuxeo.ecm.core.schema.types.primitives.DateType;
+import org.nuxeo.ecm.core.schema.types.primitives.IntegerType;
+import org.nuxeo.ecm.core.schema.types.primitives.LongType;
+import org.nuxeo.ecm.core.schema.types.primitives.StringType;
 import org.nuxeo.ecm.core.storage.ExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.runtime.api.Framework;
@@ -395,6 +406,156 @@ public class DBSExpressionEvaluator extends ExpressionEvaluator {
         return false;
     }
 
+    /**
+     * Gets the equality constraints on top-level keys that any document matching the expression satisfies, so that a
+     * storage maintaining indexes on these keys can find candidate documents before evaluating the full expression.
+     * <p>
+     * Only the {@code =} and {@code IN} predicates on string or integer literals found in the top-level {@code AND} are
+     * considered, as well as {@code ecm:ancestorId =} and {@code ecm:path =} or {@code STARTSWITH}. For array keys, a
+     * document satisfies a constraint if one of its array elements is in the allowed values.
+     * <p>
+     * Must be called after {@link #parse}.
+     *
+     * @return a map of key to the allowed values, an empty set of values means that no document can match
+     * @since 2023.10
+     */
+    public Map<String, Set<Object>> getKeyConstraints() {
+        Map<String, Set<Object>> constraints = new LinkedHashMap<>();
+        addKeyConstraints(expression, constraints);
+        return constraints;
+    }
+
+    protected void addKeyConstraints(Expression expr, Map<String, Set<Object>> constraints) {
+        if (expr instanceof MultiExpression) {
+            MultiExpression multi = (MultiExpression) expr;
+            if (multi.operator == Operator.AND) {
+                multi.predicates.forEach(predicate -> addKeyConstraints(predicate, constraints));
+            }
+            return;
+        }
+        if (expr.operator == Operator.AND) {
+            if (expr.lvalue instanceof Expression && expr.rvalue instanceof Expression) {
+                addKeyConstraints((Expression) expr.lvalue, constraints);
+                addKeyConstraints((Expression) expr.rvalue, constraints);
+            }
+            return;
+        }
+        if (!(expr.lvalue instanceof Reference)) {
+            return;
+        }
+        Reference ref = (Reference) expr.lvalue;
+        if (ref.cast != null) {
+            return;
+        }
+        String key;
+        Set<Object> values;
+        if (NXQL.ECM_PATH.equals(ref.name)) {
+            if (!(expr.rvalue instanceof StringLiteral)) {
+                return;
+            }
+            if (expr.operator == Operator.EQ) {
+                key = KEY_ID;
+            } else if (expr.operator == Operator.STARTSWITH) {
+                key = KEY_ANCESTOR_IDS;
+            } else {
+                return;
+            }
+            String path = ((StringLiteral) expr.rvalue).value;
+            if (path.length() > 1 && path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            String id = pathResolver.getIdForPath(path);
+            values = id == null ? new HashSet<>() : new HashSet<>(Set.of(id));
+        } else if (NXQL.ECM_ANCESTORID.equals(ref.name)) {
+            if (expr.operator != Operator.EQ || !(expr.rvalue instanceof StringLiteral)) {
+                return;
+            }
+            key = KEY_ANCESTOR_IDS;
+            values = new HashSet<>(Set.of(((StringLiteral) expr.rvalue).value));
+        } else {
+            key = getConstrainableKey(ref.name);
+            if (key == null) {
+                return;
+            }
+            if (expr.operator == Operator.EQ) {
+                values = getConstraintValues(ref.name, List.of(expr.rvalue));
+            } else if (expr.operator == Operator.IN && expr.rvalue instanceof LiteralList) {
+                values = getConstraintValues(ref.name, (LiteralList) expr.rvalue);
+            } else {
+                return;
+            }
+            if (values == null) {
+                return;
+            }
+        }
+        constraints.merge(key, values, (a, b) -> {
+            a.retainAll(b); // intersection
+            return a;
+        });
+    }
+
+    /**
+     * Gets the key to use for a constraint on the given reference, or {@code null} if the values of the reference are
+     * not compared as-is to the literals.
+     */
+    protected String getConstrainableKey(String name) {
+        if (name.startsWith(NXQL.ECM_PREFIX)) {
+            switch (name) {
+                case NXQL.ECM_UUID:
+                case NXQL.ECM_NAME:
+                case NXQL.ECM_PARENTID:
+                case NXQL.ECM_PRIMARYTYPE:
+                    return DBSSession.convToInternal(name);
+                default:
+                    return null;
+            }
+        }
+        if (name.contains("/") || name.contains("[")) {
+            return null;
+        }
+        ValueInfo valueInfo = parseReference(name, null);
+        if (getConstrainableLiteralClass(valueInfo.type) == null || valueInfo.steps.size() != 1) {
+            return null;
+        }
+        return (String) valueInfo.steps.get(0);
+    }
+
+    /**
+     * Gets the class of the literals whose value is stored as-is for the given type, or {@code null} if the stored
+     * values have another Java type than the literals (double, date, boolean...).
+     */
+    protected Class<? extends Literal> getConstrainableLiteralClass(Type type) {
+        if (type instanceof ListType) {
+            type = ((ListType) type).getFieldType();
+        }
+        if (type instanceof SimpleType) {
+            type = ((SimpleType) type).getPrimitiveType();
+        }
+        if (type instanceof StringType) {
+            return StringLiteral.class;
+        } else if (type instanceof LongType || type instanceof IntegerType) {
+            return IntegerLiteral.class;
+        }
+        return null;
+    }
+
+    /**
+     * Gets the values allowed by the given literals, or {@code null} if a literal is not stored with the same Java type
+     * as the values of the reference.
+     */
+    protected Set<Object> getConstraintValues(String name, List<? extends Operand> operands) {
+        Class<? extends Literal> literalClass = name.startsWith(NXQL.ECM_PREFIX) ? StringLiteral.class
+                : getConstrainableLiteralClass(parseReference(name, null).type);
+        Set<Object> values = new HashSet<>();
+        for (Operand operand : operands) {
+            if (literalClass == null || !literalClass.isInstance(operand)) {
+                return null;
+            }
+            values.add(walkLiteral((Literal) operand));
+        }
+        return values;
+    }
+
     /**
      * Does one walk of the expression, using the wildcardIndexes currently defined.
      */
@@ -18,16 +18,26 @@
  */
 package org.nuxeo.ecm.core.storage.dbs;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.UUID;
 
 import org.nuxeo.runtime.pubsub.SerializableAccumulableInvalidations;
 
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
 /**
  * A set of invalidations for a given repository.
  * <p>
@@ -50,9 +60,38 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
      */
     public boolean all;
 
+    /**
+     * Maximum number of Bloom filters kept, after which only {@link #all} is set.
+     *
+     * @since 2023.10
+     */
+    public static final int MAX_FILTERS = 16;
+
     /** null when empty */
     public Set<String> ids;
 
+    /**
+     * Bloom filters summarizing large sets of ids, any id they might contain is invalidated. null when empty.
+     *
+     * @since 2023.10
+     */
+    public List<BloomFilter<CharSequence>> filters;
+
+    /**
+     * The time at which these invalidations were sent by another node, or {@code 0} if unknown.
+     *
+     * @since 2023.10
+     */
+    public long timestamp;
+
+    /**
+     * Whether these invalidations are serialized in the binary format, which nodes older than 2023.10 cannot read.
+     * Otherwise the ids are serialized in the comma-separated format, Bloom filters always need the binary format.
+     *
+     * @since 2023.10
+     */
+    public transient boolean binaryFormat;
+
     public DBSInvalidations() {
     }
 
@@ -62,17 +101,19 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
 
     @Override
     public boolean isEmpty() {
-        return ids == null && !all;
+        return ids == null && filters == null && !all;
     }
 
     public void clear() {
         all = false;
         ids = null;
+        filters = null;
     }
 
     protected void setAll() {
         all = true;
         ids = null;
+        filters = null;
     }
 
     protected void checkMaxSize() {
@@ -100,9 +141,22 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             }
             ids.addAll(other.ids);
         }
+        if (other.filters != null) {
+            addFilters(other.filters);
+        }
         checkMaxSize();
     }
 
+    protected void addFilters(List<BloomFilter<CharSequence>> otherFilters) {
+        if (filters == null) {
+            filters = new ArrayList<>();
+        }
+        filters.addAll(otherFilters);
+        if (filters.size() > MAX_FILTERS) {
+            setAll();
+        }
+    }
+
     public void add(String id) {
         if (all) {
             return;
@@ -126,21 +180,115 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         checkMaxSize();
     }
 
-    private static final String UTF_8 = "UTF-8";
+    /**
+     * Checks if an id is invalidated by the {@link #filters}.
+     *
+     * @since 2023.10
+     */
+    public boolean filtersMightContain(String id) {
+        if (filters != null) {
+            for (BloomFilter<CharSequence> filter : filters) {
+                if (filter.mightContain(id)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns invalidations where the ids are summarized by a Bloom filter, which is much smaller to send to other
+     * nodes than the ids themselves for large sets. The false positives only invalidate more cache entries.
+     *
+     * @param fpp the false positive probability of the Bloom filter
+     * @since 2023.10
+     */
+    public DBSInvalidations summarize(double fpp) {
+        if (all || ids == null) {
+            return this;
+        }
+        BloomFilter<CharSequence> filter = BloomFilter.create(Funnels.stringFunnel(UTF_8), ids.size(), fpp);
+        ids.forEach(filter::put);
+        DBSInvalidations invalidations = new DBSInvalidations();
+        invalidations.addFilters(List.of(filter));
+        if (filters != null) {
+            invalidations.addFilters(filters);
+        }
+        return invalidations;
+    }
+
+    /** @since 2023.10 */
+    public int size() {
+        return ids == null ? 0 : ids.size();
+    }
 
     private static final int ALL_IDS = (byte) 'A';
 
     private static final int ID_SEP = (byte) ',';
 
+    /**
+     * Binary format: send timestamp, ids that are UUIDs as two longs, other ids, Bloom filters.
+     *
+     * @since 2023.10
+     */
+    private static final int BINARY = (byte) 'B';
+
     @Override
     public void serialize(OutputStream out) throws IOException {
         if (all) {
             out.write(ALL_IDS);
-        } else if (ids != null) {
-            for (String id : ids) {
-                out.write(ID_SEP);
-                out.write(id.getBytes(UTF_8));
+        } else if (filters == null && !binaryFormat) {
+            if (ids != null) {
+                for (String id : ids) {
+                    out.write(ID_SEP);
+                    out.write(id.getBytes(UTF_8));
+                }
+            }
+        } else {
+            out.write(BINARY);
+            List<UUID> uuids = new ArrayList<>();
+            List<String> others = new ArrayList<>();
+            if (ids != null) {
+                for (String id : ids) {
+                    UUID uuid = toUUID(id);
+                    if (uuid == null) {
+                        others.add(id);
+                    } else {
+                        uuids.add(uuid);
+                    }
+                }
+            }
+            DataOutputStream dout = new DataOutputStream(out);
+            dout.writeLong(System.currentTimeMillis());
+            dout.writeInt(uuids.size());
+            for (UUID uuid : uuids) {
+                dout.writeLong(uuid.getMostSignificantBits());
+                dout.writeLong(uuid.getLeastSignificantBits());
+            }
+            dout.writeInt(others.size());
+            for (String id : others) {
+                dout.writeUTF(id);
             }
+            dout.writeInt(filters == null ? 0 : filters.size());
+            if (filters != null) {
+                for (BloomFilter<CharSequence> filter : filters) {
+                    filter.writeTo(dout);
+                }
+            }
+            dout.flush();
+        }
+    }
+
+    /** Parses an id if it is a UUID in its canonical form, so that it can be written back identically. */
+    protected static UUID toUUID(String id) {
+        if (id.length() != 36) {
+            return null;
+        }
+        try {
+            UUID uuid = UUID.fromString(id);
+            return uuid.toString().equals(id) ? uuid : null;
+        } catch (IllegalArgumentException e) {
+            return null;
         }
     }
 
@@ -153,6 +301,32 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
         DBSInvalidations invalidations = new DBSInvalidations();
         if (first == ALL_IDS) {
             invalidations.setAll();
+        } else if (first == BINARY) {
+            DataInputStream din = new DataInputStream(in);
+            invalidations.timestamp = din.readLong();
+            int n = din.readInt();
+            if (n > 0) {
+                invalidations.ids = new HashSet<>();
+                for (int i = 0; i < n; i++) {
+                    invalidations.ids.add(new UUID(din.readLong(), din.readLong()).toString());
+                }
+            }
+            n = din.readInt();
+            if (n > 0 && invalidations.ids == null) {
+                invalidations.ids = new HashSet<>();
+            }
+            for (int i = 0; i < n; i++) {
+                invalidations.ids.add(din.readUTF());
+            }
+            n = din.readInt();
+            if (n > 0) {
+                List<BloomFilter<CharSequence>> filters = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    filters.add(BloomFilter.readFrom(din, Funnels.stringFunnel(UTF_8)));
+                }
+                invalidations.addFilters(filters);
+            }
+            invalidations.checkMaxSize();
         } else if (first != ID_SEP) {
             // invalid message
             return null;
@@ -184,6 +358,10 @@ public class DBSInvalidations implements SerializableAccumulableInvalidations {
             sb.append("ids=");
             sb.append(ids);
         }
+        if (filters != null) {
+            sb.append(ids == null ? "" : ",").append("filters=");
+            sb.append(filters.size());
+        }
         sb.append(')');
         return sb.toString();
     }
@@ -20,16 +20,91 @@ package org.nuxeo.ecm.core.storage.dbs;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.pubsub.AbstractPubSubInvalidationsAccumulator;
+import org.nuxeo.runtime.services.config.ConfigurationService;
+
+import io.dropwizard.metrics5.Histogram;
+import io.dropwizard.metrics5.Meter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
 
 /**
  * PubSub implementation of {@link DBSClusterInvalidator}.
+ * <p>
+ * The invalidations sent can be accumulated during a short delay, configured by {@value #BATCH_DELAY_PROP}, to send
+ * fewer and deduplicated messages to other nodes during write bursts. Large sets of ids, above
+ * {@value #FILTER_THRESHOLD_PROP}, are sent as a Bloom filter.
+ * <p>
+ * The invalidations are sent in the comma-separated format understood by all the nodes unless
+ * {@value #BINARY_FORMAT_PROP} is enabled. Bloom filters always use the binary format, which requires all the nodes of
+ * the cluster to be 2023.10 or later: enable them only once the cluster is upgraded.
  *
  * @since 9.1
  */
 public class DBSPubSubInvalidator extends AbstractPubSubInvalidationsAccumulator<DBSInvalidations> implements DBSClusterInvalidator {
 
+    private static final Logger log = LogManager.getLogger(DBSPubSubInvalidator.class);
+
+    /**
+     * Delay during which the invalidations to send are accumulated, {@code 0} to send them immediately.
+     *
+     * @since 2023.10
+     */
+    public static final String BATCH_DELAY_PROP = "nuxeo.dbs.invalidations.batch.delay";
+
+    /**
+     * Number of ids above which the invalidations are sent as a Bloom filter, {@code 0} to always send the ids.
+     *
+     * @since 2023.10
+     */
+    public static final String FILTER_THRESHOLD_PROP = "nuxeo.dbs.invalidations.filter.threshold";
+
+    /**
+     * Sends the invalidations in the compact binary format, which nodes older than 2023.10 cannot read. Disabled by
+     * default, so that mixed-version clusters keep exchanging invalidations during a rolling upgrade.
+     *
+     * @since 2023.10
+     */
+    public static final String BINARY_FORMAT_PROP = "nuxeo.dbs.invalidations.binary";
+
+    /** @since 2023.10 */
+    public static final double FILTER_FPP = 0.001;
+
+    /** @since 2023.10 */
+    protected static final String METRIC_INVALIDATIONS_NAME = "nuxeo.repositories.repository.invalidations";
+
+    protected Duration batchDelay;
+
+    protected int filterThreshold;
+
+    protected boolean binaryFormat;
+
+    protected final Object pendingLock = new Object();
+
+    /** The invalidations waiting to be sent, guarded by {@link #pendingLock}. */
+    protected DBSInvalidations pendingInvalidations;
+
+    protected ScheduledExecutorService scheduler;
+
+    protected Meter sentMeter;
+
+    protected Meter receivedMeter;
+
+    protected Histogram batchSizeHistogram;
+
+    protected Timer latencyTimer;
+
     @Override
     public DBSInvalidations newInvalidations() {
         return new DBSInvalidations();
@@ -42,7 +117,110 @@ public class DBSPubSubInvalidator extends AbstractPubSubInvalidationsAccumulator
 
     @Override
     public void initialize(String nodeId, String repositoryName) {
+        ConfigurationService configurationService = Framework.getService(ConfigurationService.class);
+        batchDelay = configurationService.getDuration(BATCH_DELAY_PROP, Duration.ZERO);
+        filterThreshold = configurationService.getInteger(FILTER_THRESHOLD_PROP, 0);
+        binaryFormat = configurationService.isBooleanTrue(BINARY_FORMAT_PROP);
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        sentMeter = registry.meter(metricName("sent", repositoryName));
+        receivedMeter = registry.meter(metricName("received", repositoryName));
+        batchSizeHistogram = registry.histogram(metricName("batch", repositoryName));
+        latencyTimer = registry.timer(metricName("latency", repositoryName));
+        if (!batchDelay.isZero()) {
+            pendingInvalidations = newInvalidations();
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "Nuxeo-DBS-Invalidations-" + repositoryName);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
         super.initialize("dbs:" + repositoryName, nodeId);
     }
 
+    protected static MetricName metricName(String name, String repositoryName) {
+        return MetricName.build(METRIC_INVALIDATIONS_NAME, name).tagged("repository", repositoryName);
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            flush();
+        }
+        super.close();
+    }
+
+    @Override
+    public void sendInvalidations(DBSInvalidations invalidations) {
+        if (scheduler == null || invalidations.all) {
+            if (scheduler != null) {
+                // everything is invalidated, no need to send the pending ones
+                synchronized (pendingLock) {
+                    pendingInvalidations.clear();
+                }
+            }
+            send(invalidations);
+            return;
+        }
+        boolean schedule;
+        synchronized (pendingLock) {
+            // the first invalidations of a batch schedule the flush
+            schedule = pendingInvalidations.isEmpty();
+            // copies the invalidations, they are cleared by the caller
+            pendingInvalidations.add(invalidations);
+        }
+        if (schedule) {
+            try {
+                scheduler.schedule(this::flush, batchDelay.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) { // RejectedExecutionException if closed concurrently
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Sends the pending invalidations.
+     *
+     * @since 2023.10
+     */
+    protected void flush() {
+        DBSInvalidations invalidations;
+        synchronized (pendingLock) {
+            if (pendingInvalidations.isEmpty()) {
+                return;
+            }
+            invalidations = pendingInvalidations;
+            pendingInvalidations = newInvalidations();
+        }
+        try {
+            send(invalidations);
+        } catch (RuntimeException e) {
+            log.error("Failed to send invalidations", e);
+        }
+    }
+
+    /** @since 2023.10 */
+    protected void send(DBSInvalidations invalidations) {
+        sentMeter.mark();
+        int size = invalidations.size();
+        batchSizeHistogram.update(size);
+        if (filterThreshold > 0 && size > filterThreshold) {
+            invalidations = invalidations.summarize(FILTER_FPP);
+        }
+        invalidations.binaryFormat = binaryFormat;
+        super.sendInvalidations(invalidations);
+    }
+
+    @Override
+    public void receivedMessage(DBSInvalidations invalidations) {
+        receivedMeter.mark();
+        if (invalidations.timestamp > 0) {
+            // assumes the clocks of the nodes are synchronized
+            long latency = System.currentTimeMillis() - invalidations.timestamp;
+            latencyTimer.update(Math.max(latency, 0), TimeUnit.MILLISECONDS);
+        }
+        super.receivedMessage(invalidations);
+    }
+
 }
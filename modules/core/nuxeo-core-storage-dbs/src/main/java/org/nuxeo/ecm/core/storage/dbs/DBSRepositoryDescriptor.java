@@ -130,6 +130,15 @@ public class DBSRepositoryDescriptor implements Cloneable {
     @XNode("cache@maxSize")
     public Long cacheMaxSize;
 
+    /**
+     * Maximum estimated memory weight of the cache entries, in bytes. When greater than 0, {@link #cacheMaxSize} is
+     * ignored.
+     *
+     * @since 2023.10
+     */
+    @XNode("cache@maxWeight")
+    public Long cacheMaxWeight;
+
     /** @since 8.10 */
     @XNode("cache@concurrencyLevel")
     public Integer cacheConcurrencyLevel;
@@ -205,6 +214,9 @@ public class DBSRepositoryDescriptor implements Cloneable {
         if (other.cacheMaxSize != null) {
             cacheMaxSize = other.cacheMaxSize;
         }
+        if (other.cacheMaxWeight != null) {
+            cacheMaxWeight = other.cacheMaxWeight;
+        }
         if (other.cacheConcurrencyLevel != null) {
             cacheConcurrencyLevel = other.cacheConcurrencyLevel;
         }
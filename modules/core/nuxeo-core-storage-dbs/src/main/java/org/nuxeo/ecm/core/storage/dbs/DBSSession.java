@@ -864,6 +864,8 @@ public class DBSSession extends BaseSession {
         } else {
             // if not just a simple rename, flush
             transaction.save();
+            // the inherited ACPs change
+            invalidateMergedACPCache();
             if (hasChild(parentId, name)) {
                 throw new DocumentExistsException("Destination name already exists: " + name);
             }
@@ -1341,6 +1343,8 @@ public class DBSSession extends BaseSession {
         String id = doc.getUUID();
         DBSDocumentState docState = transaction.getStateForUpdate(id);
         docState.put(KEY_ACP, acpToMem(acp));
+        // the ACP is inherited by the descendants
+        invalidateMergedACPCache();
 
         // update read acls
         transaction.updateTreeReadAcls(id);
@@ -1482,6 +1486,7 @@ public class DBSSession extends BaseSession {
     @Override
     public void removeDocument(String id) {
         transaction.save();
+        invalidateMergedACPCache();
 
         DBSDocumentState docState = transaction.getStateForUpdate(id);
         if (!BaseSession.canDeleteUndeletable(NuxeoPrincipal.getCurrent())) {
@@ -2187,6 +2192,7 @@ public class DBSSession extends BaseSession {
     @Override
     public void start() {
         transaction.begin();
+        startMergedACPCache();
     }
 
     @Override
@@ -2196,11 +2202,13 @@ public class DBSSession extends BaseSession {
 
     @Override
     public void commit() {
+        stopMergedACPCache();
         transaction.commit();
     }
 
     @Override
     public void rollback() {
+        stopMergedACPCache();
         transaction.rollback();
     }
 
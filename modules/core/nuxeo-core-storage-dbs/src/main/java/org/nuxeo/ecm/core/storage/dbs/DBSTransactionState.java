@@ -103,6 +103,7 @@ import org.nuxeo.ecm.core.storage.State.ListDiff;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
 import org.nuxeo.ecm.core.storage.StateHelper;
 import org.nuxeo.ecm.core.storage.dbs.DBSConnection.DBSQueryOperator;
+import org.nuxeo.ecm.core.storage.dbs.DBSConnection.StateUpdate;
 import org.nuxeo.ecm.core.storage.dbs.action.UpdateReadAclsAction;
 import org.nuxeo.ecm.core.work.api.Work;
 import org.nuxeo.ecm.core.work.api.WorkManager;
@@ -952,6 +953,7 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
         if (!statesToCreate.isEmpty()) {
             connection.createStates(statesToCreate);
         }
+        List<StateUpdate> updates = new ArrayList<>();
         for (DBSDocumentState docState : transientStates.values()) {
             String id = docState.getId();
             if (transientCreated.contains(id)) {
@@ -977,12 +979,16 @@ public class DBSTransactionState implements LockManager, AutoCloseable {
                             conditionalUpdates = getConditionalUpdateForChangeToken(docState);
                         }
                     }
-                    connection.updateState(id, diff, conditionalUpdates);
+                    updates.add(new StateUpdate(id, diff, conditionalUpdates));
                 } finally {
                     docState.setNotDirty();
                 }
             }
         }
+        if (!updates.isEmpty()) {
+            // a single batch for all the updated documents
+            connection.updateStates(updates);
+        }
         transientCreated.clear();
         userChangeIds.clear();
         scheduleWork(works);
@@ -52,6 +52,19 @@ public class GuavaCacheMetric extends NuxeoMetricSet {
         return metrics;
     }
 
+    /**
+     * Wraps the statistics of a cache bounded by weight, including its estimated weight.
+     *
+     * @since 2023.10
+     */
+    public static MetricSet of(Cache<?, ?> cache, DBSCacheWeigher weigher, MetricName name) {
+        GuavaCacheMetric metrics = new GuavaCacheMetric(name);
+        addCacheMetrics(cache, metrics);
+        metrics.putGauge(weigher::getWeight, "weight");
+        metrics.putGauge(weigher::getEvictionWeight, "eviction", "weight");
+        return metrics;
+    }
+
     protected static void addCacheMetrics(Cache<?, ?> cache, GuavaCacheMetric metrics) {
         metrics.putGauge(() -> cache.size(), "size");
         metrics.putGauge(() -> cache.stats().evictionCount(), "eviction", "count");
@@ -0,0 +1,85 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+public class TestDBSCacheWeigher {
+
+    protected static State newState(String id, String fulltext) {
+        State state = new State();
+        state.put("ecm:id", id);
+        state.put("ecm:primaryType", "File");
+        state.put("ecm:fulltextBinary", fulltext);
+        State blob = new State();
+        blob.put("name", "foo.txt");
+        blob.put("length", Long.valueOf(3));
+        List<State> files = new ArrayList<>();
+        files.add(blob);
+        state.put("files:files", (Serializable) files);
+        state.put("dc:subjects", new Object[] { "foo", "bar" });
+        return state;
+    }
+
+    @Test
+    public void testEstimate() {
+        long small = DBSCacheWeigher.estimate(newState("small", "abc"));
+        long big = DBSCacheWeigher.estimate(newState("big", StringUtils.repeat('x', 1_000_000)));
+        assertTrue(String.valueOf(small), small > 0 && small < 2_000);
+        assertTrue(String.valueOf(big), big > 1_000_000);
+    }
+
+    @Test
+    public void testWeightBoundedCache() {
+        DBSCacheWeigher weigher = new DBSCacheWeigher();
+        Cache<String, Object> cache = CacheBuilder.newBuilder()
+                                                  .maximumWeight(100_000)
+                                                  .weigher(weigher)
+                                                  .removalListener(weigher)
+                                                  .build();
+        for (int i = 0; i < 10; i++) {
+            cache.put("small" + i, newState("small" + i, "abc"));
+        }
+        assertEquals(10, cache.size());
+        long weight = weigher.getWeight();
+        assertTrue(String.valueOf(weight), weight > 0 && weight < 100_000);
+
+        // a big state doesn't fit in the cache
+        cache.put("big", newState("big", StringUtils.repeat('x', 100_000)));
+        assertNull(cache.getIfPresent("big"));
+        assertNotNull(cache.getIfPresent("small0"));
+        assertTrue(weigher.getEvictionWeight() > 100_000);
+        assertEquals(weight, weigher.getWeight());
+
+        cache.invalidateAll();
+        assertEquals(0, weigher.getWeight());
+    }
+
+}
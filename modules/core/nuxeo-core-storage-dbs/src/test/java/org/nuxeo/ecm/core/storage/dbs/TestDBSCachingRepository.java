@@ -42,6 +42,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.dbs.DBSConnection.StateUpdate;
 import org.nuxeo.runtime.cluster.ClusterFeature;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -138,6 +139,24 @@ public class TestDBSCachingRepository {
         verify(subConnection, times(2)).readState(eq(id));
     }
 
+    @Test
+    public void testUpdateStates() {
+        String id = "ID";
+
+        // First add a state in cache
+        connection.readState(id);
+        verify(subConnection, times(1)).readState(eq(id));
+
+        // Second update it in a batch
+        List<StateUpdate> updates = List.of(new StateUpdate(id, mock(StateDiff.class), null));
+        connection.updateStates(updates);
+        verify(subConnection, times(1)).updateStates(eq(updates));
+
+        // Check state is no longer in cache
+        connection.readState(id);
+        verify(subConnection, times(2)).readState(eq(id));
+    }
+
     @Test
     public void testDeleteStates() {
         String id = "ID";
@@ -19,6 +19,7 @@
 package org.nuxeo.ecm.core.storage.dbs;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -27,6 +28,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.UUID;
 
 import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.junit.Test;
@@ -47,16 +49,28 @@ public class TestDBSInvalidations {
 
         invals = new DBSInvalidations();
         invals.add("foo");
-        baout.reset();
-        invals.serialize(baout);
-        ser = new String(baout.toByteArray());
+        ser = serialize(invals);
         assertEquals(",foo", ser);
 
+        // comma-separated format by default, readable by nodes older than 2023.10
+        invals = new DBSInvalidations();
+        invals.add("foo");
         invals.add("bar");
+        invals.add("3b5ed3b6-5eb4-4f4e-8a3a-93b2a3f9d1c4");
         baout.reset();
         invals.serialize(baout);
-        ser = new String(baout.toByteArray());
-        assertTrue(ser, Arrays.asList(",foo,bar", ",bar,foo").contains(ser)); // non-deterministic order
+        assertEquals(',', baout.toByteArray()[0]);
+        DBSInvalidations read = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, read.ids);
+        assertEquals(0, read.timestamp);
+
+        invals.binaryFormat = true;
+        baout.reset();
+        invals.serialize(baout);
+        assertEquals('B', baout.toByteArray()[0]);
+        read = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, read.ids);
+        assertTrue(read.timestamp > 0);
 
         invals = new DBSInvalidations();
         invals.setAll();
@@ -66,6 +80,13 @@ public class TestDBSInvalidations {
         assertEquals("A", ser);
     }
 
+    protected static String serialize(DBSInvalidations invals) throws IOException {
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        return new String(baout.toByteArray());
+    }
+
     @Test
     public void testDeserialization() throws IOException {
         DBSInvalidations invals;
@@ -92,4 +113,52 @@ public class TestDBSInvalidations {
         assertEquals(new HashSet<>(Arrays.asList("foo", "bar")), invals.ids);
     }
 
+    @Test
+    public void testUUIDsSerialization() throws IOException {
+        DBSInvalidations invals = new DBSInvalidations();
+        for (int i = 0; i < 100; i++) {
+            invals.add(UUID.randomUUID().toString());
+        }
+        // not in canonical form
+        invals.add("3B5ED3B6-5EB4-4F4E-8A3A-93B2A3F9D1C4");
+        invals.binaryFormat = true;
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        invals.serialize(baout);
+        // marker, timestamp, counts, 2 longs per uuid, length-prefixed string
+        assertEquals(1 + 8 + 4 + 100 * 16 + 4 + 2 + 36 + 4, baout.size());
+        DBSInvalidations read = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertEquals(invals.ids, read.ids);
+    }
+
+    @Test
+    public void testFilterSerialization() throws IOException {
+        DBSInvalidations invals = new DBSInvalidations();
+        for (int i = 0; i < 1000; i++) {
+            invals.add("id" + i);
+        }
+        DBSInvalidations summary = invals.summarize(0.001);
+        assertNull(summary.ids);
+        assertEquals(1, summary.filters.size());
+        @SuppressWarnings("resource")
+        ByteArrayOutputStream baout = new ByteArrayOutputStream();
+        summary.serialize(baout);
+        // filters always need the binary format
+        assertEquals('B', baout.toByteArray()[0]);
+        DBSInvalidations read = DBSInvalidations.deserialize(new ByteArrayInputStream(baout.toByteArray()));
+        assertNull(read.ids);
+        assertFalse(read.isEmpty());
+        for (String id : invals.ids) {
+            assertTrue(id, read.filtersMightContain(id));
+        }
+        // accumulated with other invalidations
+        DBSInvalidations acc = new DBSInvalidations();
+        acc.add("foo");
+        acc.add(read);
+        assertEquals(Collections.singleton("foo"), acc.ids);
+        assertTrue(acc.filtersMightContain("id0"));
+        acc.clear();
+        assertTrue(acc.isEmpty());
+    }
+
 }
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.dbs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.pubsub")
+public class TestDBSPubSubInvalidator {
+
+    protected static final long TIMEOUT_MS = 5_000;
+
+    protected RecordingInvalidator invalidator;
+
+    /** Records the serialized messages instead of publishing them. */
+    protected static class RecordingInvalidator extends DBSPubSubInvalidator {
+
+        protected final List<byte[]> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void sendMessage(DBSInvalidations message) {
+            ByteArrayOutputStream baout = new ByteArrayOutputStream();
+            try {
+                message.serialize(baout);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            messages.add(baout.toByteArray());
+        }
+
+        protected DBSInvalidations getMessage(int i) throws IOException {
+            return DBSInvalidations.deserialize(new ByteArrayInputStream(messages.get(i)));
+        }
+    }
+
+    @Before
+    public void before() {
+        invalidator = new RecordingInvalidator();
+        invalidator.initialize("node1", "test");
+    }
+
+    @After
+    public void after() {
+        if (invalidator != null) {
+            invalidator.close();
+        }
+    }
+
+    protected static DBSInvalidations invalidations(String... ids) {
+        DBSInvalidations invalidations = new DBSInvalidations();
+        invalidations.addAll(List.of(ids));
+        return invalidations;
+    }
+
+    protected void awaitMessages(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (invalidator.messages.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, invalidator.messages.size());
+    }
+
+    @Test
+    public void testSendImmediately() throws IOException {
+        invalidator.sendInvalidations(invalidations("foo"));
+        assertEquals(1, invalidator.messages.size());
+        // the format readable by nodes older than 2023.10
+        assertEquals(",foo", new String(invalidator.messages.get(0)));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.storage.dbs.tests:OSGI-INF/test-dbs-invalidations-batch-contrib.xml")
+    public void testBatching() throws Exception {
+        // the invalidations are cleared by the caller once sent
+        DBSInvalidations invalidations = invalidations("foo", "bar");
+        invalidator.sendInvalidations(invalidations);
+        invalidations.clear();
+        invalidator.sendInvalidations(invalidations("foo", "baz"));
+        assertEquals(0, invalidator.messages.size());
+
+        awaitMessages(1);
+        assertEquals(Set.of("foo", "bar", "baz"), invalidator.getMessage(0).ids);
+        assertEquals(',', invalidator.messages.get(0)[0]);
+
+        // invalidating everything drops the pending invalidations and is sent immediately
+        invalidator.sendInvalidations(invalidations("qux"));
+        invalidator.sendInvalidations(new DBSInvalidations(true));
+        assertEquals(2, invalidator.messages.size());
+        assertTrue(invalidator.getMessage(1).all);
+        Thread.sleep(1000);
+        assertEquals(2, invalidator.messages.size());
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.storage.dbs.tests:OSGI-INF/test-dbs-invalidations-long-batch-contrib.xml")
+    public void testFlushOnClose() throws Exception {
+        invalidator.sendInvalidations(invalidations("foo"));
+        invalidator.sendInvalidations(invalidations("bar"));
+        assertEquals(0, invalidator.messages.size());
+
+        RecordingInvalidator closed = invalidator;
+        invalidator = null;
+        closed.close();
+        assertEquals(1, closed.messages.size());
+        assertEquals('B', closed.messages.get(0)[0]);
+        assertEquals(Set.of("foo", "bar"), closed.getMessage(0).ids);
+    }
+
+}
@@ -34,6 +34,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -64,6 +65,7 @@ import org.nuxeo.ecm.core.storage.dbs.DBSConnectionBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSExpressionEvaluator;
 import org.nuxeo.ecm.core.storage.dbs.DBSSession.OrderByComparator;
 import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ConditionalUpdates;
+import org.nuxeo.ecm.core.storage.mem.MemIndex.ChildKey;
 
 /**
  * In-memory implementation of a {@link DBSConnection}.
@@ -79,9 +81,17 @@ public class MemConnection extends DBSConnectionBase {
     // the global state, from the repository (thread-safe map)
     protected Map<String, State> states;
 
+    // the secondary indexes, from the repository
+    protected Map<String, MemIndex> indexes;
+
+    // the persistence, from the repository, may be null
+    protected MemPersistence persistence;
+
     public MemConnection(MemRepository repository) {
         super(repository);
         states = repository.states;
+        indexes = repository.indexes;
+        persistence = repository.persistence;
     }
 
     @Override
@@ -158,18 +168,73 @@ public class MemConnection extends DBSConnectionBase {
         }
         state = StateHelper.deepCopy(state, true); // thread-safe
         StateHelper.resetDeltas(state);
-        states.put(id, state);
+        beginChange();
+        try {
+            synchronized (state) {
+                states.put(id, state);
+                for (MemIndex index : indexes.values()) {
+                    index.add(id, state);
+                }
+                if (persistence != null) {
+                    persistence.logCreate(id, state);
+                }
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    protected void beginChange() {
+        if (persistence != null) {
+            persistence.beginChange();
+        }
+    }
+
+    protected void endChange() {
+        if (persistence != null) {
+            persistence.endChange();
+        }
     }
 
     @Override
     public void updateState(String id, StateDiff diff, ConditionalUpdates conditionalUpdates) {
+        beginChange();
+        try {
+            updateStateInternal(id, diff, conditionalUpdates);
+        } finally {
+            endChange();
+        }
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> updates) {
+        // a single change for the persistence
+        beginChange();
+        try {
+            for (StateUpdate update : updates) {
+                updateStateInternal(update.id(), update.diff(), update.conditionalUpdates());
+            }
+        } finally {
+            endChange();
+        }
+    }
+
+    protected void updateStateInternal(String id, StateDiff diff, ConditionalUpdates conditionalUpdates) {
         log.trace("Mem: UPDATE {}: {}", id, diff);
         State state = states.get(id);
         if (state == null) {
             throw new ConcurrentUpdateException("Missing: " + id);
         }
         synchronized (state) {
-            // synchronization needed for atomic conditions
+            // synchronization needed for atomic conditions and index updates
+            if (states.get(id) != state) {
+                // concurrently deleted, the indexes must not be updated
+                throw new ConcurrentUpdateException("Missing: " + id);
+            }
+            List<Collection<Object>> indexedValues = new ArrayList<>(indexes.size());
+            for (MemIndex index : indexes.values()) {
+                indexedValues.add(index.extract(state));
+            }
             if (conditionalUpdates != null) {
                 for (Entry<String, Serializable> en : conditionalUpdates.getConditions().entrySet()) {
                     if (!Objects.equals(state.get(en.getKey()), en.getValue())) {
@@ -181,23 +246,142 @@ public class MemConnection extends DBSConnectionBase {
                 }
             }
             applyDiff(state, diff);
+            int i = 0;
+            for (MemIndex index : indexes.values()) {
+                index.update(id, indexedValues.get(i++), state);
+            }
+            if (persistence != null) {
+                if (conditionalUpdates != null && !conditionalUpdates.getUpdates().isEmpty()) {
+                    StateDiff updates = new StateDiff();
+                    conditionalUpdates.getUpdates().forEach(updates::put);
+                    persistence.logUpdate(id, updates);
+                }
+                persistence.logUpdate(id, diff);
+            }
         }
     }
 
     @Override
     public void deleteStates(Set<String> ids) {
         log.trace("Mem: REMOVE {}", ids);
+        beginChange();
+        try {
+            deleteStatesInternal(ids);
+        } finally {
+            endChange();
+        }
+    }
+
+    protected void deleteStatesInternal(Set<String> ids) {
         for (String id : ids) {
-            if (states.remove(id) == null) {
+            State state = states.get(id);
+            if (state == null) {
                 log.debug("Missing on remove: {}", id);
+                continue;
+            }
+            synchronized (state) {
+                // removed and logged under the lock of the state, so that a concurrent update can't index or log it
+                if (!states.remove(id, state)) {
+                    log.debug("Missing on remove: {}", id);
+                    continue;
+                }
+                for (MemIndex index : indexes.values()) {
+                    index.remove(id, state);
+                }
+                if (persistence != null) {
+                    persistence.logDelete(Collections.singleton(id));
+                }
             }
         }
     }
 
+    /**
+     * Gets the states having the given ids, ignoring the missing ones.
+     *
+     * @since 2023.10
+     */
+    protected List<State> getStates(Collection<String> ids) {
+        List<State> list = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            State state = states.get(id);
+            if (state != null) {
+                list.add(state);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Gets the ids of the documents that may have the given key/value, or {@code null} if there is no index for the
+     * key.
+     *
+     * @since 2023.10
+     */
+    protected Set<String> getCandidateIds(String key, Object value) {
+        if (KEY_ID.equals(key)) {
+            return Collections.singleton(String.valueOf(value));
+        }
+        MemIndex index = indexes.get(key);
+        return index == null ? null : index.get(value);
+    }
+
+    /**
+     * Gets the states to check for the given key/value, using an index if available.
+     *
+     * @since 2023.10
+     */
+    protected Collection<State> getCandidates(String key, Object value) {
+        Set<String> ids = getCandidateIds(key, value);
+        return ids == null ? states.values() : getStates(ids);
+    }
+
+    /**
+     * Gets the states to check for the given key/value pairs, using the most selective index if available.
+     *
+     * @since 2023.10
+     */
+    protected Collection<State> getCandidates(String key1, Object value1, String key2, Object value2) {
+        Set<String> ids1 = getCandidateIds(key1, value1);
+        Set<String> ids2 = getCandidateIds(key2, value2);
+        Set<String> ids = ids1 == null || (ids2 != null && ids2.size() < ids1.size()) ? ids2 : ids1;
+        return ids == null ? states.values() : getStates(ids);
+    }
+
+    /**
+     * Gets the states to evaluate for a query, using the most selective index matching the key constraints of the
+     * query if available.
+     *
+     * @since 2023.10
+     */
+    protected Collection<State> getCandidates(DBSExpressionEvaluator evaluator) {
+        Set<String> best = null;
+        for (Entry<String, Set<Object>> en : evaluator.getKeyConstraints().entrySet()) {
+            String key = en.getKey();
+            if (!KEY_ID.equals(key) && !indexes.containsKey(key)) {
+                continue;
+            }
+            Set<String> ids = new HashSet<>();
+            for (Object value : en.getValue()) {
+                ids.addAll(getCandidateIds(key, value));
+            }
+            if (best == null || ids.size() < best.size()) {
+                best = ids;
+                if (best.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        if (best == null) {
+            return states.values();
+        }
+        log.trace("Mem:    candidates from index: {}", best.size());
+        return getStates(best);
+    }
+
     @Override
     public State readChildState(String parentId, String name, Set<String> ignored) {
-        // TODO optimize by maintaining a parent/child index
-        for (State state : states.values()) {
+        Set<String> ids = indexes.get(MemIndex.PARENT_NAME).get(new ChildKey(parentId, name));
+        for (State state : getStates(ids)) {
             if (ignored.contains(state.get(KEY_ID))) {
                 continue;
             }
@@ -221,7 +405,7 @@ public class MemConnection extends DBSConnectionBase {
     public List<State> queryKeyValue(String key, Object value, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {}", key, value);
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -239,7 +423,7 @@ public class MemConnection extends DBSConnectionBase {
     public List<State> queryKeyValue(String key1, Object value1, String key2, Object value2, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {} AND {} = {}", key1, value1, key2, value2);
         List<State> list = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidates(key1, value1, key2, value2)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -261,9 +445,8 @@ public class MemConnection extends DBSConnectionBase {
     @Override
     public Stream<State> getDescendants(String rootId, Set<String> keys, int limit) {
         log.trace("Mem: QUERY {} = {}", KEY_ANCESTOR_IDS, rootId);
-        Stream<State> stream = states.values() //
-                                     .stream()
-                                     .filter(state -> hasAncestor(state, rootId));
+        Stream<State> stream = getCandidates(KEY_ANCESTOR_IDS, rootId).stream()
+                                                                      .filter(state -> hasAncestor(state, rootId));
         if (limit != 0) {
             stream = stream.limit(limit);
         }
@@ -278,7 +461,7 @@ public class MemConnection extends DBSConnectionBase {
     @Override
     public boolean queryKeyValuePresence(String key, String value, Set<String> ignored) {
         log.trace("Mem: QUERY {} = {}", key, value);
-        for (State state : states.values()) {
+        for (State state : getCandidates(key, value)) {
             String id = (String) state.get(KEY_ID);
             if (ignored.contains(id)) {
                 continue;
@@ -298,7 +481,7 @@ public class MemConnection extends DBSConnectionBase {
         log.trace("Mem: QUERY {} OFFSET {} LIMIT {}", evaluator, offset, limit);
         evaluator.parse();
         List<Map<String, Serializable>> projections = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 if (distinctDocuments) {
@@ -345,7 +528,7 @@ public class MemConnection extends DBSConnectionBase {
         log.trace("Mem: QUERY {}", evaluator);
         evaluator.parse();
         List<String> ids = new ArrayList<>();
-        for (State state : states.values()) {
+        for (State state : getCandidates(evaluator)) {
             List<Map<String, Serializable>> matches = evaluator.matches(state);
             if (!matches.isEmpty()) {
                 String id = matches.get(0).get(ECM_UUID).toString();
@@ -506,8 +689,7 @@ public class MemConnection extends DBSConnectionBase {
             Calendar created = (Calendar) state.get(KEY_LOCK_CREATED);
             return new Lock(owner, created);
         }
-        state.put(KEY_LOCK_OWNER, lock.getOwner());
-        state.put(KEY_LOCK_CREATED, lock.getCreated());
+        ((MemRepository) repository).putLock(id, state, lock.getOwner(), lock.getCreated());
         return null;
     }
 
@@ -530,8 +712,7 @@ public class MemConnection extends DBSConnectionBase {
             return new Lock(oldOwner, oldCreated, true);
         }
         // remove lock
-        state.put(KEY_LOCK_OWNER, null);
-        state.put(KEY_LOCK_CREATED, null);
+        ((MemRepository) repository).putLock(id, state, null, null);
         // return old lock
         return new Lock(oldOwner, oldCreated);
     }
@@ -542,8 +723,8 @@ public class MemConnection extends DBSConnectionBase {
         List<State> results = new ArrayList<>();
         if (IN.equals(operator)) {
             HashSet<Object> possibleValues = new HashSet<>((Collection<?>) value2);
-            states.forEach((id, state) -> {
-                if (ignored.contains(id)) {
+            getCandidates(key1, value1).forEach(state -> {
+                if (ignored.contains(state.get(KEY_ID))) {
                     return;
                 }
                 if (state.get(key1) == value1) {
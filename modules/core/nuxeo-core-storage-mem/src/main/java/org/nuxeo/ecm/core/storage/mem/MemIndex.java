@@ -0,0 +1,165 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import org.nuxeo.ecm.core.storage.State;
+
+/**
+ * Secondary index of the in-memory repository, mapping the values extracted from a document to the ids of the
+ * documents having them.
+ * <p>
+ * The index is a superset of the matching documents: callers must still check the actual value of the candidates,
+ * which may have been concurrently updated or deleted.
+ *
+ * @since 2023.10
+ */
+public class MemIndex {
+
+    /** Name of the parent/name index, whose values are {@link ChildKey}. */
+    public static final String PARENT_NAME = "ecm:__parentName";
+
+    /** Key of the parent/name index. */
+    public record ChildKey(Object parentId, Object name) {
+    }
+
+    protected final String name;
+
+    protected final Function<State, Collection<Object>> extractor;
+
+    // value -> ids
+    protected final Map<Object, Set<String>> ids = new ConcurrentHashMap<>();
+
+    public MemIndex(String name, Function<State, Collection<Object>> extractor) {
+        this.name = name;
+        this.extractor = extractor;
+    }
+
+    /**
+     * Creates an index on a top-level key, array values are indexed by each of their elements.
+     */
+    public static MemIndex onKey(String key) {
+        return new MemIndex(key, state -> values(state.get(key)));
+    }
+
+    /**
+     * Creates an index on the parent id and name of documents.
+     */
+    public static MemIndex onParentAndName() {
+        return new MemIndex(PARENT_NAME, state -> {
+            Serializable parentId = state.get(KEY_PARENT_ID);
+            if (parentId == null) {
+                return Collections.emptyList();
+            }
+            return List.of(new ChildKey(parentId, state.get(KEY_NAME)));
+        });
+    }
+
+    protected static Collection<Object> values(Serializable value) {
+        if (value == null) {
+            return Collections.emptyList();
+        } else if (value instanceof Object[] array) {
+            return Arrays.asList(array);
+        } else if (value instanceof List<?> list) {
+            @SuppressWarnings("unchecked")
+            List<Object> objects = (List<Object>) list;
+            return objects;
+        } else {
+            return List.of(value);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Extracts the indexed values of a state, to be passed to {@link #update} once the state has been changed.
+     */
+    public Collection<Object> extract(State state) {
+        Collection<Object> values = extractor.apply(state);
+        // copy as the state may be updated in place
+        return values.isEmpty() ? values : List.copyOf(values);
+    }
+
+    public void add(String id, State state) {
+        extractor.apply(state).forEach(value -> add(id, value));
+    }
+
+    public void remove(String id, State state) {
+        extractor.apply(state).forEach(value -> remove(id, value));
+    }
+
+    /**
+     * Updates the index for a state whose indexed values were previously {@code oldValues}.
+     */
+    public void update(String id, Collection<Object> oldValues, State state) {
+        Collection<Object> newValues = extractor.apply(state);
+        if (Objects.equals(oldValues, newValues)) {
+            return;
+        }
+        oldValues.stream().filter(value -> !newValues.contains(value)).forEach(value -> remove(id, value));
+        newValues.stream().filter(value -> !oldValues.contains(value)).forEach(value -> add(id, value));
+    }
+
+    protected void add(String id, Object value) {
+        ids.compute(value, (k, set) -> {
+            if (set == null) {
+                set = ConcurrentHashMap.newKeySet();
+            }
+            set.add(id);
+            return set;
+        });
+    }
+
+    protected void remove(String id, Object value) {
+        ids.computeIfPresent(value, (k, set) -> {
+            set.remove(id);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * Returns the ids of the documents having the given value.
+     */
+    public Set<String> get(Object value) {
+        Set<String> set = ids.get(value);
+        return set == null ? Collections.emptySet() : set;
+    }
+
+    public void clear() {
+        ids.clear();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + name + ")";
+    }
+
+}
@@ -0,0 +1,505 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.StateHelper;
+
+/**
+ * Durability for the in-memory repository: every change is appended to a write-ahead log, and the whole content is
+ * periodically written to a snapshot after which the log is truncated.
+ * <p>
+ * On startup the snapshot is loaded then the log entries written after it are replayed. Each log entry carries a
+ * sequence number and a checksum, so that entries already in the snapshot are skipped and a torn entry at the end of
+ * the log (crash during a write) is ignored.
+ * <p>
+ * Changes are written concurrently. A change must be applied to the states and logged between {@link #beginChange} and
+ * {@link #endChange}, so that the log can be rotated between changes.
+ * <p>
+ * Snapshots are written by a background thread: changes are only blocked while the log is rotated, then the snapshot
+ * is computed from the previous snapshot and the rotated log, without reading the live states. On close, a last
+ * snapshot is written from the live states.
+ *
+ * @since 2023.10
+ */
+public class MemPersistence implements AutoCloseable {
+
+    private static final Logger log = LogManager.getLogger(MemPersistence.class);
+
+    protected static final String SNAPSHOT = "snapshot";
+
+    protected static final String SNAPSHOT_TMP = "snapshot.tmp";
+
+    protected static final String WAL = "wal";
+
+    protected static final String WAL_ROTATED = "wal.old";
+
+    protected static final int SNAPSHOT_VERSION = 1;
+
+    protected static final byte CREATE_ENTRY = 1;
+
+    protected static final byte UPDATE_ENTRY = 2;
+
+    protected static final byte DELETE_ENTRY = 3;
+
+    // entry header: length, checksum
+    protected static final int ENTRY_HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+    protected final Path directory;
+
+    protected final long snapshotEvery;
+
+    protected final boolean sync;
+
+    // guards the log against rotations: changes take the read lock, rotations the write lock
+    protected final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // writes the snapshots in the background, null if snapshots are only written on close
+    protected final ExecutorService snapshotExecutor;
+
+    protected final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+
+    protected final AtomicLong sequence = new AtomicLong();
+
+    // number of log entries since the last snapshot
+    protected final AtomicLong entriesSinceSnapshot = new AtomicLong();
+
+    protected Map<String, State> states;
+
+    protected FileChannel wal;
+
+    /**
+     * @param directory the directory holding the snapshot and the log
+     * @param snapshotEvery the number of log entries after which a snapshot is taken, {@code 0} to only take a snapshot
+     *            on close
+     * @param sync whether to force each log entry to the storage device before returning
+     */
+    public MemPersistence(Path directory, long snapshotEvery, boolean sync) {
+        this.directory = directory;
+        this.snapshotEvery = snapshotEvery;
+        this.sync = sync;
+        if (snapshotEvery > 0) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "Nuxeo-MemPersistence-Snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            snapshotExecutor = null;
+        }
+    }
+
+    /**
+     * Loads the snapshot and replays the log into the given states, then opens the log for writing.
+     * <p>
+     * The states are then used for the next snapshots.
+     */
+    public void load(Map<String, State> states) {
+        this.states = states;
+        try {
+            Files.createDirectories(directory);
+            long snapshotSequence = readSnapshot(states);
+            sequence.set(snapshotSequence);
+            // the entries of the rotated log all precede the ones of the log
+            long replayed = replayLog(states, directory.resolve(WAL_ROTATED), snapshotSequence, sequence);
+            replayed += replayLog(states, directory.resolve(WAL), snapshotSequence, sequence);
+            entriesSinceSnapshot.set(replayed);
+            wal = FileChannel.open(directory.resolve(WAL), CREATE, WRITE, APPEND);
+            log.info("Loaded {} documents from {}, replayed {} log entries", states.size(), directory, replayed);
+            if (Files.exists(directory.resolve(WAL_ROTATED))) {
+                // a background snapshot was interrupted, nothing runs concurrently yet
+                snapshot();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new NuxeoException("Cannot load repository from: " + directory, e);
+        }
+    }
+
+    protected long readSnapshot(Map<String, State> states) throws IOException, ClassNotFoundException {
+        Path file = directory.resolve(SNAPSHOT);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)));
+                ObjectInputStream ois = new ObjectInputStream(in)) {
+            int version = ois.readInt();
+            if (version != SNAPSHOT_VERSION) {
+                throw new NuxeoException("Unsupported snapshot version: " + version + " in: " + file);
+            }
+            long snapshotSequence = ois.readLong();
+            int size = ois.readInt();
+            for (int i = 0; i < size; i++) {
+                String id = ois.readUTF();
+                State state = (State) ois.readObject();
+                states.put(id, StateHelper.deepCopy(state, true)); // thread-safe
+            }
+            return snapshotSequence;
+        }
+    }
+
+    /**
+     * Replays the entries of a log following the snapshot.
+     *
+     * @param lastSequence updated with the highest sequence number read
+     * @return the number of replayed entries
+     */
+    protected long replayLog(Map<String, State> states, Path file, long snapshotSequence, AtomicLong lastSequence)
+            throws IOException, ClassNotFoundException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long replayed = 0;
+        long validLength = 0;
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            for (;;) {
+                byte[] bytes;
+                try {
+                    int length = in.readInt();
+                    long checksum = in.readLong();
+                    if (length < 0 || length > channel.size() - validLength - ENTRY_HEADER_SIZE) {
+                        log.warn("Truncated log entry at position {} in {}, ignoring it", validLength, file);
+                        break;
+                    }
+                    bytes = new byte[length];
+                    in.readFully(bytes);
+                    if (checksum(bytes) != checksum) {
+                        log.warn("Corrupted log entry at position {} in {}, ignoring the end of the log", validLength,
+                                file);
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                validLength += ENTRY_HEADER_SIZE + bytes.length;
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    long seq = ois.readLong();
+                    // concurrent changes may be written out of sequence order
+                    lastSequence.accumulateAndGet(seq, Math::max);
+                    if (seq <= snapshotSequence) {
+                        // already in the snapshot
+                        continue;
+                    }
+                    apply(states, ois);
+                    replayed++;
+                }
+            }
+            if (validLength < channel.size()) {
+                // drop the torn entry so that new entries are readable
+                channel.truncate(validLength);
+            }
+        }
+        return replayed;
+    }
+
+    protected void apply(Map<String, State> states, ObjectInputStream ois) throws IOException, ClassNotFoundException {
+        byte type = ois.readByte();
+        switch (type) {
+            case CREATE_ENTRY:
+                String newId = ois.readUTF();
+                State state = (State) ois.readObject();
+                states.put(newId, StateHelper.deepCopy(state, true)); // thread-safe
+                break;
+            case UPDATE_ENTRY:
+                String id = ois.readUTF();
+                StateDiff diff = (StateDiff) ois.readObject();
+                State current = states.get(id);
+                if (current == null) {
+                    log.warn("Missing document: {} when replaying update", id);
+                } else {
+                    MemConnection.applyDiff(current, diff);
+                }
+                break;
+            case DELETE_ENTRY:
+                int size = ois.readInt();
+                for (int i = 0; i < size; i++) {
+                    states.remove(ois.readUTF());
+                }
+                break;
+            default:
+                throw new NuxeoException("Unknown log entry type: " + type);
+        }
+    }
+
+    public void logCreate(String id, State state) {
+        append(CREATE_ENTRY, oos -> {
+            oos.writeUTF(id);
+            oos.writeObject(state);
+        });
+    }
+
+    public void logUpdate(String id, StateDiff diff) {
+        append(UPDATE_ENTRY, oos -> {
+            oos.writeUTF(id);
+            oos.writeObject(diff);
+        });
+    }
+
+    public void logDelete(Set<String> ids) {
+        append(DELETE_ENTRY, oos -> {
+            oos.writeInt(ids.size());
+            for (String id : ids) {
+                oos.writeUTF(id);
+            }
+        });
+    }
+
+    @FunctionalInterface
+    protected interface EntryWriter {
+
+        void write(ObjectOutputStream oos) throws IOException;
+    }
+
+    /**
+     * Begins a change, which must be both applied to the states and logged before {@link #endChange}.
+     */
+    public void beginChange() {
+        lock.readLock().lock();
+    }
+
+    /**
+     * Ends a change, scheduling a background snapshot if the threshold of log entries is reached.
+     */
+    public void endChange() {
+        lock.readLock().unlock();
+        if (snapshotExecutor != null && entriesSinceSnapshot.get() >= snapshotEvery
+                && snapshotScheduled.compareAndSet(false, true)) {
+            try {
+                snapshotExecutor.execute(this::backgroundSnapshot);
+            } catch (RejectedExecutionException e) {
+                // closing, a snapshot is written on close
+                snapshotScheduled.set(false);
+            }
+        }
+    }
+
+    protected void append(byte type, EntryWriter writer) {
+        try {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeLong(sequence.incrementAndGet());
+                oos.writeByte(type);
+                writer.write(oos);
+            }
+            byte[] bytes = baos.toByteArray();
+            ByteBuffer buffer = ByteBuffer.allocate(ENTRY_HEADER_SIZE + bytes.length);
+            buffer.putInt(bytes.length).putLong(checksum(bytes)).put(bytes).flip();
+            // the channel is in append mode, a single write keeps concurrent entries contiguous
+            synchronized (wal) {
+                while (buffer.hasRemaining()) {
+                    wal.write(buffer);
+                }
+                if (sync) {
+                    wal.force(false);
+                }
+            }
+            entriesSinceSnapshot.incrementAndGet();
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot write to repository log: " + directory, e);
+        }
+    }
+
+    protected static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    protected void backgroundSnapshot() {
+        try {
+            rotateLog();
+            compactRotatedLog();
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            // the rotated log is kept and compacted by the next snapshot
+            log.error("Cannot write repository snapshot: {}", directory, e);
+        } finally {
+            snapshotScheduled.set(false);
+        }
+    }
+
+    /**
+     * Renames the log so that it is compacted into the next snapshot, and starts a new log. This is the only step
+     * blocking the changes.
+     */
+    protected void rotateLog() throws IOException {
+        lock.writeLock().lock();
+        try {
+            Path rotated = directory.resolve(WAL_ROTATED);
+            if (Files.exists(rotated)) {
+                // a previous snapshot failed, its rotated log must be compacted first
+                return;
+            }
+            wal.close();
+            try {
+                Files.move(directory.resolve(WAL), rotated, ATOMIC_MOVE);
+            } finally {
+                // a new log, or the same one if it could not be renamed
+                wal = FileChannel.open(directory.resolve(WAL), CREATE, WRITE, APPEND);
+            }
+            // all the entries of the rotated log have a lower sequence number than the ones of the new log
+            entriesSinceSnapshot.set(0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a snapshot made of the previous snapshot and of the entries of the rotated log, then deletes the rotated
+     * log.
+     */
+    protected void compactRotatedLog() throws IOException, ClassNotFoundException {
+        Path rotated = directory.resolve(WAL_ROTATED);
+        if (!Files.exists(rotated)) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        Map<String, State> snapshotStates = new HashMap<>();
+        long snapshotSequence = readSnapshot(snapshotStates);
+        AtomicLong lastSequence = new AtomicLong(snapshotSequence);
+        replayLog(snapshotStates, rotated, snapshotSequence, lastSequence);
+        writeSnapshot(snapshotStates, lastSequence.get());
+        // entries up to the snapshot sequence are skipped on replay, so a crash before deletion is safe
+        Files.delete(rotated);
+        log.debug("Snapshot of {} documents written to {} in {}ms", snapshotStates.size(), directory,
+                System.currentTimeMillis() - begin);
+    }
+
+    protected void writeSnapshot(Map<String, State> snapshotStates, long snapshotSequence) throws IOException {
+        Path tmp = directory.resolve(SNAPSHOT_TMP);
+        try (FileChannel channel = FileChannel.open(tmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+                oos.writeInt(SNAPSHOT_VERSION);
+                oos.writeLong(snapshotSequence);
+                oos.writeInt(snapshotStates.size());
+                for (Map.Entry<String, State> en : snapshotStates.entrySet()) {
+                    oos.writeUTF(en.getKey());
+                    oos.writeObject(en.getValue());
+                    // don't keep back references to all the states
+                    oos.reset();
+                }
+                oos.flush();
+                channel.force(true);
+            }
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), ATOMIC_MOVE, REPLACE_EXISTING);
+    }
+
+    /**
+     * Writes a snapshot of all the live states and truncates the logs, if changes were logged since the last snapshot.
+     * <p>
+     * Changes are blocked while the snapshot is written, this is only done when loading and closing.
+     */
+    public void snapshot() {
+        lock.writeLock().lock();
+        try {
+            Path rotated = directory.resolve(WAL_ROTATED);
+            if (entriesSinceSnapshot.get() == 0 && !Files.exists(rotated)) {
+                return;
+            }
+            long begin = System.currentTimeMillis();
+            writeSnapshot(states, sequence.get());
+            wal.truncate(0);
+            Files.deleteIfExists(rotated);
+            entriesSinceSnapshot.set(0);
+            log.debug("Snapshot of {} documents written to {} in {}ms", states.size(), directory,
+                    System.currentTimeMillis() - begin);
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot write repository snapshot: " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Waits for the background snapshot in progress, if any.
+     */
+    protected void awaitSnapshot() throws InterruptedException, ExecutionException {
+        if (snapshotExecutor != null) {
+            snapshotExecutor.submit(() -> {
+            }).get();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (wal == null) {
+            return;
+        }
+        try {
+            if (snapshotExecutor != null) {
+                snapshotExecutor.shutdown();
+                if (!snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("Background snapshot of {} not finished after 1 minute", directory);
+                }
+            }
+            snapshot();
+            wal.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while closing repository log: " + directory, e);
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot close repository log: " + directory, e);
+        } finally {
+            wal = null;
+        }
+    }
+
+}
@@ -18,12 +18,17 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_BLOB_KEYS;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_CREATED;
 import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_LOCK_OWNER;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PRIMARY_TYPE;
 
+import java.nio.file.Path;
 import java.util.Calendar;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -31,10 +36,12 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
+import org.nuxeo.common.Environment;
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.lock.LockManager;
 import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
 import org.nuxeo.ecm.core.storage.dbs.DBSDocument;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepository;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
@@ -46,6 +53,12 @@ import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
  * <p>
  * A document object is a JSON-like document stored as a Map recursively containing the data, see {@link DBSDocument}
  * for the description of the document.
+ * <p>
+ * Secondary indexes ({@link MemIndex}) are maintained on the parent/name, parent, ancestors and primary type of the
+ * documents, and on the additional keys declared in the {@link MemRepositoryDescriptor}.
+ * <p>
+ * If a persistence directory is configured, changes are also written to disk by {@link MemPersistence} and the content
+ * is reloaded on startup.
  *
  * @since 5.9.4
  */
@@ -61,8 +74,30 @@ public class MemRepository extends DBSRepositoryBase {
      */
     protected Map<String, State> states;
 
+    /**
+     * The secondary indexes, a map of index name -&gt; index.
+     *
+     * @since 2023.10
+     */
+    protected Map<String, MemIndex> indexes;
+
+    protected final List<String> declaredIndexes;
+
+    /**
+     * The persistence, or {@code null} if the repository is not persisted.
+     *
+     * @since 2023.10
+     */
+    protected MemPersistence persistence;
+
     public MemRepository(MemRepositoryDescriptor descriptor) {
         super(descriptor.name, descriptor);
+        declaredIndexes = List.copyOf(descriptor.indexes);
+        if (descriptor.persistenceDirectory != null) {
+            Path directory = Environment.getDefault().getData().toPath().resolve(descriptor.persistenceDirectory);
+            persistence = new MemPersistence(directory, descriptor.getPersistenceSnapshotEvery(),
+                    descriptor.isPersistenceSync());
+        }
         initRepository();
     }
 
@@ -74,14 +109,70 @@ public class MemRepository extends DBSRepositoryBase {
     @Override
     public void shutdown() {
         super.shutdown();
+        if (persistence != null) {
+            persistence.close();
+        }
         states = null;
+        indexes = null;
     }
 
     protected void initRepository() {
         states = new ConcurrentHashMap<>();
-        try (MemConnection connection = getConnection()) {
-            connection.initRepository();
+        initIndexes();
+        if (persistence != null) {
+            persistence.load(states);
+            states.forEach((id, state) -> indexes.values().forEach(index -> index.add(id, state)));
+        }
+        if (states.isEmpty()) {
+            try (MemConnection connection = getConnection()) {
+                connection.initRepository();
+            }
+        }
+    }
+
+    /**
+     * Sets or removes the lock of a document, and writes it to the persistence if any.
+     *
+     * @since 2023.10
+     */
+    protected void putLock(String id, State state, String owner, Calendar created) {
+        if (persistence == null) {
+            synchronized (state) {
+                state.put(KEY_LOCK_OWNER, owner);
+                state.put(KEY_LOCK_CREATED, created);
+            }
+            return;
+        }
+        persistence.beginChange();
+        try {
+            // same lock as the connection updates, so that the log is written in the order of the changes
+            synchronized (state) {
+                state.put(KEY_LOCK_OWNER, owner);
+                state.put(KEY_LOCK_CREATED, created);
+                StateDiff diff = new StateDiff();
+                diff.put(KEY_LOCK_OWNER, owner);
+                diff.put(KEY_LOCK_CREATED, created);
+                persistence.logUpdate(id, diff);
+            }
+        } finally {
+            persistence.endChange();
+        }
+    }
+
+    protected void initIndexes() {
+        Map<String, MemIndex> map = new LinkedHashMap<>();
+        map.put(MemIndex.PARENT_NAME, MemIndex.onParentAndName());
+        for (String key : List.of(KEY_PARENT_ID, KEY_ANCESTOR_IDS, KEY_PRIMARY_TYPE)) {
+            map.put(key, MemIndex.onKey(key));
+        }
+        for (String key : declaredIndexes) {
+            if (KEY_LOCK_OWNER.equals(key) || KEY_LOCK_CREATED.equals(key)) {
+                // locks are updated outside of updateState
+                continue;
+            }
+            map.putIfAbsent(key, MemIndex.onKey(key));
         }
+        indexes = Collections.unmodifiableMap(map);
     }
 
     protected String generateNewId() {
@@ -132,8 +223,7 @@ public class MemRepository extends DBSRepositoryBase {
             Calendar created = (Calendar) state.get(KEY_LOCK_CREATED);
             return new Lock(owner, created);
         }
-        state.put(KEY_LOCK_OWNER, lock.getOwner());
-        state.put(KEY_LOCK_CREATED, lock.getCreated());
+        putLock(id, state, lock.getOwner(), lock.getCreated());
         return null;
     }
 
@@ -156,8 +246,7 @@ public class MemRepository extends DBSRepositoryBase {
             return new Lock(oldOwner, oldCreated, true);
         }
         // remove lock
-        state.put(KEY_LOCK_OWNER, null);
-        state.put(KEY_LOCK_CREATED, null);
+        putLock(id, state, null, null);
         // return old lock
         return new Lock(oldOwner, oldCreated);
     }
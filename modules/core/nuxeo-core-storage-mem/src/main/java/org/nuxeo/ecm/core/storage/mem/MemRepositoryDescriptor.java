@@ -18,6 +18,11 @@
  */
 package org.nuxeo.ecm.core.storage.mem;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import org.nuxeo.common.xmap.annotation.XNode;
+import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 
@@ -29,12 +34,84 @@ import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryDescriptor;
 @XObject(value = "repository")
 public class MemRepositoryDescriptor extends DBSRepositoryDescriptor {
 
+    /** @since 2023.10 */
+    public static final long DEFAULT_SNAPSHOT_EVERY = 10_000;
+
     public MemRepositoryDescriptor() {
     }
 
+    /**
+     * Additional keys to index, as stored in the documents (for instance {@code dc:title}), in addition to the parent,
+     * name, ancestors and primary type which are always indexed.
+     *
+     * @since 2023.10
+     */
+    @XNodeList(value = "indexes/index", type = ArrayList.class, componentType = String.class)
+    public List<String> indexes = new ArrayList<>();
+
+    /**
+     * The directory where the repository is persisted, relative to the data directory if not absolute. If not set, the
+     * repository is not persisted.
+     *
+     * @since 2023.10
+     */
+    @XNode("persistence@directory")
+    public String persistenceDirectory;
+
+    /**
+     * The number of changes written to the log after which a snapshot is taken.
+     *
+     * @since 2023.10
+     */
+    @XNode("persistence@snapshotEvery")
+    public Long persistenceSnapshotEvery;
+
+    /**
+     * Whether each change is forced to the storage device before returning.
+     *
+     * @since 2023.10
+     */
+    @XNode("persistence@sync")
+    public Boolean persistenceSync;
+
+    /** @since 2023.10 */
+    public long getPersistenceSnapshotEvery() {
+        return persistenceSnapshotEvery == null ? DEFAULT_SNAPSHOT_EVERY : persistenceSnapshotEvery.longValue();
+    }
+
+    /** @since 2023.10 */
+    public boolean isPersistenceSync() {
+        return Boolean.TRUE.equals(persistenceSync);
+    }
+
     @Override
     public MemRepositoryDescriptor clone() {
-        return (MemRepositoryDescriptor) super.clone();
+        MemRepositoryDescriptor clone = (MemRepositoryDescriptor) super.clone();
+        clone.indexes = new ArrayList<>(indexes);
+        return clone;
+    }
+
+    @Override
+    public void merge(DBSRepositoryDescriptor o) {
+        super.merge(o);
+        if (!(o instanceof MemRepositoryDescriptor)) {
+            return;
+        }
+        MemRepositoryDescriptor other = (MemRepositoryDescriptor) o;
+        if (other.persistenceDirectory != null) {
+            persistenceDirectory = other.persistenceDirectory;
+        }
+        if (other.persistenceSnapshotEvery != null) {
+            persistenceSnapshotEvery = other.persistenceSnapshotEvery;
+        }
+        if (other.persistenceSync != null) {
+            persistenceSync = other.persistenceSync;
+        }
+        for (String index : other.indexes) {
+            if (!indexes.contains(index)) {
+                indexes.add(index);
+            }
+        }
     }
 
 }
@@ -0,0 +1,88 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_ANCESTOR_IDS;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_NAME;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_PARENT_ID;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.mem.MemIndex.ChildKey;
+
+public class TestMemIndex {
+
+    @Test
+    public void testKeyIndex() {
+        MemIndex index = MemIndex.onKey(KEY_PARENT_ID);
+        State state = new State();
+        state.put(KEY_PARENT_ID, "p1");
+        index.add("id1", state);
+        assertEquals(Set.of("id1"), index.get("p1"));
+
+        Collection<Object> old = index.extract(state);
+        state.put(KEY_PARENT_ID, "p2");
+        index.update("id1", old, state);
+        assertTrue(index.get("p1").isEmpty());
+        assertEquals(Set.of("id1"), index.get("p2"));
+
+        index.remove("id1", state);
+        assertTrue(index.get("p2").isEmpty());
+    }
+
+    @Test
+    public void testArrayIndex() {
+        MemIndex index = MemIndex.onKey(KEY_ANCESTOR_IDS);
+        State state = new State();
+        state.put(KEY_ANCESTOR_IDS, new Object[] { "a", "b" });
+        index.add("id1", state);
+        assertEquals(Set.of("id1"), index.get("a"));
+        assertEquals(Set.of("id1"), index.get("b"));
+
+        Collection<Object> old = index.extract(state);
+        state.put(KEY_ANCESTOR_IDS, new Object[] { "a", "c" });
+        index.update("id1", old, state);
+        assertEquals(Set.of("id1"), index.get("a"));
+        assertTrue(index.get("b").isEmpty());
+        assertEquals(Set.of("id1"), index.get("c"));
+    }
+
+    @Test
+    public void testParentAndNameIndex() {
+        MemIndex index = MemIndex.onParentAndName();
+        State state = new State();
+        state.put(KEY_PARENT_ID, "p1");
+        state.put(KEY_NAME, "doc");
+        index.add("id1", state);
+        State placeless = new State();
+        placeless.put(KEY_NAME, "doc");
+        index.add("id2", placeless);
+        assertEquals(Set.of("id1"), index.get(new ChildKey("p1", "doc")));
+        assertTrue(index.get(new ChildKey("p1", "other")).isEmpty());
+
+        Collection<Object> old = index.extract(state);
+        state.put(KEY_NAME, "renamed");
+        index.update("id1", old, state);
+        assertTrue(index.get(new ChildKey("p1", "doc")).isEmpty());
+        assertEquals(Set.of("id1"), index.get(new ChildKey("p1", "renamed")));
+    }
+
+}
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.storage.mem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.storage.State;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+
+public class TestMemPersistence {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected static void create(MemPersistence persistence, Map<String, State> states, String id, long value) {
+        State state = new State(true);
+        state.put("value", Long.valueOf(value));
+        persistence.beginChange();
+        try {
+            states.put(id, state);
+            persistence.logCreate(id, state);
+        } finally {
+            persistence.endChange();
+        }
+    }
+
+    protected static Map<String, State> load(Path dir) {
+        Map<String, State> states = new ConcurrentHashMap<>();
+        new MemPersistence(dir, 5, false).load(states);
+        return states;
+    }
+
+    @Test
+    public void testReplayAfterCrash() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        Map<String, State> states = new ConcurrentHashMap<>();
+        MemPersistence persistence = new MemPersistence(dir, 5, false);
+        persistence.load(states);
+        for (int i = 0; i < 12; i++) {
+            create(persistence, states, "id" + i, i);
+        }
+        StateDiff diff = new StateDiff();
+        diff.put("value", Long.valueOf(100));
+        persistence.beginChange();
+        try {
+            MemConnection.applyDiff(states.get("id1"), diff);
+            persistence.logUpdate("id1", diff);
+            states.remove("id2");
+            persistence.logDelete(Set.of("id2"));
+        } finally {
+            persistence.endChange();
+        }
+        persistence.awaitSnapshot();
+        // crash without close, in the middle of a write
+        Files.write(dir.resolve(MemPersistence.WAL), new byte[] { 0, 0, 0, 50, 1, 2, 3 }, StandardOpenOption.APPEND);
+
+        Map<String, State> reloaded = load(dir);
+        assertEquals(11, reloaded.size());
+        assertEquals(Long.valueOf(100), reloaded.get("id1").get("value"));
+        assertFalse(reloaded.containsKey("id2"));
+    }
+
+    @Test
+    public void testBackgroundSnapshot() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        Map<String, State> states = new ConcurrentHashMap<>();
+        MemPersistence persistence = new MemPersistence(dir, 5, false);
+        persistence.load(states);
+        for (int i = 0; i < 12; i++) {
+            create(persistence, states, "id" + i, i);
+        }
+        persistence.awaitSnapshot();
+        assertTrue(Files.exists(dir.resolve(MemPersistence.SNAPSHOT)));
+        assertFalse(Files.exists(dir.resolve(MemPersistence.WAL_ROTATED)));
+        // crash without close
+        Map<String, State> reloaded = load(dir);
+        assertEquals(12, reloaded.size());
+        assertEquals(Long.valueOf(11), reloaded.get("id11").get("value"));
+    }
+
+    @Test
+    public void testReplayRotatedLog() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        Map<String, State> states = new ConcurrentHashMap<>();
+        MemPersistence persistence = new MemPersistence(dir, 0, false);
+        persistence.load(states);
+        for (int i = 0; i < 3; i++) {
+            create(persistence, states, "id" + i, i);
+        }
+        // crash after the rotation of the log, before the snapshot is written
+        persistence.rotateLog();
+        for (int i = 3; i < 5; i++) {
+            create(persistence, states, "id" + i, i);
+        }
+        Map<String, State> reloaded = load(dir);
+        assertEquals(5, reloaded.size());
+        // a snapshot is written when loading
+        assertTrue(Files.exists(dir.resolve(MemPersistence.SNAPSHOT)));
+        assertFalse(Files.exists(dir.resolve(MemPersistence.WAL_ROTATED)));
+        assertEquals(0, Files.size(dir.resolve(MemPersistence.WAL)));
+    }
+
+    @Test
+    public void testSnapshotOnClose() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        Map<String, State> states = new ConcurrentHashMap<>();
+        MemPersistence persistence = new MemPersistence(dir, 0, false);
+        persistence.load(states);
+        create(persistence, states, "id", 1);
+        persistence.close();
+        assertTrue(Files.exists(dir.resolve(MemPersistence.SNAPSHOT)));
+        assertEquals(0, Files.size(dir.resolve(MemPersistence.WAL)));
+
+        Map<String, State> reloaded = load(dir);
+        assertEquals(1, reloaded.size());
+        assertEquals(Long.valueOf(1), reloaded.get("id").get("value"));
+    }
+
+}
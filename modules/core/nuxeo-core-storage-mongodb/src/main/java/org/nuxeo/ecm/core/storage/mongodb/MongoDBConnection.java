@@ -65,6 +65,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -111,6 +112,7 @@ import com.mongodb.MongoQueryException;
 import com.mongodb.MongoSocketReadTimeoutException;
 import com.mongodb.MongoWriteException;
 import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
 import com.mongodb.client.ClientSession;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
@@ -124,7 +126,9 @@ import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 
@@ -513,23 +517,18 @@ public class MongoDBConnection extends DBSConnectionBase {
 
     @Override
     public void updateState(String id, StateDiff diff, ConditionalUpdates conditionalUpdates) {
-        ConditionsAndUpdates conditionsAndUpdates = converter.diffToBson(diff);
+        updateState(id, converter.diffToBson(diff), conditionalUpdates);
+    }
+
+    /**
+     * Updates a document with one database update per update of the diff, checking each condition.
+     *
+     * @since 2023.10
+     */
+    protected void updateState(String id, ConditionsAndUpdates conditionsAndUpdates,
+            ConditionalUpdates conditionalUpdates) {
         for (Document update : conditionsAndUpdates.updates) {
-            Document filter = new Document(conditionsAndUpdates.conditions);
-            converter.putToBson(filter, KEY_ID, id);
-            if (conditionalUpdates != null) {
-                // assume bson is identical to dbs internals
-                // condition works even if value is null
-                filter.putAll(conditionalUpdates.getConditions());
-                Document set = (Document) update.computeIfAbsent(MONGODB_SET, k -> new Document());
-                set.putAll(conditionalUpdates.getUpdates());
-                conditionalUpdates.finish();
-            }
-            if (filter.size() == 1) {
-                log.trace("MongoDB: UPDATE {}: {}", id, update);
-            } else {
-                log.trace("MongoDB: UPDATE {}: IF {} THEN {}", id, filter, update);
-            }
+            Document filter = getUpdateFilter(id, conditionsAndUpdates, update, conditionalUpdates);
             try {
                 UpdateResult w = updateMany(filter, update);
                 if (w.getModifiedCount() != 1) {
@@ -546,6 +545,102 @@ public class MongoDBConnection extends DBSConnectionBase {
         }
     }
 
+    /**
+     * Gets the filter for an update of a document, and adds the conditional updates to the update.
+     *
+     * @since 2023.10
+     */
+    protected Document getUpdateFilter(String id, ConditionsAndUpdates conditionsAndUpdates, Document update,
+            ConditionalUpdates conditionalUpdates) {
+        Document filter = new Document(conditionsAndUpdates.conditions);
+        converter.putToBson(filter, KEY_ID, id);
+        if (conditionalUpdates != null) {
+            // assume bson is identical to dbs internals
+            // condition works even if value is null
+            filter.putAll(conditionalUpdates.getConditions());
+            Document set = (Document) update.computeIfAbsent(MONGODB_SET, k -> new Document());
+            set.putAll(conditionalUpdates.getUpdates());
+            conditionalUpdates.finish();
+        }
+        if (filter.size() == 1) {
+            log.trace("MongoDB: UPDATE {}: {}", id, update);
+        } else {
+            log.trace("MongoDB: UPDATE {}: IF {} THEN {}", id, filter, update);
+        }
+        return filter;
+    }
+
+    @Override
+    public void updateStates(List<StateUpdate> stateUpdates) {
+        if (stateUpdates.size() == 1) {
+            StateUpdate stateUpdate = stateUpdates.get(0);
+            updateState(stateUpdate.id(), stateUpdate.diff(), stateUpdate.conditionalUpdates());
+            return;
+        }
+        List<String> ids = new ArrayList<>(stateUpdates.size());
+        List<ConditionsAndUpdates> conditionsAndUpdatesList = new ArrayList<>(stateUpdates.size());
+        Set<String> conditionalIds = new HashSet<>();
+        for (StateUpdate stateUpdate : stateUpdates) {
+            ConditionsAndUpdates conditionsAndUpdates = converter.diffToBson(stateUpdate.diff());
+            ids.add(stateUpdate.id());
+            conditionsAndUpdatesList.add(conditionsAndUpdates);
+            if (stateUpdate.conditionalUpdates() != null || !conditionsAndUpdates.conditions.isEmpty()) {
+                conditionalIds.add(stateUpdate.id());
+            }
+        }
+        // a failed condition must be reported for its own document, and a bulk write only tells how many filters
+        // matched, so the documents having conditions are updated one by one first, in the order of the batch
+        for (int i = 0; i < stateUpdates.size(); i++) {
+            if (conditionalIds.contains(ids.get(i))) {
+                updateState(ids.get(i), conditionsAndUpdatesList.get(i), stateUpdates.get(i).conditionalUpdates());
+            }
+        }
+        // then a single ordered bulk write for the others, several updates of the same document are applied in
+        // sequence
+        List<WriteModel<Document>> models = new ArrayList<>();
+        Set<String> bulkIds = new LinkedHashSet<>();
+        for (int i = 0; i < stateUpdates.size(); i++) {
+            String id = ids.get(i);
+            if (conditionalIds.contains(id)) {
+                continue;
+            }
+            bulkIds.add(id);
+            ConditionsAndUpdates conditionsAndUpdates = conditionsAndUpdatesList.get(i);
+            for (Document update : conditionsAndUpdates.updates) {
+                Document filter = getUpdateFilter(id, conditionsAndUpdates, update, null);
+                models.add(new UpdateOneModel<>(filter, update));
+            }
+        }
+        if (models.isEmpty()) {
+            return;
+        }
+        log.trace("MongoDB: BULK UPDATE {} documents in {} operations", bulkIds::size, models::size);
+        try {
+            BulkWriteResult w = bulkWrite(models);
+            if (w.getMatchedCount() != models.size()) {
+                // an unmatched filter doesn't stop the ordered bulk write, it only lowers the matched count:
+                // without conditions, one of the documents was deleted concurrently
+                log.trace("MongoDB:    -> CONCURRENT UPDATE: {}", bulkIds);
+                var concurrentUpdateException = new ConcurrentUpdateException("Concurrent update");
+                bulkIds.forEach(concurrentUpdateException::addInfo);
+                throw concurrentUpdateException;
+            }
+        } catch (MongoBulkWriteException mbwe) {
+            List<String> duplicates = mbwe.getWriteErrors()
+                                          .stream()
+                                          .filter(wr -> DUPLICATE_KEY.equals(fromErrorCode(wr.getCode())))
+                                          .map(BulkWriteError::getMessage)
+                                          .collect(Collectors.toList());
+            if (!duplicates.isEmpty() && duplicates.size() == mbwe.getWriteErrors().size()) {
+                log.trace("MongoDB:    -> DUPLICATE KEY: {}", duplicates);
+                var concurrentUpdateException = new ConcurrentUpdateException("Concurrent update");
+                duplicates.forEach(concurrentUpdateException::addInfo);
+                throw concurrentUpdateException;
+            }
+            throw mbwe;
+        }
+    }
+
     @Override
     public void deleteStates(Set<String> ids) {
         Bson filter = converter.filterIn(KEY_ID, ids);
@@ -1063,6 +1158,14 @@ public class MongoDBConnection extends DBSConnectionBase {
         }
     }
 
+    protected BulkWriteResult bulkWrite(List<WriteModel<Document>> models) {
+        if (transactionStarted) {
+            return coll.bulkWrite(clientSession, models);
+        } else {
+            return coll.bulkWrite(models);
+        }
+    }
+
     protected DeleteResult deleteMany(Bson filter) {
         if (transactionStarted) {
             return coll.deleteMany(clientSession, filter);
@@ -189,6 +189,11 @@ public class SQLDocumentLive extends BaseDocument<Node> implements SQLDocument {
         readComplexProperty(getNode(), (ComplexProperty) dp);
     }
 
+    @Override
+    public StateReader getStateReader(Schema schema) throws PropertyException {
+        return new BaseStateReader(getNode(), null);
+    }
+
     @Override
     public boolean writeDocumentPart(DocumentPart dp, WriteContext writeContext, boolean create)
             throws PropertyException {
@@ -191,6 +191,15 @@ public class SQLDocumentProxy implements SQLDocument {
         }
     }
 
+    @Override
+    public StateReader getStateReader(Schema schema) throws PropertyException {
+        if (isSchemaForProxy(schema.getName())) {
+            return proxy.getStateReader(schema);
+        } else {
+            return target.getStateReader(schema);
+        }
+    }
+
     @Override
     public WriteContext getWriteContext() {
         // proxy or target doesn't matter, this is about typing
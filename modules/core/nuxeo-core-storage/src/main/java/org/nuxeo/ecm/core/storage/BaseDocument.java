@@ -796,6 +796,68 @@ public abstract class BaseDocument<T extends StateAccessor> implements Document
         }
     }
 
+    /**
+     * Reads state the same way as {@link #readComplexProperty}, without building properties.
+     *
+     * @since 2023.10
+     */
+    protected class BaseStateReader implements StateReader {
+
+        protected final T state;
+
+        protected final String xpath;
+
+        public BaseStateReader(T state, String xpath) {
+            this.state = state;
+            this.xpath = xpath;
+        }
+
+        protected String getChildXPath(String name) {
+            return xpath == null ? name : xpath + '/' + name;
+        }
+
+        @Override
+        public String getXPath() {
+            return xpath;
+        }
+
+        @Override
+        public Object getSingle(String name) throws PropertyException {
+            return state.getSingle(internalName(name));
+        }
+
+        @Override
+        public Object[] getArray(String name, Type itemType) throws PropertyException {
+            return typedArray(itemType, state.getArray(internalName(name)));
+        }
+
+        @Override
+        public StateReader getChild(String name, Type type) throws PropertyException {
+            name = internalName(name);
+            T childState = BaseDocument.this.getChild(state, name, type);
+            return childState == null ? null : new BaseStateReader(childState, getChildXPath(name));
+        }
+
+        @Override
+        public List<StateReader> getChildList(String name) throws PropertyException {
+            name = internalName(name);
+            String xp = getChildXPath(name);
+            List<T> childStates = getChildAsList(state, name);
+            List<StateReader> list = new ArrayList<>(childStates.size());
+            int i = 0;
+            for (T childState : childStates) {
+                String xpi = xp + '/' + i++;
+                list.add(childState == null ? null : new BaseStateReader(childState, xpi));
+            }
+            return list;
+        }
+
+        @Override
+        public Blob getBlob() throws PropertyException {
+            return getValueBlob(state, xpath);
+        }
+    }
+
     protected static class BlobWriteInfo<T extends StateAccessor> {
 
         public final T state;
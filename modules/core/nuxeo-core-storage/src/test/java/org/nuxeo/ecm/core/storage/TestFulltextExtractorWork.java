@@ -19,18 +19,28 @@
 
 package org.nuxeo.ecm.core.storage;
 
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.work.AvroWorkCodec;
+import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
 
 import java.util.List;
 import java.util.function.Function;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @since 11.5
  */
 public class TestFulltextExtractorWork {
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Test
     public void testJoinText() {
         var work = new FulltextExtractorWork("dummy", "dummy", true, true, true);
@@ -56,4 +66,27 @@ public class TestFulltextExtractorWork {
         text = work.joinText(List.of("string1", "string2"), Function.identity(), 1);
         assertEquals(" ", text);
     }
+
+    /**
+     * @since 2023.10
+     */
+    @Test
+    public void testAvroCodec() {
+        var codec = new AvroWorkCodec(new FileAvroSchemaStore(folder.getRoot().toPath()));
+        var work = new FulltextExtractorWork("myrepo", "mydoc", true, false, true);
+        work.setOriginatingUsername("bob");
+
+        assertTrue(codec.accept(work));
+        byte[] data = codec.encode(work);
+        assertTrue(data.length < SerializationUtils.serialize(work).length);
+
+        var actual = (FulltextExtractorWork) codec.decode(data);
+        assertEquals(work.getId(), actual.getId());
+        assertEquals("myrepo", actual.getRepositoryName());
+        assertEquals("mydoc", actual.getDocId());
+        assertEquals("bob", actual.getOriginatingUsername());
+        assertTrue(actual.updateSimpleText);
+        assertFalse(actual.updateBinaryText);
+        assertTrue(actual.useJobId);
+    }
 }
@@ -0,0 +1,225 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.nuxeo.ecm.core.storage.dbs.DBSDocument.KEY_CHANGE_TOKEN;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.model.Repository;
+import org.nuxeo.ecm.core.repository.RepositoryService;
+import org.nuxeo.ecm.core.storage.State.StateDiff;
+import org.nuxeo.ecm.core.storage.dbs.DBSConnection;
+import org.nuxeo.ecm.core.storage.dbs.DBSConnection.StateUpdate;
+import org.nuxeo.ecm.core.storage.dbs.DBSTransactionState.ConditionalUpdates;
+import org.nuxeo.ecm.core.storage.mem.MemConnection;
+import org.nuxeo.ecm.core.storage.mem.MemRepository;
+import org.nuxeo.ecm.core.storage.mongodb.MongoDBConnection;
+import org.nuxeo.ecm.core.storage.mongodb.MongoDBRepository;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.core.test.StorageConfiguration;
+import org.nuxeo.ecm.core.test.annotations.Granularity;
+import org.nuxeo.ecm.core.test.annotations.RepositoryConfig;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * Tests the batched document updates of the mem and MongoDB connections, counting the round-trips to the database:
+ * the MongoDB updates and bulk writes, or the changes of the in-memory repository.
+ *
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+@RepositoryConfig(cleanup = Granularity.METHOD)
+public class TestDBSUpdateStates {
+
+    protected static final int SIZE = 10;
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected RepositoryService repositoryService;
+
+    protected StorageConfiguration storage;
+
+    protected DBSConnection connection;
+
+    protected int roundTrips;
+
+    protected List<String> ids;
+
+    @Before
+    public void before() {
+        storage = coreFeature.getStorageConfiguration();
+        assumeTrue("Mem or MongoDB repository only", storage.isDBSMem() || storage.isDBSMongoDB());
+        ids = new ArrayList<>();
+        for (int i = 0; i < SIZE; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("dc:title", "doc" + i);
+            ids.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        connection = newCountingConnection(repositoryService.getRepository(session.getRepositoryName()));
+    }
+
+    @After
+    public void after() throws Exception {
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    protected DBSConnection newCountingConnection(Repository repository) {
+        if (repository instanceof MongoDBRepository mongoDBRepository) {
+            return new MongoDBConnection(mongoDBRepository) {
+
+                @Override
+                protected UpdateResult updateMany(Bson filter, Bson update) {
+                    roundTrips++;
+                    return super.updateMany(filter, update);
+                }
+
+                @Override
+                protected BulkWriteResult bulkWrite(List<WriteModel<Document>> models) {
+                    roundTrips++;
+                    return super.bulkWrite(models);
+                }
+            };
+        }
+        return new MemConnection((MemRepository) repository) {
+
+            @Override
+            protected void beginChange() {
+                roundTrips++;
+                super.beginChange();
+            }
+        };
+    }
+
+    protected static StateDiff titleDiff(String title) {
+        StateDiff diff = new StateDiff();
+        diff.put("dc:title", title);
+        return diff;
+    }
+
+    protected List<StateUpdate> newUpdates(String title) {
+        List<StateUpdate> updates = new ArrayList<>();
+        for (String id : ids) {
+            updates.add(new StateUpdate(id, titleDiff(title), null));
+        }
+        return updates;
+    }
+
+    protected void assertTitles(String title) {
+        for (String id : ids) {
+            assertEquals(title, connection.readState(id).get("dc:title"));
+        }
+    }
+
+    @Test
+    public void testUpdateStatesOneByOne() {
+        for (StateUpdate update : newUpdates("updated")) {
+            connection.updateState(update.id(), update.diff(), update.conditionalUpdates());
+        }
+        assertEquals(SIZE, roundTrips);
+        assertTitles("updated");
+    }
+
+    @Test
+    public void testUpdateStates() {
+        connection.updateStates(newUpdates("updated"));
+        // a single bulk write, or a single change of the in-memory repository
+        assertEquals(1, roundTrips);
+        assertTitles("updated");
+    }
+
+    @Test
+    public void testUpdateStatesWithConditions() {
+        List<StateUpdate> updates = new ArrayList<>();
+        int conditional = 0;
+        for (int i = 0; i < SIZE; i++) {
+            String id = ids.get(i);
+            ConditionalUpdates conditionalUpdates = null;
+            if (i % 3 == 0) {
+                Long token = (Long) connection.readState(id).get(KEY_CHANGE_TOKEN);
+                conditionalUpdates = new ConditionalUpdates();
+                // the token is null when the change token is disabled
+                conditionalUpdates.put(Collections.singletonMap(KEY_CHANGE_TOKEN, token),
+                        Map.of(KEY_CHANGE_TOKEN, 1234L));
+                conditional++;
+            }
+            updates.add(new StateUpdate(id, titleDiff("updated"), conditionalUpdates));
+        }
+        roundTrips = 0;
+        connection.updateStates(updates);
+        // MongoDB sends the documents having conditions one by one, then the others in a single bulk write
+        assertEquals(storage.isDBSMongoDB() ? conditional + 1 : 1, roundTrips);
+        assertTitles("updated");
+        for (int i = 0; i < SIZE; i += 3) {
+            assertEquals(Long.valueOf(1234), connection.readState(ids.get(i)).get(KEY_CHANGE_TOKEN));
+        }
+    }
+
+    @Test
+    public void testUpdateStatesConcurrentDelete() {
+        String deletedId = ids.get(SIZE / 2);
+        // another node deletes one of the documents
+        connection.deleteStates(Set.of(deletedId));
+        roundTrips = 0;
+
+        ConcurrentUpdateException e = assertThrows(ConcurrentUpdateException.class,
+                () -> connection.updateStates(newUpdates("updated")));
+        assertTrue(e.getMessage(), e.getMessage().contains(deletedId));
+        if (storage.isDBSMongoDB()) {
+            // the unmatched filter doesn't stop the bulk write, the other documents are updated
+            assertEquals(1, roundTrips);
+            ids.remove(deletedId);
+            assertTitles("updated");
+        }
+    }
+
+}
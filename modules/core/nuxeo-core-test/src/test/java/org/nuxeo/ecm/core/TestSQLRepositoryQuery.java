@@ -2439,6 +2439,37 @@ public class TestSQLRepositoryQuery {
         res.close();
     }
 
+    // the mem test repository indexes these fields
+    @Test
+    public void testQueryAndFetchOnNonStringFields() {
+        DocumentModel doc = session.createDocumentModel("/", "doc", "MyDocType");
+        doc.setPropertyValue("my:string", "1");
+        doc.setPropertyValue("my:long", Long.valueOf(1));
+        doc.setPropertyValue("my:double", Double.valueOf(1));
+        doc.setPropertyValue("my:date", new GregorianCalendar(2023, Calendar.JANUARY, 1, 12, 0, 0));
+        doc.setPropertyValue("my:doubles", new Double[] { 1.0, 2.5 });
+        doc = session.createDocument(doc);
+        session.save();
+
+        checkQueryAndFetch(1, "my:string = '1'");
+        checkQueryAndFetch(1, "my:long = 1");
+        checkQueryAndFetch(1, "my:long IN (1, 2)");
+        checkQueryAndFetch(0, "my:long = 2");
+        checkQueryAndFetch(1, "my:double = 1");
+        checkQueryAndFetch(1, "my:double IN (1, 2)");
+        checkQueryAndFetch(1, "my:double = 1.0");
+        checkQueryAndFetch(1, "my:doubles = 1");
+        checkQueryAndFetch(1, "DATE(my:date) = DATE '2023-01-01' AND my:double = 1");
+        checkQueryAndFetch(1, "my:long = 1 AND my:double = 1");
+    }
+
+    protected void checkQueryAndFetch(int expected, String where) {
+        String query = "SELECT ecm:uuid FROM MyDocType WHERE " + where;
+        try (IterableQueryResult res = session.queryAndFetch(query, "NXQL")) {
+            assertEquals(where, expected, res.size());
+        }
+    }
+
     @Test
     public void testQueryProjectionDistinctId() {
         makeComplexDoc();
@@ -743,6 +743,71 @@ public class TestSQLRepositorySecurity {
         assertEquals("doccopy", list.get(0).getName());
     }
 
+    protected void grantRead(DocumentModel doc, String username) {
+        ACL acl = new ACLImpl();
+        acl.add(new ACE(username, READ, true));
+        ACP acp = new ACPImpl();
+        acp.addACL(acl);
+        doc.setACP(acp, true);
+    }
+
+    @Test
+    public void testMergedACPCacheInvalidatedBySetACP() {
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/", "folder", "Folder"));
+        session.save();
+
+        CoreSession joeSession = openSessionAs("joe");
+        assertFalse(joeSession.hasPermission(folder.getRef(), READ));
+        // same transaction
+        grantRead(folder, "joe");
+        assertTrue(joeSession.hasPermission(folder.getRef(), READ));
+    }
+
+    @Test
+    public void testMergedACPCacheInvalidatedByParentACLChange() {
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/", "folder", "Folder"));
+        DocumentModel doc = session.createDocument(session.createDocumentModel("/folder", "doc", "File"));
+        session.save();
+
+        CoreSession joeSession = openSessionAs("joe");
+        assertFalse(joeSession.hasPermission(doc.getRef(), READ));
+        // same transaction, the ACE is inherited
+        grantRead(folder, "joe");
+        assertTrue(joeSession.hasPermission(doc.getRef(), READ));
+    }
+
+    @Test
+    public void testMergedACPCacheInvalidatedByMove() {
+        DocumentModel folder1 = session.createDocument(session.createDocumentModel("/", "folder1", "Folder"));
+        session.createDocument(session.createDocumentModel("/", "folder2", "Folder"));
+        DocumentModel doc = session.createDocument(session.createDocumentModel("/folder1", "doc", "File"));
+        grantRead(folder1, "joe");
+        session.save();
+
+        CoreSession joeSession = openSessionAs("joe");
+        assertTrue(joeSession.hasPermission(doc.getRef(), READ));
+        // same transaction, the ACE is not inherited anymore
+        session.move(doc.getRef(), new PathRef("/folder2"), null);
+        assertFalse(joeSession.hasPermission(doc.getRef(), READ));
+    }
+
+    @Test
+    public void testMergedACPCacheInvalidatedByRollback() {
+        DocumentModel folder = session.createDocument(session.createDocumentModel("/", "folder", "Folder"));
+        session.save();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        CoreSession joeSession = openSessionAs("joe");
+        grantRead(folder, "joe");
+        assertTrue(joeSession.hasPermission(folder.getRef(), READ));
+        TransactionHelper.setTransactionRollbackOnly();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        assertFalse(joeSession.hasPermission(folder.getRef(), READ));
+    }
+
     @Test
     public void testEmptyLocalACL() throws Exception {
         DocumentModel doc = session.createDocumentModel("/", "folder", "Folder");
@@ -21,6 +21,8 @@ package org.nuxeo.ecm.core.io.download;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import java.util.List;
+
 import org.junit.Test;
 import org.nuxeo.ecm.core.blob.ByteRange;
 
@@ -89,4 +91,42 @@ public class TestDownloadHelper {
         assertNull(DownloadHelper.parseRange("bytes=foo-bar", 12345));
     }
 
+    @Test
+    public void testParseByteRangeEndAfterLength() throws Exception {
+        ByteRange byteRange = DownloadHelper.parseRange("bytes=100-99999", 12345);
+        assertEquals(100, byteRange.getStart());
+        assertEquals(12344, byteRange.getEnd());
+        assertNull(DownloadHelper.parseRange("bytes=12345-", 12345));
+    }
+
+    @Test
+    public void testParseMultipleByteRanges() throws Exception {
+        List<ByteRange> byteRanges = DownloadHelper.parseRanges("bytes=500-599, 0-99,-45", 12345);
+        assertEquals(3, byteRanges.size());
+        assertEquals("ByteRange(0-99)", byteRanges.get(0).toString());
+        assertEquals("ByteRange(500-599)", byteRanges.get(1).toString());
+        assertEquals("ByteRange(12300-12344)", byteRanges.get(2).toString());
+        // single range
+        byteRanges = DownloadHelper.parseRanges("bytes=42-169", 12345);
+        assertEquals(1, byteRanges.size());
+        assertEquals("ByteRange(42-169)", byteRanges.get(0).toString());
+    }
+
+    @Test
+    public void testParseMultipleByteRangesCoalesced() throws Exception {
+        // overlapping and adjacent ranges
+        List<ByteRange> byteRanges = DownloadHelper.parseRanges("bytes=50-150,0-99,151-200,300-", 1000);
+        assertEquals(2, byteRanges.size());
+        assertEquals("ByteRange(0-200)", byteRanges.get(0).toString());
+        assertEquals("ByteRange(300-999)", byteRanges.get(1).toString());
+    }
+
+    @Test
+    public void testParseUnsupportedMultipleByteRanges() throws Exception {
+        assertNull(DownloadHelper.parseRanges("blablabla", 12345));
+        assertNull(DownloadHelper.parseRanges("bytes=0-99,foo", 12345));
+        assertNull(DownloadHelper.parseRanges("bytes=0-1,2-3,4-5,6-7,8-9,10-11,12-13,14-15,16-17,18-19,20-21,22-23,"
+                + "24-25,26-27,28-29,30-31,32-33", 12345));
+    }
+
 }
@@ -46,6 +46,7 @@ import static org.nuxeo.ecm.core.io.download.DownloadService.REQUEST_ATTR_DOWNLO
 import static org.nuxeo.ecm.core.io.download.DownloadService.REQUEST_HEADER_CLIENT_REASON;
 import static org.nuxeo.ecm.core.io.download.DownloadService.REQUEST_QUERY_PARAM_CLIENT_REASON;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -69,6 +70,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.CoreInstance;
@@ -789,6 +791,66 @@ public class TestDownloadService {
         }
     }
 
+    @Test
+    public void testDownloadFileByteRange() throws IOException {
+        // blob backed by a file, sent from its file channel
+        Blob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes(UTF_8)), "text/plain");
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        assertEquals("World", doTestDownloadByteRanges(blob, "6-10", response));
+        verify(response).setHeader(eq("Content-Range"), eq("bytes 6-10/11"));
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setContentLengthLong(5);
+
+        response = mock(HttpServletResponse.class);
+        assertEquals("Hello World", doTestDownloadByteRanges(blob, null, response));
+        verify(response).setContentLengthLong(11);
+    }
+
+    @Test
+    public void testDownloadMultipleByteRanges() throws IOException {
+        doTestDownloadMultipleByteRanges(Blobs.createBlob("Hello World"));
+        doTestDownloadMultipleByteRanges(
+                new FileBlob(new ByteArrayInputStream("Hello World".getBytes(UTF_8)), "text/plain"));
+    }
+
+    protected void doTestDownloadMultipleByteRanges(Blob blob) throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        String result = doTestDownloadByteRanges(blob, "6-10,0-4", response);
+
+        ArgumentCaptor<String> contentType = ArgumentCaptor.forClass(String.class);
+        verify(response).setContentType(contentType.capture());
+        assertTrue(contentType.getValue(), contentType.getValue().startsWith("multipart/byteranges; boundary="));
+        String boundary = contentType.getValue().substring("multipart/byteranges; boundary=".length());
+        String expected = "\r\n--" + boundary + "\r\n" //
+                + "Content-Type: text/plain\r\n" //
+                + "Content-Range: bytes 0-4/11\r\n\r\n" //
+                + "Hello" //
+                + "\r\n--" + boundary + "\r\n" //
+                + "Content-Type: text/plain\r\n" //
+                + "Content-Range: bytes 6-10/11\r\n\r\n" //
+                + "World" //
+                + "\r\n--" + boundary + "--\r\n";
+        assertEquals(expected, result);
+        verify(response).setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        verify(response).setContentLengthLong(expected.length());
+        verify(response, never()).setHeader(eq("Content-Range"), any());
+    }
+
+    protected String doTestDownloadByteRanges(Blob blob, String range, HttpServletResponse response)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getMethod()).thenReturn("GET");
+        if (range != null) {
+            when(request.getHeader("Range")).thenReturn("bytes=" + range);
+        }
+        ServletOutputStream sos = new DummyServletOutputStream(out);
+        when(response.getOutputStream()).thenReturn(sos);
+
+        downloadService.downloadBlob(DownloadContext.builder(request, response).blob(blob).build());
+        return out.toString(UTF_8);
+    }
+
     @Test
     @Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-default-blob-provider.xml")
     @WithFrameworkProperty(name = NginxConstants.X_ACCEL_ENABLED, value = "true")
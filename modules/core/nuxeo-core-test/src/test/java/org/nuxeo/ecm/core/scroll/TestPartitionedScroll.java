@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.core.scroll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.core.api.security.SecurityConstants.SYSTEM_USERNAME;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.scroll.Scroll;
+import org.nuxeo.ecm.core.api.scroll.ScrollRequest;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(CoreFeature.class)
+public class TestPartitionedScroll extends TestRepositoryScroll {
+
+    @Override
+    public String getScrollName() {
+        return "partitioned";
+    }
+
+    @Test
+    public void testAllPartitions() {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 50; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            expected.add(session.createDocument(doc).getId());
+        }
+        session.save();
+        txFeature.nextTransaction();
+
+        String nxql = "SELECT * FROM File WHERE ecm:isVersion = 0";
+        ScrollRequest request = DocumentScrollRequest.builder(nxql)
+                                                     .name(getScrollName())
+                                                     .username(SYSTEM_USERNAME)
+                                                     .size(7)
+                                                     .build();
+        Set<String> actual = new HashSet<>();
+        try (Scroll scroll = service.scroll(request)) {
+            while (scroll.hasNext()) {
+                scroll.next().forEach(id -> assertTrue(id, actual.add(id)));
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+}
@@ -22,6 +22,7 @@ import static org.nuxeo.runtime.api.Framework.isBooleanPropertyFalse;
 import static org.nuxeo.runtime.api.Framework.isBooleanPropertyTrue;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 
@@ -108,6 +109,17 @@ public abstract class BaseSession implements Session<QueryFilter> {
 
     protected final boolean disableReadVersionPermission;
 
+    /**
+     * Maximum number of merged ACPs cached for access checks.
+     *
+     * @since 2023.10
+     */
+    protected static final int MERGED_ACP_CACHE_SIZE = 1000;
+
+    // merged ACPs of the documents checked in the current transaction, null if not cached
+    // @since 2023.10
+    protected Map<String, ACP> mergedACPCache;
+
     protected BaseSession(Repository repository) {
         this.repository = repository;
         versionAclMode = VersionAclMode.getConfiguration();
@@ -259,6 +271,65 @@ public abstract class BaseSession implements Session<QueryFilter> {
         return mergedAcp;
     }
 
+    /**
+     * Gets the merged ACP of a document for access checks.
+     * <p>
+     * When the implementation started the cache, the merged ACP is computed once per transaction and document, and is
+     * shared by all the checks: it must not be modified.
+     *
+     * @since 2023.10
+     * @see #getMergedACP(Document)
+     */
+    public ACP getCachedMergedACP(Document doc) {
+        if (mergedACPCache == null) {
+            return getMergedACP(doc);
+        }
+        String id = doc.getUUID();
+        ACP acp = mergedACPCache.get(id);
+        if (acp == null && !mergedACPCache.containsKey(id)) {
+            acp = getMergedACP(doc);
+            mergedACPCache.put(id, acp);
+        }
+        return acp;
+    }
+
+    /**
+     * Starts caching the merged ACPs for access checks, to be called when the transaction starts.
+     *
+     * @since 2023.10
+     */
+    protected void startMergedACPCache() {
+        mergedACPCache = new LinkedHashMap<>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, ACP> eldest) {
+                return size() > MERGED_ACP_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * Invalidates the cached merged ACPs, to be called when an ACP changes or when a document moves.
+     *
+     * @since 2023.10
+     */
+    protected void invalidateMergedACPCache() {
+        if (mergedACPCache != null) {
+            mergedACPCache.clear();
+        }
+    }
+
+    /**
+     * Stops caching the merged ACPs for access checks, to be called when the transaction ends.
+     *
+     * @since 2023.10
+     */
+    protected void stopMergedACPCache() {
+        mergedACPCache = null;
+    }
+
     /**
      * Returns the merge of two ACPs.
      */
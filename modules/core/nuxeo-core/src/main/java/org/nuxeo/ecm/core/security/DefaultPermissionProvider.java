@@ -42,10 +42,10 @@ public class DefaultPermissionProvider implements PermissionProviderLocal {
     private final List<PermissionDescriptor> registeredPermissions = new LinkedList<>();
 
     // to be recomputed each time a new PermissionDescriptor is registered -
-    // null means invalidated
-    private Map<String, MergedPermissionDescriptor> mergedPermissions;
+    // null means invalidated, read without lock once computed
+    private volatile Map<String, MergedPermissionDescriptor> mergedPermissions;
 
-    private Map<String, Set<String>> mergedGroups;
+    private volatile Map<String, String[]> mergedGroups;
 
     private final List<PermissionVisibilityDescriptor> registeredPermissionsVisibility = new LinkedList<>();
 
@@ -100,80 +100,98 @@ public class DefaultPermissionProvider implements PermissionProviderLocal {
     }
 
     @Override
-    public synchronized String[] getSubPermissions(String perm) {
+    public String[] getSubPermissions(String perm) {
         List<String> permissions = getPermission(perm).getSubPermissions();
         return permissions.toArray(new String[permissions.size()]);
     }
 
     @Override
-    public synchronized String[] getAliasPermissions(String perm) {
+    public String[] getAliasPermissions(String perm) {
         List<String> permissions = getPermission(perm).getSubPermissions();
         return permissions.toArray(new String[permissions.size()]);
     }
 
-    // called synchronized
     protected MergedPermissionDescriptor getPermission(String perm) {
-        if (mergedPermissions == null) {
-            computeMergedPermissions();
-        }
-        MergedPermissionDescriptor mpd = mergedPermissions.get(perm);
+        MergedPermissionDescriptor mpd = getMergedPermissions().get(perm);
         if (mpd == null) {
             throw new NuxeoException(perm + " is not a registered permission");
         }
         return mpd;
     }
 
+    /**
+     * Gets the merged permissions, computing them if they were invalidated. Readers don't lock once they are computed.
+     *
+     * @since 2023.10
+     */
+    protected Map<String, MergedPermissionDescriptor> getMergedPermissions() {
+        Map<String, MergedPermissionDescriptor> permissions = mergedPermissions;
+        if (permissions == null) {
+            synchronized (this) {
+                if (mergedPermissions == null) {
+                    computeMergedPermissions();
+                }
+                permissions = mergedPermissions;
+            }
+        }
+        return permissions;
+    }
+
     // OG: this is an awkward method prototype left unchanged for BBB
     @Override
-    public synchronized String[] getPermissionGroups(String perm) {
-        if (mergedGroups == null) {
-            computeMergedGroups();
+    public String[] getPermissionGroups(String perm) {
+        Map<String, String[]> groupsByPermission = mergedGroups;
+        if (groupsByPermission == null) {
+            synchronized (this) {
+                if (mergedGroups == null) {
+                    computeMergedGroups();
+                }
+                groupsByPermission = mergedGroups;
+            }
         }
-        Set<String> groups = mergedGroups.get(perm);
-        if (groups != null && !groups.isEmpty()) {
+        String[] groups = groupsByPermission.get(perm);
+        if (groups != null) {
             // OG: why return null instead of an empty array
-            return groups.toArray(new String[groups.size()]);
+            return groups.clone();
         }
         return null;
     }
 
     // called synchronized
     protected void computeMergedGroups() {
-        if (mergedPermissions == null) {
-            computeMergedPermissions();
-        }
-        mergedGroups = new HashMap<>();
+        Map<String, Set<String>> groupsByPermission = new HashMap<>();
 
         // scanning sub permissions to collect direct group membership
-        for (MergedPermissionDescriptor mpd : mergedPermissions.values()) {
+        for (MergedPermissionDescriptor mpd : getMergedPermissions().values()) {
             for (String subPermission : mpd.getSubPermissions()) {
-                Set<String> groups = mergedGroups.get(subPermission);
-                if (groups == null) {
-                    groups = new TreeSet<>();
-                    groups.add(mpd.getName());
-                    mergedGroups.put(subPermission, groups);
-                } else {
-                    if (!groups.contains(mpd.getName())) {
-                        groups.add(mpd.getName());
-                    }
-                }
+                groupsByPermission.computeIfAbsent(subPermission, k -> new TreeSet<>()).add(mpd.getName());
             }
         }
 
         // building the transitive closure on groups membership with a recursive
         // method
         Set<String> alreadyProcessed = new HashSet<>();
-        for (Entry<String, Set<String>> groupEntry : mergedGroups.entrySet()) {
+        for (Entry<String, Set<String>> groupEntry : groupsByPermission.entrySet()) {
             String permissionName = groupEntry.getKey();
             Set<String> groups = groupEntry.getValue();
-            Set<String> allGroups = computeAllGroups(permissionName, alreadyProcessed);
+            Set<String> allGroups = computeAllGroups(groupsByPermission, permissionName, alreadyProcessed);
             groups.addAll(allGroups);
         }
+
+        // publish the arrays once complete, they are read without lock
+        Map<String, String[]> groups = new HashMap<>();
+        groupsByPermission.forEach((permissionName, permissionGroups) -> {
+            if (!permissionGroups.isEmpty()) {
+                groups.put(permissionName, permissionGroups.toArray(new String[permissionGroups.size()]));
+            }
+        });
+        mergedGroups = groups;
     }
 
     // called synchronized
-    protected Set<String> computeAllGroups(String permissionName, Set<String> alreadyProcessed) {
-        Set<String> allGroups = mergedGroups.get(permissionName);
+    protected Set<String> computeAllGroups(Map<String, Set<String>> groupsByPermission, String permissionName,
+            Set<String> alreadyProcessed) {
+        Set<String> allGroups = groupsByPermission.get(permissionName);
         if (allGroups == null) {
             allGroups = new TreeSet<>();
         }
@@ -184,7 +202,7 @@ public class DefaultPermissionProvider implements PermissionProviderLocal {
             // recursive inclusion
             alreadyProcessed.add(permissionName);
             for (String directGroupName : new TreeSet<>(allGroups)) {
-                allGroups.addAll(computeAllGroups(directGroupName, alreadyProcessed));
+                allGroups.addAll(computeAllGroups(groupsByPermission, directGroupName, alreadyProcessed));
             }
             return allGroups;
         }
@@ -192,26 +210,26 @@ public class DefaultPermissionProvider implements PermissionProviderLocal {
 
     // OG: this is an awkward method prototype left unchanged for BBB
     @Override
-    public synchronized String[] getPermissions() {
-        if (mergedPermissions == null) {
-            computeMergedPermissions();
-        }
+    public String[] getPermissions() {
+        Map<String, MergedPermissionDescriptor> permissions = getMergedPermissions();
         // TODO OG: should we add aliased permissions here as well?
-        return mergedPermissions.keySet().toArray(new String[mergedPermissions.size()]);
+        return permissions.keySet().toArray(new String[permissions.size()]);
     }
 
     // called synchronized
     protected void computeMergedPermissions() {
-        mergedPermissions = new HashMap<>();
+        Map<String, MergedPermissionDescriptor> permissions = new HashMap<>();
         for (PermissionDescriptor pd : registeredPermissions) {
-            MergedPermissionDescriptor mpd = mergedPermissions.get(pd.getName());
+            MergedPermissionDescriptor mpd = permissions.get(pd.getName());
             if (mpd == null) {
                 mpd = new MergedPermissionDescriptor(pd);
-                mergedPermissions.put(mpd.getName(), mpd);
+                permissions.put(mpd.getName(), mpd);
             } else {
                 mpd.mergeDescriptor(pd);
             }
         }
+        // publish the map once complete, it is read without lock
+        mergedPermissions = permissions;
     }
 
     @Override
@@ -31,8 +31,10 @@ import org.nuxeo.ecm.core.api.security.ACP;
 import org.nuxeo.ecm.core.api.security.Access;
 import org.nuxeo.ecm.core.api.security.PermissionProvider;
 import org.nuxeo.ecm.core.api.security.SecurityConstants;
+import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
 import org.nuxeo.ecm.core.model.BaseSession;
 import org.nuxeo.ecm.core.model.Document;
+import org.nuxeo.ecm.core.model.Session;
 import org.nuxeo.ecm.core.query.sql.model.SQLQuery;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
@@ -131,11 +133,11 @@ public class SecurityService extends DefaultComponent {
         String[] additionalPrincipals = getPrincipalsToCheck(principal);
 
         // get the ordered list of ACE
-        ACP acp = doc.getSession().getMergedACP(doc);
+        ACP acp = getMergedACP(doc);
 
         // check pluggable policies
-        Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, resolvedPermissions,
-                additionalPrincipals);
+        Access access = securityPolicyService.checkPermission(doc, copyForPolicies(acp), principal, permission,
+                resolvedPermissions, additionalPrincipals);
         if (access != null && !Access.UNKNOWN.equals(access)) {
             return access.toBoolean();
         }
@@ -143,7 +145,7 @@ public class SecurityService extends DefaultComponent {
         if (acp == null) {
             return false; // no ACP on that doc - by default deny
         }
-        access = acp.getAccess(additionalPrincipals, resolvedPermissions);
+        access = getAccess(acp, additionalPrincipals, resolvedPermissions);
 
         return access.toBoolean();
     }
@@ -163,15 +165,16 @@ public class SecurityService extends DefaultComponent {
         }
 
         String[] additionalPrincipals = getPrincipalsToCheck(principal);
-        ACP acp = doc.getSession().getMergedACP(doc);
+        ACP acp = getMergedACP(doc);
+        ACP policiesAcp = copyForPolicies(acp);
 
         List<String> result = new ArrayList<>();
         for (String permission : permissions) {
             String[] resolvedPermissions = getPermissionsToCheck(permission);
-            Access access = securityPolicyService.checkPermission(doc, acp, principal, permission, resolvedPermissions,
-                    additionalPrincipals);
+            Access access = securityPolicyService.checkPermission(doc, policiesAcp, principal, permission,
+                    resolvedPermissions, additionalPrincipals);
             if (access == null || Access.UNKNOWN.equals(access)) {
-                access = acp == null ? null : acp.getAccess(additionalPrincipals, resolvedPermissions);
+                access = acp == null ? null : getAccess(acp, additionalPrincipals, resolvedPermissions);
             }
             if (access != null && access.toBoolean()) {
                 result.add(permission);
@@ -180,6 +183,45 @@ public class SecurityService extends DefaultComponent {
         return result;
     }
 
+    /**
+     * Gets the merged ACP of a document for access checks, cached by the session during the transaction if possible.
+     *
+     * @since 2023.10
+     */
+    protected static ACP getMergedACP(Document doc) {
+        Session<?> session = doc.getSession();
+        if (session instanceof BaseSession) {
+            return ((BaseSession) session).getCachedMergedACP(doc);
+        }
+        return session.getMergedACP(doc);
+    }
+
+    /**
+     * Gets the merged ACP handed out to the security policies: a copy, as the merged ACP may be cached and shared by
+     * the checks of the transaction, and a policy could modify it.
+     *
+     * @since 2023.10
+     */
+    protected ACP copyForPolicies(ACP acp) {
+        if (acp == null || securityPolicyService.getPolicies().isEmpty()) {
+            return acp;
+        }
+        return acp.clone();
+    }
+
+    /**
+     * Gets the access of the first effective ACE matching the principals and permissions, using the compiled access
+     * table of the ACP if available, which is cached with it.
+     *
+     * @since 2023.10
+     */
+    protected static Access getAccess(ACP acp, String[] principals, String[] permissions) {
+        if (acp instanceof ACPImpl) {
+            return ((ACPImpl) acp).getCompiledACP().getAccess(principals, permissions);
+        }
+        return acp.getAccess(principals, permissions);
+    }
+
     /**
      * Provides the full list of all permissions or groups of permissions that contain the given one (inclusive).
      * <p>
@@ -37,6 +37,9 @@ import org.nuxeo.common.xmap.annotation.XObject;
 @XObject("command")
 public class CommandLineDescriptor {
 
+    /** @since 2023.10 */
+    public static final Duration DEFAULT_QUEUE_TIMEOUT = Duration.ofMinutes(1);
+
     @XNode("@name")
     protected String name;
 
@@ -92,6 +95,14 @@ public class CommandLineDescriptor {
     @XNode("timeout")
     public Duration timeout;
 
+    // @since 2023.10
+    @XNode("maxConcurrency")
+    protected int maxConcurrency;
+
+    // @since 2023.10
+    @XNode("queueTimeout")
+    protected Duration queueTimeout;
+
     public String getName() {
         if (name == null) {
             return getCommand();
@@ -164,4 +175,22 @@ public class CommandLineDescriptor {
     public Duration getTimeout() {
         return timeout;
     }
+
+    /**
+     * Returns the maximum number of concurrent executions of the command, {@code 0} for no limit.
+     *
+     * @since 2023.10
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Returns the maximum time to wait for an execution slot when the command reached its maximum concurrency.
+     *
+     * @since 2023.10
+     */
+    public Duration getQueueTimeout() {
+        return queueTimeout == null ? DEFAULT_QUEUE_TIMEOUT : queueTimeout;
+    }
 }
@@ -20,10 +20,15 @@
 
 package org.nuxeo.ecm.platform.commandline.executor.service;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.logging.log4j.LogManager;
@@ -38,13 +43,23 @@ import org.nuxeo.ecm.platform.commandline.executor.service.cmdtesters.CommandTes
 import org.nuxeo.ecm.platform.commandline.executor.service.cmdtesters.CommandTester;
 import org.nuxeo.ecm.platform.commandline.executor.service.executors.Executor;
 import org.nuxeo.ecm.platform.commandline.executor.service.executors.ShellExecutor;
+import org.nuxeo.runtime.RuntimeServiceException;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.DefaultComponent;
 
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 /**
  * POJO implementation of the {@link CommandLineExecutorService} interface. Also handles the Extension Point logic.
+ * <p>
+ * Since 2023.10, the concurrent executions of a command can be limited with its {@code maxConcurrency}, the other
+ * executions wait for a slot up to its {@code queueTimeout}.
  *
  * @author tiry
  */
@@ -75,13 +90,35 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
     // @since 11.5
     protected boolean useTimeout;
 
+    /** @since 2023.10 */
+    protected static final MetricName EXEC_TIMER = MetricName.build("nuxeo.commandline.exec.timer");
+
+    /** @since 2023.10 */
+    protected static final MetricName QUEUED_COUNTER = MetricName.build("nuxeo.commandline.queued");
+
+    /** @since 2023.10 */
+    protected static final MetricName FAILURE_COUNTER = MetricName.build("nuxeo.commandline.failures");
+
+    /** @since 2023.10 */
+    protected static final MetricName REJECTED_COUNTER = MetricName.build("nuxeo.commandline.rejected");
+
+    /**
+     * The execution slots of the commands having a maximum concurrency.
+     *
+     * @since 2023.10
+     */
+    protected Map<String, Semaphore> slots = new ConcurrentHashMap<>();
+
+    /** @since 2023.10 */
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
     @Override
     public void activate(ComponentContext context) {
         commandDescriptors = new HashMap<>();
         env = new EnvironmentDescriptor();
         testers = new HashMap<>();
         executors = new HashMap<>();
-
+        slots = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -96,6 +133,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         env = null;
         testers = null;
         executors = null;
+        slots = null;
     }
 
     @Override
@@ -122,6 +160,7 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
 
             if (!desc.isEnabled()) {
                 commandDescriptors.remove(name);
+                slots.remove(name);
                 log.info("Command configured to not be enabled: {}", name);
                 return;
             }
@@ -158,6 +197,11 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
             }
             desc.setAvailable(cmdAvailable);
             commandDescriptors.put(name, desc);
+            if (desc.getMaxConcurrency() > 0) {
+                slots.put(name, new Semaphore(desc.getMaxConcurrency(), true));
+            } else {
+                slots.remove(name);
+            }
         } else if (EP_CMDTESTER.equals(extensionPoint)) {
             CommandTesterDescriptor desc = (CommandTesterDescriptor) contribution;
             CommandTester tester;
@@ -188,7 +232,55 @@ public class CommandLineExecutorComponent extends DefaultComponent implements Co
         Executor executor = executors.get(cmdDesc.getExecutor());
         EnvironmentDescriptor environment = new EnvironmentDescriptor().merge(
                 env).merge(envDescriptors.getOrDefault(commandName, envDescriptors.get(cmdDesc.getCommand())));
-        return executor.exec(cmdDesc, params, environment);
+        Semaphore semaphore = slots.get(commandName);
+        if (semaphore != null && !acquire(commandName, semaphore, cmdDesc.getQueueTimeout())) {
+            registry.counter(REJECTED_COUNTER.tagged("command", commandName)).inc();
+            String message = String.format("No execution slot released in %s for command: %s, max concurrency: %d",
+                    cmdDesc.getQueueTimeout(), commandName, cmdDesc.getMaxConcurrency());
+            log.warn(message);
+            return new ExecResult(commandName, new TimeoutException(message));
+        }
+        boolean successful = false;
+        try {
+            long t0 = System.nanoTime();
+            ExecResult result = executor.exec(cmdDesc, params, environment);
+            registry.timer(EXEC_TIMER.tagged("command", commandName))
+                    .update(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+            successful = result.isSuccessful();
+            return result;
+        } finally {
+            // an exception thrown by the executor is a failure as well
+            if (!successful) {
+                registry.counter(FAILURE_COUNTER.tagged("command", commandName)).inc();
+            }
+            if (semaphore != null) {
+                semaphore.release();
+            }
+        }
+    }
+
+    /**
+     * Waits for an execution slot of the command, returns {@code false} if none was released before the timeout.
+     *
+     * @since 2023.10
+     */
+    protected boolean acquire(String commandName, Semaphore semaphore, Duration timeout) {
+        try {
+            // unlike tryAcquire(), doesn't barge ahead of the queued callers of the fair semaphore
+            if (semaphore.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            Counter queued = registry.counter(QUEUED_COUNTER.tagged("command", commandName));
+            queued.inc();
+            try {
+                return semaphore.tryAcquire(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } finally {
+                queued.dec();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeServiceException(e);
+        }
     }
 
     @Override
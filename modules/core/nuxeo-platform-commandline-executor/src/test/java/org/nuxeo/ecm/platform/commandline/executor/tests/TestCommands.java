@@ -28,6 +28,9 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.inject.Inject;
 
@@ -38,6 +41,7 @@ import org.junit.runner.RunWith;
 import org.nuxeo.common.Environment;
 import org.nuxeo.ecm.platform.commandline.executor.api.CmdParameters;
 import org.nuxeo.ecm.platform.commandline.executor.api.CommandLineExecutorService;
+import org.nuxeo.ecm.platform.commandline.executor.api.CommandNotAvailable;
 import org.nuxeo.ecm.platform.commandline.executor.api.ExecResult;
 import org.nuxeo.ecm.platform.commandline.executor.service.executors.ShellExecutor;
 import org.nuxeo.runtime.api.Framework;
@@ -166,4 +170,30 @@ public class TestCommands {
         TransactionHelper.startTransaction();
     }
 
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.commandline.executor:OSGI-INF/commandline-command-test-contrib.xml")
+    public void testMaxConcurrency() throws Exception {
+        Assume.assumeFalse("Requires sleep", SystemUtils.IS_OS_WINDOWS);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<ExecResult> future1 = executor.submit(this::execLimited);
+            Future<ExecResult> future2 = executor.submit(this::execLimited);
+            ExecResult result1 = future1.get();
+            ExecResult result2 = future2.get();
+            // the second execution doesn't get a slot while the first one sleeps
+            assertTrue(result1.isSuccessful() ^ result2.isSuccessful());
+            ExecResult rejected = result1.isSuccessful() ? result2 : result1;
+            assertFalse(rejected.isCommandInTimeout());
+            assertTrue(rejected.getError().getCause().getMessage().contains("No execution slot released"));
+        } finally {
+            executor.shutdownNow();
+        }
+        // the slot is released
+        assertTrue(execLimited().isSuccessful());
+    }
+
+    protected ExecResult execLimited() throws CommandNotAvailable {
+        return cles.execCommand("limited", cles.getDefaultCmdParameters());
+    }
+
 }
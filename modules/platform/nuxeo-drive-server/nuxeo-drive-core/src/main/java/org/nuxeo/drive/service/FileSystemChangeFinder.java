@@ -65,6 +65,17 @@ public interface FileSystemChangeFinder {
      */
     long getUpperBound();
 
+    /**
+     * Returns the upper bound of the range clause in the change query, given the lower bound of the client. The
+     * implementation can wait for a change after the lower bound before returning.
+     *
+     * @param lowerBound the lower bound of the client, negative if it has none yet
+     * @since 2023.10
+     */
+    default long getUpperBound(long lowerBound) {
+        return getUpperBound();
+    }
+
     /**
      * Returns the upper bound of the range clause in the change query.
      *
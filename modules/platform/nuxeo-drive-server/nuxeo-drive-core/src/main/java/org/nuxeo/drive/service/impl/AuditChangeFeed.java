@@ -0,0 +1,286 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.service.impl;
+
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_CATEGORY;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_ID;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.drive.service.NuxeoDriveEvents;
+import org.nuxeo.ecm.core.api.event.CoreEventConstants;
+import org.nuxeo.ecm.core.query.sql.model.OrderByExprs;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.core.query.sql.model.QueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.AuditLogger;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.AuditReader;
+import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * In memory feed of the audit log entries relevant to Nuxeo Drive, keyed by log id.
+ * <p>
+ * The feed reads the new audit log entries at most once per refresh interval, whatever the number of clients polling
+ * the changes, and keeps a compact copy of the relevant ones. The change summaries are then computed from the entries
+ * of the requested log id range only. The feed covers the log ids greater than the greatest log id at the time of its
+ * first refresh, or than the log id of the last evicted entry once it is full: a range that is not covered must be
+ * queried from the audit.
+ *
+ * @since 2023.10
+ */
+public class AuditChangeFeed {
+
+    private static final Logger log = LogManager.getLogger(AuditChangeFeed.class);
+
+    protected static final Set<String> DOCUMENT_EVENTS = Set.of("documentCreated", "documentModified",
+            "documentMoved", "documentCreatedByCopy", "documentRestored", "addedToCollection", "documentProxyPublished",
+            "documentLocked", "documentUnlocked", "documentUntrashed", "blobDigestUpdated");
+
+    protected static final Set<String> EXTENDED_INFOS = Set.of("fileSystemItemId", "fileSystemItemName",
+            "impactedUserName", CoreEventConstants.BLOB_DIGEST_UPDATED_OLD_DIGEST);
+
+    protected static final int PAGE_SIZE = 1000;
+
+    protected final NavigableMap<Long, LogEntry> entries = new ConcurrentSkipListMap<>();
+
+    protected final int maxSize;
+
+    protected final long refreshInterval;
+
+    protected final Object monitor = new Object();
+
+    /** The feed covers the log ids greater than this one. */
+    protected volatile long floorId = -1;
+
+    /** The greatest log id read from the audit, -1 until the first refresh. */
+    protected volatile long upperBound = -1;
+
+    protected volatile boolean initialized;
+
+    /** Whether a thread is reading the audit, guarded by the monitor. */
+    protected boolean refreshing;
+
+    protected long lastRefresh;
+
+    public AuditChangeFeed(int maxSize, Duration refreshInterval) {
+        this.maxSize = maxSize;
+        this.refreshInterval = refreshInterval.toMillis();
+    }
+
+    /**
+     * Reads the new audit log entries if the refresh interval has elapsed since the last refresh.
+     * <p>
+     * A single thread reads the audit at a time, without holding the monitor: the other threads get the current upper
+     * bound meanwhile, or wait for the first refresh to complete.
+     *
+     * @param upperBoundSupplier supplies the greatest log id of the audit
+     * @return the greatest log id read from the audit
+     */
+    public long refresh(LongSupplier upperBoundSupplier) {
+        long previousUpperBound;
+        synchronized (monitor) {
+            while (!initialized && refreshing) {
+                try {
+                    monitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return upperBound;
+                }
+            }
+            long now = System.currentTimeMillis();
+            if (refreshing || initialized && now - lastRefresh < refreshInterval) {
+                return upperBound;
+            }
+            refreshing = true;
+            lastRefresh = now;
+            previousUpperBound = upperBound;
+        }
+        long newUpperBound = previousUpperBound;
+        boolean read = false;
+        try {
+            long auditUpperBound = upperBoundSupplier.getAsLong();
+            if (!initialized) {
+                floorId = auditUpperBound;
+                newUpperBound = auditUpperBound;
+                log.debug("Initialized change feed at log id: {}", auditUpperBound);
+            } else if (auditUpperBound > previousUpperBound) {
+                readEntries(previousUpperBound, auditUpperBound);
+                newUpperBound = auditUpperBound;
+            }
+            read = true;
+        } finally {
+            synchronized (monitor) {
+                // the upper bound is published once the entries are read
+                if (read) {
+                    upperBound = newUpperBound;
+                    initialized = true;
+                }
+                refreshing = false;
+                monitor.notifyAll();
+            }
+        }
+        return newUpperBound;
+    }
+
+    /**
+     * Waits for an entry with a log id greater than the given lower bound, refreshing the feed until the timeout.
+     * <p>
+     * The audit is read in a transaction of its own on each refresh, the caller should not hold a transaction while
+     * waiting.
+     *
+     * @return the greatest log id read from the audit
+     */
+    public long await(long lowerBound, Duration timeout, LongSupplier upperBoundSupplier) {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        TransactionHelper.runInTransaction(() -> refresh(upperBoundSupplier));
+        // a range not covered by the feed is queried from the audit right away
+        while (lowerBound >= floorId && entries.higherKey(lowerBound) == null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            synchronized (monitor) {
+                // checked again under the monitor not to miss the notification of a refresh
+                if (lowerBound < floorId || entries.higherKey(lowerBound) != null) {
+                    break;
+                }
+                try {
+                    monitor.wait(Math.min(remaining, Math.max(refreshInterval, 1)));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            // the thread waking up first refreshes the feed for the others
+            TransactionHelper.runInTransaction(() -> refresh(upperBoundSupplier));
+        }
+        return upperBound;
+    }
+
+    /**
+     * Returns {@code true} if the feed holds all the relevant entries of the given log id range.
+     */
+    public boolean covers(long lowerBound, long upperBound) {
+        return initialized && lowerBound >= floorId && upperBound <= this.upperBound;
+    }
+
+    /**
+     * Gets the entries of the given repository in the given log id range, the lower bound being excluded.
+     */
+    public Collection<LogEntry> getEntries(String repositoryId, long lowerBound, long upperBound) {
+        List<LogEntry> result = new ArrayList<>();
+        for (LogEntry entry : entries.subMap(lowerBound, false, upperBound, true).values()) {
+            if (repositoryId.equals(entry.getRepositoryId())) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    protected void readEntries(long lowerBound, long upperBound) {
+        AuditReader auditReader = Framework.getService(AuditReader.class);
+        AuditLogger auditLogger = Framework.getService(AuditLogger.class);
+        long lastId = lowerBound;
+        int count = 0;
+        List<LogEntry> page;
+        do {
+            QueryBuilder queryBuilder = new AuditQueryBuilder().predicate(Predicates.gt(LOG_ID, lastId))
+                                                               .and(Predicates.lte(LOG_ID, upperBound))
+                                                               .and(Predicates.in(LOG_CATEGORY,
+                                                                       "eventDocumentCategory",
+                                                                       "eventLifeCycleCategory",
+                                                                       NuxeoDriveEvents.EVENT_CATEGORY))
+                                                               .order(OrderByExprs.asc(LOG_ID))
+                                                               .limit(PAGE_SIZE);
+            page = auditReader.queryLogs(queryBuilder);
+            for (LogEntry entry : page) {
+                lastId = Math.max(lastId, entry.getId());
+                if (isRelevant(entry)) {
+                    entries.put(entry.getId(), copy(auditLogger, entry));
+                    count++;
+                }
+            }
+        } while (page.size() == PAGE_SIZE);
+        log.debug("Read {} entries between log ids {} and {}", count, lowerBound, upperBound);
+        while (entries.size() > maxSize) {
+            floorId = entries.pollFirstEntry().getKey();
+        }
+    }
+
+    /**
+     * Returns {@code true} if the entry can be part of a change summary, see
+     * {@link AuditChangeFinder#queryAuditEntries}.
+     */
+    protected boolean isRelevant(LogEntry entry) {
+        String category = entry.getCategory();
+        String eventId = entry.getEventId();
+        if ("eventDocumentCategory".equals(category)) {
+            return DOCUMENT_EVENTS.contains(eventId);
+        } else if ("eventLifeCycleCategory".equals(category)) {
+            return "lifecycle_transition_event".equals(eventId) && !"deleted".equals(entry.getDocLifeCycle());
+        } else {
+            return NuxeoDriveEvents.EVENT_CATEGORY.equals(category) && !"rootUnregistered".equals(eventId);
+        }
+    }
+
+    /**
+     * Copies the fields and extended infos used to compute the changes.
+     */
+    protected LogEntry copy(AuditLogger auditLogger, LogEntry entry) {
+        LogEntry copy = auditLogger.newLogEntry();
+        copy.setId(entry.getId());
+        copy.setCategory(entry.getCategory());
+        copy.setEventId(entry.getEventId());
+        copy.setEventDate(entry.getEventDate());
+        copy.setRepositoryId(entry.getRepositoryId());
+        copy.setDocUUID(entry.getDocUUID());
+        copy.setDocPath(entry.getDocPath());
+        copy.setDocLifeCycle(entry.getDocLifeCycle());
+        Map<String, ExtendedInfo> extendedInfos = new HashMap<>();
+        entry.getExtendedInfos().forEach((key, value) -> {
+            if (EXTENDED_INFOS.contains(key)) {
+                extendedInfos.put(key, value);
+            }
+        });
+        copy.setExtendedInfos(extendedInfos);
+        return copy;
+    }
+
+    /**
+     * Sorts the entries as the audit query does, most recent first.
+     */
+    public static List<LogEntry> sort(Collection<LogEntry> entries) {
+        List<LogEntry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparing(LogEntry::getEventDate).reversed());
+        return sorted;
+    }
+
+}
@@ -18,7 +18,9 @@
  */
 package org.nuxeo.drive.service.impl;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -26,6 +28,7 @@ import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.DurationUtils;
 import org.nuxeo.drive.adapter.FileSystemItem;
 import org.nuxeo.drive.adapter.RootlessItemException;
 import org.nuxeo.drive.adapter.impl.AbstractFileSystemItem;
@@ -47,9 +50,14 @@ import org.nuxeo.ecm.platform.audit.api.AuditReader;
 import org.nuxeo.ecm.platform.audit.api.ExtendedInfo;
 import org.nuxeo.ecm.platform.audit.api.LogEntry;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 /**
  * Implementation of {@link FileSystemChangeFinder} using the {@link AuditReader}.
+ * <p>
+ * Since 2023.10, the {@value #CHANGE_FEED_PARAMETER} parameter enables an {@link AuditChangeFeed} from which the
+ * changes are computed instead of querying the audit for each client. The {@value #LONG_POLL_TIMEOUT_PARAMETER}
+ * parameter then makes the clients wait for a change when there is none.
  *
  * @author Antoine Taillefer
  */
@@ -57,11 +65,37 @@ public class AuditChangeFinder implements FileSystemChangeFinder {
 
     private static final Logger log = LogManager.getLogger(AuditChangeFinder.class);
 
+    /** @since 2023.10 */
+    public static final String CHANGE_FEED_PARAMETER = "changeFeed";
+
+    /** @since 2023.10 */
+    public static final String CHANGE_FEED_SIZE_PARAMETER = "changeFeedSize";
+
+    /** @since 2023.10 */
+    public static final String CHANGE_FEED_REFRESH_INTERVAL_PARAMETER = "changeFeedRefreshInterval";
+
+    /** @since 2023.10 */
+    public static final String LONG_POLL_TIMEOUT_PARAMETER = "longPollTimeout";
+
     protected Map<String, String> parameters = new HashMap<>();
 
+    /** @since 2023.10 */
+    protected AuditChangeFeed changeFeed;
+
+    /** @since 2023.10 */
+    protected Duration longPollTimeout = Duration.ZERO;
+
     @Override
     public void handleParameters(Map<String, String> parameters) {
         this.parameters.putAll(parameters);
+        if (Boolean.parseBoolean(this.parameters.get(CHANGE_FEED_PARAMETER))) {
+            int size = Integer.parseInt(this.parameters.getOrDefault(CHANGE_FEED_SIZE_PARAMETER, "100000"));
+            Duration refreshInterval = DurationUtils.parsePositive(
+                    this.parameters.get(CHANGE_FEED_REFRESH_INTERVAL_PARAMETER), Duration.ofSeconds(1));
+            changeFeed = new AuditChangeFeed(size, refreshInterval);
+            longPollTimeout = DurationUtils.parsePositive(this.parameters.get(LONG_POLL_TIMEOUT_PARAMETER),
+                    Duration.ZERO);
+        }
     }
 
     @Override
@@ -81,7 +115,7 @@ public class AuditChangeFinder implements FileSystemChangeFinder {
         // Find changes from the log under active roots or events that are
         // linked to the un-registration or deletion of formerly synchronized
         // roots
-        List<LogEntry> entries = queryAuditEntries(session, activeRoots, collectionSyncRootMemberIds, lowerBound,
+        List<LogEntry> entries = queryEntries(session, activeRoots, collectionSyncRootMemberIds, lowerBound,
                 upperBound, limit);
 
         // First pass over the entries to check if a "NuxeoDrive" event has
@@ -109,7 +143,7 @@ public class AuditChangeFinder implements FileSystemChangeFinder {
                 SynchronizationRoots updatedActiveRoots = synchronizationRoots.get(session.getRepositoryName());
                 Set<String> updatedCollectionSyncRootMemberIds = driveManager.getCollectionSyncRootMemberIds(
                         session.getPrincipal()).get(session.getRepositoryName());
-                entries = queryAuditEntries(session, updatedActiveRoots, updatedCollectionSyncRootMemberIds, lowerBound,
+                entries = queryEntries(session, updatedActiveRoots, updatedCollectionSyncRootMemberIds, lowerBound,
                         upperBound, limit);
                 break;
             }
@@ -235,6 +269,86 @@ public class AuditChangeFinder implements FileSystemChangeFinder {
         return entries.get(0).getId();
     }
 
+    /**
+     * Returns the upper bound of the range clause in the change query, read from the change feed if enabled. If a long
+     * poll timeout is configured, waits for a change after the given lower bound until the timeout.
+     * <p>
+     * The transaction of the caller is committed before waiting and a new one is started after, so that the waiting
+     * requests don't hold database connections.
+     *
+     * @since 2023.10
+     */
+    @Override
+    public long getUpperBound(long lowerBound) {
+        if (changeFeed == null) {
+            return getUpperBound();
+        }
+        if (lowerBound >= 0 && !longPollTimeout.isZero()) {
+            boolean transaction = TransactionHelper.isTransactionActiveOrMarkedRollback();
+            if (transaction) {
+                TransactionHelper.commitOrRollbackTransaction();
+            }
+            try {
+                return changeFeed.await(lowerBound, longPollTimeout, this::getUpperBound);
+            } finally {
+                if (transaction) {
+                    TransactionHelper.startTransaction();
+                }
+            }
+        }
+        return changeFeed.refresh(this::getUpperBound);
+    }
+
+    /**
+     * Gets the entries from the change feed if enabled and covering the given range, from the audit otherwise.
+     *
+     * @since 2023.10
+     */
+    protected List<LogEntry> queryEntries(CoreSession session, SynchronizationRoots activeRoots,
+            Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
+        if (changeFeed != null && changeFeed.covers(lowerBound, upperBound)) {
+            return queryChangeFeedEntries(session, activeRoots, collectionSyncRootMemberIds, lowerBound, upperBound,
+                    limit);
+        }
+        return queryAuditEntries(session, activeRoots, collectionSyncRootMemberIds, lowerBound, upperBound, limit);
+    }
+
+    /**
+     * Gets the entries from the change feed with the same filtering as {@link #queryAuditEntries}.
+     *
+     * @since 2023.10
+     */
+    protected List<LogEntry> queryChangeFeedEntries(CoreSession session, SynchronizationRoots activeRoots,
+            Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
+        Set<String> rootPaths = activeRoots.getPaths();
+        Collection<LogEntry> entries = changeFeed.getEntries(session.getRepositoryName(), lowerBound, upperBound);
+        List<LogEntry> filteredEntries = new ArrayList<>();
+        for (LogEntry entry : entries) {
+            if (NuxeoDriveEvents.EVENT_CATEGORY.equals(entry.getCategory()) || !rootPaths.isEmpty()
+                    && (isUnderRoots(entry.getDocPath(), rootPaths) || collectionSyncRootMemberIds != null
+                            && collectionSyncRootMemberIds.contains(entry.getDocUUID()))) {
+                filteredEntries.add(entry);
+            }
+        }
+        List<LogEntry> sortedEntries = AuditChangeFeed.sort(filteredEntries);
+        if (sortedEntries.size() > limit) {
+            sortedEntries = sortedEntries.subList(0, limit);
+        }
+        return postFilterEntries(session, sortedEntries);
+    }
+
+    protected boolean isUnderRoots(String docPath, Set<String> rootPaths) {
+        if (docPath == null) {
+            return false;
+        }
+        for (String rootPath : rootPaths) {
+            if (docPath.startsWith(rootPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @SuppressWarnings("unchecked")
     protected List<LogEntry> queryAuditEntries(CoreSession session, SynchronizationRoots activeRoots,
             Set<String> collectionSyncRootMemberIds, long lowerBound, long upperBound, int limit) {
@@ -293,9 +407,15 @@ public class AuditChangeFinder implements FileSystemChangeFinder {
         log.debug("Querying audit log for changes: {} with params: {}", auditQuery, params);
 
         List<LogEntry> entries = (List<LogEntry>) auditService.nativeQuery(auditQuery, params, 1, limit);
+        return postFilterEntries(session, entries);
+    }
 
-        // Post filter the output to remove (un)registration that are unrelated
-        // to the current user.
+    /**
+     * Post filters the entries to remove (un)registration that are unrelated to the current user.
+     *
+     * @since 2023.10
+     */
+    protected List<LogEntry> postFilterEntries(CoreSession session, List<LogEntry> entries) {
         List<LogEntry> postFilteredEntries = new ArrayList<>();
         String principalName = session.getPrincipal().getName();
         for (LogEntry entry : entries) {
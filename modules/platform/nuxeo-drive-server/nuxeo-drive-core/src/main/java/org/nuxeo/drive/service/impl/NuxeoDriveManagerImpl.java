@@ -339,7 +339,7 @@ public class NuxeoDriveManagerImpl extends DefaultComponent implements NuxeoDriv
         allRepositories.addAll(lastSyncRootRefs.keySet());
         allRepositories.addAll(collectionSyncRootMemberIds.keySet());
         long syncDate;
-        long upperBound = changeFinder.getUpperBound();
+        long upperBound = changeFinder.getUpperBound(lowerBound);
         // Truncate sync date to 0 milliseconds
         syncDate = System.currentTimeMillis();
         syncDate = syncDate - (syncDate % 1000);
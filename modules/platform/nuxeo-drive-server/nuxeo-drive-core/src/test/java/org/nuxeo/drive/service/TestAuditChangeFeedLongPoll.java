@@ -0,0 +1,114 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.service;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.drive.service.impl.AuditChangeFinder.CHANGE_FEED_PARAMETER;
+import static org.nuxeo.drive.service.impl.AuditChangeFinder.CHANGE_FEED_REFRESH_INTERVAL_PARAMETER;
+import static org.nuxeo.drive.service.impl.AuditChangeFinder.LONG_POLL_TIMEOUT_PARAMETER;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.transaction.Transaction;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.drive.service.impl.AuditChangeFinder;
+import org.nuxeo.drive.test.NuxeoDriveFeature;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.TransactionalFeature;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Tests the long poll of the {@link AuditChangeFinder} using a change feed.
+ *
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(NuxeoDriveFeature.class)
+public class TestAuditChangeFeedLongPoll {
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected TransactionalFeature txFeature;
+
+    @Before
+    public void createDocument() {
+        // the audit must not be empty for the clients to have a lower bound
+        session.createDocument(session.createDocumentModel("/", "doc1", "File"));
+        txFeature.nextTransaction();
+    }
+
+    protected AuditChangeFinder newChangeFinder(String longPollTimeout) {
+        AuditChangeFinder changeFinder = new AuditChangeFinder();
+        changeFinder.handleParameters(Map.of(CHANGE_FEED_PARAMETER, "true", CHANGE_FEED_REFRESH_INTERVAL_PARAMETER,
+                "10ms", LONG_POLL_TIMEOUT_PARAMETER, longPollTimeout));
+        return changeFinder;
+    }
+
+    @Test
+    public void testLongPollReturnsOnChange() throws Exception {
+        AuditChangeFinder changeFinder = newChangeFinder("20s");
+        long lowerBound = changeFinder.getUpperBound(-1);
+        assertTrue(lowerBound >= 0);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> upperBound = executor.submit(() -> {
+                TransactionHelper.startTransaction();
+                try {
+                    Transaction transaction = TransactionHelper.lookupTransactionManager().getTransaction();
+                    long result = changeFinder.getUpperBound(lowerBound);
+                    // the transaction was committed while waiting and a new one was started
+                    assertTrue(TransactionHelper.isTransactionActive());
+                    assertNotSame(transaction, TransactionHelper.lookupTransactionManager().getTransaction());
+                    return result;
+                } finally {
+                    TransactionHelper.commitOrRollbackTransaction();
+                }
+            });
+            session.createDocument(session.createDocumentModel("/", "doc2", "File"));
+            txFeature.nextTransaction();
+            assertTrue(upperBound.get(10, TimeUnit.SECONDS) > lowerBound);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLongPollTimeout() {
+        AuditChangeFinder changeFinder = newChangeFinder("500ms");
+        long lowerBound = changeFinder.getUpperBound(-1);
+
+        // without a relevant change, the client waits until the timeout
+        long start = System.currentTimeMillis();
+        assertTrue(changeFinder.getUpperBound(lowerBound) >= lowerBound);
+        assertTrue(System.currentTimeMillis() - start >= 500);
+        assertTrue(TransactionHelper.isTransactionActive());
+    }
+
+}
@@ -0,0 +1,30 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.drive.test;
+
+import org.nuxeo.drive.service.impl.AuditChangeFeed;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.RunnerFeature;
+
+/**
+ * Enables the {@link AuditChangeFeed} of the audit change finder.
+ *
+ * @since 2023.10
+ */
+@Deploy("org.nuxeo.drive.core:OSGI-INF/test-nuxeodrive-change-feed-contrib.xml")
+public class NuxeoDriveChangeFeedFeature implements RunnerFeature {
+
+}
@@ -41,6 +41,7 @@ import org.nuxeo.elasticsearch.api.ElasticSearchIndexing;
 import org.nuxeo.elasticsearch.commands.IndexingCommand;
 import org.nuxeo.elasticsearch.commands.IndexingCommand.Type;
 import org.nuxeo.elasticsearch.io.JsonESDocumentWriter;
+import org.nuxeo.elasticsearch.io.StateJsonESDocumentWriter;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.metrics.MetricsService;
 import org.opensearch.action.bulk.BulkItemResponse;
@@ -109,7 +110,7 @@ public class ElasticSearchIndexingImpl implements ElasticSearchIndexing {
         deleteTimer = registry.timer(MetricName.build("nuxeo.elasticsearch.service.timer").tagged("service", "delete"));
         bulkIndexTimer = registry.timer(
                 MetricName.build("nuxeo.elasticsearch.service.timer").tagged("service", "bulkIndex"));
-        this.jsonESDocumentWriter = new JsonESDocumentWriter();// default writer
+        this.jsonESDocumentWriter = new StateJsonESDocumentWriter();// default writer
         this.useExternalVersion = esa.useExternalVersion();
     }
 
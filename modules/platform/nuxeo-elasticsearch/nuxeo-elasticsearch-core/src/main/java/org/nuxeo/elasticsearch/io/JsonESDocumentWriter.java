@@ -28,6 +28,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -38,14 +39,19 @@ import org.nuxeo.ecm.automation.core.util.JSONPropertyWriter;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.PropertyException;
 import org.nuxeo.ecm.core.api.model.Property;
 import org.nuxeo.ecm.core.api.model.PropertyConversionException;
+import org.nuxeo.ecm.core.api.model.impl.ComplexProperty;
 import org.nuxeo.ecm.core.api.security.ACE;
 import org.nuxeo.ecm.core.api.security.ACL;
 import org.nuxeo.ecm.core.api.security.ACP;
 import org.nuxeo.ecm.core.api.security.impl.ACPImpl;
 import org.nuxeo.ecm.core.io.download.DownloadService;
 import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.ecm.core.security.SecurityService;
 import org.nuxeo.ecm.platform.tag.TagService;
 import org.nuxeo.ecm.platform.web.common.vh.VirtualHostHelper;
@@ -216,11 +222,13 @@ public class JsonESDocumentWriter {
         }
 
         SchemaManager schemaManager = Framework.getService(SchemaManager.class);
-        String prefix = schemaManager.getSchema(schema).getNamespace().prefix;
+        Schema schemaType = schemaManager.getSchema(schema);
+        String prefix = schemaType.getNamespace().prefix;
         if (prefix == null || prefix.length() == 0) {
             prefix = schema;
         }
-        JSONPropertyWriter writer = JSONPropertyWriter.create().writeNull(false).writeEmpty(false).prefix(prefix);
+        JSONPropertyWriter writer = new FieldOrderJSONPropertyWriter();
+        writer.writeNull(false).writeEmpty(false).prefix(prefix);
 
         if (request != null) {
             DownloadService downloadService = Framework.getService(DownloadService.class);
@@ -236,7 +244,7 @@ public class JsonESDocumentWriter {
             jg.writeString(extractTextFromHtml(html));
             return;
         }
-        for (Property p : properties) {
+        for (Property p : sortByFieldOrder(schemaType, properties)) {
             try {
                 writer.writeProperty(jg, p);
             } catch (ClassCastException e) {
@@ -246,6 +254,52 @@ public class JsonESDocumentWriter {
         }
     }
 
+    /**
+     * Sorts the children of a complex property in the order of the fields of its type, which does not depend on the
+     * order in which the children were accessed.
+     *
+     * @since 2023.10
+     */
+    protected static Collection<Property> sortByFieldOrder(ComplexType type, Collection<Property> properties) {
+        Map<String, Property> byName = new LinkedHashMap<>();
+        for (Property p : properties) {
+            byName.put(p.getName(), p);
+        }
+        List<Property> sorted = new ArrayList<>(properties.size());
+        for (Field field : type.getFields()) {
+            Property p = byName.remove(field.getName().getPrefixedName());
+            if (p != null) {
+                sorted.add(p);
+            }
+        }
+        // children that are not fields of the type, if any, come last
+        sorted.addAll(byName.values());
+        return sorted;
+    }
+
+    /**
+     * Property writer writing the children of complex properties in the order of the fields of their type.
+     *
+     * @since 2023.10
+     */
+    protected static class FieldOrderJSONPropertyWriter extends JSONPropertyWriter {
+
+        @Override
+        protected void writeMapProperty(JsonGenerator jg, ComplexProperty prop, PropertyConsumer fieldNameWriter)
+                throws PropertyException, IOException {
+            if (!writeEmpty && (prop == null || prop.getChildren().isEmpty())) {
+                return;
+            }
+            fieldNameWriter.accept(jg, prop);
+            jg.writeStartObject();
+            PropertyConsumer childFieldWriter = (j, p) -> j.writeFieldName(p.getName());
+            for (Property p : sortByFieldOrder(prop.getType(), prop.getChildren())) {
+                writeProperty(jg, p, childFieldWriter);
+            }
+            jg.writeEndObject();
+        }
+    }
+
     protected static String extractTextFromHtml(String html) {
         if (StringUtils.isBlank(html)) {
             return "";
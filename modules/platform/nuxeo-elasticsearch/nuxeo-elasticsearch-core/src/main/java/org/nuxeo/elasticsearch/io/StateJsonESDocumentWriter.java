@@ -0,0 +1,292 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch.io;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+import org.nuxeo.ecm.core.api.AbstractSession;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentNotFoundException;
+import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
+import org.nuxeo.ecm.core.api.model.PropertyConversionException;
+import org.nuxeo.ecm.core.model.Document;
+import org.nuxeo.ecm.core.model.Document.StateReader;
+import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.TypeConstants;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.ListType;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.SimpleType;
+import org.nuxeo.ecm.core.schema.types.Type;
+import org.nuxeo.ecm.core.schema.types.primitives.BinaryType;
+import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
+import org.nuxeo.ecm.core.schema.types.primitives.DoubleType;
+import org.nuxeo.ecm.core.schema.types.primitives.IntegerType;
+import org.nuxeo.ecm.core.schema.types.primitives.LongType;
+import org.nuxeo.runtime.api.Framework;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * JSon writer for elasticsearch that writes the schemas straight from the stored state of the document, without
+ * loading its properties.
+ * <p>
+ * The output is byte for byte the one of {@link JsonESDocumentWriter}, both writing the fields of a complex value in
+ * the order of the fields of its type. {@link JsonESDocumentWriter} is used for schemas that are already loaded in the
+ * document model, that have deprecated properties, or when the document is not backed by a storage document.
+ *
+ * @since 2023.10
+ */
+public class StateJsonESDocumentWriter extends JsonESDocumentWriter {
+
+    @Override
+    protected void writeSchemas(JsonGenerator jg, DocumentModel doc, String[] schemas) throws IOException {
+        Document document = getDocument(doc);
+        if (document == null) {
+            super.writeSchemas(jg, doc, schemas);
+            return;
+        }
+        if (schemas == null || (schemas.length == 1 && "*".equals(schemas[0]))) {
+            schemas = doc.getSchemas();
+        }
+        for (String schema : schemas) {
+            if (!writeState(jg, doc, document, schema)) {
+                writeProperties(jg, doc, schema, null);
+            }
+        }
+    }
+
+    /**
+     * Gets the storage document of a document model that was loaded from its session and not modified since.
+     */
+    protected Document getDocument(DocumentModel doc) {
+        if (!(doc instanceof DocumentModelImpl) || doc.getRef() == null || doc.isDirty()) {
+            return null;
+        }
+        CoreSession session = doc.getCoreSession();
+        if (!(session instanceof AbstractSession)) {
+            return null;
+        }
+        Document document;
+        try {
+            document = ((AbstractSession) session).getSession().getDocumentByUUID(doc.getId());
+        } catch (DocumentNotFoundException e) {
+            return null;
+        }
+        // facets added to the document model but not saved yet change its schemas
+        if (!document.getAllFacets().equals(doc.getFacets())) {
+            return null;
+        }
+        return document;
+    }
+
+    /**
+     * Writes the properties of a schema from the stored state of the document.
+     *
+     * @return {@code false} if the properties must be written from the document model instead
+     */
+    protected boolean writeState(JsonGenerator jg, DocumentModel doc, Document document, String schemaName)
+            throws IOException {
+        if (!doc.hasSchema(schemaName) || ((DocumentModelImpl) doc).isSchemaLoaded(schemaName)) {
+            return false;
+        }
+        SchemaManager schemaManager = Framework.getService(SchemaManager.class);
+        Schema schema = schemaManager.getSchema(schemaName);
+        if (schema == null || !schemaManager.getDeprecatedProperties(schemaName).isEmpty()) {
+            // deprecated properties are read from their fallback
+            return false;
+        }
+        StateReader state = document.getStateReader(schema);
+        if (state == null) {
+            return false;
+        }
+        if (schema.getFieldsCount() == 0) {
+            return true;
+        }
+        String prefix = schema.getNamespace().prefix;
+        if (prefix == null || prefix.length() == 0) {
+            prefix = schemaName;
+        }
+        if ("note".equals(schemaName)) {
+            Field mimeTypeField = schema.getField("mime_type");
+            Object mimeType = getSingle(state, mimeTypeField);
+            if ("text/html".equals(mimeType)) {
+                writeScalar(jg, prefix + ':' + mimeTypeField.getName().getLocalName(), mimeTypeField, mimeType);
+                jg.writeFieldName("note:note");
+                String html = (String) getSingle(state, schema.getField("note"));
+                jg.writeString(extractTextFromHtml(html));
+                return true;
+            }
+        }
+        for (Field field : getFields(schema)) {
+            try {
+                writeField(jg, prefix + ':' + field.getName().getLocalName(), field, state, false, false);
+            } catch (ClassCastException e) {
+                throw new PropertyConversionException(String.format("Corrupted property: %s, on document: %s",
+                        field.getName().getPrefixedName(), doc), e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the fields of a complex type in the order used by {@link JsonESDocumentWriter#sortByFieldOrder}.
+     */
+    protected Collection<Field> getFields(ComplexType type) {
+        return type.getFields();
+    }
+
+    /**
+     * Writes a field of a complex value the same way as {@code JSONPropertyWriter} does for its property.
+     * <p>
+     * The state of the complex value is {@code null} when it is not stored, in which case its complex children are
+     * only written if {@code expand} is {@code true}. The {@code materialized} flag is set inside complex lists, whose
+     * items are written from their value, where complex values that are not stored have an empty map value.
+     *
+     * @param name the field name to write, or {@code null} for a list item
+     */
+    protected void writeField(JsonGenerator jg, String name, Field field, StateReader state, boolean materialized,
+            boolean expand) throws IOException {
+        Type type = field.getType();
+        String key = field.getName().getPrefixedName();
+        if (type.isSimpleType()) {
+            Object value = state == null ? null : state.getSingle(key);
+            writeScalar(jg, name, field, value == null ? field.getDefaultValue() : value);
+        } else if (type.isComplexType()) {
+            if (TypeConstants.isContentType(type)) {
+                StateReader blobState = state == null ? null : state.getChild(key, type);
+                writeBlob(jg, name, blobState == null ? null : blobState.getBlob());
+            } else if (state != null) {
+                writeComplex(jg, name, (ComplexType) type, state.getChild(key, type), materialized, materialized);
+            } else if (expand) {
+                writeComplex(jg, name, (ComplexType) type, null, materialized, false);
+            }
+        } else {
+            Type itemType = ((ListType) type).getFieldType();
+            if (itemType.isSimpleType()) {
+                Object[] array = state == null ? null : state.getArray(key, itemType);
+                if (array == null) {
+                    // an empty array is written as is, like its property value
+                    array = (Object[]) field.getDefaultValue();
+                }
+                writeArray(jg, name, itemType, array);
+            } else if (state != null) {
+                List<StateReader> items = state.getChildList(key);
+                if (!items.isEmpty()) {
+                    writeFieldName(jg, name);
+                    jg.writeStartArray();
+                    for (StateReader item : items) {
+                        // list items are never phantoms once read
+                        writeComplex(jg, null, (ComplexType) itemType, item, true, false);
+                    }
+                    jg.writeEndArray();
+                }
+            }
+        }
+    }
+
+    protected void writeComplex(JsonGenerator jg, String name, ComplexType type, StateReader state,
+            boolean materialized, boolean expand) throws IOException {
+        if (type.getFieldsCount() == 0) {
+            return;
+        }
+        writeFieldName(jg, name);
+        jg.writeStartObject();
+        for (Field field : getFields(type)) {
+            writeField(jg, field.getName().getPrefixedName(), field, state, materialized, expand);
+        }
+        jg.writeEndObject();
+    }
+
+    protected void writeScalar(JsonGenerator jg, String name, Field field, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        Type type = field.getType();
+        if (type instanceof SimpleType) {
+            type = ((SimpleType) type).getPrimitiveType();
+        }
+        writeFieldName(jg, name);
+        if (type instanceof BooleanType) {
+            jg.writeBoolean((Boolean) value);
+        } else if (type instanceof LongType) {
+            jg.writeNumber(((Number) value).longValue());
+        } else if (type instanceof DoubleType) {
+            jg.writeNumber(((Number) value).doubleValue());
+        } else if (type instanceof IntegerType) {
+            jg.writeNumber(((Number) value).intValue());
+        } else if (type instanceof BinaryType) {
+            jg.writeBinary((byte[]) value);
+        } else {
+            jg.writeString(type.encode(value));
+        }
+    }
+
+    protected void writeArray(JsonGenerator jg, String name, Type itemType, Object[] array) throws IOException {
+        if (array == null) {
+            return;
+        }
+        writeFieldName(jg, name);
+        jg.writeStartArray();
+        for (Object o : array) {
+            jg.writeString(itemType.encode(o));
+        }
+        jg.writeEndArray();
+    }
+
+    protected void writeBlob(JsonGenerator jg, String name, Blob blob) throws IOException {
+        if (blob == null) {
+            return;
+        }
+        writeFieldName(jg, name);
+        jg.writeStartObject();
+        String v = blob.getFilename();
+        if (v != null) {
+            jg.writeStringField("name", v);
+        }
+        v = blob.getMimeType();
+        if (v != null) {
+            jg.writeStringField("mime-type", v);
+        }
+        v = blob.getEncoding();
+        if (v != null) {
+            jg.writeStringField("encoding", v);
+        }
+        v = blob.getDigest();
+        if (v != null) {
+            jg.writeStringField("digest", v);
+        }
+        jg.writeNumberField("length", blob.getLength());
+        jg.writeEndObject();
+    }
+
+    protected static void writeFieldName(JsonGenerator jg, String name) throws IOException {
+        if (name != null) {
+            jg.writeFieldName(name);
+        }
+    }
+
+    protected static Object getSingle(StateReader state, Field field) {
+        Object value = state.getSingle(field.getName().getPrefixedName());
+        return value == null ? field.getDefaultValue() : value;
+    }
+
+}
@@ -22,7 +22,6 @@ package org.nuxeo.elasticsearch.query;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ES_SCORE_FIELD;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.FULLTEXT_FIELD;
 
-import java.io.StringReader;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -230,7 +229,7 @@ public final class NxqlQueryConverter {
         String query = completeQueryWithSelect(nxql);
         SQLQuery nxqlQuery;
         try {
-            nxqlQuery = SQLQueryParser.parse(new StringReader(query));
+            nxqlQuery = SQLQueryParser.parse(query);
         } catch (QueryParseException e) {
             e.addInfo("Query: " + query);
             throw e;
@@ -0,0 +1,205 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.elasticsearch.test.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
+import org.nuxeo.ecm.core.api.impl.DocumentModelImpl;
+import org.nuxeo.ecm.core.api.model.Property;
+import org.nuxeo.ecm.core.api.model.impl.ComplexProperty;
+import org.nuxeo.ecm.core.api.model.impl.ListProperty;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.elasticsearch.io.JsonESDocumentWriter;
+import org.nuxeo.elasticsearch.io.StateJsonESDocumentWriter;
+import org.nuxeo.elasticsearch.test.RepositoryElasticSearchFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RepositoryElasticSearchFeature.class)
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestStateJsonESDocumentWriter {
+
+    @Inject
+    protected CoreSession session;
+
+    @Test
+    public void testSameOutputForFile() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc.setPropertyValue("dc:subjects", new String[] { "art", "sciences" });
+        doc.setPropertyValue("dc:issued", new GregorianCalendar(2023, 9, 1));
+        doc.setPropertyValue("file:content", (Serializable) Blobs.createBlob("main", "text/plain", "UTF-8", "a.txt"));
+        doc.setPropertyValue("files:files", (Serializable) List.of( //
+                Map.of("file", Blobs.createBlob("first", "text/plain", null, "b.txt")), //
+                Map.of()));
+        doc = session.createDocument(doc);
+        session.save();
+        assertSameOutput(doc.getRef(), "file");
+    }
+
+    @Test
+    public void testSameOutputForEmptyFile() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc = session.createDocument(doc);
+        session.save();
+        assertSameOutput(doc.getRef(), "files");
+    }
+
+    @Test
+    public void testSameOutputForEmptyArray() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.addFacet("CollectionMember");
+        doc.setPropertyValue("collectionMember:collectionIds", new String[0]);
+        doc = session.createDocument(doc);
+        session.save();
+        assertSameOutput(doc.getRef(), "collectionMember");
+    }
+
+    @Test
+    public void testSameOutputForComplexList() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.addFacet("HasRelatedText");
+        doc.setPropertyValue("relatedtext:relatedtextresources", (Serializable) List.of( //
+                Map.of("relatedtextid", "123", "relatedtext", "some text"), //
+                Map.of("relatedtext", "other text"), //
+                Map.of("relatedtextid", "456")));
+        doc = session.createDocument(doc);
+        session.save();
+        assertSameOutput(doc.getRef(), "relatedtext");
+    }
+
+    @Test
+    public void testSameOutputWhateverTheAccessOrder() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.addFacet("HasRelatedText");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc.setPropertyValue("dc:description", "Some description");
+        doc.setPropertyValue("dc:subjects", new String[] { "art" });
+        doc.setPropertyValue("relatedtext:relatedtextresources", (Serializable) List.of( //
+                Map.of("relatedtextid", "123", "relatedtext", "some text")));
+        doc = session.createDocument(doc);
+        session.save();
+
+        doc = session.getDocument(doc.getRef());
+        // fill the children of the complex properties in the reverse order of the fields
+        accessInReverseFieldOrder(((DocumentModelImpl) doc).getPart("dublincore"));
+        accessInReverseFieldOrder(((DocumentModelImpl) doc).getPart("relatedtext"));
+        byte[] expected = writeBytes(new JsonESDocumentWriter(), doc);
+        doc = session.getDocument(doc.getRef());
+        assertArrayEquals(expected, writeBytes(new StateJsonESDocumentWriter(), doc));
+    }
+
+    protected static void accessInReverseFieldOrder(Property property) {
+        if (property instanceof ListProperty) {
+            for (Property child : property.getChildren()) {
+                accessInReverseFieldOrder(child);
+            }
+        } else if (property instanceof ComplexProperty) {
+            List<Field> fields = new ArrayList<>(((ComplexType) property.getType()).getFields());
+            Collections.reverse(fields);
+            for (Field field : fields) {
+                accessInReverseFieldOrder(((ComplexProperty) property).getChild(field));
+            }
+        }
+    }
+
+    @Test
+    public void testSameOutputForHtmlNote() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "note", "Note");
+        doc.setPropertyValue("note:mime_type", "text/html");
+        doc.setPropertyValue("note:note", "<p>Some <b>bold</b> text</p>");
+        doc = session.createDocument(doc);
+        session.save();
+        assertSameOutput(doc.getRef(), "note");
+    }
+
+    @Test
+    public void testSameOutputForProxy() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc = session.createDocument(doc);
+        DocumentModel proxy = session.publishDocument(doc, session.getRootDocument());
+        session.save();
+        assertSameOutput(proxy.getRef(), "file");
+    }
+
+    @Test
+    public void testModifiedDocumentUsesProperties() throws IOException {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc = session.createDocument(doc);
+        session.save();
+
+        doc = session.getDocument(doc.getRef());
+        doc.setPropertyValue("dc:description", "not saved");
+        String json = write(new StateJsonESDocumentWriter(), doc);
+        assertTrue(json, json.contains("\"dc:description\":\"not saved\""));
+        assertEquals(write(new JsonESDocumentWriter(), doc), json);
+    }
+
+    protected void assertSameOutput(DocumentRef ref, String schema) throws IOException {
+        DocumentModel doc = session.getDocument(ref);
+        byte[] expected = writeBytes(new JsonESDocumentWriter(), doc);
+        doc = session.getDocument(ref);
+        byte[] actual = writeBytes(new StateJsonESDocumentWriter(), doc);
+        // the schema was not loaded through properties
+        assertFalse(((DocumentModelImpl) doc).isSchemaLoaded(schema));
+        assertEquals(new String(expected), new String(actual));
+        assertArrayEquals(expected, actual);
+    }
+
+    protected static String write(JsonESDocumentWriter writer, DocumentModel doc) throws IOException {
+        return new String(writeBytes(writer, doc));
+    }
+
+    protected static byte[] writeBytes(JsonESDocumentWriter writer, DocumentModel doc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator jg = new JsonFactory().createGenerator(out)) {
+            writer.writeESDocument(jg, doc, null, null);
+        }
+        return out.toByteArray();
+    }
+
+}
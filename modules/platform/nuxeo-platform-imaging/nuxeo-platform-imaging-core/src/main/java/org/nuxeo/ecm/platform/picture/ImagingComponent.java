@@ -19,21 +19,36 @@
  */
 package org.nuxeo.ecm.platform.picture;
 
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.CASCADE_CONVERSIONS;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.CONVERSION_FORMAT;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.CONVERSION_THREADS;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.JPEG_CONVERSATION_FORMAT;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_DEPTH;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_HEIGHT;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_WIDTH;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.RESIZE_CHAIN;
 
 import java.awt.Point;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -68,11 +83,16 @@ import org.nuxeo.ecm.platform.picture.core.libraryselector.LibrarySelector;
 import org.nuxeo.ecm.platform.picture.magick.utils.ImageIdentifier;
 import org.nuxeo.ecm.platform.picture.magick.utils.ImageResizer;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
 import org.nuxeo.runtime.model.ComponentContext;
 import org.nuxeo.runtime.model.ComponentInstance;
 import org.nuxeo.runtime.model.DefaultComponent;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
 public class ImagingComponent extends DefaultComponent implements ImagingService {
 
     private static final Logger log = LogManager.getLogger(ImagingComponent.class);
@@ -85,6 +105,40 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
 
     protected PictureConversionRegistry pictureConversionRegistry = new PictureConversionRegistry();
 
+    /** @since 2023.10 */
+    protected static final MetricName VIEW_TIMER = MetricName.build("nuxeo.picture.views.timer");
+
+    protected final MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+
+    /**
+     * Computes the independent views of a picture in parallel, {@code null} if they are computed sequentially.
+     *
+     * @since 2023.10
+     */
+    protected ExecutorService viewsExecutor;
+
+    @Override
+    public void start(ComponentContext context) {
+        int threads = Integer.parseInt(getConfigurationValue(CONVERSION_THREADS, "1"));
+        if (threads > 1) {
+            AtomicInteger count = new AtomicInteger();
+            viewsExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "Nuxeo-PictureViews-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public void stop(ComponentContext context) throws InterruptedException {
+        if (viewsExecutor != null) {
+            viewsExecutor.shutdownNow();
+            viewsExecutor.awaitTermination(10, TimeUnit.SECONDS);
+            viewsExecutor = null;
+        }
+    }
+
     @Override
     public List<PictureConversion> getPictureConversions() {
         return pictureConversionRegistry.getPictureConversions();
@@ -238,16 +292,7 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         if (imageInfo == null) {
             imageInfo = getImageInfo(blob);
         }
-        List<PictureView> views = new ArrayList<>();
-        for (PictureConversion pictureConversion : pictureConversions) {
-            try {
-                views.add(computeView(blob, pictureConversion, imageInfo, convert));
-            } catch (NuxeoException e) {
-                log.warn("Unable to compute view: {} exception message: {}", pictureConversion::getId, e::getMessage);
-                log.debug(e, e);
-            }
-        }
-        return views;
+        return computeViews(null, blob, pictureConversions, imageInfo, convert);
     }
 
     protected PictureView computeView(Blob blob, PictureConversion pictureConversion, ImageInfo imageInfo,
@@ -270,14 +315,16 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
 
     protected PictureView computeView(DocumentModel doc, Blob blob, PictureConversion pictureConversion,
             ImageInfo imageInfo) {
+        Point size = getViewSize(pictureConversion, imageInfo);
+        return computeView(doc, blob, blob, imageInfo, pictureConversion, size);
+    }
 
-        String title = pictureConversion.getId();
-
-        Map<String, Serializable> pictureViewMap = new HashMap<>();
-        pictureViewMap.put(PictureView.FIELD_TITLE, title);
-        pictureViewMap.put(PictureView.FIELD_DESCRIPTION, pictureConversion.getDescription());
-        pictureViewMap.put(PictureView.FIELD_TAG, pictureConversion.getTag());
-
+    /**
+     * Gets the size of the view of a picture for a conversion.
+     *
+     * @since 2023.10
+     */
+    protected Point getViewSize(PictureConversion pictureConversion, ImageInfo imageInfo) {
         Point size = new Point(imageInfo.getWidth(), imageInfo.getHeight());
 
         /*
@@ -287,11 +334,34 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         if (pictureConversion.getMaxSize() != null) {
             size = ImageResizer.scaleToMax(size.x, size.y, pictureConversion.getMaxSize());
         }
+        return size;
+    }
+
+    /**
+     * Computes the view of a picture for a conversion from a source, which is either the picture itself or a larger
+     * view of the picture.
+     *
+     * @param blob the picture
+     * @param source the blob to convert
+     * @param sourceInfo the image info of the source
+     * @param size the size of the view
+     * @since 2023.10
+     */
+    protected PictureView computeView(DocumentModel doc, Blob blob, Blob source, ImageInfo sourceInfo,
+            PictureConversion pictureConversion, Point size) {
+        long start = System.nanoTime();
+        String title = pictureConversion.getId();
+
+        Map<String, Serializable> pictureViewMap = new HashMap<>();
+        pictureViewMap.put(PictureView.FIELD_TITLE, title);
+        pictureViewMap.put(PictureView.FIELD_DESCRIPTION, pictureConversion.getDescription());
+        pictureViewMap.put(PictureView.FIELD_TAG, pictureConversion.getTag());
 
         // Use the registered conversion format
         String conversionFormat = getConfigurationValue(CONVERSION_FORMAT, JPEG_CONVERSATION_FORMAT);
 
-        Blob viewBlob = callPictureConversionChain(doc, blob, pictureConversion, imageInfo, size, conversionFormat);
+        Blob viewBlob = callPictureConversionChain(doc, source, pictureConversion, sourceInfo, size,
+                conversionFormat);
 
         // If the extension of the generated binary is empty, it's fetched from the mimetype
         String extension = FilenameUtils.getExtension(viewBlob.getFilename());
@@ -314,6 +384,10 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
             pictureViewMap.put(PictureView.FIELD_WIDTH, viewBlobImageInfo.getWidth());
             pictureViewMap.put(PictureView.FIELD_HEIGHT, viewBlobImageInfo.getHeight());
         }
+        long duration = System.nanoTime() - start;
+        registry.timer(VIEW_TIMER.tagged("view", title)).update(duration, TimeUnit.NANOSECONDS);
+        log.debug("Computed view: {} of size: {}x{} from: {} in {}ms", title, size.x, size.y, source.getFilename(),
+                TimeUnit.NANOSECONDS.toMillis(duration));
         return new PictureViewImpl(pictureViewMap);
     }
 
@@ -337,9 +411,7 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
 
         try (OperationContext context = new OperationContext()) {
             if (doc != null) {
-                DocumentModel pictureDocument = doc.getCoreSession().getDocument(doc.getRef());
-                pictureDocument.detach(true);
-                context.put("pictureDocument", pictureDocument);
+                context.put("pictureDocument", getDetachedDocument(doc));
             }
             context.setInput(blob);
 
@@ -354,25 +426,152 @@ public class ImagingComponent extends DefaultComponent implements ImagingService
         }
     }
 
+    /**
+     * Returns a detached copy of the document, or the document itself if it is already detached.
+     *
+     * @since 2023.10
+     */
+    protected DocumentModel getDetachedDocument(DocumentModel doc) {
+        CoreSession session = doc.getCoreSession();
+        if (session == null) {
+            return doc;
+        }
+        DocumentModel pictureDocument = session.getDocument(doc.getRef());
+        pictureDocument.detach(true);
+        return pictureDocument;
+    }
+
     @Override
     public List<PictureView> computeViewsFor(DocumentModel doc, Blob blob, ImageInfo imageInfo, boolean convert) {
-        List<PictureConversion> pictureConversions = getPictureConversions();
-        List<PictureView> pictureViews = new ArrayList<>(pictureConversions.size());
-
-        for (PictureConversion pictureConversion : pictureConversions) {
+        List<PictureConversion> pictureConversions = new ArrayList<>();
+        for (PictureConversion pictureConversion : getPictureConversions()) {
             if (canApplyPictureConversion(pictureConversion, doc)) {
+                pictureConversions.add(pictureConversion);
+            }
+        }
+        return computeViews(doc, blob, pictureConversions, imageInfo, convert);
+    }
+
+    /**
+     * Computes the views of a picture, keeping the order of the conversions.
+     * <p>
+     * When {@link ImagingConvertConstants#CASCADE_CONVERSIONS} is enabled, the views resized by the
+     * {@link ImagingConvertConstants#RESIZE_CHAIN} are computed from the largest to the smallest, each one from the
+     * previous one, so that the picture is only decoded once. The views of the other conversions are computed from the
+     * picture, in parallel if several {@link ImagingConvertConstants#CONVERSION_THREADS} are configured.
+     *
+     * @since 2023.10
+     */
+    protected List<PictureView> computeViews(DocumentModel doc, Blob blob, List<PictureConversion> pictureConversions,
+            ImageInfo imageInfo, boolean convert) {
+        if (pictureConversions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        // the worker threads don't use the session of the document
+        DocumentModel pictureDocument = doc == null || !convert ? doc : getDetachedDocument(doc);
+        PictureView[] views = new PictureView[pictureConversions.size()];
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<Integer> cascaded = new ArrayList<>();
+        boolean cascade = convert && Boolean.parseBoolean(getConfigurationValue(CASCADE_CONVERSIONS, "false"));
+        for (int i = 0; i < views.length; i++) {
+            int index = i;
+            PictureConversion pictureConversion = pictureConversions.get(index);
+            if (cascade && RESIZE_CHAIN.equals(pictureConversion.getChainId())) {
+                cascaded.add(index);
+                continue;
+            }
+            tasks.add(() -> {
+                views[index] = computeViewOrNull(() -> computeView(pictureDocument, blob, pictureConversion, imageInfo,
+                        convert), pictureConversion, doc);
+                return null;
+            });
+        }
+        if (!cascaded.isEmpty()) {
+            tasks.add(0, () -> {
+                computeCascadedViews(pictureDocument, blob, pictureConversions, cascaded, imageInfo, views);
+                return null;
+            });
+        }
+        runTasks(tasks);
+        return Arrays.stream(views).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Computes the views from the largest to the smallest, each one from the previous one.
+     *
+     * @since 2023.10
+     */
+    protected void computeCascadedViews(DocumentModel doc, Blob blob, List<PictureConversion> pictureConversions,
+            List<Integer> indexes, ImageInfo imageInfo, PictureView[] views) {
+        List<Integer> sorted = new ArrayList<>(indexes);
+        sorted.sort(Comparator.comparingInt((Integer index) -> {
+            Point size = getViewSize(pictureConversions.get(index), imageInfo);
+            return Math.max(size.x, size.y);
+        }).reversed());
+        Blob source = blob;
+        ImageInfo sourceInfo = imageInfo;
+        for (int index : sorted) {
+            PictureConversion pictureConversion = pictureConversions.get(index);
+            Point size = getViewSize(pictureConversion, imageInfo);
+            Blob viewSource = source;
+            ImageInfo viewSourceInfo = sourceInfo;
+            PictureView view = computeViewOrNull(
+                    () -> computeView(doc, blob, viewSource, viewSourceInfo, pictureConversion, size),
+                    pictureConversion, doc);
+            views[index] = view;
+            // the next smaller view is computed from this one when it could be identified
+            if (view != null && view.getImageInfo() != null) {
+                source = view.getBlob();
+                sourceInfo = view.getImageInfo();
+            }
+        }
+    }
+
+    /** @since 2023.10 */
+    protected PictureView computeViewOrNull(Supplier<PictureView> supplier, PictureConversion pictureConversion,
+            DocumentModel doc) {
+        try {
+            return supplier.get();
+        } catch (NuxeoException e) {
+            if (doc == null) {
+                log.warn("Unable to compute view: {} exception message: {}", pictureConversion::getId, e::getMessage);
+            } else {
+                log.warn("Unable to compute view: {} for document: {} exception message: {}",
+                        pictureConversion::getId, doc::toString, e::getMessage);
+            }
+            log.debug(e, e);
+            return null;
+        }
+    }
+
+    /** @since 2023.10 */
+    protected void runTasks(List<Callable<Void>> tasks) {
+        ExecutorService executor = viewsExecutor;
+        if (executor == null || tasks.size() == 1) {
+            for (Callable<Void> task : tasks) {
                 try {
-                    PictureView pictureView = computeView(doc, blob, pictureConversion, imageInfo, convert);
-                    pictureViews.add(pictureView);
-                } catch (NuxeoException e) {
-                    log.warn("Unable to compute view: {} for document: {} exception message: {}",
-                            pictureConversion::getId, doc::toString, e::getMessage);
-                    log.debug(e, e);
+                    task.call();
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new NuxeoException(e);
                 }
             }
+            return;
+        }
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new NuxeoException(e.getCause());
         }
-
-        return pictureViews;
     }
 
     protected boolean canApplyPictureConversion(PictureConversion pictureConversion, DocumentModel doc) {
@@ -54,6 +54,29 @@ public class ImagingConvertConstants {
 
     public static final String JPEG_CONVERSATION_FORMAT = "jpg";
 
+    /**
+     * The default chain resizing a picture to the size of a {@link PictureConversion}.
+     *
+     * @since 2023.10
+     */
+    public static final String RESIZE_CHAIN = "Image.Blob.Resize";
+
+    /**
+     * Configuration parameter enabling the computation of the views resized by the {@link #RESIZE_CHAIN} from the next
+     * larger view instead of the original picture, {@code false} by default.
+     *
+     * @since 2023.10
+     */
+    public static final String CASCADE_CONVERSIONS = "cascadeConversions";
+
+    /**
+     * Configuration parameter for the number of threads computing the independent views of a picture in parallel,
+     * {@code 1} by default.
+     *
+     * @since 2023.10
+     */
+    public static final String CONVERSION_THREADS = "conversionThreads";
+
     private ImagingConvertConstants() {
     }
 
@@ -23,6 +23,7 @@ import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_CROP_Y;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_HEIGHT;
 import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.OPTION_RESIZE_WIDTH;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.RESIZE_CHAIN;
 import static org.nuxeo.ecm.platform.picture.api.ImagingDocumentConstants.PICTURE_INFO_PROPERTY;
 
 import java.io.IOException;
@@ -184,7 +185,7 @@ public abstract class AbstractPictureAdapter implements PictureResourceAdapter {
         }
 
         PictureConversion pictureConversion = new PictureConversion(title, description, tag, maxsize);
-        pictureConversion.setChainId("Image.Blob.Resize");
+        pictureConversion.setChainId(RESIZE_CHAIN);
 
         PictureView view = getImagingService().computeViewFor(fileContent, pictureConversion, getImageInfo(), true);
 
@@ -0,0 +1,55 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.platform.picture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.ecm.core.work.AvroWorkCodec;
+import org.nuxeo.lib.stream.codec.FileAvroSchemaStore;
+
+/**
+ * @since 2023.10
+ */
+public class TestPictureViewsGenerationWork {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAvroCodec() {
+        AvroWorkCodec codec = new AvroWorkCodec(new FileAvroSchemaStore(folder.getRoot().toPath()));
+        PictureViewsGenerationWork work = new PictureViewsGenerationWork("myrepo", "mydoc", "file:content");
+        work.setOriginatingUsername("bob");
+
+        assertTrue(codec.accept(work));
+        byte[] data = codec.encode(work);
+        assertTrue(data.length < SerializationUtils.serialize(work).length);
+
+        PictureViewsGenerationWork actual = (PictureViewsGenerationWork) codec.decode(data);
+        assertEquals(work.getId(), actual.getId());
+        assertEquals("myrepo", actual.getRepositoryName());
+        assertEquals("mydoc", actual.getDocId());
+        assertEquals("bob", actual.getOriginatingUsername());
+        assertEquals("file:content", actual.xpath);
+        assertEquals(PictureViewsGenerationWork.CATEGORY_PICTURE_GENERATION, actual.getCategory());
+    }
+
+}
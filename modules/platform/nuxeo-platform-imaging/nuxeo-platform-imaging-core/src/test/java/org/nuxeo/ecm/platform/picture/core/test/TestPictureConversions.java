@@ -24,11 +24,18 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.CASCADE_CONVERSIONS;
+import static org.nuxeo.ecm.platform.picture.api.ImagingConvertConstants.RESIZE_CHAIN;
 
+import java.awt.Point;
 import java.io.IOException;
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
@@ -41,11 +48,14 @@ import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.Blobs;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.event.EventService;
+import org.nuxeo.ecm.platform.picture.ImagingComponent;
 import org.nuxeo.ecm.platform.picture.api.ImageInfo;
 import org.nuxeo.ecm.platform.picture.api.ImagingService;
 import org.nuxeo.ecm.platform.picture.api.PictureConversion;
 import org.nuxeo.ecm.platform.picture.api.PictureView;
+import org.nuxeo.ecm.platform.picture.api.PictureViewImpl;
 import org.nuxeo.ecm.platform.picture.api.adapters.MultiviewPicture;
 import org.nuxeo.ecm.platform.picture.core.ImagingFeature;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -232,6 +242,125 @@ public class TestPictureConversions {
         }
     }
 
+    /**
+     * @since 2023.10
+     */
+    @Test
+    public void testCascadedPictureConversions() throws IOException {
+        Blob blob = Blobs.createBlob(FileUtils.getResourceFileFromContext("images/test.jpg"), "image/jpeg", null,
+                "test.jpg");
+        List<PictureConversion> pictureConversions = imagingService.getPictureConversions();
+        ImageInfo imageInfo = imagingService.getImageInfo(blob);
+
+        List<PictureView> directViews = imagingService.computeViewsFor(blob, pictureConversions, imageInfo, true);
+        List<PictureView> views;
+        imagingService.setConfigurationValue(CASCADE_CONVERSIONS, "true");
+        try {
+            views = imagingService.computeViewsFor(blob, pictureConversions, imageInfo, true);
+        } finally {
+            imagingService.setConfigurationValue(CASCADE_CONVERSIONS, "false");
+        }
+
+        // the views are in the order of the conversions, with the size of the views computed from the original
+        assertEquals(pictureConversions.size(), views.size());
+        assertEquals(pictureConversions.size(), directViews.size());
+        for (int i = 0; i < views.size(); i++) {
+            PictureView view = views.get(i);
+            PictureView directView = directViews.get(i);
+            assertEquals(pictureConversions.get(i).getId(), view.getTitle());
+            assertEquals(directView.getFilename(), view.getFilename());
+            assertTrue(view.getTitle(), Math.abs(directView.getWidth() - view.getWidth()) <= 1);
+            assertTrue(view.getTitle(), Math.abs(directView.getHeight() - view.getHeight()) <= 1);
+        }
+    }
+
+    /**
+     * @since 2023.10
+     */
+    @Test
+    public void testCascadedPictureConversionsOrder() {
+        RecordingImagingComponent component = new RecordingImagingComponent();
+        List<PictureConversion> pictureConversions = getCascadeConversions();
+
+        // not cascaded by default
+        List<PictureView> views = component.computeViews(pictureConversions);
+        assertEquals(List.of("Thumbnail<original.jpg", "Custom<original.jpg", "Medium<original.jpg",
+                "Small<original.jpg"), component.computed);
+        assertEquals(List.of("Thumbnail", "Custom", "Medium", "Small"), getTitles(views));
+
+        component.computed.clear();
+        component.setConfigurationValue(CASCADE_CONVERSIONS, "true");
+        views = component.computeViews(pictureConversions);
+        // from the largest to the smallest, each one from the previous one
+        assertEquals(List.of("Medium<original.jpg", "Small<Medium.jpg", "Thumbnail<Small.jpg", "Custom<original.jpg"),
+                component.computed);
+        // in the order of the conversions
+        assertEquals(List.of("Thumbnail", "Custom", "Medium", "Small"), getTitles(views));
+    }
+
+    /**
+     * @since 2023.10
+     */
+    @Test
+    public void testCascadedPictureConversionsFallback() {
+        RecordingImagingComponent component = new RecordingImagingComponent();
+        component.setConfigurationValue(CASCADE_CONVERSIONS, "true");
+        component.failing.add("Medium");
+
+        List<PictureView> views = component.computeViews(getCascadeConversions());
+        // the next view is computed from the last successful source
+        assertEquals(List.of("Medium<original.jpg", "Small<original.jpg", "Thumbnail<Small.jpg", "Custom<original.jpg"),
+                component.computed);
+        assertEquals(List.of("Thumbnail", "Custom", "Small"), getTitles(views));
+    }
+
+    protected List<PictureConversion> getCascadeConversions() {
+        PictureConversion thumbnail = new PictureConversion("Thumbnail", null, null, 100);
+        thumbnail.setChainId(RESIZE_CHAIN);
+        PictureConversion custom = new PictureConversion("Custom", null, null, 200);
+        custom.setChainId("Custom.Resize");
+        PictureConversion medium = new PictureConversion("Medium", null, null, 1000);
+        medium.setChainId(RESIZE_CHAIN);
+        PictureConversion small = new PictureConversion("Small", null, null, 280);
+        small.setChainId(RESIZE_CHAIN);
+        return List.of(thumbnail, custom, medium, small);
+    }
+
+    protected static List<String> getTitles(List<PictureView> views) {
+        return views.stream().map(PictureView::getTitle).collect(Collectors.toList());
+    }
+
+    /**
+     * Records the source each view is computed from instead of converting it.
+     */
+    protected static class RecordingImagingComponent extends ImagingComponent {
+
+        protected final List<String> computed = new ArrayList<>();
+
+        protected final Set<String> failing = new HashSet<>();
+
+        public List<PictureView> computeViews(List<PictureConversion> pictureConversions) {
+            Blob blob = Blobs.createBlob("", "image/jpeg", null, "original.jpg");
+            ImageInfo imageInfo = new ImageInfo("2000", "1000", "JPEG", null);
+            return computeViews(null, blob, pictureConversions, imageInfo, true);
+        }
+
+        @Override
+        protected PictureView computeView(DocumentModel doc, Blob blob, Blob source, ImageInfo sourceInfo,
+                PictureConversion pictureConversion, Point size) {
+            String title = pictureConversion.getId();
+            computed.add(title + "<" + source.getFilename());
+            if (failing.contains(title)) {
+                throw new NuxeoException("Cannot compute view: " + title);
+            }
+            PictureViewImpl view = new PictureViewImpl();
+            view.setTitle(title);
+            view.setBlob(Blobs.createBlob("", "image/jpeg", null, title + ".jpg"));
+            view.setImageInfo(new ImageInfo(String.valueOf(size.x), String.valueOf(size.y), "JPEG", null));
+            return view;
+        }
+    }
+
     protected Blob getCatBlob() throws IOException {
         return Blobs.createBlob(FileUtils.getResourceFileFromContext("images/cat.gif"), "image/gif", null, "cat.gif");
     }
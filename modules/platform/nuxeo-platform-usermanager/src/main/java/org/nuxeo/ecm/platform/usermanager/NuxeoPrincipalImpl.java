@@ -33,8 +33,11 @@ package org.nuxeo.ecm.platform.usermanager;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.security.Principal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
@@ -313,50 +316,59 @@ public class NuxeoPrincipalImpl implements NuxeoPrincipal {
 
     public void updateAllGroups() {
         UserManager userManager = Framework.getService(UserManager.class);
+        // with the group closure cache, the ancestors of a group are resolved at once by the user manager
+        boolean cachedClosures = userManager instanceof UserManagerImpl userManagerImpl
+                && userManagerImpl.isGroupClosureCached();
+        // a single walk for all the groups, the ancestors shared by several groups are only fetched once
         Set<String> checkedGroups = new HashSet<>();
-        List<String> groupsToProcess = new ArrayList<>();
-        List<String> resultingGroups = new ArrayList<>();
-        groupsToProcess.addAll(getGroups());
-
-        while (!groupsToProcess.isEmpty()) {
-            String groupName = groupsToProcess.remove(0);
-            if (!checkedGroups.contains(groupName)) {
-                checkedGroups.add(groupName);
-                NuxeoGroup nxGroup = null;
-                if (userManager != null) {
-                    try {
-                        nxGroup = userManager.getGroup(groupName);
-                    } catch (DirectoryException de) {
-                        if (virtualGroups.contains(groupName)) {
-                            // do not fail while retrieving a virtual group
-                            log.warn(
-                                    "Failed to get group: {} due to: {}: permission resolution involving groups may not be correct",
-                                    groupName, de.getMessage());
-                            nxGroup = null;
-                        } else {
-                            throw de;
-                        }
-                    }
-                }
-                if (nxGroup == null) {
+        Deque<String> groupsToProcess = new ArrayDeque<>(getGroups());
+        Set<String> resultingGroups = new LinkedHashSet<>();
+
+        String groupName;
+        while ((groupName = groupsToProcess.poll()) != null) {
+            if (!checkedGroups.add(groupName)) {
+                continue;
+            }
+            NuxeoGroup nxGroup = null;
+            if (userManager != null) {
+                try {
+                    nxGroup = userManager.getGroup(groupName);
+                } catch (DirectoryException de) {
                     if (virtualGroups.contains(groupName)) {
-                        // just add the virtual group as is
-                        resultingGroups.add(groupName);
-                    } else if (userManager != null) {
-                        // XXX this should only happens in case of
-                        // inconsistency in DB
-                        log.error("User: {} references the group: {} that does not exists", getName(), groupName);
+                        // do not fail while retrieving a virtual group
+                        log.warn(
+                                "Failed to get group: {} due to: {}: permission resolution involving groups may not be correct",
+                                groupName, de.getMessage());
+                        nxGroup = null;
+                    } else {
+                        throw de;
                     }
+                }
+            }
+            if (nxGroup == null) {
+                if (virtualGroups.contains(groupName)) {
+                    // just add the virtual group as is
+                    resultingGroups.add(groupName);
+                } else if (userManager != null) {
+                    // XXX this should only happens in case of
+                    // inconsistency in DB
+                    log.error("User: {} references the group: {} that does not exists", getName(), groupName);
+                }
+            } else {
+                // fetch the group name from the returned entry in case
+                // it does not have the same case than the actual entry in
+                // directory (for case insensitive directories)
+                resultingGroups.add(nxGroup.getName());
+                if (cachedClosures) {
+                    List<String> ancestorGroups = userManager.getAncestorGroups(nxGroup.getName());
+                    resultingGroups.addAll(ancestorGroups);
+                    checkedGroups.addAll(ancestorGroups);
                 } else {
                     groupsToProcess.addAll(nxGroup.getParentGroups());
-                    // fetch the group name from the returned entry in case
-                    // it does not have the same case than the actual entry in
-                    // directory (for case insensitive directories)
-                    resultingGroups.add(nxGroup.getName());
-                    // XXX: maybe remove group from virtual groups if it
-                    // actually exists? otherwise it would be ignored when
-                    // setting groups
                 }
+                // XXX: maybe remove group from virtual groups if it
+                // actually exists? otherwise it would be ignored when
+                // setting groups
             }
         }
 
@@ -168,6 +168,10 @@ public class UserManagerDescriptor {
     @XNode("userCacheName")
     public String userCacheName;
 
+    /** @since 2023.10 */
+    @XNode("groupClosureCacheName")
+    public String groupClosureCacheName;
+
     /**
      * Merge with data from another descriptor.
      */
@@ -178,6 +182,9 @@ public class UserManagerDescriptor {
         if (other.userCacheName != null) {
             userCacheName = other.userCacheName;
         }
+        if (other.groupClosureCacheName != null) {
+            groupClosureCacheName = other.groupClosureCacheName;
+        }
         if (other.userListingMode != null) {
             userListingMode = other.userListingMode;
         }
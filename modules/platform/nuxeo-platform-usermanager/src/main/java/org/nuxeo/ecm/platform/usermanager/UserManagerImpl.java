@@ -26,16 +26,20 @@ import static org.nuxeo.ecm.platform.usermanager.UserConfig.GROUPS_COLUMN;
 
 import java.io.Serializable;
 import java.security.Principal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -162,6 +166,19 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     protected Cache principalCache = null;
 
+    /**
+     * The cache of the ancestor and descendant groups of each group, {@code null} if not configured.
+     *
+     * @since 2023.10
+     */
+    protected Cache groupClosureCache = null;
+
+    /** @since 2023.10 */
+    protected static final String ANCESTOR_GROUPS_KEY_PREFIX = "ancestors:";
+
+    /** @since 2023.10 */
+    protected static final String DESCENDANT_GROUPS_KEY_PREFIX = "descendants:";
+
     public UserMultiTenantManagement multiTenantManagement = new DefaultUserMultiTenantManagement();
 
     /**
@@ -291,6 +308,10 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             principalCache = cacheService.getCache(descriptor.userCacheName);
             invalidateAllPrincipals();
         }
+        if (cacheService != null && descriptor.groupClosureCacheName != null) {
+            groupClosureCache = cacheService.getCache(descriptor.groupClosureCacheName);
+            invalidateAllGroupClosures();
+        }
 
     }
 
@@ -828,6 +849,24 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public void notifyGroupChanged(String groupName, String eventId, List<String> ancestorGroupNames) {
+        // the groups related to the changed group before the change are unknown
+        invalidateAllGroupClosures();
+        notifyGroupChanged(groupName, eventId, ancestorGroupNames, null);
+    }
+
+    /**
+     * Notifies that the given group has changed, invalidating the cached ancestor and descendant groups of the groups
+     * related to it.
+     *
+     * @param relatedGroupNames the groups related to the changed group before the change, as returned by
+     *            {@link #getRelatedGroups}, or {@code null} if the group closures have already been invalidated
+     * @since 2023.10
+     */
+    protected void notifyGroupChanged(String groupName, String eventId, List<String> ancestorGroupNames,
+            Set<String> relatedGroupNames) {
+        if (relatedGroupNames != null) {
+            invalidateGroupClosures(groupName, relatedGroupNames);
+        }
         invalidateAllPrincipals();
         notifyRuntime(groupName, GROUPCHANGED_EVENT_ID);
         if (eventId != null) {
@@ -842,6 +881,64 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
         }
     }
 
+    /**
+     * Gets the groups whose ancestor or descendant groups may change when the given group changes: the group itself,
+     * its ancestors and its descendants.
+     *
+     * @since 2023.10
+     */
+    protected Set<String> getRelatedGroups(String groupId) {
+        Set<String> groups = new HashSet<>();
+        if (groupClosureCache != null) {
+            groups.add(groupId);
+            groups.addAll(getAncestorGroups(groupId));
+            groups.addAll(getDescendantGroups(groupId));
+        }
+        return groups;
+    }
+
+    /**
+     * Invalidates the cached ancestor and descendant groups of the groups related to a changed group, before and after
+     * the change. The invalidations are propagated to the other nodes of the cluster by the cache.
+     *
+     * @since 2023.10
+     */
+    protected void invalidateGroupClosures(String groupId, Set<String> relatedGroupNames) {
+        if (groupClosureCache == null) {
+            return;
+        }
+        Set<String> groups = new HashSet<>(relatedGroupNames);
+        groups.add(groupId);
+        groups.forEach(this::invalidateGroupClosure);
+        // the groups related after the change, the entries of the other groups are still up to date
+        Set<String> newGroups = getRelatedGroups(groupId);
+        newGroups.removeAll(groups);
+        newGroups.add(groupId);
+        newGroups.forEach(this::invalidateGroupClosure);
+    }
+
+    /** @since 2023.10 */
+    protected void invalidateGroupClosure(String groupId) {
+        groupClosureCache.invalidate(ANCESTOR_GROUPS_KEY_PREFIX + groupId);
+        groupClosureCache.invalidate(DESCENDANT_GROUPS_KEY_PREFIX + groupId);
+    }
+
+    /**
+     * Checks whether the ancestor and descendant groups of each group are cached.
+     *
+     * @since 2023.10
+     */
+    protected boolean isGroupClosureCached() {
+        return groupClosureCache != null;
+    }
+
+    /** @since 2023.10 */
+    protected void invalidateAllGroupClosures() {
+        if (groupClosureCache != null) {
+            groupClosureCache.invalidateAll();
+        }
+    }
+
     @Override
     public Boolean areGroupsReadOnly() {
         try (Session groupDir = dirService.open(groupDirectoryName)) {
@@ -1218,8 +1315,9 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             if (groupDir.hasEntry(groupId)) {
                 throw new GroupAlreadyExistsException();
             }
+            Set<String> relatedGroupNames = getRelatedGroups(groupId);
             groupModel = groupDir.createEntry(groupModel);
-            notifyGroupChanged(groupId, GROUPCREATED_EVENT_ID);
+            notifyGroupChanged(groupId, GROUPCREATED_EVENT_ID, null, relatedGroupNames);
             return groupModel;
 
         }
@@ -1442,8 +1540,9 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             if (!groupDir.hasEntry(groupId)) {
                 throw new DirectoryException("group does not exist: " + groupId);
             }
+            Set<String> relatedGroupNames = getRelatedGroups(groupId);
             groupDir.updateEntry(groupModel);
-            notifyGroupChanged(groupId, GROUPMODIFIED_EVENT_ID);
+            notifyGroupChanged(groupId, GROUPMODIFIED_EVENT_ID, null, relatedGroupNames);
         }
     }
 
@@ -1461,8 +1560,9 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
             }
             // Get ancestor group names before deletion to pass them as a property of the core event
             List<String> ancestorGroupNames = getAncestorGroups(groupId);
+            Set<String> relatedGroupNames = getRelatedGroups(groupId);
             groupDir.deleteEntry(groupId);
-            notifyGroupChanged(groupId, GROUPDELETED_EVENT_ID, ancestorGroupNames);
+            notifyGroupChanged(groupId, GROUPDELETED_EVENT_ID, ancestorGroupNames, relatedGroupNames);
         }
     }
 
@@ -1570,39 +1670,68 @@ public class UserManagerImpl implements UserManager, MultiTenantUserManager, Adm
 
     @Override
     public List<String> getAncestorGroups(String groupId) {
-        List<String> ancestorGroups = new ArrayList<>();
-        populateAncestorGroups(groupId, ancestorGroups);
-        return ancestorGroups;
-    }
-
-    protected void populateAncestorGroups(String groupId, List<String> ancestorGroups) {
-        NuxeoGroup group = getGroup(groupId);
-        if (group != null) {
-            List<String> parentGroups = group.getParentGroups();
-            // Avoid infinite loop in case a group has one of its parents as a subgroup
-            parentGroups.stream().filter(parentGroup -> !ancestorGroups.contains(parentGroup)).forEach(parentGroup -> {
-                ancestorGroups.add(parentGroup);
-                populateAncestorGroups(parentGroup, ancestorGroups);
-            });
-        }
+        return getGroupClosure(groupId, ANCESTOR_GROUPS_KEY_PREFIX, NuxeoGroup::getParentGroups);
     }
 
     @Override
     public List<String> getDescendantGroups(String groupId) {
-        List<String> descendantGroups = new ArrayList<>();
-        populateDescendantGroups(groupId, descendantGroups);
-        return descendantGroups;
+        return getGroupClosure(groupId, DESCENDANT_GROUPS_KEY_PREFIX, NuxeoGroup::getMemberGroups);
     }
 
-    protected void populateDescendantGroups(String groupId, List<String> descendantGroups) {
+    /**
+     * Computes the transitive closure of the given relation of a group, walking the group hierarchy breadth first.
+     * <p>
+     * When the group closure cache is configured, the closures of the groups met during the walk are taken from the
+     * cache instead of walking their own relations, and the computed closure is cached locally, the other nodes of the
+     * cluster compute their own.
+     *
+     * @param relations the parent groups or sub groups of a group
+     * @return the names of the existing groups reachable from the given group, which may contain the group itself if
+     *         the hierarchy has a cycle
+     * @since 2023.10
+     */
+    @SuppressWarnings("unchecked")
+    protected List<String> getGroupClosure(String groupId, String keyPrefix,
+            Function<NuxeoGroup, List<String>> relations) {
+        if (groupClosureCache != null) {
+            List<String> cached = (List<String>) groupClosureCache.get(keyPrefix + groupId);
+            if (cached != null) {
+                return new ArrayList<>(cached);
+            }
+        }
         NuxeoGroup group = getGroup(groupId);
-        if (group != null) {
-            List<String> subGroups = group.getMemberGroups();
-            subGroups.stream().filter(subGroup -> !descendantGroups.contains(subGroup)).forEach(subGroup -> {
-                descendantGroups.add(subGroup);
-                populateDescendantGroups(subGroup, descendantGroups);
-            });
+        if (group == null) {
+            return new ArrayList<>();
+        }
+        Set<String> closure = new LinkedHashSet<>();
+        // avoid infinite loops in case a group has one of its parents as a subgroup
+        Set<String> visited = new HashSet<>();
+        Deque<String> toProcess = new ArrayDeque<>(relations.apply(group));
+        String id;
+        while ((id = toProcess.poll()) != null) {
+            if (!visited.add(id)) {
+                continue;
+            }
+            List<String> cached = groupClosureCache == null ? null
+                    : (List<String>) groupClosureCache.get(keyPrefix + id);
+            if (cached != null) {
+                closure.add(id);
+                closure.addAll(cached);
+                visited.addAll(cached);
+            } else {
+                NuxeoGroup related = getGroup(id);
+                // skip the references to groups that do not exist
+                if (related != null) {
+                    closure.add(id);
+                    toProcess.addAll(relations.apply(related));
+                }
+            }
+        }
+        ArrayList<String> result = new ArrayList<>(closure);
+        if (groupClosureCache != null) {
+            ((CacheManagement) groupClosureCache).putLocal(keyPrefix + groupId, result);
         }
+        return new ArrayList<>(result);
     }
 
     @Override
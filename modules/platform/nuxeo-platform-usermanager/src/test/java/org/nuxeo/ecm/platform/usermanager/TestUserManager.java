@@ -1404,6 +1404,68 @@ public class TestUserManager extends UserManagerTestCase {
                 userManager.getAncestorGroups("ABCD")));
     }
 
+    @Test
+    public void testAncestorGroupsSkipMissingGroups() throws Exception {
+        deleteTestObjects();
+        userManager.createGroup(getGroup("test_parent"));
+        DocumentModel child = getGroup("test_child");
+        child.setProperty("group", "parentGroups", Arrays.asList("test_parent", "test_missing"));
+        userManager.createGroup(child);
+        DocumentModel user = getUser("test_u1");
+        user.setProperty("user", "groups", Collections.singletonList("test_child"));
+        userManager.createUser(user);
+
+        assertEquals(Collections.singletonList("test_parent"), userManager.getAncestorGroups("test_child"));
+        NuxeoPrincipal principal = userManager.getPrincipal("test_u1");
+        assertTrue(principal.isMemberOf("test_parent"));
+        assertFalse(principal.isMemberOf("test_missing"));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.platform.usermanager.tests:test-usermanagerimpl/userservice-group-closure-cache-config.xml")
+    public void testGroupClosureCache() throws Exception {
+        // user manager is recomputed after deployment => refetch it
+        userManager = Framework.getService(UserManager.class);
+        deleteTestObjects();
+
+        userManager.createGroup(getGroup("test_child"));
+        DocumentModel parent = getGroup("test_parent");
+        parent.setProperty("group", "subGroups", Collections.singletonList("test_child"));
+        userManager.createGroup(parent);
+        DocumentModel grandParent = getGroup("test_grandparent");
+        grandParent.setProperty("group", "subGroups", Collections.singletonList("test_parent"));
+        userManager.createGroup(grandParent);
+        DocumentModel user = getUser("test_u1");
+        user.setProperty("user", "groups", Collections.singletonList("test_child"));
+        userManager.createUser(user);
+
+        assertTrue(CollectionUtils.isEqualCollection(Arrays.asList("test_parent", "test_grandparent"),
+                userManager.getAncestorGroups("test_child")));
+        assertTrue(CollectionUtils.isEqualCollection(Arrays.asList("test_parent", "test_child"),
+                userManager.getDescendantGroups("test_grandparent")));
+        assertTrue(userManager.getPrincipal("test_u1").isMemberOf("test_grandparent"));
+
+        // cached closures are updated when the hierarchy changes
+        parent = userManager.getGroupModel("test_parent");
+        parent.setProperty("group", "subGroups", Collections.emptyList());
+        userManager.updateGroup(parent);
+        assertEquals(Collections.emptyList(), userManager.getAncestorGroups("test_child"));
+        assertEquals(Collections.singletonList("test_parent"), userManager.getDescendantGroups("test_grandparent"));
+        NuxeoPrincipal principal = userManager.getPrincipal("test_u1");
+        assertFalse(principal.isMemberOf("test_parent"));
+        assertFalse(principal.isMemberOf("test_grandparent"));
+
+        DocumentModel other = getGroup("test_other");
+        other.setProperty("group", "subGroups", Collections.singletonList("test_child"));
+        userManager.createGroup(other);
+        assertEquals(Collections.singletonList("test_other"), userManager.getAncestorGroups("test_child"));
+        assertTrue(userManager.getPrincipal("test_u1").isMemberOf("test_other"));
+
+        userManager.deleteGroup("test_other");
+        assertEquals(Collections.emptyList(), userManager.getAncestorGroups("test_child"));
+        assertFalse(userManager.getPrincipal("test_u1").isMemberOf("test_other"));
+    }
+
     @Test
     public void testNuxeoPrincipalSerialization() throws Exception {
         String userId = "test";
@@ -21,16 +21,23 @@ package org.nuxeo.ecm.quota.size;
 
 import static org.nuxeo.ecm.core.api.versioning.VersioningService.VERSIONING_OPTION;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.function.BiConsumer;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.Blob;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.IdRef;
 import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.api.ScrollResult;
@@ -56,16 +63,32 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
 
     public static final String USER_WORKSPACES_ROOT = "UserWorkspacesRoot";
 
-    /** @since 11.1 */
+    /**
+     * @since 11.1
+     * @deprecated since 2023.10, the statistics are not cleared anymore before the initial computation
+     */
+    @Deprecated(since = "2023.10")
     public static final String CLEAR_SCROLL_SIZE_PROP = "nuxeo.quota.clear.scroll.size";
 
-    /** @since 11.1 */
+    /**
+     * @since 11.1
+     * @deprecated since 2023.10, the statistics are not cleared anymore before the initial computation
+     */
+    @Deprecated(since = "2023.10")
     public static final int DEFAULT_CLEAR_SCROLL_SIZE = 500;
 
-    /** @since 11.1 */
+    /**
+     * @since 11.1
+     * @deprecated since 2023.10, the statistics are not cleared anymore before the initial computation
+     */
+    @Deprecated(since = "2023.10")
     public static final String CLEAR_SCROLL_KEEP_ALIVE_PROP = "nuxeo.quota.clear.scroll.keepAliveSeconds";
 
-    /** @since 11.1 */
+    /**
+     * @since 11.1
+     * @deprecated since 2023.10, the statistics are not cleared anymore before the initial computation
+     */
+    @Deprecated(since = "2023.10")
     public static final int DEFAULT_CLEAR_SCROLL_KEEP_ALIVE = 60;
 
     /** @since 11.1 */
@@ -80,6 +103,54 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
     /** @since 11.1 */
     public static final int DEFAULT_INIT_SCROLL_KEEP_ALIVE = 120;
 
+    /**
+     * Property enabling the asynchronous update of the ancestors statistics by the {@link QuotaSizeRollupProcessor}.
+     *
+     * @since 2023.10
+     */
+    public static final String ASYNC_ROLLUP_ENABLED_PROP = "nuxeo.quota.size.async.enabled";
+
+    /**
+     * The statistics of a folderish document, or of a document having children, during the initial computation.
+     *
+     * @since 2023.10
+     */
+    protected static class InitialStatistics {
+
+        protected String parentId;
+
+        protected int depth = -1;
+
+        /** Whether the statistics of the document itself are already saved and added to its parent. */
+        protected boolean saved;
+
+        protected long innerSize;
+
+        protected long totalSize;
+
+        protected long trashSize;
+
+        protected long versionsSize;
+
+        protected long childrenTotalSize;
+
+        protected long childrenTrashSize;
+
+        protected long childrenVersionsSize;
+
+        protected void addChild(long totalSize, long trashSize, long versionsSize) {
+            childrenTotalSize += totalSize;
+            childrenTrashSize += trashSize;
+            childrenVersionsSize += versionsSize;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The statistics are computed bottom-up in one pass over the documents: the documents without children are saved
+     * right away, the folderish ones once the statistics of all their children are known, deepest first.
+     */
     @Override
     public void computeInitialStatistics(CoreSession session, QuotaStatsInitialWork currentWorker, String path) {
         log.debug("Starting initial Quota computation for path: {}", path);
@@ -93,32 +164,21 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         }
         // get scroll configuration parameters
         ConfigurationService confService = Framework.getService(ConfigurationService.class);
-        int clearScrollSize = confService.getInteger(CLEAR_SCROLL_SIZE_PROP, DEFAULT_CLEAR_SCROLL_SIZE);
-        int clearScrollKeepAlive = confService.getInteger(CLEAR_SCROLL_KEEP_ALIVE_PROP,
-                DEFAULT_CLEAR_SCROLL_KEEP_ALIVE);
         int initScrollSize = confService.getInteger(INIT_SCROLL_SIZE_PROP, DEFAULT_INIT_SCROLL_SIZE);
         int initScrollKeepAlive = confService.getInteger(INIT_SCROLL_KEEP_ALIVE_PROP, DEFAULT_INIT_SCROLL_KEEP_ALIVE);
+        long total = session.queryProjection(query, 1, 0, true).totalSize();
 
-        // reset on all documents
-        // this will force an update if the quota addon was installed and then removed
-        log.debug("Start scrolling to clear quotas");
-        long clearCount = scrollAndDo(session, query, clearScrollSize, clearScrollKeepAlive,
-                (uuid, idx) -> clearQuotas(session, uuid));
-        log.debug("End scrolling to clear quotas, documentCount={}", clearCount);
-        clearQuotas(session, root.getId());
-        session.save();
-
-        // recompute quota on each doc
+        // compute quota on each doc, deferring the ones with children
+        Map<String, InitialStatistics> deferred = new HashMap<>();
         log.debug("Start scrolling to init quotas");
         long initCount = scrollAndDo(session, query, initScrollSize, initScrollKeepAlive, (uuid, idx) -> {
             DocumentModel doc = session.getDocument(new IdRef(uuid));
             log.trace("process Quota initial computation on uuid={}", doc::getId);
-            log.trace("doc with uuid {} started update", doc::getId);
-            initDocument(session, doc);
-            log.trace("doc with uuid {} update completed", doc::getId);
-            currentWorker.notifyProgress(idx, clearCount);
+            initDocument(session, doc, root, deferred);
+            currentWorker.notifyProgress(idx, total);
         });
         log.debug("End scrolling to init quotas, documentCount={}", initCount);
+        initDeferredDocuments(session, root, deferred, initScrollSize);
 
         // if recomputing only for descendants of a given path, recompute ancestors from their direct children
         if (path != null) {
@@ -148,20 +208,114 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
         return count;
     }
 
-    protected void clearQuotas(CoreSession session, String docID) {
-        DocumentModel doc = session.getDocument(new IdRef(docID));
-        QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
-        if (quotaDoc != null) {
-            quotaDoc.clearInfos();
+    /**
+     * Computes the statistics of a document, saving them if it has no children.
+     *
+     * @since 2023.10
+     */
+    protected void initDocument(CoreSession session, DocumentModel doc, DocumentModel root,
+            Map<String, InitialStatistics> deferred) {
+        boolean isDeleted = doc.isTrashed();
+        long size = getBlobsSize(doc);
+        long versionsSize = getVersionsSize(session, doc);
+        long totalSize = size + versionsSize;
+        long trashSize = isDeleted ? size : 0;
+        String parentId = doc.getId().equals(root.getId()) ? null : getParentId(session, doc);
+        if (doc.isFolder()) {
+            InitialStatistics stats = deferred.computeIfAbsent(doc.getId(), k -> new InitialStatistics());
+            stats.parentId = parentId;
+            stats.depth = getDepth(doc);
+            stats.innerSize = size;
+            stats.totalSize = totalSize;
+            stats.trashSize = trashSize;
+            stats.versionsSize = versionsSize;
+        } else {
+            QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
+            if (quotaDoc == null) {
+                quotaDoc = QuotaAwareDocumentFactory.make(doc);
+            }
+            quotaDoc.setAll(size, totalSize, trashSize, versionsSize);
             quotaDoc.save();
         }
+        if (parentId != null) {
+            // also registers the parent so that it is saved after its children
+            InitialStatistics parentStats = deferred.computeIfAbsent(parentId, k -> new InitialStatistics());
+            if (!doc.isFolder()) {
+                parentStats.addChild(totalSize, trashSize, versionsSize);
+            }
+        }
     }
 
-    protected void initDocument(CoreSession session, DocumentModel doc) {
-        boolean isDeleted = doc.isTrashed();
-        long size = getBlobsSize(doc);
-        long versionsSize = getVersionsSize(session, doc);
-        updateDocumentAndAncestors(session, doc, size, size + versionsSize, isDeleted ? size : 0, versionsSize);
+    /**
+     * Saves the statistics of the documents having children, deepest first, adding them to their parent.
+     *
+     * @since 2023.10
+     */
+    protected void initDeferredDocuments(CoreSession session, DocumentModel root,
+            Map<String, InitialStatistics> deferred, int batchSize) {
+        // the documents only known as parents are the root, or non folderish documents already saved
+        for (Entry<String, InitialStatistics> entry : deferred.entrySet()) {
+            InitialStatistics stats = entry.getValue();
+            if (stats.depth >= 0) {
+                continue;
+            }
+            DocumentModel doc = session.getDocument(new IdRef(entry.getKey()));
+            stats.depth = getDepth(doc);
+            if (doc.getId().equals(root.getId())) {
+                stats.innerSize = getBlobsSize(doc);
+                stats.versionsSize = getVersionsSize(session, doc);
+                stats.totalSize = stats.innerSize + stats.versionsSize;
+                stats.trashSize = doc.isTrashed() ? stats.innerSize : 0;
+            } else {
+                stats.parentId = getParentId(session, doc);
+                stats.saved = true;
+            }
+        }
+        List<Entry<String, InitialStatistics>> entries = new ArrayList<>(deferred.entrySet());
+        entries.sort(Comparator.comparingInt((Entry<String, InitialStatistics> e) -> e.getValue().depth).reversed());
+        long count = 0;
+        for (Entry<String, InitialStatistics> entry : entries) {
+            InitialStatistics stats = entry.getValue();
+            DocumentModel doc = session.getDocument(new IdRef(entry.getKey()));
+            long totalSize = stats.childrenTotalSize;
+            long trashSize = stats.childrenTrashSize;
+            long versionsSize = stats.childrenVersionsSize;
+            if (stats.saved) {
+                updateDocument(doc, 0, totalSize, trashSize, versionsSize);
+            } else {
+                totalSize += stats.totalSize;
+                trashSize += stats.trashSize;
+                versionsSize += stats.versionsSize;
+                QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
+                if (quotaDoc == null) {
+                    quotaDoc = QuotaAwareDocumentFactory.make(doc);
+                }
+                quotaDoc.setAll(stats.innerSize, totalSize, trashSize, versionsSize);
+                quotaDoc.save();
+            }
+            if (stats.parentId != null) {
+                deferred.get(stats.parentId).addChild(totalSize, trashSize, versionsSize);
+            }
+            if (++count % batchSize == 0) {
+                session.save();
+                TransactionHelper.commitOrRollbackTransaction();
+                TransactionHelper.startTransaction();
+            }
+        }
+        session.save();
+    }
+
+    protected String getParentId(CoreSession session, DocumentModel doc) {
+        DocumentRef parentRef = doc.getParentRef();
+        if (parentRef == null) {
+            return null;
+        }
+        return parentRef instanceof IdRef ? parentRef.toString() : session.getDocument(parentRef).getId();
+    }
+
+    protected int getDepth(DocumentModel doc) {
+        String path = doc.getPathAsString();
+        return "/".equals(path) ? 0 : StringUtils.countMatches(path, '/');
     }
 
     protected void initDocumentFromChildren(DocumentModel doc) {
@@ -392,7 +546,15 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             if (quotaDoc == null || quotaDoc.getMaxQuota() <= 0 || USER_WORKSPACES_ROOT.equals(parent.getType())) {
                 continue;
             }
-            if (quotaDoc.getTotalSize() + delta > quotaDoc.getMaxQuota()) {
+            boolean exceeded;
+            if (isAsyncRollup()) {
+                // the size not yet rolled up is reserved at check time, so that the quota remains a hard limit
+                exceeded = !QuotaSizeDeltaCollector.reserve(session.getRepositoryName(), parent.getId(), delta,
+                        quotaDoc.getTotalSize(), quotaDoc.getMaxQuota());
+            } else {
+                exceeded = quotaDoc.getTotalSize() + delta > quotaDoc.getMaxQuota();
+            }
+            if (exceeded) {
                 log.info("Raising Quota Exception on {} ({})", doc::getId, doc::getPathAsString);
                 throw new QuotaExceededException(parent, doc, quotaDoc.getMaxQuota());
             }
@@ -471,11 +633,31 @@ public class DocumentsSizeUpdater extends AbstractQuotaStatsUpdater {
             return;
         }
         List<DocumentModel> ancestors = getAncestors(session, doc);
+        if (isAsyncRollup()) {
+            String repositoryName = session.getRepositoryName();
+            for (DocumentModel ancestor : ancestors) {
+                QuotaAware quotaDoc = ancestor.getAdapter(QuotaAware.class);
+                boolean reserve = quotaDoc != null && quotaDoc.getMaxQuota() > 0
+                        && !USER_WORKSPACES_ROOT.equals(ancestor.getType());
+                QuotaSizeDeltaCollector.add(repositoryName, ancestor.getId(), deltaTotal, deltaTrash, deltaVersions,
+                        reserve);
+            }
+            return;
+        }
         for (DocumentModel ancestor : ancestors) {
             updateDocument(ancestor, 0, deltaTotal, deltaTrash, deltaVersions);
         }
     }
 
+    /**
+     * Whether the ancestors statistics are updated asynchronously by the {@link QuotaSizeRollupProcessor}.
+     *
+     * @since 2023.10
+     */
+    protected boolean isAsyncRollup() {
+        return Framework.getService(ConfigurationService.class).isBooleanTrue(ASYNC_ROLLUP_ENABLED_PROP);
+    }
+
     protected void updateDocumentAndAncestors(CoreSession session, DocumentModel doc, long deltaInner, long deltaTotal,
             long deltaTrash, long deltaVersions) {
         updateDocument(doc, deltaInner, deltaTotal, deltaTrash, deltaVersions);
@@ -0,0 +1,136 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.size;
+
+import java.io.IOException;
+
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * A change of the size statistics of a document, applied asynchronously by the {@link QuotaSizeRollupProcessor}.
+ *
+ * @since 2023.10
+ */
+public class QuotaSizeDelta {
+
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
+    protected String repository;
+
+    protected String docId;
+
+    protected long total;
+
+    protected long trash;
+
+    protected long versions;
+
+    /** The part of the total size reserved on the document until the delta is applied. */
+    protected long reserved;
+
+    public QuotaSizeDelta() {
+        // for json deserialization
+    }
+
+    public QuotaSizeDelta(String repository, String docId) {
+        this.repository = repository;
+        this.docId = docId;
+    }
+
+    public String getRepository() {
+        return repository;
+    }
+
+    public void setRepository(String repository) {
+        this.repository = repository;
+    }
+
+    public String getDocId() {
+        return docId;
+    }
+
+    public void setDocId(String docId) {
+        this.docId = docId;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public void setTotal(long total) {
+        this.total = total;
+    }
+
+    public long getTrash() {
+        return trash;
+    }
+
+    public void setTrash(long trash) {
+        this.trash = trash;
+    }
+
+    public long getVersions() {
+        return versions;
+    }
+
+    public void setVersions(long versions) {
+        this.versions = versions;
+    }
+
+    public long getReserved() {
+        return reserved;
+    }
+
+    public void setReserved(long reserved) {
+        this.reserved = reserved;
+    }
+
+    public void add(long deltaTotal, long deltaTrash, long deltaVersions, long deltaReserved) {
+        total += deltaTotal;
+        trash += deltaTrash;
+        versions += deltaVersions;
+        reserved += deltaReserved;
+    }
+
+    public void add(QuotaSizeDelta other) {
+        add(other.total, other.trash, other.versions, other.reserved);
+    }
+
+    public byte[] toJson() {
+        try {
+            return MAPPER.writeValueAsBytes(this);
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot write quota size delta: " + this, e);
+        }
+    }
+
+    public static QuotaSizeDelta fromJson(byte[] data) {
+        try {
+            return MAPPER.readValue(data, QuotaSizeDelta.class);
+        } catch (IOException e) {
+            throw new NuxeoException("Invalid quota size delta", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + repository + ", " + docId + ", total=" + total + ", trash=" + trash
+                + ", versions=" + versions + ", reserved=" + reserved + ")";
+    }
+
+}
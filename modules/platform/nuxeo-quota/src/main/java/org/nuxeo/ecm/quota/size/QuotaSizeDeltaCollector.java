@@ -0,0 +1,192 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.size;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.StreamManager;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Collects the size deltas of the ancestors of the documents changed during a transaction, and appends them to the
+ * {@value #STREAM_NAME} stream once the transaction is committed.
+ * <p>
+ * The deltas of an ancestor are summed up during the transaction, the {@link QuotaSizeRollupProcessor} sums them up
+ * again over the transactions before updating the ancestor.
+ * <p>
+ * The sizes reserved by the quota checks of the transaction are released if it is rolled back, otherwise they are
+ * carried by the appended deltas until they are rolled up.
+ *
+ * @since 2023.10
+ */
+public class QuotaSizeDeltaCollector implements Synchronization {
+
+    private static final Logger log = LogManager.getLogger(QuotaSizeDeltaCollector.class);
+
+    public static final String STREAM_NAME = "quota/sizeDelta";
+
+    protected static final ThreadLocal<QuotaSizeDeltaCollector> COLLECTOR = new ThreadLocal<>();
+
+    protected final Map<String, QuotaSizeDelta> deltas = new LinkedHashMap<>();
+
+    /** The keys of the deltas of the documents having a max quota. */
+    protected final Set<String> reservedKeys = new HashSet<>();
+
+    /** The sizes reserved by the quota checks of the transaction, not yet carried by an appended delta. */
+    protected final Map<String, QuotaSizeDelta> reservations = new HashMap<>();
+
+    protected static QuotaSizeDeltaCollector getCollector(boolean inTransaction) {
+        QuotaSizeDeltaCollector collector = COLLECTOR.get();
+        if (collector == null) {
+            collector = new QuotaSizeDeltaCollector();
+            if (inTransaction) {
+                TransactionHelper.registerSynchronization(collector);
+                COLLECTOR.set(collector);
+            }
+        }
+        return collector;
+    }
+
+    /**
+     * Atomically reserves a size on a document having a max quota, unless its rolled up total size, the sizes already
+     * reserved on it and the given size exceed the max quota.
+     * <p>
+     * Outside a transaction nothing could release the reservation on failure, so the max quota is only checked.
+     *
+     * @return {@code true} if the size is reserved, {@code false} if it exceeds the max quota
+     */
+    public static boolean reserve(String repository, String docId, long size, long totalSize, long maxQuota) {
+        if (!TransactionHelper.isTransactionActive()) {
+            return totalSize + QuotaSizeReservations.get(repository, docId) + size <= maxQuota;
+        }
+        QuotaSizeDeltaCollector collector = getCollector(true);
+        String key = repository + ":" + docId;
+        long reserved = QuotaSizeReservations.addAndGet(repository, docId, size);
+        if (totalSize + reserved + collector.getUnreservedTotal(key) > maxQuota) {
+            QuotaSizeReservations.add(repository, docId, -size);
+            return false;
+        }
+        collector.reservations.computeIfAbsent(key, k -> new QuotaSizeDelta(repository, docId)).add(0, 0, 0, size);
+        return true;
+    }
+
+    /** Gets the total size added to a document by this transaction and not covered by its reservations. */
+    protected long getUnreservedTotal(String key) {
+        QuotaSizeDelta delta = deltas.get(key);
+        QuotaSizeDelta reservation = reservations.get(key);
+        long total = delta == null ? 0 : delta.getTotal();
+        long reserved = reservation == null ? 0 : reservation.getReserved();
+        return Math.max(total - reserved, 0);
+    }
+
+    /**
+     * Adds a size delta for an ancestor of a changed document.
+     *
+     * @param reserve whether the ancestor has a max quota, in which case the added size is reserved until it is
+     *            rolled up
+     */
+    public static void add(String repository, String docId, long deltaTotal, long deltaTrash, long deltaVersions,
+            boolean reserve) {
+        if (TransactionHelper.isTransactionMarkedRollback()) {
+            // nothing will be committed
+            return;
+        }
+        boolean inTransaction = TransactionHelper.isTransactionActive();
+        QuotaSizeDeltaCollector collector = getCollector(inTransaction);
+        String key = repository + ":" + docId;
+        collector.deltas.computeIfAbsent(key, k -> new QuotaSizeDelta(repository, docId))
+                        .add(deltaTotal, deltaTrash, deltaVersions, 0);
+        if (reserve) {
+            collector.reservedKeys.add(key);
+        }
+        if (!inTransaction) {
+            // there is no transaction so don't wait for a commit
+            collector.flush();
+        }
+    }
+
+    @Override
+    public void beforeCompletion() {
+        log.debug("Going to append {} quota size deltas", deltas::size);
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        try {
+            if (status == Status.STATUS_COMMITTED) {
+                flush();
+            } else {
+                release();
+            }
+        } catch (RuntimeException e) {
+            // the transaction is already committed
+            log.error("Cannot append quota size deltas, statistics need to be recomputed: {}", deltas.values(), e);
+        } finally {
+            COLLECTOR.remove();
+        }
+    }
+
+    protected void flush() {
+        try {
+            StreamManager streamManager = Framework.getService(StreamService.class).getStreamManager();
+            for (Entry<String, QuotaSizeDelta> entry : deltas.entrySet()) {
+                String key = entry.getKey();
+                QuotaSizeDelta delta = entry.getValue();
+                if (delta.getTotal() == 0 && delta.getTrash() == 0 && delta.getVersions() == 0) {
+                    continue;
+                }
+                QuotaSizeDelta reservation = reservations.get(key);
+                long reserved = reservation == null ? 0 : reservation.getReserved();
+                // a size added without a quota check, e.g. by a restore, is reserved until it is rolled up too
+                long unreserved = reservedKeys.contains(key) ? Math.max(delta.getTotal() - reserved, 0) : 0;
+                delta.setReserved(reserved + unreserved);
+                // the deltas of a document always go to the same partition, no concurrent updates of a document
+                streamManager.append(STREAM_NAME, Record.of(delta.getDocId(), delta.toJson()));
+                // the reservation is now released by the rollup
+                reservations.remove(key);
+                // reserved once appended so that a failure never leaves a reservation behind
+                QuotaSizeReservations.add(delta.getRepository(), delta.getDocId(), unreserved);
+            }
+        } finally {
+            deltas.clear();
+            reservedKeys.clear();
+            // the reservations not carried by an appended delta would never be released by the rollup
+            release();
+        }
+    }
+
+    /** Releases the sizes reserved by the quota checks of the transaction. */
+    protected void release() {
+        for (QuotaSizeDelta reservation : reservations.values()) {
+            QuotaSizeReservations.add(reservation.getRepository(), reservation.getDocId(), -reservation.getReserved());
+        }
+        reservations.clear();
+    }
+
+}
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.size;
+
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.kv.KeyValueService;
+import org.nuxeo.runtime.kv.KeyValueStore;
+
+/**
+ * Counters of the size added under the documents having a max quota and not yet rolled up to their statistics by the
+ * {@link QuotaSizeRollupProcessor}, so that the quota check stays a hard limit.
+ * <p>
+ * The counters are held by a key/value store, in memory by default, shared by the nodes of a cluster when the store
+ * is.
+ *
+ * @since 2023.10
+ */
+public class QuotaSizeReservations {
+
+    public static final String KV_STORE_NAME = "quotaSizeReservations";
+
+    private QuotaSizeReservations() {
+        // utility class
+    }
+
+    protected static KeyValueStore getKeyValueStore() {
+        return Framework.getService(KeyValueService.class).getKeyValueStore(KV_STORE_NAME);
+    }
+
+    protected static String getKey(String repository, String docId) {
+        return repository + ":" + docId;
+    }
+
+    /** Gets the size reserved on a document. */
+    public static long get(String repository, String docId) {
+        Long reserved = getKeyValueStore().getLong(getKey(repository, docId));
+        return reserved == null ? 0 : reserved.longValue();
+    }
+
+    /** Adds to the size reserved on a document, a negative delta releasing it. */
+    public static void add(String repository, String docId, long delta) {
+        if (delta != 0) {
+            getKeyValueStore().addAndGet(getKey(repository, docId), delta);
+        }
+    }
+
+    /** Atomically adds to the size reserved on a document and returns the new reserved size. */
+    public static long addAndGet(String repository, String docId, long delta) {
+        return getKeyValueStore().addAndGet(getKey(repository, docId), delta);
+    }
+
+}
@@ -0,0 +1,132 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.size;
+
+import static org.nuxeo.ecm.quota.size.QuotaSizeDeltaCollector.STREAM_NAME;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.IdRef;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.Topology;
+import org.nuxeo.runtime.stream.StreamProcessorTopology;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * Rolls up the size deltas of the {@value QuotaSizeDeltaCollector#STREAM_NAME} stream to the size statistics of the
+ * ancestors of the changed documents.
+ * <p>
+ * The deltas of a batch are summed up per document, so that a document is updated once per batch whatever the number
+ * of changes below it. The deltas of a document are always in the same partition, so a document is never updated
+ * concurrently by the computation.
+ *
+ * @since 2023.10
+ */
+public class QuotaSizeRollupProcessor implements StreamProcessorTopology {
+
+    private static final Logger log = LogManager.getLogger(QuotaSizeRollupProcessor.class);
+
+    public static final String COMPUTATION_NAME = "quota/sizeRollup";
+
+    @Override
+    public Topology getTopology(Map<String, String> options) {
+        return Topology.builder()
+                       .addComputation(() -> new QuotaSizeRollupComputation(COMPUTATION_NAME),
+                               Collections.singletonList("i1:" + STREAM_NAME))
+                       .build();
+    }
+
+    public static class QuotaSizeRollupComputation extends AbstractBatchComputation {
+
+        public QuotaSizeRollupComputation(String name) {
+            super(name, 1, 0);
+        }
+
+        @Override
+        protected void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
+            Map<String, Map<String, QuotaSizeDelta>> deltasByRepository = new HashMap<>();
+            for (Record record : records) {
+                QuotaSizeDelta delta;
+                try {
+                    delta = QuotaSizeDelta.fromJson(record.getData());
+                } catch (NuxeoException e) {
+                    log.error("Discard invalid record: {}", record, e);
+                    continue;
+                }
+                addDelta(deltasByRepository, delta);
+            }
+            log.debug("Rolling up {} quota size deltas", records::size);
+            // a single transaction for the whole batch, a failure rolls it back before the batch is retried
+            TransactionHelper.runInTransaction(() -> deltasByRepository.forEach(
+                    (repository, deltas) -> CoreInstance.doPrivileged(repository,
+                            (CoreSession session) -> deltas.values().forEach(delta -> apply(session, delta)))));
+            deltasByRepository.values()
+                              .stream()
+                              .flatMap(deltas -> deltas.values().stream())
+                              .forEach(delta -> QuotaSizeReservations.add(delta.getRepository(), delta.getDocId(),
+                                      -delta.getReserved()));
+        }
+
+        protected void addDelta(Map<String, Map<String, QuotaSizeDelta>> deltasByRepository, QuotaSizeDelta delta) {
+            deltasByRepository.computeIfAbsent(delta.getRepository(), k -> new LinkedHashMap<>())
+                              .computeIfAbsent(delta.getDocId(),
+                                      k -> new QuotaSizeDelta(delta.getRepository(), delta.getDocId()))
+                              .add(delta);
+        }
+
+        protected void apply(CoreSession session, QuotaSizeDelta delta) {
+            IdRef ref = new IdRef(delta.getDocId());
+            if (!session.exists(ref)) {
+                // removed since
+                return;
+            }
+            DocumentModel doc = session.getDocument(ref);
+            QuotaAware quotaDoc = doc.getAdapter(QuotaAware.class);
+            if (quotaDoc == null) {
+                quotaDoc = QuotaAwareDocumentFactory.make(doc);
+            }
+            log.trace("Rolling up {} on: {}", delta, doc.getPathAsString());
+            if (delta.getTotal() != 0) {
+                quotaDoc.addTotalSize(delta.getTotal());
+            }
+            if (delta.getTrash() != 0) {
+                quotaDoc.addTrashSize(delta.getTrash());
+            }
+            if (delta.getVersions() != 0) {
+                quotaDoc.addVersionsSize(delta.getVersions());
+            }
+            quotaDoc.save();
+        }
+
+        @Override
+        public void batchFailure(ComputationContext context, String inputStreamName, List<Record> records) {
+            // error log already done by abstract
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.ecm.quota.count;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.assertQuota;
+import static org.nuxeo.ecm.quota.count.QuotaFeature.createFakeBlob;
+import static org.nuxeo.ecm.quota.size.DocumentsSizeUpdater.ASYNC_ROLLUP_ENABLED_PROP;
+
+import java.util.concurrent.CompletableFuture;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.bulk.CoreBulkFeature;
+import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.ecm.quota.size.QuotaAware;
+import org.nuxeo.ecm.quota.size.QuotaExceededException;
+import org.nuxeo.ecm.quota.size.QuotaSizeDeltaCollector;
+import org.nuxeo.ecm.quota.size.QuotaSizeReservations;
+import org.nuxeo.ecm.quota.size.QuotaSizeRollupProcessor;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamService;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+import org.nuxeo.runtime.transaction.TransactionHelper;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ QuotaFeature.class, CoreBulkFeature.class })
+@WithFrameworkProperty(name = ASYNC_ROLLUP_ENABLED_PROP, value = "true")
+public class TestDocumentsSizeUpdaterAsync {
+
+    @Inject
+    protected CoreSession session;
+
+    @Inject
+    protected CoreFeature coreFeature;
+
+    protected DocumentModel ws;
+
+    protected DocumentModel folder;
+
+    protected DocumentModel subFolder;
+
+    protected DocumentModel createDocument(DocumentModel parent, String name, String type, int size) {
+        DocumentModel doc = session.createDocumentModel(parent.getPathAsString(), name, type);
+        if (size > 0) {
+            doc.setPropertyValue("file:content", createFakeBlob(size));
+        }
+        return session.createDocument(doc);
+    }
+
+    protected void addContent() {
+        ws = createDocument(session.getRootDocument(), "ws", "Workspace", 0);
+        folder = createDocument(ws, "folder", "Folder", 0);
+        subFolder = createDocument(folder, "subfolder", "Folder", 0);
+        createDocument(subFolder, "file1", "File", 100);
+        createDocument(subFolder, "file2", "File", 200);
+        waitForRollup();
+    }
+
+    protected void waitForRollup() {
+        coreFeature.waitForAsyncCompletion(); // commit the transaction
+        LogManager logManager = Framework.getService(StreamService.class).getLogManager();
+        Name stream = Name.ofUrn(QuotaSizeDeltaCollector.STREAM_NAME);
+        Name computation = Name.ofUrn(QuotaSizeRollupProcessor.COMPUTATION_NAME);
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (logManager.getLag(stream, computation).lag() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Quota size rollup not completed in 20s");
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    @Test
+    public void testQuotaOnAddContent() {
+        addContent();
+
+        assertQuota(session.getDocument(subFolder.getRef()), 0L, 300L);
+        assertQuota(session.getDocument(folder.getRef()), 0L, 300L);
+        assertQuota(session.getDocument(ws.getRef()), 0L, 300L);
+
+        session.removeDocument(session.getChild(subFolder.getRef(), "file1").getRef());
+        waitForRollup();
+
+        assertQuota(session.getDocument(subFolder.getRef()), 0L, 200L);
+        assertQuota(session.getDocument(folder.getRef()), 0L, 200L);
+        assertQuota(session.getDocument(ws.getRef()), 0L, 200L);
+    }
+
+    @Test
+    public void testQuotaExceeded() {
+        addContent();
+
+        QuotaAware qa = session.getDocument(ws.getRef()).getAdapter(QuotaAware.class);
+        qa.setMaxQuota(400);
+        qa.save();
+        waitForRollup();
+
+        // the sizes not yet rolled up are taken into account
+        createDocument(folder, "file3", "File", 60);
+        try {
+            createDocument(folder, "file4", "File", 60);
+            fail("Should have failed due to quota exceeded");
+        } catch (Exception e) {
+            assertTrue(QuotaExceededException.isQuotaExceededException(e));
+            TransactionHelper.setTransactionRollbackOnly();
+            TransactionHelper.commitOrRollbackTransaction();
+            TransactionHelper.startTransaction();
+        }
+        waitForRollup();
+        assertQuota(session.getDocument(ws.getRef()), 0L, 300L);
+        assertEquals(0, QuotaSizeReservations.get(session.getRepositoryName(), ws.getId()));
+
+        createDocument(folder, "file3", "File", 60);
+        waitForRollup();
+        assertQuota(session.getDocument(ws.getRef()), 0L, 360L);
+        // the reservation is released once rolled up
+        assertEquals(0, QuotaSizeReservations.get(session.getRepositoryName(), ws.getId()));
+    }
+
+    @Test
+    public void testQuotaReservedAcrossTransactions() throws Exception {
+        addContent();
+
+        QuotaAware qa = session.getDocument(ws.getRef()).getAdapter(QuotaAware.class);
+        qa.setMaxQuota(400);
+        qa.save();
+        waitForRollup();
+
+        String repositoryName = session.getRepositoryName();
+        // reserved at check time, before the transaction is committed and rolled up
+        createDocument(folder, "file3", "File", 60);
+        assertEquals(60, QuotaSizeReservations.get(repositoryName, ws.getId()));
+
+        // a concurrent transaction sees the reservation
+        assertTrue(runInOtherTransaction(repositoryName, "file4"));
+        assertEquals(60, QuotaSizeReservations.get(repositoryName, ws.getId()));
+
+        // the reservation is released on rollback
+        TransactionHelper.setTransactionRollbackOnly();
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        assertEquals(0, QuotaSizeReservations.get(repositoryName, ws.getId()));
+
+        assertFalse(runInOtherTransaction(repositoryName, "file4"));
+        waitForRollup();
+        assertQuota(session.getDocument(ws.getRef()), 0L, 360L);
+        assertEquals(0, QuotaSizeReservations.get(repositoryName, ws.getId()));
+    }
+
+    /** Creates a file under the folder in another thread and transaction, returns whether the quota is exceeded. */
+    protected boolean runInOtherTransaction(String repositoryName, String name) throws Exception {
+        String folderPath = folder.getPathAsString();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                TransactionHelper.runInTransaction(() -> CoreInstance.doPrivileged(repositoryName, s -> {
+                    DocumentModel doc = s.createDocumentModel(folderPath, name, "File");
+                    doc.setPropertyValue("file:content", createFakeBlob(60));
+                    s.createDocument(doc);
+                }));
+                return false;
+            } catch (RuntimeException e) {
+                if (QuotaExceededException.isQuotaExceededException(e)) {
+                    return true;
+                }
+                throw e;
+            }
+        }).get();
+    }
+
+}
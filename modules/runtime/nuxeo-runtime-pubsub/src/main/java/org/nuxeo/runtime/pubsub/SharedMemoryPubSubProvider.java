@@ -0,0 +1,481 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.pubsub;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.utils.DurationUtils;
+import org.nuxeo.runtime.RuntimeServiceException;
+
+/**
+ * A Pub/Sub provider based on a ring buffer in a memory-mapped file, for nodes running in several JVMs on the same
+ * host.
+ * <p>
+ * All the nodes mapping the same file receive all the messages published by any of them, including their own, without
+ * any broker. Each node registers as a reader in the file header and polls the ring buffer from a dedicated thread.
+ * <p>
+ * A publisher waits, up to the {@value #PUBLISH_TIMEOUT_OPT} option, for the slowest reader before overwriting data it
+ * has not read yet. A reader that has been overrun skips to the most recent message and logs the messages it lost.
+ * Readers that did not update their heartbeat for {@value #READER_TIMEOUT_MS} ms, for instance because their JVM died,
+ * are ignored.
+ *
+ * @since 2023.10
+ */
+public class SharedMemoryPubSubProvider extends AbstractPubSubProvider {
+
+    private static final Logger log = LogManager.getLogger(SharedMemoryPubSubProvider.class);
+
+    /** The path of the shared file, all the nodes of a cluster on a host must use the same. */
+    protected static final String FILE_OPT = "file";
+
+    protected static final String DEFAULT_FILE = "nuxeo-pubsub.ring";
+
+    /** The size of the ring buffer, in bytes. Ignored if the file already exists. */
+    protected static final String SIZE_OPT = "size";
+
+    protected static final long DEFAULT_SIZE = 16 * 1024 * 1024;
+
+    /** How long a publisher waits for slow readers before overwriting the messages they have not read. */
+    protected static final String PUBLISH_TIMEOUT_OPT = "publishTimeout";
+
+    protected static final Duration DEFAULT_PUBLISH_TIMEOUT = Duration.ofSeconds(1);
+
+    protected static final int MAGIC = 0x4e585053; // NXPS
+
+    protected static final int VERSION = 1;
+
+    // file header layout, positions are on separate cache lines
+
+    protected static final int MAGIC_OFFSET = 0;
+
+    protected static final int VERSION_OFFSET = 4;
+
+    protected static final int CAPACITY_OFFSET = 8;
+
+    protected static final int WRITE_POSITION_OFFSET = 64;
+
+    protected static final int READERS_OFFSET = 128;
+
+    /** A reader slot holds its heartbeat then its position. */
+    protected static final int READER_SLOT_SIZE = 64;
+
+    protected static final int MAX_READERS = 32;
+
+    protected static final int DATA_OFFSET = 4096;
+
+    // record layout: stamp (-(position + 1) once reserved, position + 1 once committed), topic length (-1 for
+    // padding), message length
+
+    protected static final int RECORD_HEADER_SIZE = 16;
+
+    protected static final int ALIGNMENT = 16;
+
+    protected static final long READER_TIMEOUT_MS = 10_000;
+
+    protected static final long HEARTBEAT_INTERVAL_MS = 1_000;
+
+    /** Delay after which a record reserved by a publisher but never committed is skipped. */
+    protected static final long COMMIT_TIMEOUT_MS = 1_000;
+
+    protected static final int IDLE_SPINS = 100;
+
+    protected static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    protected static final VarHandle LONG = MethodHandles.byteBufferViewVarHandle(long[].class,
+            ByteOrder.nativeOrder());
+
+    protected Path path;
+
+    protected MappedByteBuffer buffer;
+
+    protected long capacity;
+
+    protected Duration publishTimeout;
+
+    /** The offset of the reader slot of this node in the file header. */
+    protected int readerSlot;
+
+    protected Thread thread;
+
+    protected final AtomicLong overruns = new AtomicLong();
+
+    @Override
+    public void initialize(Map<String, String> options, Map<String, List<BiConsumer<String, byte[]>>> subscribers) {
+        log.debug("Initializing");
+        super.initialize(options, subscribers);
+        String file = options.get(FILE_OPT);
+        path = file == null ? Path.of(System.getProperty("java.io.tmpdir"), DEFAULT_FILE) : Path.of(file);
+        String size = options.get(SIZE_OPT);
+        long requestedCapacity = size == null ? DEFAULT_SIZE : Long.parseLong(size);
+        publishTimeout = DurationUtils.parsePositive(options.get(PUBLISH_TIMEOUT_OPT), DEFAULT_PUBLISH_TIMEOUT);
+        try {
+            map(align(requestedCapacity));
+        } catch (IOException e) {
+            throw new RuntimeServiceException("Cannot map pubsub file: " + path, e);
+        }
+        readerSlot = acquireReaderSlot();
+        startSubscriberThread();
+        log.debug("Initialized on file: {} with capacity: {}", path, capacity);
+    }
+
+    protected void map(long requestedCapacity) throws IOException {
+        if (requestedCapacity < 4 * ALIGNMENT || requestedCapacity > Integer.MAX_VALUE - DATA_OFFSET) {
+            throw new RuntimeServiceException("Invalid pubsub ring buffer size: " + requestedCapacity);
+        }
+        try (FileChannel channel = FileChannel.open(path, CREATE, READ, WRITE); FileLock lock = channel.lock()) {
+            if (channel.size() >= DATA_OFFSET) {
+                buffer = channel.map(MapMode.READ_WRITE, 0, channel.size());
+                buffer.order(ByteOrder.nativeOrder());
+                if (buffer.getInt(MAGIC_OFFSET) == MAGIC) {
+                    if (buffer.getInt(VERSION_OFFSET) != VERSION) {
+                        throw new RuntimeServiceException("Unsupported version of pubsub file: " + path);
+                    }
+                    capacity = buffer.getLong(CAPACITY_OFFSET);
+                    if (capacity != requestedCapacity) {
+                        log.warn("Pubsub file: {} already exists with a capacity of: {}, ignoring requested size: {}",
+                                path, capacity, requestedCapacity);
+                    }
+                    return;
+                }
+            }
+            // new file, or initialization interrupted
+            capacity = requestedCapacity;
+            buffer = channel.map(MapMode.READ_WRITE, 0, DATA_OFFSET + capacity);
+            buffer.order(ByteOrder.nativeOrder());
+            for (int i = 0; i < DATA_OFFSET; i += Long.BYTES) {
+                buffer.putLong(i, 0);
+            }
+            buffer.putLong(CAPACITY_OFFSET, capacity);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(MAGIC_OFFSET, MAGIC);
+            buffer.force();
+        }
+    }
+
+    protected static long align(long length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    protected long getWritePosition() {
+        return (long) LONG.getVolatile(buffer, WRITE_POSITION_OFFSET);
+    }
+
+    /**
+     * Claims a free reader slot, the heartbeat is negative while the slot is being initialized.
+     */
+    protected int acquireReaderSlot() {
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < MAX_READERS; i++) {
+            int slot = READERS_OFFSET + i * READER_SLOT_SIZE;
+            long heartbeat = (long) LONG.getVolatile(buffer, slot);
+            if ((heartbeat == 0 || now - Math.abs(heartbeat) > READER_TIMEOUT_MS)
+                    && LONG.compareAndSet(buffer, slot, heartbeat, -now)) {
+                LONG.setVolatile(buffer, slot + Long.BYTES, getWritePosition());
+                LONG.setVolatile(buffer, slot, now);
+                return slot;
+            }
+        }
+        throw new RuntimeServiceException("No free reader slot in pubsub file: " + path);
+    }
+
+    /**
+     * Gets the position of the slowest active reader, or the given position if there is none.
+     */
+    protected long getMinReaderPosition(long position) {
+        long now = System.currentTimeMillis();
+        long min = position;
+        for (int i = 0; i < MAX_READERS; i++) {
+            int slot = READERS_OFFSET + i * READER_SLOT_SIZE;
+            long heartbeat = (long) LONG.getVolatile(buffer, slot);
+            if (heartbeat > 0 && now - heartbeat <= READER_TIMEOUT_MS) {
+                min = Math.min(min, (long) LONG.getVolatile(buffer, slot + Long.BYTES));
+            }
+        }
+        return min;
+    }
+
+    protected void startSubscriberThread() {
+        thread = new Thread(new Subscriber(), "Nuxeo-PubSub-SharedMemory");
+        thread.setUncaughtExceptionHandler((t, e) -> log.error("Uncaught error on thread: {}", t.getName(), e));
+        thread.setPriority(Thread.NORM_PRIORITY);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void publish(String topic, byte[] message) {
+        byte[] topicBytes = topic.getBytes(UTF_8);
+        long length = align(RECORD_HEADER_SIZE + topicBytes.length + message.length);
+        if (length > capacity / 2) {
+            log.error("Message of: {} bytes too large for pubsub file: {}, dropping it for topic: {}",
+                    message.length, path, topic);
+            return;
+        }
+        long deadline = 0;
+        for (;;) {
+            long position = getWritePosition();
+            long offset = position % capacity;
+            // a record is never split, pad until the end of the buffer if it doesn't fit
+            long padding = offset + length > capacity ? capacity - offset : 0;
+            long end = position + padding + length;
+            if (end - getMinReaderPosition(position) > capacity) {
+                // backpressure, wait for the slowest reader
+                if (deadline == 0) {
+                    deadline = System.nanoTime() + publishTimeout.toNanos();
+                }
+                if (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                    if (Thread.currentThread().isInterrupted()) {
+                        log.debug("Interrupted while publishing on topic: {}", topic);
+                        return;
+                    }
+                    continue;
+                }
+                // the slow readers will detect the overrun
+                log.debug("Overwriting unread messages after waiting: {}", publishTimeout);
+            }
+            if (LONG.compareAndSet(buffer, WRITE_POSITION_OFFSET, position, end)) {
+                if (padding > 0) {
+                    writeRecord(position, null, null, (int) padding);
+                    position += padding;
+                }
+                writeRecord(position, topicBytes, message, message.length);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a record at a reserved position, the record is visible to the readers once its stamp is written.
+     * <p>
+     * The lengths are written first with a reservation stamp, so that the readers can skip the record if its publisher
+     * dies before committing it.
+     */
+    protected void writeRecord(long position, byte[] topic, byte[] message, int messageLength) {
+        int offset = DATA_OFFSET + (int) (position % capacity);
+        buffer.putInt(offset + 8, topic == null ? -1 : topic.length);
+        buffer.putInt(offset + 12, messageLength);
+        LONG.setRelease(buffer, offset, -(position + 1));
+        if (topic != null) {
+            buffer.put(offset + RECORD_HEADER_SIZE, topic);
+            buffer.put(offset + RECORD_HEADER_SIZE + topic.length, message);
+        }
+        LONG.setRelease(buffer, offset, position + 1);
+    }
+
+    /**
+     * Gets the length of a record from its header, or -1 if the header is not consistent with the position of the
+     * record, for instance because it was overwritten.
+     */
+    protected long getRecordLength(long position, int topicLength, int messageLength) {
+        long offset = position % capacity;
+        if (topicLength < 0) {
+            // padding until the end of the buffer
+            return topicLength == -1 && messageLength == capacity - offset ? messageLength : -1;
+        }
+        if (messageLength < 0) {
+            return -1;
+        }
+        long length = align(RECORD_HEADER_SIZE + (long) topicLength + messageLength);
+        return length <= capacity / 2 && offset + length <= capacity ? length : -1;
+    }
+
+    /**
+     * Gets the number of times this node was overrun by the publishers and lost messages.
+     */
+    public long getOverrunCount() {
+        return overruns.get();
+    }
+
+    @Override
+    public void close() {
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            thread = null;
+            // release the reader slot
+            LONG.setVolatile(buffer, readerSlot, 0L);
+            log.debug("Closed");
+        }
+        super.close();
+    }
+
+    public class Subscriber implements Runnable {
+
+        protected long position;
+
+        protected long lastHeartbeat;
+
+        protected long uncommittedSince;
+
+        @Override
+        public void run() {
+            position = (long) LONG.getVolatile(buffer, readerSlot + Long.BYTES);
+            log.debug("Starting subscriber thread on file: {} at position: {}", path, position);
+            int idle = 0;
+            while (!Thread.currentThread().isInterrupted()) {
+                heartbeat();
+                boolean read;
+                try {
+                    read = read();
+                } catch (RuntimeException e) {
+                    // a record overwritten while being read, don't let it stop the subscriber
+                    log.warn("Cannot read message at position: {} in pubsub file: {}", position, path, e);
+                    overrun(getWritePosition());
+                    read = true;
+                }
+                if (read) {
+                    idle = 0;
+                } else if (idle < IDLE_SPINS) {
+                    idle++;
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            log.debug("Subscriber thread interrupted, exiting");
+        }
+
+        protected void heartbeat() {
+            long now = System.currentTimeMillis();
+            if (now - lastHeartbeat >= HEARTBEAT_INTERVAL_MS) {
+                LONG.setVolatile(buffer, readerSlot, now);
+                lastHeartbeat = now;
+            }
+        }
+
+        /**
+         * Reads the next record, if any.
+         *
+         * @return {@code true} if a record was read or skipped
+         */
+        protected boolean read() {
+            long writePosition = getWritePosition();
+            if (writePosition - position > capacity) {
+                overrun(writePosition);
+                return true;
+            }
+            int offset = DATA_OFFSET + (int) (position % capacity);
+            long stamp = (long) LONG.getAcquire(buffer, offset);
+            if (stamp != position + 1) {
+                // not committed yet
+                if (writePosition > position) {
+                    long now = System.currentTimeMillis();
+                    if (uncommittedSince == 0) {
+                        uncommittedSince = now;
+                    } else if (now - uncommittedSince > COMMIT_TIMEOUT_MS) {
+                        // the publisher likely died while writing
+                        uncommittedSince = 0;
+                        skipUncommitted(offset, stamp, writePosition);
+                        return true;
+                    }
+                }
+                return false;
+            }
+            uncommittedSince = 0;
+            int topicLength = buffer.getInt(offset + 8);
+            int messageLength = buffer.getInt(offset + 12);
+            // check that the record was not overwritten before trusting its lengths
+            VarHandle.loadLoadFence();
+            writePosition = getWritePosition();
+            if (writePosition - position > capacity) {
+                overrun(writePosition);
+                return true;
+            }
+            long length = getRecordLength(position, topicLength, messageLength);
+            if (length < 0) {
+                log.warn("Invalid message header at position: {} in pubsub file: {}", position, path);
+                overrun(writePosition);
+                return true;
+            }
+            if (topicLength < 0) {
+                // padding until the end of the buffer
+                advance(position + length);
+                return true;
+            }
+            byte[] topic = new byte[topicLength];
+            byte[] message = new byte[messageLength];
+            buffer.get(offset + RECORD_HEADER_SIZE, topic);
+            buffer.get(offset + RECORD_HEADER_SIZE + topicLength, message);
+            // check that the record was not overwritten while reading it
+            VarHandle.loadLoadFence();
+            writePosition = getWritePosition();
+            if (writePosition - position > capacity) {
+                overrun(writePosition);
+                return true;
+            }
+            advance(position + length);
+            localPublish(new String(topic, UTF_8), message);
+            return true;
+        }
+
+        /**
+         * Skips a record never committed by its publisher, using the length it reserved. If the publisher died before
+         * reserving it, the length is unknown and all the messages up to the write position are lost.
+         */
+        protected void skipUncommitted(int offset, long stamp, long writePosition) {
+            if (stamp == -(position + 1)) {
+                long length = getRecordLength(position, buffer.getInt(offset + 8), buffer.getInt(offset + 12));
+                if (length > 0 && position + length <= writePosition) {
+                    log.warn("Skipping uncommitted message at position: {} in pubsub file: {}", position, path);
+                    advance(position + length);
+                    return;
+                }
+            }
+            log.warn("Skipping unreserved message at position: {} in pubsub file: {}", position, path);
+            overrun(writePosition);
+        }
+
+        protected void advance(long newPosition) {
+            position = newPosition;
+            LONG.setRelease(buffer, readerSlot + Long.BYTES, position);
+        }
+
+        protected void overrun(long writePosition) {
+            overruns.incrementAndGet();
+            log.warn("Overrun by publishers in pubsub file: {}, lost: {} bytes of messages", path,
+                    writePosition - position);
+            advance(writePosition);
+        }
+    }
+
+}
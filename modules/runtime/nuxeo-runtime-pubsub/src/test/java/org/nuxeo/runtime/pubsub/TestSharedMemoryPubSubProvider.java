@@ -0,0 +1,176 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.pubsub;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.nuxeo.runtime.pubsub.SharedMemoryPubSubProvider.DATA_OFFSET;
+import static org.nuxeo.runtime.pubsub.SharedMemoryPubSubProvider.LONG;
+import static org.nuxeo.runtime.pubsub.SharedMemoryPubSubProvider.RECORD_HEADER_SIZE;
+import static org.nuxeo.runtime.pubsub.SharedMemoryPubSubProvider.WRITE_POSITION_OFFSET;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * The providers of the test stand for several JVMs sharing the same file.
+ *
+ * @since 2023.10
+ */
+public class TestSharedMemoryPubSubProvider {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected List<SharedMemoryPubSubProvider> providers = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        providers.forEach(SharedMemoryPubSubProvider::close);
+    }
+
+    protected SharedMemoryPubSubProvider newProvider(String size, String publishTimeout,
+            BiConsumer<String, byte[]> subscriber) throws IOException {
+        Map<String, String> options = new HashMap<>();
+        options.put("file", folder.getRoot().toPath().resolve("pubsub.ring").toString());
+        options.put("size", size);
+        if (publishTimeout != null) {
+            options.put("publishTimeout", publishTimeout);
+        }
+        Map<String, List<BiConsumer<String, byte[]>>> subscribers = new ConcurrentHashMap<>();
+        subscribers.put("topicTest", new CopyOnWriteArrayList<>(List.of(subscriber)));
+        SharedMemoryPubSubProvider provider = new SharedMemoryPubSubProvider();
+        provider.initialize(options, subscribers);
+        providers.add(provider);
+        return provider;
+    }
+
+    @Test
+    public void testFanOut() throws Exception {
+        int count = 10_000;
+        List<String> messages1 = new CopyOnWriteArrayList<>();
+        List<String> messages2 = new CopyOnWriteArrayList<>();
+        CountDownLatch latch = new CountDownLatch(2 * count);
+        BiConsumer<String, byte[]> subscriber1 = (topic, message) -> {
+            messages1.add(new String(message, UTF_8));
+            latch.countDown();
+        };
+        BiConsumer<String, byte[]> subscriber2 = (topic, message) -> {
+            messages2.add(new String(message, UTF_8));
+            latch.countDown();
+        };
+        // small buffer to wrap around many times
+        SharedMemoryPubSubProvider provider1 = newProvider("65536", null, subscriber1);
+        SharedMemoryPubSubProvider provider2 = newProvider("65536", null, subscriber2);
+
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String message = "message-" + i;
+            expected.add(message);
+            // messages are received by all the nodes, including the publisher
+            (i % 2 == 0 ? provider1 : provider2).publish("topicTest", message.getBytes(UTF_8));
+            // messages for other topics are ignored
+            provider1.publish("topicOther", message.getBytes(UTF_8));
+        }
+        if (!latch.await(20, TimeUnit.SECONDS)) {
+            fail("messages not received in 20s, received: " + messages1.size() + " and " + messages2.size());
+        }
+        assertEquals(expected, messages1);
+        assertEquals(expected, messages2);
+        assertEquals(0, provider1.getOverrunCount());
+        assertEquals(0, provider2.getOverrunCount());
+    }
+
+    @Test
+    public void testOverrun() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> messages = new CopyOnWriteArrayList<>();
+        BiConsumer<String, byte[]> slowSubscriber = (topic, message) -> {
+            messages.add(new String(message, UTF_8));
+            blocked.countDown();
+            try {
+                release.await(20, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        SharedMemoryPubSubProvider provider = newProvider("4096", "10ms", slowSubscriber);
+        provider.publish("topicTest", "first".getBytes(UTF_8));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        // fill the buffer several times while the subscriber is blocked, publishers wait then overwrite
+        for (int i = 0; i < 100; i++) {
+            provider.publish("topicTest", ("message-" + i).getBytes(UTF_8));
+        }
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (provider.getOverrunCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, provider.getOverrunCount());
+        // new messages are received after the overrun
+        provider.publish("topicTest", "last".getBytes(UTF_8));
+        deadline = System.currentTimeMillis() + 5_000;
+        while (!messages.contains("last") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("first", messages.get(0));
+        assertEquals("last", messages.get(messages.size() - 1));
+        assertTrue(messages.toString(), messages.size() < 102);
+    }
+
+    @Test
+    public void testSkipUncommitted() throws Exception {
+        List<String> messages = new CopyOnWriteArrayList<>();
+        SharedMemoryPubSubProvider provider = newProvider("4096", null,
+                (topic, message) -> messages.add(new String(message, UTF_8)));
+        // a publisher reserves a record then dies before committing it
+        byte[] topic = "topicTest".getBytes(UTF_8);
+        byte[] message = "lost".getBytes(UTF_8);
+        long position = provider.getWritePosition();
+        long length = SharedMemoryPubSubProvider.align(RECORD_HEADER_SIZE + topic.length + message.length);
+        assertTrue(LONG.compareAndSet(provider.buffer, WRITE_POSITION_OFFSET, position, position + length));
+        int offset = DATA_OFFSET + (int) (position % provider.capacity);
+        provider.buffer.putInt(offset + 8, topic.length);
+        provider.buffer.putInt(offset + 12, message.length);
+        LONG.setRelease(provider.buffer, offset, -(position + 1));
+
+        // the reader skips only the uncommitted record after the commit timeout
+        provider.publish("topicTest", "next".getBytes(UTF_8));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (messages.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(List.of("next"), messages);
+        assertEquals(0, provider.getOverrunCount());
+    }
+
+}
@@ -19,6 +19,7 @@
 package org.nuxeo.runtime.stream;
 
 import java.io.Externalizable;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -26,6 +27,9 @@ import java.util.List;
 
 import org.apache.kafka.clients.consumer.CommitFailedException;
 import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.common.utils.DurationUtils;
+import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.lib.stream.StreamRuntimeException;
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.computation.Record;
@@ -41,6 +45,8 @@ import org.nuxeo.lib.stream.log.LogPartition;
 import org.nuxeo.lib.stream.log.LogTailer;
 import org.nuxeo.lib.stream.log.Name;
 import org.nuxeo.lib.stream.log.UnifiedLogManager;
+import org.nuxeo.lib.stream.log.file.FileLogConfig;
+import org.nuxeo.lib.stream.log.file.FileLogSettings;
 import org.nuxeo.lib.stream.log.internals.LogOffsetImpl;
 import org.nuxeo.lib.stream.log.kafka.KafkaLogConfig;
 import org.nuxeo.lib.stream.log.mem.MemLogConfig;
@@ -67,6 +73,9 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
 
     protected static final String XP_STREAM_PROCESSOR = "streamProcessor";
 
+    // @since 2023.10
+    protected static final String FILE_LOG_DIRECTORY = "stream";
+
     protected LogManager logManager;
 
     protected StreamManager streamManager;
@@ -137,6 +146,8 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
                 ret.add(createKafkaLogConfig(desc));
             } else if ("mem".equalsIgnoreCase(desc.type)) {
                 ret.add(createMemLogConfig(desc));
+            } else if ("file".equalsIgnoreCase(desc.type)) {
+                ret.add(createFileLogConfig(desc));
             } else {
                 ret.add(createMemLogConfig(desc));
             }
@@ -154,6 +165,27 @@ public class StreamServiceImpl extends DefaultComponent implements StreamService
         return new MemLogConfig(desc.getId(), desc.isDefault(), desc.getPatterns());
     }
 
+    /**
+     * @since 2023.10
+     */
+    protected LogConfig createFileLogConfig(LogConfigDescriptor desc) {
+        String directory = desc.options.get("directory");
+        Path basePath = directory == null ? Environment.getDefault().getData().toPath().resolve(FILE_LOG_DIRECTORY)
+                : Path.of(directory);
+        long segmentSize = SizeUtils.parseSizeInBytes(
+                desc.options.getOrDefault("segmentSize", String.valueOf(FileLogSettings.DEFAULT_SEGMENT_SIZE)));
+        if (segmentSize > Integer.MAX_VALUE) {
+            // a segment is a single memory-mapped buffer
+            throw new IllegalArgumentException(
+                    "Invalid segmentSize: %d for log config: %s, must be less than 2GB".formatted(segmentSize,
+                            desc.getId()));
+        }
+        long retentionSize = SizeUtils.parseSizeInBytes(desc.options.getOrDefault("retentionSize", "0"));
+        Duration retention = DurationUtils.parse(desc.options.getOrDefault("retention", "0s"));
+        return new FileLogConfig(desc.getId(), desc.isDefault(), desc.getPatterns(), basePath,
+                new FileLogSettings((int) segmentSize, retentionSize, retention));
+    }
+
     protected LogConfig createKafkaLogConfig(LogConfigDescriptor desc) {
         String kafkaConfig = desc.options.getOrDefault("kafkaConfig", "default");
         KafkaConfigService service = Framework.getService(KafkaConfigService.class);
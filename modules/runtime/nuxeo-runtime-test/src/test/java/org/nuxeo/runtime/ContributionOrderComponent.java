@@ -0,0 +1,49 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.ComponentInstance;
+import org.nuxeo.runtime.model.DefaultComponent;
+
+/**
+ * Records the messages of its contributions in registration order.
+ *
+ * @since 2023.10
+ */
+public class ContributionOrderComponent extends DefaultComponent {
+
+    protected final List<String> messages = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public void activate(ComponentContext context) {
+        messages.clear();
+    }
+
+    @Override
+    public void registerContribution(Object contribution, String extensionPoint, ComponentInstance contributor) {
+        messages.add(((DummyContribution) contribution).message);
+    }
+
+    public List<String> getMessages() {
+        return new ArrayList<>(messages);
+    }
+
+}
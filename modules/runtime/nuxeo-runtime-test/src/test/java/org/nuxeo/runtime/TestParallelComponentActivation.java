@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.nuxeo.runtime.model.impl.ComponentManagerImpl.PARALLEL_THREADS_PROPERTY;
+
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentManager;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+
+/**
+ * @since 2023.10
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.test.tests:contribution-order-target.xml")
+@Deploy("org.nuxeo.runtime.test.tests:contribution-order-1.xml")
+@Deploy("org.nuxeo.runtime.test.tests:contribution-order-2.xml")
+@Deploy("org.nuxeo.runtime.test.tests:contribution-order-3.xml")
+@Deploy("org.nuxeo.runtime.test.tests:contribution-order-4.xml")
+public class TestParallelComponentActivation {
+
+    @After
+    public void tearDown() {
+        Framework.getProperties().remove(PARALLEL_THREADS_PROPERTY);
+        Framework.getRuntime().getComponentManager().restart(false);
+    }
+
+    protected List<String> getMessages() {
+        Object component = Framework.getRuntime().getComponent("ContributionOrderTarget");
+        return ((ContributionOrderComponent) component).getMessages();
+    }
+
+    // activating or starting in parallel while the manager's monitor is held must not deadlock
+    @Test(timeout = 60_000)
+    public void testContributionOrder() {
+        ComponentManager mgr = Framework.getRuntime().getComponentManager();
+        List<String> expected = getMessages();
+        assertEquals(4, expected.size());
+
+        Framework.getProperties().setProperty(PARALLEL_THREADS_PROPERTY, "4");
+        for (int i = 0; i < 5; i++) {
+            mgr.restart(false);
+            // the contributions are merged in the same order as when activating sequentially
+            assertEquals(expected, getMessages());
+        }
+    }
+
+}
@@ -0,0 +1,240 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.model.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.nuxeo.runtime.model.RegistrationInfo;
+
+/**
+ * Dependency graph between components, used to run a lifecycle step on independent components in parallel.
+ * <p>
+ * Components taking part in a dependency cycle are grouped and run sequentially, in the order of the initial list,
+ * which is the order used when not running in parallel.
+ *
+ * @since 2023.10
+ */
+public class ComponentDependencyGraph {
+
+    protected final List<RegistrationInfo> ris;
+
+    protected final Map<RegistrationInfo, Integer> indexes = new IdentityHashMap<>();
+
+    // component index -> indexes of the components that must be run before
+    protected final List<Set<Integer>> dependencies;
+
+    public ComponentDependencyGraph(List<RegistrationInfo> ris) {
+        this.ris = ris;
+        dependencies = new ArrayList<>(ris.size());
+        for (int i = 0; i < ris.size(); i++) {
+            indexes.put(ris.get(i), Integer.valueOf(i));
+            dependencies.add(new LinkedHashSet<>());
+        }
+    }
+
+    /**
+     * Declares that a component must be run after another one. Ignored if one of them is not part of the graph.
+     */
+    public void addDependency(RegistrationInfo ri, RegistrationInfo dependency) {
+        Integer index = indexes.get(ri);
+        Integer dependencyIndex = indexes.get(dependency);
+        if (index != null && dependencyIndex != null && !index.equals(dependencyIndex)) {
+            dependencies.get(index.intValue()).add(dependencyIndex);
+        }
+    }
+
+    /**
+     * Runs the action on all the components using the given number of threads, a component being run only once all
+     * its dependencies have been.
+     * <p>
+     * If the action fails for a component, no new component is run and the original failure is rethrown once the
+     * running ones are done.
+     */
+    public void run(Consumer<RegistrationInfo> action, int threads, String threadName) {
+        List<List<Integer>> groups = getGroups();
+        int[] groupOf = new int[ris.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            for (int i : groups.get(g)) {
+                groupOf[i] = g;
+            }
+        }
+        // group -> groups waiting for it, and count of the groups it waits for
+        List<Set<Integer>> dependents = new ArrayList<>(groups.size());
+        int[] waitingFor = new int[groups.size()];
+        for (int g = 0; g < groups.size(); g++) {
+            dependents.add(new LinkedHashSet<>());
+        }
+        for (int g = 0; g < groups.size(); g++) {
+            Set<Integer> groupDependencies = new LinkedHashSet<>();
+            for (int i : groups.get(g)) {
+                for (int d : dependencies.get(i)) {
+                    if (groupOf[d] != g) {
+                        groupDependencies.add(Integer.valueOf(groupOf[d]));
+                    }
+                }
+            }
+            waitingFor[g] = groupDependencies.size();
+            for (int d : groupDependencies) {
+                dependents.get(d).add(Integer.valueOf(g));
+            }
+        }
+
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, newThreadFactory(threadName));
+        try {
+            CompletionService<Integer> completion = new ExecutorCompletionService<>(executor);
+            int running = 0;
+            Throwable failure = null;
+            Deque<Integer> ready = new ArrayDeque<>();
+            for (int g = 0; g < groups.size(); g++) {
+                if (waitingFor[g] == 0) {
+                    ready.add(Integer.valueOf(g));
+                }
+            }
+            while (!ready.isEmpty() || running > 0) {
+                while (failure == null && !ready.isEmpty()) {
+                    int g = ready.poll().intValue();
+                    List<Integer> group = groups.get(g);
+                    completion.submit(() -> {
+                        Thread.currentThread().setContextClassLoader(classLoader);
+                        group.forEach(i -> action.accept(ris.get(i)));
+                        return Integer.valueOf(g);
+                    });
+                    running++;
+                }
+                if (running == 0) {
+                    break;
+                }
+                int done;
+                try {
+                    done = completion.take().get().intValue();
+                } catch (ExecutionException e) {
+                    running--;
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    continue;
+                }
+                running--;
+                for (int d : dependents.get(done)) {
+                    if (--waitingFor[d] == 0) {
+                        ready.add(Integer.valueOf(d));
+                    }
+                }
+            }
+            if (failure != null) {
+                ExceptionUtils.rethrow(failure);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while running components", e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Computes the strongly connected components of the graph (Tarjan), each group being sorted in the initial order.
+     */
+    protected List<List<Integer>> getGroups() {
+        int n = ris.size();
+        int[] index = new int[n];
+        int[] lowLink = new int[n];
+        boolean[] onStack = new boolean[n];
+        Arrays.fill(index, -1);
+        Deque<Integer> stack = new ArrayDeque<>();
+        List<List<Integer>> groups = new ArrayList<>();
+        int[] counter = { 0 };
+        for (int i = 0; i < n; i++) {
+            if (index[i] == -1) {
+                strongConnect(i, index, lowLink, onStack, stack, groups, counter);
+            }
+        }
+        groups.forEach(group -> group.sort(null));
+        return groups;
+    }
+
+    protected void strongConnect(int root, int[] index, int[] lowLink, boolean[] onStack, Deque<Integer> stack,
+            List<List<Integer>> groups, int[] counter) {
+        // iterative version, to not depend on the depth of the dependencies
+        Deque<int[]> work = new ArrayDeque<>(); // { node, position in its dependencies }
+        Map<Integer, List<Integer>> edges = new HashMap<>();
+        work.push(new int[] { root, 0 });
+        while (!work.isEmpty()) {
+            int[] frame = work.peek();
+            int v = frame[0];
+            List<Integer> vEdges = edges.computeIfAbsent(Integer.valueOf(v),
+                    k -> new ArrayList<>(dependencies.get(v)));
+            if (frame[1] == 0 && index[v] == -1) {
+                index[v] = lowLink[v] = counter[0]++;
+                stack.push(Integer.valueOf(v));
+                onStack[v] = true;
+            }
+            if (frame[1] < vEdges.size()) {
+                int w = vEdges.get(frame[1]++).intValue();
+                if (index[w] == -1) {
+                    work.push(new int[] { w, 0 });
+                } else if (onStack[w]) {
+                    lowLink[v] = Math.min(lowLink[v], index[w]);
+                }
+                continue;
+            }
+            work.pop();
+            if (!work.isEmpty()) {
+                int parent = work.peek()[0];
+                lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+            }
+            if (lowLink[v] == index[v]) {
+                List<Integer> group = new ArrayList<>();
+                int w;
+                do {
+                    w = stack.pop().intValue();
+                    onStack[w] = false;
+                    group.add(Integer.valueOf(w));
+                } while (w != v);
+                groups.add(group);
+            }
+        }
+    }
+
+    protected static ThreadFactory newThreadFactory(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+}
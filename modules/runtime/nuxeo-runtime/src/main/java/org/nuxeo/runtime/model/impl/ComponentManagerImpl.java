@@ -34,6 +34,7 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -72,10 +73,27 @@ public class ComponentManagerImpl implements ComponentManager {
 
     private static final Logger log = LogManager.getLogger(ComponentManagerImpl.class);
 
+    /**
+     * Number of threads used to activate and start the components. When greater than 1, components not depending on
+     * each other are activated and started in parallel.
+     *
+     * @since 2023.10
+     */
+    public static final String PARALLEL_THREADS_PROPERTY = "org.nuxeo.runtime.component.parallel.threads";
+
     // must use an ordered Set to avoid loosing the order of the pending
     // extensions
     protected final ConcurrentMap<ComponentName, Set<Extension>> pendingExtensions;
 
+    /**
+     * Lock guarding the registration of extensions and services. It is distinct from the manager's monitor so that
+     * components activated in parallel can register their extensions while the thread starting the manager waits for
+     * them.
+     *
+     * @since 2023.10
+     */
+    protected final Object registrationLock = new Object();
+
     private ListenerList compListeners;
 
     /**
@@ -129,6 +147,13 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected volatile DescriptorRegistry descriptors;
 
+    /**
+     * Cache of the registrations read from XML, created on first use as it depends on the configuration.
+     *
+     * @since 2023.10
+     */
+    protected volatile Optional<RegistrationInfoCache> registrationInfoCache;
+
     /**
      * @since 9.2
      */
@@ -150,6 +175,26 @@ public class ComponentManagerImpl implements ComponentManager {
         descriptors = new DescriptorRegistry();
     }
 
+    /**
+     * Gets the cache of the registrations read from XML.
+     *
+     * @return the cache, or {@code null} if disabled
+     * @since 2023.10
+     */
+    public RegistrationInfoCache getRegistrationInfoCache() {
+        Optional<RegistrationInfoCache> cache = registrationInfoCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = registrationInfoCache;
+                if (cache == null) {
+                    cache = Optional.ofNullable(RegistrationInfoCache.create());
+                    registrationInfoCache = cache;
+                }
+            }
+        }
+        return cache.orElse(null);
+    }
+
     /**
      * @since 10.3
      */
@@ -187,15 +232,17 @@ public class ComponentManagerImpl implements ComponentManager {
     }
 
     @Override
-    public synchronized Map<ComponentName, Set<Extension>> getMissingRegistrations() {
-        Map<ComponentName, Set<Extension>> missing = new HashMap<>();
-        // also add pending extensions, not resolved because of missing target extension point
-        for (Set<Extension> p : pendingExtensions.values()) {
-            for (Extension e : p) {
-                missing.computeIfAbsent(e.getComponent().getName(), k -> new LinkedHashSet<>()).add(e);
+    public Map<ComponentName, Set<Extension>> getMissingRegistrations() {
+        synchronized (registrationLock) {
+            Map<ComponentName, Set<Extension>> missing = new HashMap<>();
+            // also add pending extensions, not resolved because of missing target extension point
+            for (Set<Extension> p : pendingExtensions.values()) {
+                for (Extension e : p) {
+                    missing.computeIfAbsent(e.getComponent().getName(), k -> new LinkedHashSet<>()).add(e);
+                }
             }
+            return missing;
         }
-        return missing;
     }
 
     /**
@@ -399,48 +446,52 @@ public class ComponentManagerImpl implements ComponentManager {
         }
     }
 
-    public synchronized void registerExtension(Extension extension) {
-        ComponentName name = extension.getTargetComponent();
-        RegistrationInfo ri = registry.getComponent(name);
-
-        if (ri != null && ri.getComponent() != null
-                && Set.of(RegistrationInfo.ACTIVATED, RegistrationInfo.STARTED).contains(ri.getState())) {
-            log.debug("Register contributed extension: {}", extension);
-            loadContributions(ri, extension);
-            ri.getComponent().registerExtension(extension);
-            sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
-                    ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
-        } else {
-            // put the extension in the pending queue
-            log.debug("Enqueue contributed extension to pending queue: {}", extension);
-            // must keep order in which extensions are contributed
-            pendingExtensions.computeIfAbsent(name, key -> new LinkedHashSet<>()).add(extension);
-            sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_PENDING,
-                    ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
+    public void registerExtension(Extension extension) {
+        synchronized (registrationLock) {
+            ComponentName name = extension.getTargetComponent();
+            RegistrationInfo ri = registry.getComponent(name);
+
+            if (ri != null && ri.getComponent() != null
+                    && Set.of(RegistrationInfo.ACTIVATED, RegistrationInfo.STARTED).contains(ri.getState())) {
+                log.debug("Register contributed extension: {}", extension);
+                loadContributions(ri, extension);
+                ri.getComponent().registerExtension(extension);
+                sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
+                        ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
+            } else {
+                // put the extension in the pending queue
+                log.debug("Enqueue contributed extension to pending queue: {}", extension);
+                // must keep order in which extensions are contributed
+                pendingExtensions.computeIfAbsent(name, key -> new LinkedHashSet<>()).add(extension);
+                sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_PENDING,
+                        ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
+            }
         }
     }
 
-    public synchronized void unregisterExtension(Extension extension) {
-        // TODO check if framework is shutting down and in that case do nothing
-        log.debug("Unregister contributed extension: {}", extension);
-        ComponentName name = extension.getTargetComponent();
-        RegistrationInfo ri = registry.getComponent(name);
-        if (ri != null) {
-            ComponentInstance co = ri.getComponent();
-            if (co != null) {
-                co.unregisterExtension(extension);
-            }
-        } else { // maybe it's pending
-            Set<Extension> extensions = pendingExtensions.get(name);
-            if (extensions != null) {
-                extensions.remove(extension);
-                if (extensions.isEmpty()) {
-                    pendingExtensions.remove(name);
+    public void unregisterExtension(Extension extension) {
+        synchronized (registrationLock) {
+            // TODO check if framework is shutting down and in that case do nothing
+            log.debug("Unregister contributed extension: {}", extension);
+            ComponentName name = extension.getTargetComponent();
+            RegistrationInfo ri = registry.getComponent(name);
+            if (ri != null) {
+                ComponentInstance co = ri.getComponent();
+                if (co != null) {
+                    co.unregisterExtension(extension);
+                }
+            } else { // maybe it's pending
+                Set<Extension> extensions = pendingExtensions.get(name);
+                if (extensions != null) {
+                    extensions.remove(extension);
+                    if (extensions.isEmpty()) {
+                        pendingExtensions.remove(name);
+                    }
                 }
             }
+            sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_UNREGISTERED,
+                    ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
         }
-        sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_UNREGISTERED,
-                ((ComponentInstanceImpl) extension.getComponent()).ri, extension));
     }
 
     public static void loadContributions(RegistrationInfo ri, Extension xt) {
@@ -463,25 +514,29 @@ public class ComponentManagerImpl implements ComponentManager {
         }
     }
 
-    public synchronized void registerServices(RegistrationInfo ri) {
+    public void registerServices(RegistrationInfo ri) {
         String[] serviceNames = ri.getProvidedServiceNames();
         if (serviceNames == null) {
             return;
         }
-        for (String serviceName : serviceNames) {
-            log.trace("Registering service: {}", serviceName);
-            services.put(serviceName, ri);
+        synchronized (registrationLock) {
+            for (String serviceName : serviceNames) {
+                log.trace("Registering service: {}", serviceName);
+                services.put(serviceName, ri);
+            }
         }
     }
 
-    public synchronized void unregisterServices(RegistrationInfo ri) {
+    public void unregisterServices(RegistrationInfo ri) {
         String[] serviceNames = ri.getProvidedServiceNames();
         if (serviceNames == null) {
             return;
         }
-        for (String service : serviceNames) {
-            log.trace("Unregistering service: {}", service);
-            services.remove(service);
+        synchronized (registrationLock) {
+            for (String service : serviceNames) {
+                log.trace("Unregistering service: {}", service);
+                services.remove(service);
+            }
         }
     }
 
@@ -523,18 +578,24 @@ public class ComponentManagerImpl implements ComponentManager {
         writeDevMetrics(iwatch, "instantiate");
 
         log.info("Activate components");
-        Watch awatch = new Watch();
+        int threads = getParallelThreads();
+        Watch awatch = threads > 1 ? new Watch(new ConcurrentHashMap<>()) : new Watch();
         awatch.start();
         listeners.beforeActivation();
         // make sure we start with a clean pending registry
         pendingExtensions.clear();
         List<RegistrationInfo> ris = new ArrayList<>();
-        // first activate resolved components
-        for (RegistrationInfo ri : iris) {
-            awatch.start(ri.getName().getName());
-            activateComponent(ri);
-            ris.add(ri);
-            awatch.stop(ri.getName().getName());
+        if (threads > 1) {
+            activateComponentsInParallel(iris, awatch, threads);
+            ris.addAll(iris);
+        } else {
+            // first activate resolved components
+            for (RegistrationInfo ri : iris) {
+                awatch.start(ri.getName().getName());
+                activateComponent(ri);
+                ris.add(ri);
+                awatch.stop(ri.getName().getName());
+            }
         }
         listeners.afterActivation();
         awatch.stop();
@@ -545,6 +606,87 @@ public class ComponentManagerImpl implements ComponentManager {
         return ris;
     }
 
+    /**
+     * Activates the given components on a pool of threads. A component is activated once the components it requires
+     * and the targets of its extensions are activated, so that its extensions are registered directly and not kept
+     * pending. Components contributing to the same target are activated in the given order, to keep the merge order
+     * of their contributions.
+     * <p>
+     * The workers register extensions and services under {@link #registrationLock}, as the calling thread holds the
+     * manager's monitor while waiting for them.
+     *
+     * @since 2023.10
+     */
+    protected void activateComponentsInParallel(List<RegistrationInfo> ris, Watch watch, int threads) {
+        ComponentDependencyGraph graph = new ComponentDependencyGraph(ris);
+        for (RegistrationInfo ri : ris) {
+            addRequiredDependencies(graph, ri);
+            Extension[] extensions = ri.getExtensions();
+            if (extensions != null) {
+                for (Extension xt : extensions) {
+                    graph.addDependency(ri, registry.getComponent(xt.getTargetComponent()));
+                }
+            }
+        }
+        addSharedTargetDependencies(graph, ris);
+        graph.run(ri -> {
+            watch.start(ri.getName().getName());
+            activateComponent(ri);
+            watch.stop(ri.getName().getName());
+        }, threads, "Nuxeo-Component-Activation");
+    }
+
+    /**
+     * Makes each component contributing to a target run after the previous component of the list contributing to the
+     * same target.
+     *
+     * @since 2023.10
+     */
+    protected void addSharedTargetDependencies(ComponentDependencyGraph graph, List<RegistrationInfo> ris) {
+        Map<ComponentName, RegistrationInfo> lastContributors = new HashMap<>();
+        for (RegistrationInfo ri : ris) {
+            Extension[] extensions = ri.getExtensions();
+            if (extensions == null) {
+                continue;
+            }
+            for (Extension xt : extensions) {
+                RegistrationInfo previous = lastContributors.put(xt.getTargetComponent(), ri);
+                if (previous != null) {
+                    graph.addDependency(ri, previous);
+                }
+            }
+        }
+    }
+
+    protected void addRequiredDependencies(ComponentDependencyGraph graph, RegistrationInfo ri) {
+        Set<ComponentName> requires = ri.getRequiredComponents();
+        if (requires != null) {
+            for (ComponentName name : requires) {
+                graph.addDependency(ri, registry.getComponent(name));
+            }
+        }
+    }
+
+    /**
+     * Gets the number of threads used to activate and start the components, parallelism being disabled if not greater
+     * than 1.
+     *
+     * @since 2023.10
+     */
+    protected int getParallelThreads() {
+        String value = Framework.getProperty(PARALLEL_THREADS_PROPERTY);
+        if (value == null || value.isBlank()) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Invalid value for {}: {}, components will be processed sequentially", PARALLEL_THREADS_PROPERTY,
+                    value);
+            return 0;
+        }
+    }
+
     /**
      * Instantiates the given {@link RegistrationInfo}. This step will instantiate the component.
      * <p>
@@ -607,25 +749,28 @@ public class ComponentManagerImpl implements ComponentManager {
         List<ComponentName> names = new ArrayList<>(1 + aliases.size());
         names.add(ri.getName());
         names.addAll(aliases);
-        for (ComponentName n : names) {
-            Set<Extension> pendingExt = pendingExtensions.remove(n);
-            if (pendingExt == null) {
-                continue;
-            }
-            for (Extension xt : pendingExt) {
-                try {
-                    component.registerExtension(xt);
-                    sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
-                            ((ComponentInstanceImpl) xt.getComponent()).ri, xt));
-                } catch (RuntimeException e) {
-                    ComponentName compName = xt.getComponent().getName();
-                    String msg = "Failed to register extension to: " + xt.getTargetComponent() + ", xpoint: "
-                            + xt.getExtensionPoint() + " in component: " + compName;
-                    log.error(msg, e);
-                    msg += " (" + e.toString() + ')';
-                    Framework.getRuntime()
-                             .getMessageHandler()
-                             .addMessage(new RuntimeMessage(Level.ERROR, msg, Source.EXTENSION, compName.getName()));
+        synchronized (registrationLock) {
+            for (ComponentName n : names) {
+                Set<Extension> pendingExt = pendingExtensions.remove(n);
+                if (pendingExt == null) {
+                    continue;
+                }
+                for (Extension xt : pendingExt) {
+                    try {
+                        component.registerExtension(xt);
+                        sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
+                                ((ComponentInstanceImpl) xt.getComponent()).ri, xt));
+                    } catch (RuntimeException e) {
+                        ComponentName compName = xt.getComponent().getName();
+                        String msg = "Failed to register extension to: " + xt.getTargetComponent() + ", xpoint: "
+                                + xt.getExtensionPoint() + " in component: " + compName;
+                        log.error(msg, e);
+                        msg += " (" + e.toString() + ')';
+                        Framework.getRuntime()
+                                 .getMessageHandler()
+                                 .addMessage(
+                                         new RuntimeMessage(Level.ERROR, msg, Source.EXTENSION, compName.getName()));
+                    }
                 }
             }
         }
@@ -716,13 +861,18 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected void startComponents(List<RegistrationInfo> ris, boolean isResume) {
         log.info("Start components (isResume={})", isResume);
-        Watch watch = new Watch();
+        int threads = getParallelThreads();
+        Watch watch = threads > 1 ? new Watch(new ConcurrentHashMap<>()) : new Watch();
         watch.start();
         listeners.beforeStart(isResume);
-        for (RegistrationInfo ri : ris) {
-            watch.start(ri.getName().getName());
-            startComponent(ri);
-            watch.stop(ri.getName().getName());
+        if (threads > 1) {
+            startComponentsInParallel(ris, watch, threads);
+        } else {
+            for (RegistrationInfo ri : ris) {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            }
         }
         this.started = ris;
         listeners.afterStart(isResume);
@@ -732,6 +882,35 @@ public class ComponentManagerImpl implements ComponentManager {
         writeDevMetrics(watch, "start");
     }
 
+    /**
+     * Starts the given components, sorted by start order, on a pool of threads. Components having the same start
+     * order are started in parallel once the components they require are started, a start order being processed only
+     * once all the components of the previous ones are started. Components contributing to the same target are
+     * started in the given order.
+     *
+     * @since 2023.10
+     */
+    protected void startComponentsInParallel(List<RegistrationInfo> ris, Watch watch, int threads) {
+        int from = 0;
+        while (from < ris.size()) {
+            int order = ris.get(from).getApplicationStartedOrder();
+            int to = from + 1;
+            while (to < ris.size() && ris.get(to).getApplicationStartedOrder() == order) {
+                to++;
+            }
+            List<RegistrationInfo> level = ris.subList(from, to);
+            ComponentDependencyGraph graph = new ComponentDependencyGraph(level);
+            level.forEach(ri -> addRequiredDependencies(graph, ri));
+            addSharedTargetDependencies(graph, level);
+            graph.run(ri -> {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            }, threads, "Nuxeo-Component-Start");
+            from = to;
+        }
+    }
+
     /**
      * Starts the given {@link RegistrationInfo}. This step will start the component.
      *
@@ -824,6 +1003,11 @@ public class ComponentManagerImpl implements ComponentManager {
         // then start activated components
         startComponents(ris, false);
 
+        if (registrationInfoCache != null) {
+            // all the components of this boot are now deployed
+            registrationInfoCache.ifPresent(RegistrationInfoCache::save);
+        }
+
         return true;
     }
 
@@ -18,7 +18,11 @@
  */
 package org.nuxeo.runtime.model.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.BufferedWriter;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -27,6 +31,7 @@ import java.io.OutputStreamWriter;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.URL;
+import java.util.Collection;
 
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
@@ -36,13 +41,16 @@ import org.apache.logging.log4j.Logger;
 import org.apache.xml.serialize.Method;
 import org.apache.xml.serialize.OutputFormat;
 import org.apache.xml.serialize.XMLSerializer;
+import org.nuxeo.common.xmap.DOMSerializer;
 import org.nuxeo.runtime.Version;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.model.ComponentName;
 import org.nuxeo.runtime.model.ExtensionPoint;
 import org.nuxeo.runtime.model.RegistrationInfo;
+import org.nuxeo.runtime.model.RuntimeContext;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 
 /**
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
@@ -256,4 +264,187 @@ public class ComponentRegistrySerializer {
         return writer.toString();
     }
 
+    /**
+     * Checks whether a registration freshly read from XML can be written by
+     * {@link #writeRegistration(DataOutput, RegistrationInfoImpl)}.
+     * <p>
+     * Registrations with a configuration or properties, or whose XML declares namespaces, are not supported.
+     *
+     * @since 2023.10
+     */
+    public static boolean isWritable(RegistrationInfoImpl ri) {
+        if (ri.config != null || !ri.properties.isEmpty()) {
+            return false;
+        }
+        for (ExtensionImpl xt : ri.extensions) {
+            if (xt.element == null) {
+                return false;
+            }
+            NamedNodeMap attributes = xt.element.getOwnerDocument().getDocumentElement().getAttributes();
+            for (int i = 0; i < attributes.getLength(); i++) {
+                if (attributes.item(i).getNodeName().startsWith("xmlns")) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the descriptor of a registration freshly read from XML, see {@link #isWritable(RegistrationInfoImpl)}.
+     *
+     * @since 2023.10
+     */
+    public static void writeRegistration(DataOutput out, RegistrationInfoImpl ri) throws IOException {
+        writeString(out, ri.name.getRawName());
+        out.writeBoolean(ri.disabled);
+        writeString(out, ri.implementation);
+        writeString(out, ri.version == null ? null : ri.version.toString());
+        writeString(out, ri.bundle);
+        writeString(out, ri.documentation);
+        writeNames(out, ri.aliases);
+        writeNames(out, ri.requires);
+        ServiceDescriptor sd = ri.serviceDescriptor;
+        out.writeBoolean(sd != null);
+        if (sd != null) {
+            out.writeBoolean(sd.isFactory);
+            writeStrings(out, sd.services);
+        }
+        out.writeInt(ri.extensionPoints.length);
+        for (ExtensionPointImpl xp : ri.extensionPoints) {
+            writeString(out, xp.name);
+            writeString(out, xp.superComponent);
+            writeString(out, xp.documentation);
+            if (xp.contributions == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(xp.contributions.length);
+                for (Class<?> klass : xp.contributions) {
+                    writeString(out, klass.getName());
+                }
+            }
+        }
+        out.writeInt(ri.extensions.length);
+        for (ExtensionImpl xt : ri.extensions) {
+            writeString(out, xt.target == null ? null : xt.target.getRawName());
+            writeString(out, xt.extensionPoint);
+            writeString(out, xt.id);
+            writeString(out, xt.documentation);
+            writeString(out, DOMSerializer.toStringOmitXml(xt.element));
+        }
+    }
+
+    /**
+     * Reads a registration written by {@link #writeRegistration(DataOutput, RegistrationInfoImpl)}. The XML of the
+     * extensions is only parsed when first needed.
+     *
+     * @param ctx the context used to load the extension point contribution classes
+     * @since 2023.10
+     */
+    public static RegistrationInfoImpl readRegistration(DataInput in, RuntimeContext ctx)
+            throws IOException, ClassNotFoundException {
+        RegistrationInfoImpl ri = new RegistrationInfoImpl(new ComponentName(readString(in)));
+        ri.disabled = in.readBoolean();
+        ri.implementation = readString(in);
+        String version = readString(in);
+        ri.version = version == null ? null : Version.parseString(version);
+        ri.bundle = readString(in);
+        ri.documentation = readString(in);
+        readNames(in, ri.aliases);
+        readNames(in, ri.requires);
+        if (in.readBoolean()) {
+            ServiceDescriptor sd = new ServiceDescriptor();
+            sd.isFactory = in.readBoolean();
+            sd.services = readStrings(in);
+            ri.serviceDescriptor = sd;
+        }
+        XMapContext xctx = new XMapContext(ctx);
+        ri.extensionPoints = new ExtensionPointImpl[in.readInt()];
+        for (int i = 0; i < ri.extensionPoints.length; i++) {
+            ExtensionPointImpl xp = new ExtensionPointImpl();
+            xp.name = readString(in);
+            xp.superComponent = readString(in);
+            xp.documentation = readString(in);
+            int count = in.readInt();
+            if (count >= 0) {
+                xp.contributions = new Class<?>[count];
+                for (int j = 0; j < count; j++) {
+                    xp.contributions[j] = xctx.loadClass(readString(in));
+                }
+            }
+            xp.ri = ri;
+            ri.extensionPoints[i] = xp;
+        }
+        ri.extensions = new ExtensionImpl[in.readInt()];
+        for (int i = 0; i < ri.extensions.length; i++) {
+            ExtensionImpl xt = new ExtensionImpl();
+            String target = readString(in);
+            xt.target = target == null ? null : new ComponentName(target);
+            xt.extensionPoint = readString(in);
+            xt.id = readString(in);
+            xt.documentation = readString(in);
+            xt.xml = readString(in);
+            ri.extensions[i] = xt;
+        }
+        return ri;
+    }
+
+    protected static void writeNames(DataOutput out, Collection<ComponentName> names) throws IOException {
+        out.writeInt(names.size());
+        for (ComponentName name : names) {
+            writeString(out, name.getRawName());
+        }
+    }
+
+    protected static void readNames(DataInput in, Collection<ComponentName> names) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            names.add(new ComponentName(readString(in)));
+        }
+    }
+
+    protected static void writeStrings(DataOutput out, String[] strings) throws IOException {
+        if (strings == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(strings.length);
+        for (String string : strings) {
+            writeString(out, string);
+        }
+    }
+
+    protected static String[] readStrings(DataInput in) throws IOException {
+        int count = in.readInt();
+        if (count < 0) {
+            return null;
+        }
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = readString(in);
+        }
+        return strings;
+    }
+
+    // not using writeUTF which is limited to 64k
+    protected static void writeString(DataOutput out, String string) throws IOException {
+        if (string == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = string.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
 }
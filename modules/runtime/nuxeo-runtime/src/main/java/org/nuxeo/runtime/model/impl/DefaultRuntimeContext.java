@@ -230,6 +230,15 @@ public class DefaultRuntimeContext implements RuntimeContext {
             throw new IOException("Empty registration from " + ref.getId());
         }
         String expanded = Framework.expandVars(source);
+        RegistrationInfoCache cache = getRegistrationInfoCache();
+        String checksum = null;
+        if (cache != null) {
+            checksum = RegistrationInfoCache.checksum(expanded);
+            RegistrationInfoImpl ri = cache.get(checksum, this);
+            if (ri != null) {
+                return ri;
+            }
+        }
         RegistrationInfoImpl ri;
         try (InputStream in = new ByteArrayInputStream(expanded.getBytes())) {
             ri = createRegistrationInfo(in);
@@ -240,9 +249,22 @@ public class DefaultRuntimeContext implements RuntimeContext {
         if (ri == null || ri.getName() == null) {
             throw new IOException("Could not resolve registration from " + ref.getId());
         }
+        if (cache != null) {
+            cache.put(checksum, ri);
+        }
         return ri;
     }
 
+    /**
+     * @since 2023.10
+     */
+    protected RegistrationInfoCache getRegistrationInfoCache() {
+        if (runtime != null && runtime.getComponentManager() instanceof ComponentManagerImpl mgr) {
+            return mgr.getRegistrationInfoCache();
+        }
+        return null;
+    }
+
     public RegistrationInfoImpl createRegistrationInfo(InputStream in) throws IOException {
         return reader.read(this, in);
     }
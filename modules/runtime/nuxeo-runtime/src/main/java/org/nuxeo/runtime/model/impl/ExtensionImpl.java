@@ -21,11 +21,16 @@
 
 package org.nuxeo.runtime.model.impl;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.xml.parsers.ParserConfigurationException;
+
 import org.nuxeo.common.xmap.DOMSerializer;
+import org.nuxeo.common.xmap.XMap;
 import org.nuxeo.common.xmap.annotation.XContent;
 import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XObject;
@@ -34,6 +39,7 @@ import org.nuxeo.runtime.model.ComponentName;
 import org.nuxeo.runtime.model.Extension;
 import org.nuxeo.runtime.model.RuntimeContext;
 import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
 
 /**
  * @author <a href="mailto:bs@nuxeo.com">Bogdan Stefanescu</a>
@@ -55,7 +61,7 @@ public class ExtensionImpl implements Extension {
     String extensionPoint;
 
     @XNode("@id")
-    private String id;
+    String id;
 
     @XContent("documentation")
     String documentation;
@@ -63,6 +69,13 @@ public class ExtensionImpl implements Extension {
     @XNode("")
     Element element;
 
+    /**
+     * The XML of the extension when loaded from the component registry cache, parsed on first access.
+     *
+     * @since 2023.10
+     */
+    String xml;
+
     Object[] contributions;
 
     // declaring component
@@ -71,17 +84,30 @@ public class ExtensionImpl implements Extension {
     @Override
     public void dispose() {
         element = null;
+        xml = null;
         contributions = null;
     }
 
     @Override
-    public Element getElement() {
+    public synchronized Element getElement() {
+        if (element == null && xml != null) {
+            try {
+                element = XMap.getFactory()
+                              .newDocumentBuilder()
+                              .parse(new ByteArrayInputStream(xml.getBytes(UTF_8)))
+                              .getDocumentElement();
+            } catch (ParserConfigurationException | SAXException | IOException e) {
+                throw new IllegalStateException("Cannot parse extension " + this, e);
+            }
+            xml = null;
+        }
         return element;
     }
 
     @Override
-    public void setElement(Element element) {
+    public synchronized void setElement(Element element) {
         this.element = element;
+        xml = null;
     }
 
     @Override
@@ -158,7 +184,7 @@ public class ExtensionImpl implements Extension {
     @Override
     public String toXML() {
         try {
-            return DOMSerializer.toStringOmitXml(element);
+            return DOMSerializer.toStringOmitXml(getElement());
         } catch (IOException e) {
             System.err.println("Failed to serialize extension " + e);
             return null;
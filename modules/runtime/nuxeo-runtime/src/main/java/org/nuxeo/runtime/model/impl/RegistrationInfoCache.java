@@ -0,0 +1,219 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.RuntimeContext;
+
+/**
+ * Cache of the component registrations read from XML, persisted across restarts so that a warm boot doesn't have to
+ * map again the component descriptors with XMap.
+ * <p>
+ * Registrations are keyed by a checksum of their XML after variable expansion, so any change in a bundle or in the
+ * configuration falls back to a full read. The cache file only keeps the registrations used by the last boot.
+ *
+ * @since 2023.10
+ */
+public class RegistrationInfoCache {
+
+    private static final Logger log = LogManager.getLogger(RegistrationInfoCache.class);
+
+    /** Property enabling the cache, disabled by default. */
+    public static final String ENABLED_PROPERTY = "org.nuxeo.runtime.component.registry.cache";
+
+    public static final String FILENAME = "component-registry.cache";
+
+    protected static final int MAGIC = 0x4e58_5243; // NXRC
+
+    // to be incremented when the format of the registrations changes
+    protected static final int FORMAT_VERSION = 1;
+
+    protected final Path file;
+
+    // checksum -> serialized registration, as read from the file
+    protected volatile Map<String, byte[]> loaded;
+
+    // checksum -> serialized registration, used by this boot
+    protected final Map<String, byte[]> used = new ConcurrentHashMap<>();
+
+    protected final AtomicInteger hits = new AtomicInteger();
+
+    protected final AtomicInteger misses = new AtomicInteger();
+
+    public RegistrationInfoCache(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Creates the cache if enabled by configuration.
+     *
+     * @return the cache, or {@code null} if disabled
+     */
+    public static RegistrationInfoCache create() {
+        if (!Framework.isBooleanPropertyTrue(ENABLED_PROPERTY)) {
+            return null;
+        }
+        Environment env = Environment.getDefault();
+        if (env == null || env.getData() == null) {
+            return null;
+        }
+        return new RegistrationInfoCache(env.getData().toPath().resolve(FILENAME));
+    }
+
+    public static String checksum(String source) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Gets the registration cached for the given checksum.
+     *
+     * @return the registration, or {@code null} if not cached
+     */
+    public RegistrationInfoImpl get(String checksum, RuntimeContext ctx) {
+        byte[] bytes = getLoaded().get(checksum);
+        if (bytes != null) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                RegistrationInfoImpl ri = ComponentRegistrySerializer.readRegistration(in, ctx);
+                used.put(checksum, bytes);
+                hits.incrementAndGet();
+                return ri;
+            } catch (IOException | ClassNotFoundException e) {
+                log.debug("Ignoring cached registration: {}", checksum, e);
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Caches a registration freshly read from XML.
+     */
+    public void put(String checksum, RegistrationInfoImpl ri) {
+        if (!ComponentRegistrySerializer.isWritable(ri)) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            ComponentRegistrySerializer.writeRegistration(out, ri);
+        } catch (IOException e) {
+            log.debug("Cannot cache registration: {}", ri.getName(), e);
+            return;
+        }
+        used.put(checksum, bytes.toByteArray());
+    }
+
+    protected Map<String, byte[]> getLoaded() {
+        Map<String, byte[]> map = loaded;
+        if (map == null) {
+            synchronized (this) {
+                map = loaded;
+                if (map == null) {
+                    map = load();
+                    loaded = map;
+                }
+            }
+        }
+        return map;
+    }
+
+    protected Map<String, byte[]> load() {
+        Map<String, byte[]> map = new HashMap<>();
+        try (InputStream is = Files.newInputStream(file);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(is))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                log.info("Ignoring component registry cache with a different format: {}", file);
+                return map;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String checksum = ComponentRegistrySerializer.readString(in);
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                map.put(checksum, bytes);
+            }
+        } catch (NoSuchFileException e) {
+            // cold boot
+        } catch (IOException e) {
+            log.warn("Ignoring unreadable component registry cache: {}", file, e);
+            map.clear();
+        }
+        return map;
+    }
+
+    /**
+     * Saves the registrations used since the cache creation, if they differ from the ones loaded.
+     */
+    public synchronized void save() {
+        Map<String, byte[]> map = getLoaded();
+        log.debug("Component registry cache: {} hits, {} misses", hits, misses);
+        if (map.keySet().equals(used.keySet())) {
+            return;
+        }
+        Path tmp = file.resolveSibling(FILENAME + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream os = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(used.size());
+                for (Entry<String, byte[]> es : used.entrySet()) {
+                    ComponentRegistrySerializer.writeString(out, es.getKey());
+                    out.writeInt(es.getValue().length);
+                    out.write(es.getValue());
+                }
+            }
+            Files.move(tmp, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            loaded = new HashMap<>(used);
+        } catch (IOException e) {
+            log.warn("Cannot write component registry cache: {}", file, e);
+        }
+    }
+
+}
@@ -464,28 +464,30 @@ public class RegistrationInfoImpl implements RegistrationInfo {
         List<ComponentName> names = new ArrayList<>(1 + aliases.size());
         names.add(name);
         names.addAll(aliases);
-        for (ComponentName n : names) {
-            Set<Extension> pendingExt = manager.pendingExtensions.remove(n);
-            if (pendingExt == null) {
-                continue;
-            }
-            for (Extension xt : pendingExt) {
-                ComponentManagerImpl.loadContributions(this, xt);
-                try {
-                    component.registerExtension(xt);
-                    manager.sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
-                            ((ComponentInstanceImpl) xt.getComponent()).ri, xt));
-                } catch (RuntimeException e) {
-                    ComponentName compName = xt.getComponent().getName();
-                    String msg = "Failed to register extension to: " + xt.getTargetComponent() + ", xpoint: "
-                            + xt.getExtensionPoint() + " in component: " + compName;
-                    log.error(msg, e);
-                    msg += " (" + e.toString() + ')';
-                    Framework.getRuntime()
-                             .getMessageHandler()
-                             .addMessage(new RuntimeMessage(Level.ERROR, msg, Source.EXTENSION, compName.getName()));
+        synchronized (manager.registrationLock) {
+            for (ComponentName n : names) {
+                Set<Extension> pendingExt = manager.pendingExtensions.remove(n);
+                if (pendingExt == null) {
+                    continue;
+                }
+                for (Extension xt : pendingExt) {
+                    ComponentManagerImpl.loadContributions(this, xt);
+                    try {
+                        component.registerExtension(xt);
+                        manager.sendEvent(new ComponentEvent(ComponentEvent.EXTENSION_REGISTERED,
+                                ((ComponentInstanceImpl) xt.getComponent()).ri, xt));
+                    } catch (RuntimeException e) {
+                        ComponentName compName = xt.getComponent().getName();
+                        String msg = "Failed to register extension to: " + xt.getTargetComponent() + ", xpoint: "
+                                + xt.getExtensionPoint() + " in component: " + compName;
+                        log.error(msg, e);
+                        msg += " (" + e.toString() + ')';
+                        Framework.getRuntime()
+                                 .getMessageHandler()
+                                 .addMessage(
+                                         new RuntimeMessage(Level.ERROR, msg, Source.EXTENSION, compName.getName()));
+                    }
                 }
-            }
         }
     }
 
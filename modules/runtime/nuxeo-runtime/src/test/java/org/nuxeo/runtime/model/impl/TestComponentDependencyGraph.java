@@ -0,0 +1,103 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.nuxeo.runtime.model.RegistrationInfo;
+
+public class TestComponentDependencyGraph {
+
+    protected static List<RegistrationInfo> newRegistrationInfos(int count) {
+        List<RegistrationInfo> ris = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "c" + i;
+            ris.add((RegistrationInfo) Proxy.newProxyInstance(RegistrationInfo.class.getClassLoader(),
+                    new Class<?>[] { RegistrationInfo.class }, (proxy, method, args) -> switch (method.getName()) {
+                    case "toString" -> name;
+                    case "hashCode" -> Integer.valueOf(System.identityHashCode(proxy));
+                    case "equals" -> Boolean.valueOf(proxy == args[0]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                    }));
+        }
+        return ris;
+    }
+
+    @Test
+    public void testRunInDependencyOrder() {
+        List<RegistrationInfo> ris = newRegistrationInfos(6);
+        ComponentDependencyGraph graph = new ComponentDependencyGraph(ris);
+        // c0 <- c1 <- c2, c3 <-> c4 (cycle), c5 alone
+        graph.addDependency(ris.get(1), ris.get(0));
+        graph.addDependency(ris.get(2), ris.get(1));
+        graph.addDependency(ris.get(3), ris.get(4));
+        graph.addDependency(ris.get(4), ris.get(3));
+        graph.addDependency(ris.get(4), ris.get(2));
+        List<RegistrationInfo> done = Collections.synchronizedList(new ArrayList<>());
+        graph.run(done::add, 4, "test");
+
+        assertEquals(6, done.size());
+        assertTrue(done.indexOf(ris.get(0)) < done.indexOf(ris.get(1)));
+        assertTrue(done.indexOf(ris.get(1)) < done.indexOf(ris.get(2)));
+        // cycle run in the initial order, after its dependencies
+        assertTrue(done.indexOf(ris.get(2)) < done.indexOf(ris.get(3)));
+        assertTrue(done.indexOf(ris.get(3)) < done.indexOf(ris.get(4)));
+    }
+
+    @Test
+    public void testFailureStopsRun() {
+        List<RegistrationInfo> ris = newRegistrationInfos(3);
+        ComponentDependencyGraph graph = new ComponentDependencyGraph(ris);
+        graph.addDependency(ris.get(1), ris.get(0));
+        graph.addDependency(ris.get(2), ris.get(1));
+        List<RegistrationInfo> done = Collections.synchronizedList(new ArrayList<>());
+        try {
+            graph.run(ri -> {
+                if (ri == ris.get(1)) {
+                    throw new IllegalStateException("boom");
+                }
+                done.add(ri);
+            }, 2, "test");
+            fail("should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+        assertEquals(List.of(ris.get(0)), done);
+    }
+
+    @Test
+    public void testErrorRethrown() {
+        List<RegistrationInfo> ris = newRegistrationInfos(2);
+        ComponentDependencyGraph graph = new ComponentDependencyGraph(ris);
+        try {
+            graph.run(ri -> {
+                throw new AssertionError("boom");
+            }, 2, "test");
+            fail("should have failed");
+        } catch (AssertionError e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2023 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.runtime.model.ComponentName;
+
+public class TestRegistrationInfoCache {
+
+    protected static final String XML = """
+            <component name="my.comp" version="1.0.0">
+              <require>my.required</require>
+              <alias>my.alias</alias>
+              <documentation>Some doc</documentation>
+              <implementation class="org.nuxeo.runtime.model.DefaultComponent" />
+              <service>
+                <provide interface="java.lang.Runnable" />
+              </service>
+              <extension-point name="xp">
+                <object class="java.lang.String" />
+              </extension-point>
+              <extension target="my.other" point="otherxp">
+                <thing name="foo">bar</thing>
+              </extension>
+            </component>
+            """;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    protected static RegistrationInfoImpl parse(DefaultRuntimeContext ctx, String xml) throws Exception {
+        return ctx.createRegistrationInfo(new ByteArrayInputStream(xml.getBytes(UTF_8)));
+    }
+
+    @Test
+    public void testCacheRegistration() throws Exception {
+        DefaultRuntimeContext ctx = new DefaultRuntimeContext(null);
+        RegistrationInfoImpl parsed = parse(ctx, XML);
+        String checksum = RegistrationInfoCache.checksum(XML);
+        Path file = folder.getRoot().toPath().resolve(RegistrationInfoCache.FILENAME);
+
+        // cold boot
+        RegistrationInfoCache cache = new RegistrationInfoCache(file);
+        assertNull(cache.get(checksum, ctx));
+        cache.put(checksum, parsed);
+        cache.save();
+
+        // warm boot
+        cache = new RegistrationInfoCache(file);
+        RegistrationInfoImpl ri = cache.get(checksum, ctx);
+        assertNotNull(ri);
+        assertEquals(new ComponentName("my.comp"), ri.getName());
+        assertEquals(parsed.getVersion(), ri.getVersion());
+        assertEquals(parsed.getDocumentation(), ri.getDocumentation());
+        assertEquals(parsed.getImplementation(), ri.getImplementation());
+        assertEquals(Set.of(new ComponentName("my.required")), ri.getRequiredComponents());
+        assertEquals(Set.of(new ComponentName("my.alias")), ri.getAliases());
+        assertArrayEquals(new String[] { "java.lang.Runnable" }, ri.getProvidedServiceNames());
+        assertEquals(1, ri.getExtensionPoints().length);
+        assertEquals("xp", ri.getExtensionPoints()[0].getName());
+        assertArrayEquals(new Class<?>[] { String.class }, ri.getExtensionPoints()[0].getContributions());
+        assertEquals(1, ri.extensions.length);
+        ExtensionImpl xt = ri.extensions[0];
+        assertEquals(new ComponentName("my.other"), xt.getTargetComponent());
+        assertEquals("otherxp", xt.getExtensionPoint());
+        assertEquals("thing", xt.getElement().getElementsByTagName("thing").item(0).getNodeName());
+        assertEquals("bar", xt.getElement().getElementsByTagName("thing").item(0).getTextContent());
+
+        // a changed XML is not found
+        assertNull(cache.get(RegistrationInfoCache.checksum(XML.replace("my.comp", "my.comp2")), ctx));
+    }
+
+    @Test
+    public void testUnwritableRegistration() throws Exception {
+        DefaultRuntimeContext ctx = new DefaultRuntimeContext(null);
+        RegistrationInfoImpl ri = parse(ctx, """
+                <component name="my.comp">
+                  <property name="foo" value="bar" />
+                </component>
+                """);
+        assertFalse(ComponentRegistrySerializer.isWritable(ri));
+        assertTrue(ComponentRegistrySerializer.isWritable(parse(ctx, XML)));
+    }
+
+}
@@ -19,15 +19,19 @@
 package org.nuxeo.lib.stream.log;
 
 import java.io.Externalizable;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.file.FileLogConfig;
+import org.nuxeo.lib.stream.log.file.FileLogManager;
 import org.nuxeo.lib.stream.log.kafka.KafkaLogConfig;
 import org.nuxeo.lib.stream.log.kafka.KafkaLogManager;
 import org.nuxeo.lib.stream.log.mem.MemLogConfig;
@@ -44,6 +48,9 @@ public class UnifiedLogManager implements LogManager {
 
     protected LogManager kafkaManager;
 
+    // @since 2023.10
+    protected List<LogManager> fileManagers = new ArrayList<>();
+
     protected LogManager defaultManager;
 
     protected LogConfig defaultConfig;
@@ -57,6 +64,7 @@ public class UnifiedLogManager implements LogManager {
         this.configs = configs;
         createMemLogManager();
         createKafkaLogManager();
+        createFileLogManagers();
         findDefaultLogManger();
     }
 
@@ -82,6 +90,21 @@ public class UnifiedLogManager implements LogManager {
         }
     }
 
+    /**
+     * Creates a File LogManager per base path.
+     *
+     * @since 2023.10
+     */
+    protected void createFileLogManagers() {
+        Map<Path, LogManager> pathManagers = new LinkedHashMap<>();
+        configs.stream().filter(FileLogConfig.class::isInstance).map(FileLogConfig.class::cast).forEach(config -> {
+            LogManager manager = pathManagers.computeIfAbsent(config.getBasePath(),
+                    path -> new FileLogManager(path, config.getSettings()));
+            managers.put(config, manager);
+        });
+        fileManagers.addAll(pathManagers.values());
+    }
+
     protected void findDefaultLogManger() {
         List<LogConfig> defaultConfigs = configs.stream().filter(LogConfig::isDefault).collect(Collectors.toList());
         // use the last default config
@@ -92,6 +115,8 @@ public class UnifiedLogManager implements LogManager {
         }
         if (defaultConfig instanceof MemLogConfig) {
             defaultManager = memManager;
+        } else if (defaultConfig instanceof FileLogConfig) {
+            defaultManager = managers.get(defaultConfig);
         } else {
             defaultManager = kafkaManager;
         }
@@ -184,6 +209,7 @@ public class UnifiedLogManager implements LogManager {
         if (kafkaManager != null) {
             names.addAll(kafkaManager.listAllNames());
         }
+        fileManagers.forEach(manager -> names.addAll(manager.listAllNames()));
         return names;
     }
 
@@ -200,6 +226,7 @@ public class UnifiedLogManager implements LogManager {
         if (kafkaManager != null) {
             kafkaManager.close();
         }
+        fileManagers.forEach(LogManager::close);
     }
 
     @Override
@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * File implementation of Log, a directory containing one sub directory per partition.
+ *
+ * @since 2023.10
+ */
+public class FileLog {
+
+    protected static final String METADATA_FILE = "partitions";
+
+    private static final int MAX_PARTITIONS = 100;
+
+    private final Path dir;
+
+    private final FileLogPartition[] partitions;
+
+    protected FileLog(Path dir, int size, FileLogSettings settings) {
+        this.dir = dir;
+        partitions = new FileLogPartition[size];
+        for (int i = 0; i < size; i++) {
+            partitions[i] = new FileLogPartition(dir.resolve(String.format("%02d", i)), settings);
+        }
+    }
+
+    public static FileLog create(Path dir, Name name, int size, FileLogSettings settings) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be > 0, requested: %d".formatted(size));
+        }
+        if (size > MAX_PARTITIONS) {
+            throw new IllegalArgumentException(
+                    "Cannot create more than: %d partitions for log: %s, requested: %d".formatted(MAX_PARTITIONS, name,
+                            size));
+        }
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(dir.resolve(METADATA_FILE), String.valueOf(size));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create log: " + name, e);
+        }
+        return new FileLog(dir, size, settings);
+    }
+
+    public static FileLog open(Path dir, FileLogSettings settings) {
+        try {
+            int size = Integer.parseInt(Files.readString(dir.resolve(METADATA_FILE)).trim());
+            return new FileLog(dir, size, settings);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open log: " + dir, e);
+        }
+    }
+
+    public static boolean isLog(Path dir) {
+        return Files.isRegularFile(dir.resolve(METADATA_FILE));
+    }
+
+    public int size() {
+        return partitions.length;
+    }
+
+    public FileLogPartition getPartition(int partition) {
+        return partitions[partition];
+    }
+
+    public List<Name> getGroups() {
+        return Stream.of(partitions).map(FileLogPartition::getGroups).flatMap(Collection::stream).distinct().toList();
+    }
+
+    public void flush() {
+        Stream.of(partitions).forEach(FileLogPartition::flush);
+    }
+
+    /**
+     * Flushes and unmaps the partitions, the log must not be accessed anymore.
+     */
+    public void close() {
+        Stream.of(partitions).forEach(FileLogPartition::close);
+    }
+
+    public void checkRetention() {
+        Stream.of(partitions).forEach(FileLogPartition::checkRetention);
+    }
+
+    public void delete() {
+        close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted((a, b) -> b.compareTo(a)).toList()) {
+                Files.delete(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete log: " + dir, e);
+        }
+    }
+
+}
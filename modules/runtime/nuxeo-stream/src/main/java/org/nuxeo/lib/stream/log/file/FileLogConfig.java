@@ -0,0 +1,54 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.nuxeo.lib.stream.log.AbstractLogConfig;
+
+/**
+ * @since 2023.10
+ */
+public class FileLogConfig extends AbstractLogConfig {
+
+    private final String name;
+
+    private final Path basePath;
+
+    private final FileLogSettings settings;
+
+    public FileLogConfig(String name, boolean defaultConfig, List<String> patterns, Path basePath,
+            FileLogSettings settings) {
+        super(defaultConfig, patterns);
+        this.name = name;
+        this.basePath = basePath;
+        this.settings = settings;
+    }
+
+    public Path getBasePath() {
+        return basePath;
+    }
+
+    public FileLogSettings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public String toString() {
+        return "FileLogConfig{name='" + name + "', basePath=" + basePath + ", settings=" + settings + "}";
+    }
+}
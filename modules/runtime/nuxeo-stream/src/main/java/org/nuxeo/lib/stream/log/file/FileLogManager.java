@@ -0,0 +1,152 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import java.io.Externalizable;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import org.nuxeo.lib.stream.codec.Codec;
+import org.nuxeo.lib.stream.log.LogLag;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.RebalanceListener;
+import org.nuxeo.lib.stream.log.internals.AbstractLogManager;
+import org.nuxeo.lib.stream.log.internals.CloseableLogAppender;
+
+/**
+ * Persistent implementation of LogManager using segmented memory-mapped files stored under a base directory.
+ * <p>
+ * Records and committed offsets survive a restart, this is suitable for a single node, the base directory must not be
+ * shared between nodes.
+ * <p>
+ * There is no consumer group coordination: {@link #subscribe} assigns all the partitions of the logs to the tailer,
+ * without rebalancing, so only one subscriber per group can be active at a time.
+ *
+ * @since 2023.10
+ */
+public class FileLogManager extends AbstractLogManager {
+
+    private final FileLogs fileLogs;
+
+    private volatile boolean closed;
+
+    public FileLogManager(Path basePath) {
+        this(basePath, FileLogSettings.DEFAULT);
+    }
+
+    public FileLogManager(Path basePath, FileLogSettings settings) {
+        fileLogs = FileLogs.open(basePath, settings);
+    }
+
+    @Override
+    public boolean exists(Name name) {
+        return fileLogs.exists(name);
+    }
+
+    @Override
+    public void create(Name name, int size) {
+        fileLogs.createLog(name, size);
+    }
+
+    @Override
+    public int getSize(Name name) {
+        return fileLogs.getLog(name).size();
+    }
+
+    @Override
+    public boolean delete(Name name) {
+        return fileLogs.deleteLog(name);
+    }
+
+    @Override
+    public List<LogLag> getLagPerPartition(Name name, Name group) {
+        FileLog log = fileLogs.getLog(name);
+        int size = log.size();
+        List<LogLag> lags = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            FileLogPartition partition = log.getPartition(i);
+            LogLag lag = LogLag.of(partition.committed(group), partition.size());
+            lags.add(lag);
+        }
+        return lags;
+    }
+
+    @Override
+    public List<Name> listAllNames() {
+        return fileLogs.listAllNames();
+    }
+
+    @Override
+    public List<Name> listConsumerGroups(Name name) {
+        return fileLogs.getLogOptional(name).map(FileLog::getGroups).orElse(List.of());
+    }
+
+    @Override
+    public <M extends Externalizable> CloseableLogAppender<M> createAppender(Name name, Codec<M> codec) {
+        return new FileLogAppender<>(fileLogs, name, codec);
+    }
+
+    @Override
+    protected <M extends Externalizable> LogTailer<M> doCreateTailer(Collection<LogPartition> partitions, Name group,
+            Codec<M> codec) {
+        List<FileLogTailer<M>> tailers = partitions.stream() //
+                                                   .map(p -> createFileLogTailer(p, group, codec))
+                                                   .toList();
+        if (tailers.size() == 1) {
+            return tailers.iterator().next();
+        }
+        return new FileCompoundLogTailer<>(tailers, group);
+    }
+
+    private <M extends Externalizable> FileLogTailer<M> createFileLogTailer(LogPartition p, Name group,
+            Codec<M> codec) {
+        return (FileLogTailer<M>) ((FileLogAppender<M>) getAppender(p.name(), codec)).createTailer(p, group, codec);
+    }
+
+    @Override
+    protected <M extends Externalizable> LogTailer<M> doSubscribe(Name group, Collection<Name> names,
+            RebalanceListener listener, Codec<M> codec) {
+        List<LogPartition> partitions = names.stream()
+                                             .flatMap(name -> IntStream.range(0, size(name))
+                                                                       .mapToObj(i -> LogPartition.of(name, i)))
+                                             .toList();
+        LogTailer<M> ret = createTailer(group, partitions, codec);
+        if (listener != null) {
+            listener.onPartitionsAssigned(partitions);
+        }
+        return ret;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        if (!closed) {
+            closed = true;
+            fileLogs.release();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileLogManager{settings=" + fileLogs.getSettings() + "}";
+    }
+
+}
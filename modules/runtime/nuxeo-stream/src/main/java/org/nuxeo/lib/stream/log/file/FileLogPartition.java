@@ -0,0 +1,431 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.file.FileLogSegment.Entry;
+
+/**
+ * File implementation of Log partition, a list of memory-mapped segments plus the committed offset of each group.
+ * <p>
+ * Appends are serialized, readers are lock free: they only read records below the published end offset.
+ *
+ * @since 2023.10
+ */
+public class FileLogPartition {
+
+    private static final Logger log = LogManager.getLogger(FileLogPartition.class);
+
+    protected static final String GROUPS_DIR = "groups";
+
+    protected final Path dir;
+
+    protected final FileLogSettings settings;
+
+    // base offset -> segment
+    protected final ConcurrentSkipListMap<Long, FileLogSegment> segments = new ConcurrentSkipListMap<>();
+
+    // group -> committed offset tracker
+    protected final Map<Name, OffsetTracker> offsetTrackers = new ConcurrentHashMap<>();
+
+    // group -> tailer
+    protected final Map<Name, FilePartitionTailer> tailers = new ConcurrentHashMap<>();
+
+    protected final ReentrantLock appendLock = new ReentrantLock();
+
+    protected final Condition appended = appendLock.newCondition();
+
+    protected FileLogSegment activeSegment;
+
+    // publication point for readers
+    protected volatile long end;
+
+    /** Tracks the committed offset for a group, persisted in a memory-mapped file. */
+    public static class OffsetTracker {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Condition changed = lock.newCondition();
+
+        private final MappedByteBuffer buffer;
+
+        private volatile long offset;
+
+        private volatile boolean closed;
+
+        public OffsetTracker(Path file) {
+            try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+                buffer = channel.map(READ_WRITE, 0, Long.BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open offset file: " + file, e);
+            }
+            offset = buffer.getLong(0);
+        }
+
+        public long get() {
+            return offset;
+        }
+
+        public void set(long offset) {
+            if (closed) {
+                throw new IllegalStateException("Offset tracker closed");
+            }
+            this.offset = offset;
+            buffer.putLong(0, offset);
+            lock.lock();
+            try {
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public long awaitNanos(long nanos) throws InterruptedException {
+            lock.lock();
+            try {
+                return changed.awaitNanos(nanos);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void flush() {
+            if (!closed) {
+                buffer.force();
+            }
+        }
+
+        /**
+         * Flushes and unmaps the offset file.
+         */
+        public void close() {
+            if (!closed) {
+                closed = true;
+                buffer.force();
+                FileLogSegment.unmap(buffer);
+            }
+        }
+    }
+
+    public FileLogPartition(Path dir, FileLogSettings settings) {
+        this.dir = dir;
+        this.settings = settings;
+        try {
+            Files.createDirectories(dir.resolve(GROUPS_DIR));
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(FileLogSegment::isSegment)
+                     .map(FileLogSegment::open)
+                     .forEach(segment -> segments.put(segment.baseOffset(), segment));
+            }
+            try (Stream<Path> files = Files.list(dir.resolve(GROUPS_DIR))) {
+                files.forEach(file -> offsetTrackers.put(Name.ofId(file.getFileName().toString()),
+                        new OffsetTracker(file)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open partition: " + dir, e);
+        }
+        if (segments.isEmpty()) {
+            activeSegment = FileLogSegment.create(dir, 0, settings.segmentSize());
+            segments.put(0L, activeSegment);
+        } else {
+            activeSegment = segments.lastEntry().getValue();
+        }
+        end = activeSegment.endOffset();
+        applyRetention();
+    }
+
+    public long append(boolean noCodec, byte[] bytes) {
+        appendLock.lock();
+        try {
+            if (!activeSegment.canAppend(bytes.length)) {
+                roll(bytes.length);
+            }
+            long offset = end;
+            activeSegment.append(noCodec ? FileLogSegment.FLAG_NO_CODEC : 0, System.currentTimeMillis(), bytes);
+            end = offset + 1;
+            appended.signalAll();
+            return offset;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    protected void roll(int size) {
+        activeSegment.flush();
+        int capacity = Math.max(settings.segmentSize(), FileLogSegment.HEADER_SIZE + size);
+        activeSegment = FileLogSegment.create(dir, end, capacity);
+        segments.put(end, activeSegment);
+        log.debug("Roll to new segment: {}", activeSegment);
+        applyRetention();
+    }
+
+    /**
+     * Applies the retention policy, segments can expire by age without any append to roll the active segment.
+     */
+    public void checkRetention() {
+        appendLock.lock();
+        try {
+            applyRetention();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Removes the oldest segments exceeding the retention size or duration, the active segment is never removed.
+     */
+    protected void applyRetention() {
+        long totalSize = segments.values().stream().mapToLong(FileLogSegment::capacity).sum();
+        long minTimestamp = settings.retention().isZero() ? 0
+                : System.currentTimeMillis() - settings.retention().toMillis();
+        for (FileLogSegment segment : segments.values()) {
+            if (segment == activeSegment) {
+                break;
+            }
+            boolean tooBig = settings.retentionSize() > 0 && totalSize > settings.retentionSize();
+            boolean tooOld = segment.lastTimestamp() < minTimestamp;
+            if (!tooBig && !tooOld) {
+                break;
+            }
+            log.debug("Retention, removing segment: {}", segment);
+            segments.remove(segment.baseOffset());
+            segment.delete();
+            totalSize -= segment.capacity();
+        }
+    }
+
+    /**
+     * Waits until a record is available at the given offset.
+     *
+     * @return {@code true} if a record is available
+     */
+    public boolean awaitRecord(long offset, long nanos) throws InterruptedException {
+        if (offset < end) {
+            return true;
+        }
+        appendLock.lock();
+        try {
+            while (offset >= end && nanos > 0) {
+                nanos = appended.awaitNanos(nanos);
+            }
+            return offset < end;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the record at the given offset, or {@code null} if the offset is not yet written or has been removed by
+     * the retention policy.
+     */
+    public Entry read(long offset) {
+        if (offset >= end) {
+            return null;
+        }
+        Map.Entry<Long, FileLogSegment> entry = segments.floorEntry(offset);
+        if (entry == null) {
+            return null;
+        }
+        return entry.getValue().read(offset);
+    }
+
+    /**
+     * The first available offset, offsets below have been removed by the retention policy.
+     */
+    public long start() {
+        return segments.firstKey();
+    }
+
+    public long size() {
+        return end;
+    }
+
+    /**
+     * Returns the first offset with a timestamp greater or equal to the given timestamp, or {@code -1}.
+     */
+    public long offsetForTimestamp(long timestamp) {
+        long current = end;
+        for (FileLogSegment segment : segments.values()) {
+            if (segment.lastTimestamp() < timestamp) {
+                continue;
+            }
+            Long next = segments.higherKey(segment.baseOffset());
+            long upper = next == null ? current : Math.min(next, current);
+            for (long offset = segment.baseOffset(); offset < upper; offset++) {
+                if (segment.read(offset).timestamp() >= timestamp) {
+                    return offset;
+                }
+            }
+        }
+        return -1;
+    }
+
+    public OffsetTracker getCommittedOffsetTracker(Name group) {
+        return offsetTrackers.computeIfAbsent(group,
+                k -> new OffsetTracker(dir.resolve(GROUPS_DIR).resolve(group.getId())));
+    }
+
+    public FilePartitionTailer createTailer(Name group) {
+        MutableBoolean created = new MutableBoolean();
+        FilePartitionTailer tailer = tailers.computeIfAbsent(group, k -> {
+            created.setTrue();
+            return new FilePartitionTailer(group, getCommittedOffsetTracker(group));
+        });
+        if (created.isFalse()) {
+            throw new IllegalArgumentException("Tailer already exists: " + group);
+        }
+        return tailer;
+    }
+
+    public void closeTailer(Name group) {
+        tailers.remove(group);
+    }
+
+    public Set<Name> getGroups() {
+        return offsetTrackers.keySet();
+    }
+
+    public long committed(Name group) {
+        OffsetTracker co = offsetTrackers.get(group);
+        return co == null ? 0 : co.get();
+    }
+
+    public void flush() {
+        appendLock.lock();
+        try {
+            activeSegment.flush();
+        } finally {
+            appendLock.unlock();
+        }
+        offsetTrackers.values().forEach(OffsetTracker::flush);
+    }
+
+    /**
+     * Flushes and unmaps the segments and the offset files, the partition must not be accessed anymore.
+     */
+    public void close() {
+        appendLock.lock();
+        try {
+            segments.values().forEach(FileLogSegment::close);
+        } finally {
+            appendLock.unlock();
+        }
+        offsetTrackers.values().forEach(OffsetTracker::close);
+    }
+
+    /**
+     * A tailer for a partition maintains an offset (current reading position).
+     */
+    public class FilePartitionTailer {
+
+        private final Name group;
+
+        private final OffsetTracker offsetTracker;
+
+        private long offset;
+
+        public FilePartitionTailer(Name group, OffsetTracker offsetTracker) {
+            this.group = group;
+            this.offsetTracker = offsetTracker;
+        }
+
+        /**
+         * Reads a record from the partition and increments the current offset, records removed by the retention policy
+         * are skipped.
+         *
+         * @return the record, or {@code null} if there is no record at the current offset
+         */
+        public Entry read() {
+            long first = start();
+            if (offset < first) {
+                log.warn("Offset {} of group {} has been removed by retention, moving to {}", offset, group, first);
+                offset = first;
+            }
+            Entry entry = FileLogPartition.this.read(offset);
+            if (entry != null) {
+                offset++;
+            }
+            return entry;
+        }
+
+        /**
+         * Waits for a record to be available at the current offset.
+         */
+        public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+            return awaitRecord(offset, unit.toNanos(timeout));
+        }
+
+        public long offsetForTimestamp(long timestamp) {
+            return FileLogPartition.this.offsetForTimestamp(timestamp);
+        }
+
+        public long offset() {
+            return offset;
+        }
+
+        public void toStart() {
+            offset = start();
+        }
+
+        public void toEnd() {
+            offset = size();
+        }
+
+        public boolean moveToOffset(long offset) {
+            if (offset < 0 || offset > size()) {
+                return false;
+            }
+            this.offset = offset;
+            return true;
+        }
+
+        public void commit(long committed) {
+            offsetTracker.set(committed);
+        }
+
+        public long committed() {
+            return offsetTracker.get();
+        }
+
+        public void close() {
+            FileLogPartition.this.closeTailer(group);
+        }
+    }
+
+}
@@ -0,0 +1,252 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A memory-mapped, append-only file holding a contiguous range of records of a partition.
+ * <p>
+ * Record layout: {@code [int size + 1][byte flags][long timestamp][payload]}, a zero size marks the end of the written
+ * data, this makes the segment recoverable after a crash without any separate index file.
+ * <p>
+ * There is a single writer per segment (the partition append is serialized), readers only access positions that have
+ * been published by the partition.
+ *
+ * @since 2023.10
+ */
+public class FileLogSegment {
+
+    private static final Logger log = LogManager.getLogger(FileLogSegment.class);
+
+    protected static final String SUFFIX = ".log";
+
+    protected static final int HEADER_SIZE = Integer.BYTES + Byte.BYTES + Long.BYTES;
+
+    protected static final byte FLAG_NO_CODEC = 1;
+
+    public record Entry(byte flags, long timestamp, ByteBuffer payload, long offset) { // NOSONAR (doesn't need equals/hashCode)
+
+        public byte[] bytes() {
+            byte[] ret = new byte[payload.remaining()];
+            payload.duplicate().get(ret);
+            return ret;
+        }
+    }
+
+    protected final Path file;
+
+    protected final long baseOffset;
+
+    protected final MappedByteBuffer buffer;
+
+    protected final int capacity;
+
+    // positions of records, written by the appender before publication
+    protected int[] positions = new int[1024];
+
+    protected int count;
+
+    protected int writePosition;
+
+    protected long firstTimestamp;
+
+    protected long lastTimestamp;
+
+    protected volatile boolean closed;
+
+    protected FileLogSegment(Path file, long baseOffset, MappedByteBuffer buffer) {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+    }
+
+    public static FileLogSegment create(Path dir, long baseOffset, int capacity) {
+        Path file = dir.resolve(fileName(baseOffset));
+        try (FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+            return new FileLogSegment(file, baseOffset, channel.map(READ_WRITE, 0, capacity));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create segment: " + file, e);
+        }
+    }
+
+    public static FileLogSegment open(Path file) {
+        long baseOffset = Long.parseLong(file.getFileName().toString().replace(SUFFIX, ""));
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            FileLogSegment segment = new FileLogSegment(file, baseOffset, channel.map(READ_WRITE, 0, channel.size()));
+            segment.recover();
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open segment: " + file, e);
+        }
+    }
+
+    public static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    protected static String fileName(long baseOffset) {
+        return "%020d%s".formatted(baseOffset, SUFFIX);
+    }
+
+    protected void recover() {
+        int pos = 0;
+        while (pos + HEADER_SIZE <= capacity) {
+            int size = buffer.getInt(pos) - 1;
+            if (size < 0 || pos + HEADER_SIZE + size > capacity) {
+                break;
+            }
+            long timestamp = buffer.getLong(pos + Integer.BYTES + Byte.BYTES);
+            addPosition(pos, timestamp);
+            pos += HEADER_SIZE + size;
+        }
+        writePosition = pos;
+    }
+
+    protected void addPosition(int pos, long timestamp) {
+        if (count == positions.length) {
+            positions = Arrays.copyOf(positions, count * 2);
+        }
+        positions[count++] = pos;
+        if (count == 1) {
+            firstTimestamp = timestamp;
+        }
+        lastTimestamp = timestamp;
+    }
+
+    public boolean canAppend(int size) {
+        return writePosition + HEADER_SIZE + size <= capacity;
+    }
+
+    /**
+     * Writes the record, the size is written last so a partially written record is never recovered.
+     */
+    public void append(byte flags, long timestamp, byte[] bytes) {
+        checkOpen();
+        int pos = writePosition;
+        buffer.put(pos + Integer.BYTES, flags);
+        buffer.putLong(pos + Integer.BYTES + Byte.BYTES, timestamp);
+        buffer.put(pos + HEADER_SIZE, bytes);
+        buffer.putInt(pos, bytes.length + 1);
+        writePosition = pos + HEADER_SIZE + bytes.length;
+        addPosition(pos, timestamp);
+    }
+
+    /**
+     * Returns a read only view of the record, the payload is not copied.
+     */
+    public Entry read(long offset) {
+        checkOpen();
+        int pos = positions[(int) (offset - baseOffset)];
+        int size = buffer.getInt(pos) - 1;
+        byte flags = buffer.get(pos + Integer.BYTES);
+        long timestamp = buffer.getLong(pos + Integer.BYTES + Byte.BYTES);
+        ByteBuffer payload = buffer.slice(pos + HEADER_SIZE, size).asReadOnlyBuffer();
+        return new Entry(flags, timestamp, payload, offset);
+    }
+
+    public long baseOffset() {
+        return baseOffset;
+    }
+
+    public long endOffset() {
+        return baseOffset + count;
+    }
+
+    public long lastTimestamp() {
+        return lastTimestamp;
+    }
+
+    public long firstTimestamp() {
+        return firstTimestamp;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public void flush() {
+        if (!closed) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Flushes and unmaps the segment, which must not be accessed anymore.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        buffer.force();
+        unmap(buffer);
+    }
+
+    protected void checkOpen() {
+        if (closed) {
+            // the buffer is unmapped, accessing it would crash the JVM
+            throw new IllegalStateException("Segment closed: " + file);
+        }
+    }
+
+    /**
+     * Unmaps a buffer without waiting for its garbage collection, the buffer must not be accessed anymore.
+     */
+    protected static void unmap(MappedByteBuffer buffer) {
+        try {
+            // there is no public API to unmap a buffer in Java 17
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafeClass.getMethod("invokeCleaner", ByteBuffer.class).invoke(field.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // unmapped when garbage collected
+            log.debug("Cannot unmap buffer", e);
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete segment: " + file, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileLogSegment{file=" + file + ", baseOffset=" + baseOffset + ", count=" + count + '}';
+    }
+
+}
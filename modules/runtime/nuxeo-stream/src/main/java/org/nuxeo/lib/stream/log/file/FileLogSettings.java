@@ -0,0 +1,43 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import java.time.Duration;
+
+/**
+ * Storage settings of the File Log implementation.
+ *
+ * @param segmentSize the size in bytes of a segment file
+ * @param retentionSize the maximum size in bytes of a partition, {@code 0} means no limit
+ * @param retention the maximum age of a segment, {@link Duration#ZERO} means no limit
+ * @since 2023.10
+ */
+public record FileLogSettings(int segmentSize, long retentionSize, Duration retention) {
+
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    public static final FileLogSettings DEFAULT = new FileLogSettings(DEFAULT_SEGMENT_SIZE, 0, Duration.ZERO);
+
+    public FileLogSettings {
+        if (segmentSize <= FileLogSegment.HEADER_SIZE) {
+            throw new IllegalArgumentException("Invalid segment size: " + segmentSize);
+        }
+        if (retentionSize < 0 || retention.isNegative()) {
+            throw new IllegalArgumentException("Invalid retention: " + retentionSize + ", " + retention);
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.log.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.lib.stream.log.Name;
+
+/**
+ * File implementation of Logs, all the logs stored under a base directory.
+ * <p>
+ * A base directory is opened once per JVM, managers sharing the same directory share the same instance so there is
+ * always a single writer per segment.
+ * <p>
+ * When a retention duration is configured, it is also applied periodically so that segments expire without appends.
+ *
+ * @since 2023.10
+ */
+public class FileLogs {
+
+    private static final Logger log = LogManager.getLogger(FileLogs.class);
+
+    protected static final Duration RETENTION_CHECK_INTERVAL = Duration.ofMinutes(1);
+
+    // base directory -> opened logs
+    private static final Map<Path, FileLogs> INSTANCES = new ConcurrentHashMap<>();
+
+    private final Map<Name, FileLog> logs = new ConcurrentHashMap<>();
+
+    private final Path basePath;
+
+    private final FileLogSettings settings;
+
+    private final ScheduledExecutorService retentionExecutor;
+
+    private int references;
+
+    protected FileLogs(Path basePath, FileLogSettings settings) {
+        this.basePath = basePath;
+        this.settings = settings;
+        try {
+            Files.createDirectories(basePath);
+            try (Stream<Path> dirs = Files.list(basePath)) {
+                dirs.filter(FileLog::isLog)
+                    .forEach(dir -> logs.put(Name.ofId(dir.getFileName().toString()), FileLog.open(dir, settings)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open logs in: " + basePath, e);
+        }
+        if (settings.retention().isZero()) {
+            retentionExecutor = null;
+        } else {
+            retentionExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "FileLogRetention-" + basePath.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.min(settings.retention().toMillis(), RETENTION_CHECK_INTERVAL.toMillis());
+            retentionExecutor.scheduleWithFixedDelay(this::checkRetention, interval, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    protected void checkRetention() {
+        logs.forEach((name, fileLog) -> {
+            try {
+                fileLog.checkRetention();
+            } catch (RuntimeException e) {
+                // the log may have been deleted meanwhile
+                log.warn("Cannot apply retention on log: {}", name, e);
+            }
+        });
+    }
+
+    /**
+     * Opens the logs of a base directory, must be balanced by a call to {@link #release()}.
+     *
+     * @throws IllegalArgumentException if the base directory is already opened with different settings
+     */
+    public static FileLogs open(Path basePath, FileLogSettings settings) {
+        return INSTANCES.compute(basePath.toAbsolutePath().normalize(), (path, logs) -> {
+            if (logs != null && !logs.settings.equals(settings)) {
+                // the logs are shared, they cannot be opened with other settings
+                throw new IllegalArgumentException(String.format(
+                        "Logs in: %s are already opened with settings: %s, cannot open them with: %s", path,
+                        logs.settings, settings));
+            }
+            FileLogs ret = logs == null ? new FileLogs(path, settings) : logs;
+            ret.references++;
+            return ret;
+        });
+    }
+
+    /**
+     * Releases the logs, flushing them to disk and unmapping them when there is no more reference.
+     */
+    public void release() {
+        INSTANCES.computeIfPresent(basePath, (path, instance) -> {
+            if (--instance.references > 0) {
+                return instance;
+            }
+            if (instance.retentionExecutor != null) {
+                instance.retentionExecutor.shutdownNow();
+            }
+            instance.logs.values().forEach(FileLog::close);
+            return null;
+        });
+    }
+
+    public FileLogSettings getSettings() {
+        return settings;
+    }
+
+    public FileLog createLog(Name name, int size) {
+        MutableBoolean created = new MutableBoolean();
+        FileLog log = logs.computeIfAbsent(name, k -> {
+            created.setTrue();
+            return FileLog.create(basePath.resolve(name.getId()), name, size, settings);
+        });
+        if (created.isFalse()) {
+            throw new IllegalArgumentException("Log already exists: " + name);
+        }
+        return log;
+    }
+
+    public Optional<FileLog> getLogOptional(Name name) {
+        return Optional.ofNullable(logs.get(name));
+    }
+
+    public FileLog getLog(Name name) {
+        return getLogOptional(name).orElseThrow(() -> new IllegalArgumentException("Invalid name: " + name));
+    }
+
+    public boolean deleteLog(Name name) {
+        FileLog log = logs.remove(name);
+        if (log == null) {
+            return false;
+        }
+        log.delete();
+        return true;
+    }
+
+    public List<Name> listAllNames() {
+        return List.copyOf(logs.keySet());
+    }
+
+    public boolean exists(Name name) {
+        return logs.containsKey(name);
+    }
+
+}
@@ -15,13 +15,12 @@
  */
 package org.nuxeo.lib.stream.log.mem;
 
-import static org.nuxeo.lib.stream.log.mem.MemLogTailer.POLL_INTERVAL_MS;
-
 import java.io.Externalizable;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.locks.LockSupport;
 
 import org.nuxeo.lib.stream.codec.Codec;
 import org.nuxeo.lib.stream.log.LogOffset;
@@ -69,12 +68,27 @@ public class MemCompoundLogTailer<M extends Externalizable> implements LogTailer
         if (ret != null) {
             return ret;
         }
-        long timeoutMs = timeout.toMillis();
-        long deadline = System.currentTimeMillis() + timeoutMs;
-        long delay = Math.min(POLL_INTERVAL_MS, timeoutMs);
-        while (ret == null && System.currentTimeMillis() < deadline) {
-            Thread.sleep(delay);
-            ret = read();
+        if (size == 0) {
+            Thread.sleep(timeout.toMillis());
+            return null;
+        }
+        // park until an append happens on one of the partitions
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Thread current = Thread.currentThread();
+        tailers.forEach(tailer -> tailer.getMemPartition().addWaiter(current));
+        try {
+            while ((ret = read()) == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            tailers.forEach(tailer -> tailer.getMemPartition().removeWaiter(current));
         }
         return ret;
     }
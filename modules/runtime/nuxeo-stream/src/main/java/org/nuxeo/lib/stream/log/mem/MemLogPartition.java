@@ -15,13 +15,15 @@
  */
 package org.nuxeo.lib.stream.log.mem;
 
-
-import java.util.ArrayList;
-import java.util.List;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
@@ -31,15 +33,41 @@ import com.google.common.base.Objects;
 
 /**
  * Memory implementation of Log partition.
+ * <p>
+ * Messages are stored in a segmented array of fixed size chunks, appenders reserve a slot with an atomic sequence, fill
+ * it and move a publish sequence over the contiguous filled slots. Readers never lock, they only read slots below the
+ * publish sequence and park until an appender wakes them up.
  */
 public class MemLogPartition {
 
+    protected static final int CHUNK_SHIFT = 12;
+
+    protected static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    protected static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    protected static final int INITIAL_CHUNKS = 16;
+
     // group -> committed offset tracker
     private final Map<Name, OffsetTracker> offsetTrackers = new ConcurrentHashMap<>();
 
     // group -> tailer
     private final Map<Name, MemPartitionTailer> tailers = new ConcurrentHashMap<>();
 
+    // threads parked waiting for a new message
+    private final Set<Thread> waiters = ConcurrentHashMap.newKeySet();
+
+    // next slot to reserve
+    private final AtomicLong reserved = new AtomicLong();
+
+    // number of messages visible to readers
+    private final AtomicLong published = new AtomicLong();
+
+    // chunk directory, grown under lock, a chunk is allocated once
+    private volatile AtomicReferenceArray<Message[]> chunks = new AtomicReferenceArray<>(INITIAL_CHUNKS);
+
+    private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Message[].class);
+
     private record Message(String tag, byte[] bytes) { // NOSONAR (doesn't need equals/hashCode)
     }
 
@@ -84,24 +112,121 @@ public class MemLogPartition {
         }
     }
 
-    // used synchronized
-    private final List<Message> partition = new ArrayList<>();
-
     public MemLogPartition() {
     }
 
     public long append(String tag, byte[] bytes) {
         Message msg = new Message(tag, bytes);
-        synchronized (partition) {
-            partition.add(msg);
-            return partition.size() - 1L;
+        long offset = reserved.getAndIncrement();
+        SLOT.setVolatile(getChunk(offset), (int) (offset & CHUNK_MASK), msg);
+        if (publish() && !waiters.isEmpty()) {
+            waiters.forEach(LockSupport::unpark);
+        }
+        return offset;
+    }
+
+    /**
+     * Moves the publish sequence over all the contiguous written slots, any appender can move it on behalf of a
+     * slower one so there is no wait.
+     */
+    protected boolean publish() {
+        boolean moved = false;
+        long current = published.get();
+        while (current < reserved.get() && isFilled(current)) {
+            if (published.compareAndSet(current, current + 1)) {
+                moved = true;
+                current++;
+            } else {
+                current = published.get();
+            }
         }
+        return moved;
+    }
+
+    protected boolean isFilled(long offset) {
+        return SLOT.getVolatile(getChunk(offset), (int) (offset & CHUNK_MASK)) != null;
+    }
+
+    protected Message[] getChunk(long offset) {
+        int index = (int) (offset >>> CHUNK_SHIFT);
+        AtomicReferenceArray<Message[]> dir = chunks;
+        if (index >= dir.length()) {
+            dir = growChunks(index);
+        }
+        Message[] chunk = dir.get(index);
+        if (chunk == null) {
+            dir.compareAndSet(index, null, new Message[CHUNK_SIZE]);
+            chunk = dir.get(index);
+        }
+        return chunk;
+    }
+
+    protected synchronized AtomicReferenceArray<Message[]> growChunks(int index) {
+        AtomicReferenceArray<Message[]> dir = chunks;
+        if (index < dir.length()) {
+            return dir;
+        }
+        int length = dir.length();
+        AtomicReferenceArray<Message[]> newDir = new AtomicReferenceArray<>(Math.max(length * 2, index + 1));
+        for (int i = 0; i < length; i++) {
+            // allocate to make sure a concurrent chunk creation on the old directory is not lost
+            Message[] chunk = dir.get(i);
+            if (chunk == null) {
+                dir.compareAndSet(i, null, new Message[CHUNK_SIZE]);
+                chunk = dir.get(i);
+            }
+            newDir.set(i, chunk);
+        }
+        chunks = newDir;
+        return newDir;
+    }
+
+    protected Message get(long offset) {
+        return chunks.get((int) (offset >>> CHUNK_SHIFT))[(int) (offset & CHUNK_MASK)];
     }
 
     public long size() {
-        synchronized (partition) {
-            return partition.size();
+        return published.get();
+    }
+
+    /**
+     * Parks the current thread until a message is available at the given offset, or the timeout expires.
+     *
+     * @return {@code true} if a message is available
+     */
+    public boolean awaitOffset(long offset, long nanos) throws InterruptedException {
+        if (offset < size()) {
+            return true;
         }
+        long deadline = System.nanoTime() + nanos;
+        Thread current = Thread.currentThread();
+        waiters.add(current);
+        try {
+            while (offset >= size()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        } finally {
+            waiters.remove(current);
+        }
+    }
+
+    /**
+     * Registers the current thread to be unparked on the next append, used to wait on multiple partitions.
+     */
+    public void addWaiter(Thread thread) {
+        waiters.add(thread);
+    }
+
+    public void removeWaiter(Thread thread) {
+        waiters.remove(thread);
     }
 
     public OffsetTracker getCommittedOffsetTracker(Name group) {
@@ -158,14 +283,10 @@ public class MemLogPartition {
          * @throws IllegalStateException if the tag does not match
          */
         public BytesAndOffset read(String tag) {
-            Message msg;
-            synchronized (partition) {
-                try {
-                    msg = partition.get((int) offset);
-                } catch (IndexOutOfBoundsException e) {
-                    return null;
-                }
+            if (offset >= size()) {
+                return null;
             }
+            Message msg = get(offset);
             if (!Objects.equal(tag, msg.tag())) {
                 throw new IllegalArgumentException("bad tag");
             }
@@ -174,6 +295,13 @@ public class MemLogPartition {
             return res;
         }
 
+        /**
+         * Waits for a message to be available at the current offset.
+         */
+        public boolean await(long nanos) throws InterruptedException {
+            return awaitOffset(offset, nanos);
+        }
+
         public long offset() {
             return offset;
         }
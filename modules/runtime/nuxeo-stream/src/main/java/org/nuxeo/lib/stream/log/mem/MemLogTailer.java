@@ -46,12 +46,12 @@ public class MemLogTailer<M extends Externalizable> implements LogTailer<M> {
 
     private static final Logger log = LogManager.getLogger(MemLogTailer.class);
 
-    protected static final long POLL_INTERVAL_MS = 100L;
-
     private final Codec<M> codec;
 
     private final LogPartition partition;
 
+    private final MemLogPartition memPartition;
+
     private final MemPartitionTailer tailer;
 
     private final LogPartitionGroup lpg;
@@ -64,7 +64,8 @@ public class MemLogTailer<M extends Externalizable> implements LogTailer<M> {
         requireNonNull(group);
         this.codec = codec;
         this.partition = partition;
-        tailer = log.getPartition(partition.partition()).createTailer(group);
+        memPartition = log.getPartition(partition.partition());
+        tailer = memPartition.createTailer(group);
         lpg = new LogPartitionGroup(group, partition.name(), partition.partition());
     }
 
@@ -78,19 +79,16 @@ public class MemLogTailer<M extends Externalizable> implements LogTailer<M> {
     @Override
     public LogRecord<M> read(Duration timeout) throws InterruptedException {
         LogRecord<M> ret = read();
-        if (ret != null) {
-            return ret;
-        }
-        long timeoutMs = timeout.toMillis();
-        long deadline = System.currentTimeMillis() + timeoutMs;
-        long delay = Math.min(POLL_INTERVAL_MS, timeoutMs);
-        while (ret == null && System.currentTimeMillis() < deadline) {
-            Thread.sleep(delay);
+        if (ret == null && tailer.await(timeout.toNanos())) {
             ret = read();
         }
         return ret;
     }
 
+    protected MemLogPartition getMemPartition() {
+        return memPartition;
+    }
+
     @SuppressWarnings("unchecked")
     protected LogRecord<M> read() {
         if (closed) {
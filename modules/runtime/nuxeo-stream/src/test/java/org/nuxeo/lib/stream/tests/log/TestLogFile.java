@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2023 Nuxeo.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.nuxeo.lib.stream.tests.log;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.lib.stream.tests.TestUtils.getBuildDirectory;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.nuxeo.lib.stream.log.LogAppender;
+import org.nuxeo.lib.stream.log.LogLag;
+import org.nuxeo.lib.stream.log.LogManager;
+import org.nuxeo.lib.stream.log.LogPartition;
+import org.nuxeo.lib.stream.log.LogRecord;
+import org.nuxeo.lib.stream.log.LogTailer;
+import org.nuxeo.lib.stream.log.Name;
+import org.nuxeo.lib.stream.log.RebalanceListener;
+import org.nuxeo.lib.stream.log.file.FileLogManager;
+import org.nuxeo.lib.stream.log.file.FileLogSettings;
+import org.nuxeo.lib.stream.tests.KeyValueMessage;
+
+/**
+ * @since 2023.10
+ */
+public class TestLogFile extends TestLog {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder(new File(getBuildDirectory()));
+
+    protected Path basePath;
+
+    protected FileLogSettings settings = new FileLogSettings(1024 * 1024, 0, Duration.ZERO);
+
+    @Override
+    public LogManager createManager() throws Exception {
+        if (basePath == null) {
+            basePath = folder.newFolder().toPath();
+        }
+        return new FileLogManager(basePath, settings);
+    }
+
+    @Test
+    public void testRecordsSurviveRestart() throws Exception {
+        final Name GROUP = Name.ofUrn("test/group");
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        appender.append(0, KeyValueMessage.of("id1"));
+        appender.append(0, KeyValueMessage.of("id2"));
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            assertEquals("id1", readKey(tailer));
+            tailer.commit();
+        }
+
+        resetManager();
+        assertEquals(LogLag.of(1, 2), manager.getLag(logName, GROUP));
+        appender = manager.getAppender(logName);
+        appender.append(0, KeyValueMessage.of("id3"));
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(GROUP, LogPartition.of(logName, 0))) {
+            assertEquals("id2", readKey(tailer));
+            assertEquals("id3", readKey(tailer));
+            assertNull(tailer.read(SMALL_TIMEOUT));
+        }
+    }
+
+    @Test
+    public void testRetentionBySize() throws Exception {
+        // small segments and a retention of 2 segments
+        settings = new FileLogSettings(1024, 2048, Duration.ZERO);
+        resetManager();
+        final int NB_MSG = 200;
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < NB_MSG; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(Name.ofUrn("test/group"),
+                LogPartition.of(logName, 0))) {
+            LogRecord<KeyValueMessage> record = tailer.read(DEF_TIMEOUT);
+            assertNotNull(record);
+            // oldest records have been removed
+            assertTrue(record.offset().offset() > 0);
+            long count = 1;
+            while (tailer.read(SMALL_TIMEOUT) != null) {
+                count++;
+            }
+            assertEquals(NB_MSG - record.offset().offset(), count);
+        }
+    }
+
+    @Test
+    public void testRetentionByAgeWithoutAppend() throws Exception {
+        // small segments and a retention of 200ms, checked without waiting for a roll
+        settings = new FileLogSettings(1024, 0, Duration.ofMillis(200));
+        resetManager();
+        final int NB_MSG = 200;
+        manager.createIfNotExists(logName, 1);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        for (int i = 0; i < NB_MSG; i++) {
+            appender.append(0, KeyValueMessage.of("id" + i));
+        }
+        Thread.sleep(1000);
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(Name.ofUrn("test/group"),
+                LogPartition.of(logName, 0))) {
+            LogRecord<KeyValueMessage> record = tailer.read(DEF_TIMEOUT);
+            assertNotNull(record);
+            // only the active segment remains
+            assertTrue(record.offset().offset() > 0);
+            assertEquals("id" + record.offset().offset(), record.message().key());
+        }
+    }
+
+    @Test
+    public void testSubscribe() throws Exception {
+        final Name GROUP = Name.ofUrn("test/group");
+        manager.createIfNotExists(logName, 2);
+        LogAppender<KeyValueMessage> appender = manager.getAppender(logName);
+        appender.append(0, KeyValueMessage.of("id1"));
+        appender.append(1, KeyValueMessage.of("id2"));
+        List<LogPartition> assigned = new ArrayList<>();
+        RebalanceListener listener = new RebalanceListener() {
+            @Override
+            public void onPartitionsRevoked(Collection<LogPartition> partitions) {
+                assigned.removeAll(partitions);
+            }
+
+            @Override
+            public void onPartitionsAssigned(Collection<LogPartition> partitions) {
+                assigned.addAll(partitions);
+            }
+        };
+        try (LogTailer<KeyValueMessage> tailer = manager.subscribe(GROUP, List.of(logName), listener)) {
+            assertEquals(List.of(LogPartition.of(logName, 0), LogPartition.of(logName, 1)), assigned);
+            assertEquals(assigned, List.copyOf(tailer.assignments()));
+            List<String> keys = List.of(readKey(tailer), readKey(tailer));
+            assertTrue(keys.containsAll(List.of("id1", "id2")));
+            tailer.commit();
+            // no group coordination, a second subscriber is rejected
+            assertThrows(IllegalArgumentException.class, () -> manager.subscribe(GROUP, List.of(logName), null));
+        }
+        assertEquals(LogLag.of(2, 2), manager.getLag(logName, GROUP));
+    }
+
+    @Test
+    public void testOpenWithOtherSettings() throws Exception {
+        // the logs of a directory are shared, the same settings can be used
+        createManager().close();
+        FileLogSettings otherSettings = new FileLogSettings(1024, 0, Duration.ZERO);
+        assertThrows(IllegalArgumentException.class, () -> new FileLogManager(basePath, otherSettings));
+        // once released, the directory can be opened with other settings
+        settings = otherSettings;
+        resetManager();
+        manager.createIfNotExists(logName, 1);
+        manager.getAppender(logName).append(0, KeyValueMessage.of("id1"));
+        try (LogTailer<KeyValueMessage> tailer = manager.createTailer(Name.ofUrn("test/group"),
+                LogPartition.of(logName, 0))) {
+            assertEquals("id1", readKey(tailer));
+        }
+    }
+
+    @Test
+    public void testDelete() {
+        manager.createIfNotExists(logName, 2);
+        assertTrue(manager.exists(logName));
+        assertTrue(manager.delete(logName));
+        assertFalse(manager.exists(logName));
+        assertFalse(basePath.resolve(logName.getId()).toFile().exists());
+    }
+
+}